@@ -41,6 +41,12 @@ public final class FlacExtractor implements Extractor {
    */
   private static final byte[] FLAC_SIGNATURE = {'f', 'L', 'a', 'C', 0, 0, 0, 0x22};
 
+  /**
+   * The target size of each output sample. As many frames as fit are decoded into each sample, so
+   * that the cost of each call into libflac is amortized over several frames.
+   */
+  private static final int TARGET_OUTPUT_BUFFER_SIZE = 64 * 1024;
+
   private ExtractorOutput output;
   private TrackOutput trackOutput;
 
@@ -48,8 +54,10 @@ public final class FlacExtractor implements Extractor {
 
   private boolean metadataParsed;
 
+  private FlacStreamInfo streamInfo;
   private ParsableByteArray outputBuffer;
   private ByteBuffer outputByteBuffer;
+  private int[] frameBlockSizes;
 
   @Override
   public void init(ExtractorOutput output) {
@@ -77,14 +85,14 @@ public final class FlacExtractor implements Extractor {
     decoder.setData(input);
 
     if (!metadataParsed) {
-      FlacStreamInfo streamInfo = decoder.decodeMetadata();
+      streamInfo = decoder.decodeMetadata();
       if (streamInfo == null) {
         throw new IOException("Metadata decoding failed");
       }
       metadataParsed = true;
 
+      final boolean isSeekable = decoder.isSeekable();
       output.seekMap(new SeekMap() {
-        final boolean isSeekable = decoder.getSeekPosition(0) != -1;
 
         @Override
         public boolean isSeekable() {
@@ -93,7 +101,7 @@ public final class FlacExtractor implements Extractor {
 
         @Override
         public long getPosition(long timeUs) {
-          return isSeekable ? decoder.getSeekPosition(timeUs) : 0;
+          return decoder.getSeekPosition(timeUs);
         }
       });
 
@@ -102,18 +110,36 @@ public final class FlacExtractor implements Extractor {
               streamInfo.channels, streamInfo.sampleRate, null, null, C.ENCODING_PCM_16BIT);
       trackOutput.format(mediaFormat);
 
-      outputBuffer = new ParsableByteArray(streamInfo.maxDecodedFrameSize());
+      int maxDecodedFrameSize = streamInfo.maxDecodedFrameSize();
+      int framesPerOutputBuffer = Math.max(1, TARGET_OUTPUT_BUFFER_SIZE / maxDecodedFrameSize);
+      outputBuffer = new ParsableByteArray(framesPerOutputBuffer * maxDecodedFrameSize);
       outputByteBuffer = ByteBuffer.wrap(outputBuffer.data);
+      frameBlockSizes = new int[framesPerOutputBuffer];
     }
 
     outputBuffer.reset();
-    int size = decoder.decodeSample(outputByteBuffer);
+    int size = decoder.decodeSamples(outputByteBuffer, frameBlockSizes.length);
     if (size <= 0) {
       return RESULT_END_OF_INPUT;
     }
     trackOutput.sampleData(outputBuffer, size);
 
-    trackOutput.sampleMetadata(decoder.getLastSampleTimestamp(), C.SAMPLE_FLAG_SYNC, size, 0, null);
+    // Output each frame as a sample with its own timestamp, so that frames before a seek position
+    // can be skipped exactly.
+    long firstFrameTimeUs = decoder.getLastSampleTimestamp();
+    int frameCount = decoder.getLastFrameBlockSizes(frameBlockSizes);
+    int bytesPerSample = streamInfo.channels * 2;
+    long samplesBeforeFrame = 0;
+    int frameEndPosition = 0;
+    for (int i = 0; i < frameCount; i++) {
+      int frameSize = frameBlockSizes[i] * bytesPerSample;
+      frameEndPosition += frameSize;
+      long timeUs = firstFrameTimeUs
+          + (samplesBeforeFrame * C.MICROS_PER_SECOND) / streamInfo.sampleRate;
+      trackOutput.sampleMetadata(timeUs, C.SAMPLE_FLAG_SYNC, frameSize, size - frameEndPosition,
+          null);
+      samplesBeforeFrame += frameBlockSizes[i];
+    }
 
     return decoder.isEndOfData() ? RESULT_END_OF_INPUT : RESULT_CONTINUE;
   }
@@ -51,6 +51,7 @@ import java.nio.ByteBuffer;
   private ExtractorInput extractorInput;
   private boolean endOfExtractorInput;
   private byte[] tempBuffer;
+  private boolean positionResetPending;
 
   public FlacJni() throws FlacDecoderException {
     nativeDecoderContext = flacInit();
@@ -67,6 +68,7 @@ import java.nio.ByteBuffer;
     this.byteBufferData = byteBufferData;
     this.extractorInput = null;
     this.tempBuffer = null;
+    positionResetPending = false;
   }
 
   /**
@@ -80,6 +82,12 @@ import java.nio.ByteBuffer;
       this.tempBuffer = new byte[TEMP_BUFFER_SIZE];
     }
     endOfExtractorInput = false;
+    if (positionResetPending) {
+      // The input may start at a different position following a flush. Tell libflac where it
+      // starts, so that the positions of subsequently decoded frames can be indexed.
+      flacSetPosition(nativeDecoderContext, extractorInput.getPosition());
+      positionResetPending = false;
+    }
   }
 
   public boolean isEndOfData() {
@@ -135,22 +143,64 @@ import java.nio.ByteBuffer;
   }
 
   public int decodeSample(ByteBuffer output) {
+    return decodeSamples(output, 1);
+  }
+
+  /**
+   * Decodes consecutive frames into {@code output} in a single call to libflac, stopping early if
+   * the remaining space may not be sufficient for another frame.
+   *
+   * @param output The buffer into which decoded samples should be written.
+   * @param maxFrameCount The maximum number of frames to decode.
+   * @return The number of bytes written, or a negative value if no frame could be decoded.
+   */
+  public int decodeSamples(ByteBuffer output, int maxFrameCount) {
     return output.isDirect()
-        ? flacDecodeToBuffer(nativeDecoderContext, output)
-        : flacDecodeToArray(nativeDecoderContext, output.array());
+        ? flacDecodeToBuffer(nativeDecoderContext, output, maxFrameCount)
+        : flacDecodeToArray(nativeDecoderContext, output.array(), maxFrameCount);
   }
 
+  /**
+   * Returns the timestamp of the first frame decoded by the last call to {@link #decodeSample} or
+   * {@link #decodeSamples}.
+   */
   public long getLastSampleTimestamp() {
     return flacGetLastTimestamp(nativeDecoderContext);
   }
 
+  /**
+   * Gets the block size of each frame decoded by the last call to {@link #decodeSample} or
+   * {@link #decodeSamples}, in samples per channel.
+   *
+   * @param blockSizes An array into which the block sizes are written. Must be large enough to
+   *     hold one entry per decoded frame.
+   * @return The number of frames decoded by the last call.
+   */
+  public int getLastFrameBlockSizes(int[] blockSizes) {
+    return flacGetLastFrameBlockSizes(nativeDecoderContext, blockSizes);
+  }
+
+  /**
+   * Returns whether the stream has a seek table, and therefore whether {@link #getSeekPosition}
+   * can locate positions that have not yet been decoded.
+   */
+  public boolean isSeekable() {
+    return flacIsSeekable(nativeDecoderContext);
+  }
+
   /**
    * Maps a seek position in microseconds to a corresponding position (byte offset) in the flac
    * stream.
+   * <p>
+   * The position is that of the latest frame at or before the seek position that is known either
+   * from the stream's seek table, if it has one, or from an index of the frames decoded so far.
+   * libflac records a point in the index up to ten times per second of decoded audio, so seeking
+   * back to a position that has been played is close to exact. If no such frame is known, the
+   * position of the first frame is returned. Seeking should therefore only be allowed if
+   * {@link #isSeekable()} returns true.
    *
    * @param timeUs A seek position in microseconds.
-   * @return The corresponding position (byte offset) in the flac stream or -1 if the stream doesn't
-   * have a seek table.
+   * @return The corresponding position (byte offset) in the flac stream.
    */
   public long getSeekPosition(long timeUs) {
     return flacGetSeekPosition(nativeDecoderContext, timeUs);
@@ -158,6 +208,7 @@ import java.nio.ByteBuffer;
 
   public void flush() {
     flacFlush(nativeDecoderContext);
+    positionResetPending = true;
   }
 
   public void release() {
@@ -178,16 +229,22 @@ import java.nio.ByteBuffer;
 
   private native FlacStreamInfo flacDecodeMetadata(long context);
 
-  private native int flacDecodeToBuffer(long context, ByteBuffer outputBuffer);
+  private native int flacDecodeToBuffer(long context, ByteBuffer outputBuffer, int maxFrameCount);
 
-  private native int flacDecodeToArray(long context, byte[] outputArray);
+  private native int flacDecodeToArray(long context, byte[] outputArray, int maxFrameCount);
 
   private native long flacGetLastTimestamp(long context);
 
+  private native int flacGetLastFrameBlockSizes(long context, int[] blockSizes);
+
+  private native boolean flacIsSeekable(long context);
+
   private native long flacGetSeekPosition(long context, long timeUs);
 
   private native void flacFlush(long context);
 
+  private native void flacSetPosition(long context, long position);
+
   private native void flacRelease(long context);
 
 }
@@ -291,6 +291,12 @@ public final class LibflacAudioTrackRenderer extends SampleSourceTrackRenderer
         || (format != null && (sourceIsReady || outputBuffer != null));
   }
 
+  @Override
+  protected long getMaxWakeupDelayUs(long positionUs, long elapsedRealtimeUs) {
+    // Wake up whilst the audio track still holds enough data to avoid an underrun.
+    return audioTrack.getPendingDataDurationUs() / 2;
+  }
+
   @Override
   public long getPositionUs() {
     long newCurrentPositionUs = audioTrack.getCurrentPositionUs(isEnded());
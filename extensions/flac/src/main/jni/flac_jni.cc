@@ -100,20 +100,23 @@ FUNC(jobject, flacDecodeMetadata, jlong jContext) {
                         streamInfo.total_samples);
 }
 
-FUNC(jint, flacDecodeToBuffer, jlong jContext, jobject jOutputBuffer) {
+FUNC(jint, flacDecodeToBuffer, jlong jContext, jobject jOutputBuffer,
+     jint maxFrameCount) {
   Context *context = reinterpret_cast<Context *>(jContext);
   context->source->setFlacJni(env, thiz);
   void *outputBuffer = env->GetDirectBufferAddress(jOutputBuffer);
   jint outputSize = env->GetDirectBufferCapacity(jOutputBuffer);
-  return context->parser->readBuffer(outputBuffer, outputSize);
+  return context->parser->readBuffer(outputBuffer, outputSize, maxFrameCount);
 }
 
-FUNC(jint, flacDecodeToArray, jlong jContext, jbyteArray jOutputArray) {
+FUNC(jint, flacDecodeToArray, jlong jContext, jbyteArray jOutputArray,
+     jint maxFrameCount) {
   Context *context = reinterpret_cast<Context *>(jContext);
   context->source->setFlacJni(env, thiz);
   jbyte *outputBuffer = env->GetByteArrayElements(jOutputArray, NULL);
   jint outputSize = env->GetArrayLength(jOutputArray);
-  int count = context->parser->readBuffer(outputBuffer, outputSize);
+  int count =
+      context->parser->readBuffer(outputBuffer, outputSize, maxFrameCount);
   env->ReleaseByteArrayElements(jOutputArray, outputBuffer, 0);
   return count;
 }
@@ -123,6 +126,21 @@ FUNC(jlong, flacGetLastTimestamp, jlong jContext) {
   return context->parser->getLastTimestamp();
 }
 
+FUNC(jint, flacGetLastFrameBlockSizes, jlong jContext, jintArray jBlockSizes) {
+  Context *context = reinterpret_cast<Context *>(jContext);
+  jint *blockSizes = env->GetIntArrayElements(jBlockSizes, NULL);
+  size_t count = context->parser->getLastFrameBlockSizes(
+      reinterpret_cast<unsigned *>(blockSizes),
+      env->GetArrayLength(jBlockSizes));
+  env->ReleaseIntArrayElements(jBlockSizes, blockSizes, 0);
+  return count;
+}
+
+FUNC(jboolean, flacIsSeekable, jlong jContext) {
+  Context *context = reinterpret_cast<Context *>(jContext);
+  return context->parser->isSeekable();
+}
+
 FUNC(jlong, flacGetSeekPosition, jlong jContext, jlong timeUs) {
   Context *context = reinterpret_cast<Context *>(jContext);
   return context->parser->getSeekPosition(timeUs);
@@ -133,6 +151,11 @@ FUNC(void, flacFlush, jlong jContext) {
   context->parser->flush();
 }
 
+FUNC(void, flacSetPosition, jlong jContext, jlong position) {
+  Context *context = reinterpret_cast<Context *>(jContext);
+  context->parser->setPosition(position);
+}
+
 FUNC(void, flacRelease, jlong jContext) {
   Context *context = reinterpret_cast<Context *>(jContext);
   delete context->parser;
@@ -275,8 +275,10 @@ FLACParser::FLACParser(DataSource *source)
       mWriteRequested(false),
       mWriteCompleted(false),
       mWriteBuffer(NULL),
+      mReadSampleNumber(0),
       mErrorStatus((FLAC__StreamDecoderErrorStatus)-1) {
   ALOGV("FLACParser::FLACParser");
+  pthread_mutex_init(&mSeekIndexMutex, NULL);
   memset(&mStreamInfo, 0, sizeof(mStreamInfo));
   memset(&mWriteHeader, 0, sizeof(mWriteHeader));
 }
@@ -287,6 +289,7 @@ FLACParser::~FLACParser() {
     FLAC__stream_decoder_delete(mDecoder);
     mDecoder = NULL;
   }
+  pthread_mutex_destroy(&mSeekIndexMutex);
 }
 
 bool FLACParser::init() {
@@ -353,6 +356,8 @@ bool FLACParser::init() {
       case 48000:
       case 88200:
       case 96000:
+      case 176400:
+      case 192000:
         break;
       default:
         ALOGE("unsupported sample rate %u", getSampleRate());
@@ -383,76 +388,158 @@ bool FLACParser::init() {
   return true;
 }
 
-size_t FLACParser::readBuffer(void *output, size_t output_size) {
+bool FLACParser::decodeFrame() {
   mWriteRequested = true;
   mWriteCompleted = false;
 
   if (!FLAC__stream_decoder_process_single(mDecoder)) {
-    ALOGE("FLACParser::readBuffer process_single failed. Status: %s",
+    ALOGE("FLACParser::decodeFrame process_single failed. Status: %s",
             FLAC__stream_decoder_get_resolved_state_string(mDecoder));
-    return -1;
+    return false;
   }
   if (!mWriteCompleted) {
     if (FLAC__stream_decoder_get_state(mDecoder) !=
         FLAC__STREAM_DECODER_END_OF_STREAM) {
-      ALOGE("FLACParser::readBuffer write did not complete. Status: %s",
+      ALOGE("FLACParser::decodeFrame write did not complete. Status: %s",
             FLAC__stream_decoder_get_resolved_state_string(mDecoder));
     }
-    return -1;
+    return false;
   }
 
   // verify that block header keeps the promises made by STREAMINFO
   unsigned blocksize = mWriteHeader.blocksize;
   if (blocksize == 0 || blocksize > getMaxBlockSize()) {
-    ALOGE("FLACParser::readBuffer write invalid blocksize %u", blocksize);
-    return -1;
+    ALOGE("FLACParser::decodeFrame write invalid blocksize %u", blocksize);
+    return false;
   }
   if (mWriteHeader.sample_rate != getSampleRate() ||
       mWriteHeader.channels != getChannels() ||
       mWriteHeader.bits_per_sample != getBitsPerSample()) {
     ALOGE(
-        "FLACParser::readBuffer write changed parameters mid-stream: %d/%d/%d "
-        "-> %d/%d/%d",
+        "FLACParser::decodeFrame write changed parameters mid-stream: "
+        "%d/%d/%d -> %d/%d/%d",
         getSampleRate(), getChannels(), getBitsPerSample(),
         mWriteHeader.sample_rate, mWriteHeader.channels,
         mWriteHeader.bits_per_sample);
-    return -1;
-  }
-
-  size_t bufferSize = blocksize * getChannels() * sizeof(int16_t);
-  if (bufferSize > output_size) {
-    ALOGE(
-        "FLACParser::readBuffer not enough space in output buffer "
-        "%zu < %zu",
-        output_size, bufferSize);
-    return -1;
+    return false;
   }
 
-  // copy PCM from FLAC write buffer to our media buffer, with interleaving.
-  (*mCopy)(reinterpret_cast<int16_t *>(output), mWriteBuffer, blocksize,
-           getChannels());
-
   // fill in buffer metadata
   CHECK(mWriteHeader.number_type == FLAC__FRAME_NUMBER_TYPE_SAMPLE_NUMBER);
+  return true;
+}
+
+size_t FLACParser::readBuffer(void *output, size_t output_size,
+                              int maxFrameCount) {
+  const size_t maxBufferSize =
+      getMaxBlockSize() * getChannels() * sizeof(int16_t);
+  size_t outputPosition = 0;
+  mReadBlockSizes.clear();
+  for (int i = 0; i < maxFrameCount; ++i) {
+    if (i > 0 && output_size - outputPosition < maxBufferSize) {
+      // there may not be enough space for another frame
+      break;
+    }
+    // the decode position is the offset of the frame about to be decoded,
+    // provided that libFLAC has not buffered a partially consumed frame
+    FLAC__uint64 frameOffset;
+    bool frameOffsetKnown =
+        FLAC__stream_decoder_get_decode_position(mDecoder, &frameOffset);
+    if (!decodeFrame()) {
+      break;
+    }
 
-  return bufferSize;
+    size_t bufferSize = mWriteHeader.blocksize * getChannels() *
+        sizeof(int16_t);
+    if (bufferSize > output_size - outputPosition) {
+      ALOGE(
+          "FLACParser::readBuffer not enough space in output buffer "
+          "%zu < %zu",
+          output_size - outputPosition, bufferSize);
+      return -1;
+    }
+
+    // copy PCM from FLAC write buffer to our media buffer, with interleaving.
+    (*mCopy)(reinterpret_cast<int16_t *>(
+                 reinterpret_cast<uint8_t *>(output) + outputPosition),
+             mWriteBuffer, mWriteHeader.blocksize, getChannels());
+    if (i == 0) {
+      mReadSampleNumber = mWriteHeader.number.sample_number;
+    }
+    mReadBlockSizes.push_back(mWriteHeader.blocksize);
+    if (frameOffsetKnown) {
+      addSeekPoint(frameOffset);
+    }
+    outputPosition += bufferSize;
+  }
+  return outputPosition == 0 ? -1 : outputPosition;
 }
 
-int64_t FLACParser::getSeekPosition(int64_t timeUs) {
-  if (!mSeekTable) {
-    return -1;
+void FLACParser::addSeekPoint(FLAC__uint64 frameOffset) {
+  if (frameOffset < firstFrameOffset) {
+    return;
   }
+  // Record at most this many points per second of audio, which keeps the index
+  // small whilst allowing seeks to start within a fraction of a second of the
+  // target.
+  const unsigned kSeekPointsPerSecond = 10;
+  FLAC__uint64 sampleNumber = mWriteHeader.number.sample_number;
+  pthread_mutex_lock(&mSeekIndexMutex);
+  // points are only appended after the last point, so the index stays ordered
+  // when decoding resumes from an earlier position after a seek
+  if (mSeekIndex.empty() ||
+      sampleNumber >= mSeekIndex.back().sample_number +
+                          getSampleRate() / kSeekPointsPerSecond) {
+    FLAC__StreamMetadata_SeekPoint point;
+    point.sample_number = sampleNumber;
+    point.stream_offset = frameOffset - firstFrameOffset;
+    point.frame_samples = mWriteHeader.blocksize;
+    mSeekIndex.push_back(point);
+  }
+  pthread_mutex_unlock(&mSeekIndexMutex);
+}
 
-  int64_t sample = (timeUs * getSampleRate()) / 1000000LL;
-  if (sample >= getTotalSamples()) {
-      sample = getTotalSamples();
+int64_t FLACParser::getSeekPosition(int64_t timeUs) {
+  FLAC__uint64 sample = (timeUs * getSampleRate()) / 1000000LL;
+  if (getTotalSamples() > 0 && sample >= getTotalSamples()) {
+    sample = getTotalSamples();
   }
 
-  FLAC__StreamMetadata_SeekPoint* points = mSeekTable->points;
-  for (unsigned i = mSeekTable->num_points - 1; i >= 0; i--) {
-    if (points[i].sample_number <= sample) {
-      return firstFrameOffset + points[i].stream_offset;
+  // find the last point at or before the sample in the SEEKTABLE, if present,
+  // and in the index of decoded frames, and use whichever is later
+  bool found = false;
+  FLAC__StreamMetadata_SeekPoint best;
+  if (mSeekTable) {
+    const FLAC__StreamMetadata_SeekPoint *points = mSeekTable->points;
+    // placeholder points have the largest possible sample number, so they are
+    // never before the sample
+    for (unsigned i = mSeekTable->num_points; i > 0; i--) {
+      if (points[i - 1].sample_number <= sample) {
+        best = points[i - 1];
+        found = true;
+        break;
+      }
     }
   }
-  return firstFrameOffset;
+  pthread_mutex_lock(&mSeekIndexMutex);
+  size_t low = 0;
+  size_t high = mSeekIndex.size();
+  while (low < high) {
+    size_t mid = low + (high - low) / 2;
+    if (mSeekIndex[mid].sample_number <= sample) {
+      low = mid + 1;
+    } else {
+      high = mid;
+    }
+  }
+  if (low > 0 &&
+      (!found || mSeekIndex[low - 1].sample_number > best.sample_number)) {
+    best = mSeekIndex[low - 1];
+    found = true;
+  }
+  pthread_mutex_unlock(&mSeekIndexMutex);
+
+  // without a point, decoding starts from the first frame. This only happens
+  // for streams with a SEEKTABLE when seeking before its first point.
+  return firstFrameOffset + (found ? best.stream_offset : 0);
 }
@@ -17,8 +17,11 @@
 #ifndef FLAC_PARSER_H_
 #define FLAC_PARSER_H_
 
+#include <pthread.h>
 #include <stdint.h>
 
+#include <vector>
+
 // libFLAC parser
 #include "FLAC/stream_decoder.h"
 
@@ -44,11 +47,30 @@ class FLACParser {
     return mStreamInfo;
   }
 
+  // Returns the timestamp of the first frame decoded by the last call to
+  // readBuffer.
   int64_t getLastTimestamp() const {
-    return (1000000LL * mWriteHeader.number.sample_number) / getSampleRate();
+    return (1000000LL * mReadSampleNumber) / getSampleRate();
   }
 
-  size_t readBuffer(void *output, size_t output_size);
+  // Returns the number of frames decoded by the last call to readBuffer, and
+  // writes the block size of each to blockSizes, up to maxCount of them.
+  size_t getLastFrameBlockSizes(unsigned *blockSizes, size_t maxCount) const {
+    size_t count = mReadBlockSizes.size();
+    for (size_t i = 0; i < count && i < maxCount; ++i) {
+      blockSizes[i] = mReadBlockSizes[i];
+    }
+    return count;
+  }
+
+  // Returns whether the stream has a SEEKTABLE. Without one, seeking forward
+  // would mean decoding from the first frame.
+  bool isSeekable() const { return mSeekTable != NULL; }
+
+  // Decodes up to maxFrameCount frames into output, stopping early if the
+  // remaining space could not hold a frame of the maximum block size. Returns
+  // the number of bytes written, or -1 if no frame could be decoded.
+  size_t readBuffer(void *output, size_t output_size, int maxFrameCount);
 
   int64_t getSeekPosition(int64_t timeUs);
 
@@ -58,6 +80,14 @@ class FLACParser {
     }
   }
 
+  // Sets the position in the data source from which the next read is made.
+  // Must be called after flush if the source was repositioned, so that the
+  // offsets of subsequently decoded frames are known.
+  void setPosition(off64_t position) {
+    mCurrentPos = position;
+    mEOF = false;
+  }
+
  private:
   DataSource *mDataSource;
 
@@ -78,6 +108,17 @@ class FLACParser {
   const FLAC__StreamMetadata_SeekTable *mSeekTable;
   uint64_t firstFrameOffset;
 
+  // seek points recorded for decoded frames, ordered by sample number, with
+  // offsets relative to the first frame as in a SEEKTABLE. Guarded by
+  // mSeekIndexMutex, since seek positions are requested from another thread.
+  std::vector<FLAC__StreamMetadata_SeekPoint> mSeekIndex;
+  pthread_mutex_t mSeekIndexMutex;
+
+  // sample number of the first frame decoded by the last call to readBuffer
+  FLAC__uint64 mReadSampleNumber;
+  // block size of each frame decoded by the last call to readBuffer
+  std::vector<unsigned> mReadBlockSizes;
+
   // cached when a decoded PCM block is "written" by libFLAC parser
   bool mWriteRequested;
   bool mWriteCompleted;
@@ -91,6 +132,9 @@ class FLACParser {
   FLACParser(const FLACParser &);
   FLACParser &operator=(const FLACParser &);
 
+  bool decodeFrame();
+  void addSeekPoint(FLAC__uint64 frameOffset);
+
   // FLAC parser callbacks as C++ instance methods
   FLAC__StreamDecoderReadStatus readCallback(FLAC__byte buffer[],
                                              size_t *bytes);
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.ext.okhttp;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.upstream.DataSpec;
+
+import android.net.Uri;
+
+import junit.framework.TestCase;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test for {@link OkHttpSession}, using a local server.
+ */
+public class OkHttpSessionTest extends TestCase {
+
+  private static final String USER_AGENT = "OkHttpSessionTest";
+  private static final String BODY = "media data";
+  private static final long TIMEOUT_MS = 5000;
+
+  private MockWebServer server;
+  private OkHttpSession session;
+
+  @Override
+  public void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+    session = new OkHttpSession(new OkHttpClient(), USER_AGENT);
+  }
+
+  @Override
+  public void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  public void testSourcesShareConnection() throws Exception {
+    server.enqueue(new MockResponse().setBody(BODY));
+    server.enqueue(new MockResponse().setBody(BODY));
+    Uri uri = Uri.parse(server.url("/media").toString());
+
+    assertEquals(BODY, readFully(session.createDataSource(null, null), uri));
+    assertEquals(BODY, readFully(session.createDataSource(null, null), uri));
+
+    // Requests made on the same connection have consecutive sequence numbers.
+    assertEquals(0, takeRequest().getSequenceNumber());
+    assertEquals(1, takeRequest().getSequenceNumber());
+    assertEquals(1, session.getClient().connectionPool().connectionCount());
+  }
+
+  public void testWarmUpConnectsBeforeOpen() throws Exception {
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse().setBody(BODY));
+
+    session.warmUp(Uri.parse(server.url("/first").toString()));
+    RecordedRequest warmUpRequest = takeRequest();
+    assertEquals("HEAD", warmUpRequest.getMethod());
+    assertEquals(USER_AGENT, warmUpRequest.getHeader("User-Agent"));
+    assertEquals(0, warmUpRequest.getSequenceNumber());
+    awaitIdleConnection();
+
+    // The origin has already been warmed up, so no further request is made.
+    session.warmUp(Uri.parse(server.url("/second").toString()));
+    assertEquals(BODY, readFully(session.createDataSource(null, null),
+        Uri.parse(server.url("/media").toString())));
+    RecordedRequest mediaRequest = takeRequest();
+    assertEquals("GET", mediaRequest.getMethod());
+    assertEquals("/media", mediaRequest.getPath());
+    // The media request used the connection opened by the warm-up request.
+    assertEquals(1, mediaRequest.getSequenceNumber());
+    assertEquals(2, server.getRequestCount());
+  }
+
+  private RecordedRequest takeRequest() throws InterruptedException {
+    RecordedRequest request = server.takeRequest(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    assertNotNull(request);
+    return request;
+  }
+
+  private void awaitIdleConnection() throws InterruptedException {
+    // The warm-up response is closed asynchronously, after which its connection returns to the
+    // pool.
+    long deadlineMs = System.currentTimeMillis() + TIMEOUT_MS;
+    while (session.getClient().connectionPool().idleConnectionCount() == 0) {
+      assertTrue(System.currentTimeMillis() < deadlineMs);
+      Thread.sleep(10);
+    }
+  }
+
+  private static String readFully(OkHttpDataSource dataSource, Uri uri) throws IOException {
+    dataSource.open(new DataSpec(uri));
+    try {
+      byte[] buffer = new byte[1024];
+      int length = 0;
+      int bytesRead;
+      while ((bytesRead = dataSource.read(buffer, length, buffer.length - length))
+          != C.RESULT_END_OF_INPUT) {
+        length += bytesRead;
+      }
+      return new String(buffer, 0, length, "UTF-8");
+    } finally {
+      dataSource.close();
+    }
+  }
+
+}
@@ -18,12 +18,21 @@ package com.google.android.exoplayer.ext.okhttp;
 import com.google.android.exoplayer.C;
 import com.google.android.exoplayer.upstream.DataSpec;
 import com.google.android.exoplayer.upstream.HttpDataSource;
+import com.google.android.exoplayer.upstream.HttpRequestListener;
+import com.google.android.exoplayer.upstream.HttpRequestMetrics;
+import com.google.android.exoplayer.upstream.HttpSkipStrategy;
+import com.google.android.exoplayer.upstream.Loader;
+import com.google.android.exoplayer.upstream.SkippableDataSource;
 import com.google.android.exoplayer.upstream.TransferListener;
 import com.google.android.exoplayer.util.Assertions;
 import com.google.android.exoplayer.util.Predicate;
 
+import android.os.SystemClock;
+
 import okhttp3.CacheControl;
+import okhttp3.Connection;
 import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -37,22 +46,35 @@ import java.io.InterruptedIOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * An {@link HttpDataSource} that delegates to Square's {@link OkHttpClient}.
+ * <p>
+ * When the source is asked to skip a large amount of data, it may close its response and request
+ * the data that follows instead of reading and discarding the skipped data. This is decided by an
+ * {@link HttpSkipStrategy}. If the skip reaches the end of the requested range, the response is
+ * closed without a new request.
  */
-public class OkHttpDataSource implements HttpDataSource {
+public class OkHttpDataSource implements HttpDataSource, SkippableDataSource {
 
   private static final AtomicReference<byte[]> skipBufferReference = new AtomicReference<>();
 
+  // Connections on which a request has been made, for reporting connection reuse.
+  private static final WeakHashMap<Connection, Boolean> usedConnections = new WeakHashMap<>();
+
   private final OkHttpClient okHttpClient;
   private final String userAgent;
   private final Predicate<String> contentTypePredicate;
   private final TransferListener listener;
   private final CacheControl cacheControl;
   private final HashMap<String, String> requestProperties;
+  private final HttpSkipStrategy skipStrategy;
 
+  private OkHttpClient callClient;
+  private HttpRequestListener requestListener;
+  private HttpRequestMetrics requestMetrics;
   private DataSpec dataSpec;
   private Response response;
   private InputStream responseByteStream;
@@ -106,12 +128,56 @@ public class OkHttpDataSource implements HttpDataSource {
   public OkHttpDataSource(OkHttpClient client, String userAgent,
       Predicate<String> contentTypePredicate, TransferListener listener,
       CacheControl cacheControl) {
+    this(client, userAgent, contentTypePredicate, listener, cacheControl,
+        new HttpSkipStrategy(HttpSkipStrategy.DEFAULT_MIN_REQUEST_SKIP_BYTES));
+  }
+
+  /**
+   * @param client An {@link OkHttpClient} for use by the source.
+   * @param userAgent The User-Agent string that should be used.
+   * @param contentTypePredicate An optional {@link Predicate}. If a content type is rejected by the
+   *     predicate then a
+   *     {@link com.google.android.exoplayer.upstream.HttpDataSource.InvalidContentTypeException} is
+   *     thrown from {@link #open(DataSpec)}.
+   * @param listener An optional listener.
+   * @param cacheControl An optional {@link CacheControl} which sets all requests' Cache-Control
+   *     header. For example, you could force the network response for all requests.
+   * @param skipStrategy Decides how data is skipped. May be shared with other sources.
+   */
+  public OkHttpDataSource(OkHttpClient client, String userAgent,
+      Predicate<String> contentTypePredicate, TransferListener listener,
+      CacheControl cacheControl, HttpSkipStrategy skipStrategy) {
     this.okHttpClient = Assertions.checkNotNull(client);
+    this.callClient = client;
     this.userAgent = Assertions.checkNotEmpty(userAgent);
     this.contentTypePredicate = contentTypePredicate;
     this.listener = listener;
     this.cacheControl = cacheControl;
     this.requestProperties = new HashMap<>();
+    this.skipStrategy = Assertions.checkNotNull(skipStrategy);
+  }
+
+  /**
+   * Returns the strategy that decides how data is skipped, which also counts the bytes skipped.
+   */
+  public final HttpSkipStrategy getSkipStrategy() {
+    return skipStrategy;
+  }
+
+  /**
+   * Sets a listener to receive the timings of each request made by the source.
+   * <p>
+   * Whilst a listener is set, requests are made using a client derived from the one passed to the
+   * constructor, with a network interceptor that records the connection phase. The derived client
+   * shares the connection pool of the original. Responses served from a cache have no connection
+   * phase.
+   *
+   * @param requestListener The listener, or null.
+   */
+  public void setRequestListener(HttpRequestListener requestListener) {
+    this.requestListener = requestListener;
+    callClient = requestListener == null ? okHttpClient
+        : okHttpClient.newBuilder().addNetworkInterceptor(new MetricsInterceptor()).build();
   }
 
   @Override
@@ -155,9 +221,16 @@ public class OkHttpDataSource implements HttpDataSource {
     this.bytesSkipped = 0;
     Request request = makeRequest(dataSpec);
     try {
-      response = okHttpClient.newCall(request).execute();
+      long requestStartTimeMs = SystemClock.elapsedRealtime();
+      startRequestMetrics(dataSpec, requestStartTimeMs);
+      response = callClient.newCall(request).execute();
+      skipStrategy.onResponse(SystemClock.elapsedRealtime() - requestStartTimeMs);
+      onResponseStarted();
       responseByteStream = response.body().byteStream();
     } catch (IOException e) {
+      if (requestMetrics != null) {
+        requestMetrics.error = e;
+      }
       throw new HttpDataSourceException("Unable to connect to " + dataSpec.uri.toString(), e,
           dataSpec, HttpDataSourceException.TYPE_OPEN);
     }
@@ -204,12 +277,45 @@ public class OkHttpDataSource implements HttpDataSource {
       skipInternal();
       return readInternal(buffer, offset, readLength);
     } catch (IOException e) {
+      if (requestMetrics != null) {
+        requestMetrics.error = e;
+      }
+      throw new HttpDataSourceException(e, dataSpec, HttpDataSourceException.TYPE_READ);
+    }
+  }
+
+  @Override
+  public long skip(long length) throws HttpDataSourceException {
+    try {
+      skipInternal();
+      long bytesRemaining = bytesRemaining();
+      if (bytesRemaining == 0) {
+        return C.RESULT_END_OF_INPUT;
+      }
+      if (bytesRemaining != C.LENGTH_UNBOUNDED) {
+        length = Math.min(length, bytesRemaining);
+      }
+      if (canSkipWithNewRequest() && skipStrategy.shouldSkipWithNewRequest(length)) {
+        if (length == bytesRemaining) {
+          // There is no data left to request.
+          skipToEnd();
+        } else {
+          skipWithNewRequest(length);
+        }
+        return length;
+      }
+      return skipByReading(length);
+    } catch (IOException e) {
+      if (requestMetrics != null) {
+        requestMetrics.error = e;
+      }
       throw new HttpDataSourceException(e, dataSpec, HttpDataSourceException.TYPE_READ);
     }
   }
 
   @Override
   public void close() throws HttpDataSourceException {
+    finishRequestMetrics();
     if (opened) {
       opened = false;
       if (listener != null) {
@@ -231,7 +337,7 @@ public class OkHttpDataSource implements HttpDataSource {
 
   /**
    * Returns the number of bytes that have been read since the most recent call to
-   * {@link #open(DataSpec)}.
+   * {@link #open(DataSpec)}, including bytes skipped by {@link #skip(long)}.
    *
    * @return The number of bytes read.
    */
@@ -307,7 +413,7 @@ public class OkHttpDataSource implements HttpDataSource {
 
     while (bytesSkipped != bytesToSkip) {
       int readLength = (int) Math.min(bytesToSkip - bytesSkipped, skipBuffer.length);
-      int read = responseByteStream.read(skipBuffer, 0, readLength);
+      int read = readFromResponse(skipBuffer, 0, readLength);
       if (Thread.interrupted()) {
         throw new InterruptedIOException();
       }
@@ -315,6 +421,7 @@ public class OkHttpDataSource implements HttpDataSource {
         throw new EOFException();
       }
       bytesSkipped += read;
+      skipStrategy.onDiscarded(read);
       if (listener != null) {
         listener.onBytesTransferred(read);
       }
@@ -324,6 +431,88 @@ public class OkHttpDataSource implements HttpDataSource {
     skipBufferReference.set(skipBuffer);
   }
 
+  /**
+   * Returns whether the current response can be replaced by a request for a later range.
+   */
+  private boolean canSkipWithNewRequest() {
+    // Gzipped responses cannot be split, and a server that ignored the range of the original
+    // request will ignore the range of a new one too.
+    return (dataSpec.flags & DataSpec.FLAG_ALLOW_GZIP) == 0 && dataSpec.postBody == null
+        && bytesToSkip == 0;
+  }
+
+  /**
+   * Skips data by closing the current response and requesting the data that follows it.
+   *
+   * @param length The number of bytes to skip.
+   * @throws IOException If an error occurs making the new request.
+   */
+  private void skipWithNewRequest(long length) throws IOException {
+    long bytesRemaining = bytesRemaining();
+    DataSpec skipDataSpec = new DataSpec(dataSpec.uri, dataSpec.absoluteStreamPosition + bytesRead
+        + length, dataSpec.position + bytesRead + length,
+        bytesRemaining == C.LENGTH_UNBOUNDED ? C.LENGTH_UNBOUNDED : bytesRemaining - length,
+        dataSpec.key, dataSpec.flags);
+    closeConnectionQuietly();
+    finishRequestMetrics();
+
+    Request request = makeRequest(skipDataSpec);
+    long requestStartTimeMs = SystemClock.elapsedRealtime();
+    startRequestMetrics(skipDataSpec, requestStartTimeMs);
+    response = callClient.newCall(request).execute();
+    skipStrategy.onResponse(SystemClock.elapsedRealtime() - requestStartTimeMs);
+    onResponseStarted();
+    int responseCode = response.code();
+    if (responseCode == 200) {
+      // The server ignored the range this time. Read up to the requested position.
+      bytesToSkip = skipDataSpec.position;
+      bytesSkipped = 0;
+    } else if (responseCode == 206) {
+      skipStrategy.onSaved(length);
+    } else {
+      Map<String, List<String>> headers = request.headers().toMultimap();
+      closeConnectionQuietly();
+      throw new InvalidResponseCodeException(responseCode, headers, skipDataSpec);
+    }
+    responseByteStream = response.body().byteStream();
+    bytesRead += length;
+  }
+
+  /**
+   * Skips the remainder of the requested range by closing the current response.
+   */
+  private void skipToEnd() {
+    long bytesRemaining = bytesRemaining();
+    closeConnectionQuietly();
+    skipStrategy.onSaved(bytesRemaining);
+    bytesRead += bytesRemaining;
+  }
+
+  /**
+   * Skips data by reading and discarding it.
+   *
+   * @param length The maximum number of bytes to skip.
+   * @return The number of bytes skipped, or {@link C#RESULT_END_OF_INPUT} if the end of the opened
+   *     range is reached.
+   * @throws IOException If an error occurs reading from the source.
+   */
+  private long skipByReading(long length) throws IOException {
+    // Acquire the shared skip buffer.
+    byte[] skipBuffer = skipBufferReference.getAndSet(null);
+    if (skipBuffer == null) {
+      skipBuffer = new byte[4096];
+    }
+
+    int read = readInternal(skipBuffer, 0, (int) Math.min(length, skipBuffer.length));
+    if (read != C.RESULT_END_OF_INPUT) {
+      skipStrategy.onDiscarded(read);
+    }
+
+    // Release the shared skip buffer.
+    skipBufferReference.set(skipBuffer);
+    return read;
+  }
+
   /**
    * Reads up to {@code length} bytes of data and stores them into {@code buffer}, starting at
    * index {@code offset}.
@@ -346,7 +535,7 @@ public class OkHttpDataSource implements HttpDataSource {
       return C.RESULT_END_OF_INPUT;
     }
 
-    int read = responseByteStream.read(buffer, offset, readLength);
+    int read = readFromResponse(buffer, offset, readLength);
     if (read == -1) {
       if (bytesToRead != C.LENGTH_UNBOUNDED && bytesToRead != bytesRead) {
         // The server closed the connection having not sent sufficient data.
@@ -362,13 +551,84 @@ public class OkHttpDataSource implements HttpDataSource {
     return read;
   }
 
+  /**
+   * Reads from the response, recording the rate at which data is read.
+   */
+  private int readFromResponse(byte[] buffer, int offset, int readLength) throws IOException {
+    long startTimeMs = SystemClock.elapsedRealtime();
+    int read = responseByteStream.read(buffer, offset, readLength);
+    if (read > 0) {
+      long endTimeMs = SystemClock.elapsedRealtime();
+      skipStrategy.onRead(read, endTimeMs - startTimeMs);
+      if (requestMetrics != null) {
+        if (requestMetrics.firstByteTimeMs == -1) {
+          requestMetrics.firstByteTimeMs = endTimeMs;
+        }
+        requestMetrics.bytesRead += read;
+      }
+    }
+    return read;
+  }
+
+  private void startRequestMetrics(DataSpec dataSpec, long requestStartTimeMs) {
+    requestMetrics = requestListener == null ? null
+        : new HttpRequestMetrics(dataSpec, Loader.getCurrentLoadable(), requestStartTimeMs);
+  }
+
+  private void onResponseStarted() {
+    if (requestMetrics == null) {
+      return;
+    }
+    requestMetrics.responseStartTimeMs = SystemClock.elapsedRealtime();
+    requestMetrics.responseCode = response.code();
+    requestMetrics.responseUri = response.request().url().toString();
+    for (Response priorResponse = response.priorResponse(); priorResponse != null;
+        priorResponse = priorResponse.priorResponse()) {
+      requestMetrics.redirectCount++;
+    }
+  }
+
+  private void finishRequestMetrics() {
+    if (requestMetrics != null) {
+      requestMetrics.requestEndTimeMs = SystemClock.elapsedRealtime();
+      if (requestListener != null) {
+        requestListener.onRequestFinished(requestMetrics);
+      }
+      requestMetrics = null;
+    }
+  }
+
   /**
    * Closes the current connection quietly, if there is one.
    */
   private void closeConnectionQuietly() {
-    response.body().close();
-    response = null;
+    if (response != null) {
+      response.body().close();
+      response = null;
+    }
     responseByteStream = null;
   }
 
+  /**
+   * Records the connection phase of requests made on the calling thread by this source.
+   */
+  private final class MetricsInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+      // Network interceptors run on the thread that executes the call, once connected.
+      HttpRequestMetrics requestMetrics = OkHttpDataSource.this.requestMetrics;
+      Connection connection = chain.connection();
+      if (requestMetrics != null && connection != null) {
+        requestMetrics.connectEndTimeMs = SystemClock.elapsedRealtime();
+        synchronized (usedConnections) {
+          requestMetrics.connectionReuse = usedConnections.put(connection, Boolean.TRUE) != null
+              ? HttpRequestMetrics.CONNECTION_REUSED : HttpRequestMetrics.CONNECTION_NEW;
+        }
+      }
+      return chain.proceed(chain.request());
+    }
+
+  }
+
 }
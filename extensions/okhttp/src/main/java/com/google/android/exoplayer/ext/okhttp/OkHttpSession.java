@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.ext.okhttp;
+
+import com.google.android.exoplayer.dash.DashSegmentIndex;
+import com.google.android.exoplayer.dash.mpd.AdaptationSet;
+import com.google.android.exoplayer.dash.mpd.MediaPresentationDescription;
+import com.google.android.exoplayer.dash.mpd.Period;
+import com.google.android.exoplayer.dash.mpd.RangedUri;
+import com.google.android.exoplayer.dash.mpd.Representation;
+import com.google.android.exoplayer.hls.HlsMasterPlaylist;
+import com.google.android.exoplayer.hls.HlsMediaPlaylist;
+import com.google.android.exoplayer.hls.Variant;
+import com.google.android.exoplayer.upstream.TransferListener;
+import com.google.android.exoplayer.util.Assertions;
+import com.google.android.exoplayer.util.Predicate;
+import com.google.android.exoplayer.util.UriUtil;
+
+import android.net.Uri;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Shares a single {@link OkHttpClient} between the {@link OkHttpDataSource}s of a playback session,
+ * and connects to the hosts that media will be loaded from before it is requested.
+ * <p>
+ * Sources created by the session share the client's connection pool. Where a server supports
+ * HTTP/2, concurrent manifest, audio and video requests are multiplexed over a single connection
+ * to each host. Calling one of the {@code warmUp} methods once a manifest has been parsed
+ * establishes those connections, including any TLS handshake, whilst the player is still being
+ * prepared, so that the first media requests do not have to wait for them.
+ */
+public final class OkHttpSession {
+
+  private final OkHttpClient client;
+  private final String userAgent;
+  private final HashSet<String> warmedUpOrigins;
+
+  /**
+   * Creates a session with a new client that supports HTTP/2 and HTTP/1.1.
+   *
+   * @param userAgent The User-Agent string that should be used.
+   */
+  public OkHttpSession(String userAgent) {
+    this(new OkHttpClient.Builder()
+        .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+        .build(), userAgent);
+  }
+
+  /**
+   * @param client The client to share. HTTP/2 is only used if it is one of the client's protocols.
+   * @param userAgent The User-Agent string that should be used.
+   */
+  public OkHttpSession(OkHttpClient client, String userAgent) {
+    this.client = Assertions.checkNotNull(client);
+    this.userAgent = Assertions.checkNotEmpty(userAgent);
+    warmedUpOrigins = new HashSet<>();
+  }
+
+  /**
+   * Returns the shared client.
+   */
+  public OkHttpClient getClient() {
+    return client;
+  }
+
+  /**
+   * Creates a source that uses the shared client.
+   *
+   * @param contentTypePredicate An optional {@link Predicate}. If a content type is rejected by the
+   *     predicate then a {@link com.google.android.exoplayer.upstream.HttpDataSource
+   *     .InvalidContentTypeException} is thrown from {@link OkHttpDataSource#open}.
+   * @param listener An optional listener.
+   * @return The source.
+   */
+  public OkHttpDataSource createDataSource(Predicate<String> contentTypePredicate,
+      TransferListener listener) {
+    return new OkHttpDataSource(client, userAgent, contentTypePredicate, listener);
+  }
+
+  /**
+   * Connects to the hosts of the initialization, index and first media segments of every
+   * representation in a manifest.
+   *
+   * @param manifest The manifest.
+   */
+  public void warmUp(MediaPresentationDescription manifest) {
+    for (int i = 0; i < manifest.getPeriodCount(); i++) {
+      Period period = manifest.getPeriod(i);
+      for (AdaptationSet adaptationSet : period.adaptationSets) {
+        for (Representation representation : adaptationSet.representations) {
+          warmUp(representation.getInitializationUri());
+          warmUp(representation.getIndexUri());
+          DashSegmentIndex segmentIndex = representation.getIndex();
+          if (segmentIndex != null) {
+            warmUp(segmentIndex.getSegmentUrl(segmentIndex.getFirstSegmentNum()));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Connects to the hosts of the media playlists of every variant and rendition in a master
+   * playlist.
+   *
+   * @param playlist The master playlist.
+   */
+  public void warmUp(HlsMasterPlaylist playlist) {
+    warmUp(playlist.baseUri, playlist.variants);
+    warmUp(playlist.baseUri, playlist.audios);
+    warmUp(playlist.baseUri, playlist.subtitles);
+  }
+
+  /**
+   * Connects to the hosts of the segments and encryption keys in a media playlist.
+   *
+   * @param playlist The media playlist.
+   */
+  public void warmUp(HlsMediaPlaylist playlist) {
+    for (HlsMediaPlaylist.Segment segment : playlist.segments) {
+      warmUp(UriUtil.resolveToUri(playlist.baseUri, segment.url));
+      if (segment.isEncrypted) {
+        warmUp(UriUtil.resolveToUri(playlist.baseUri, segment.encryptionKeyUri));
+      }
+    }
+  }
+
+  /**
+   * Connects to the host of a URI, if no connection to it has been made by this session.
+   * <p>
+   * The connection is made by an asynchronous HEAD request for the URI. The response is discarded,
+   * but the connection is kept in the client's pool for use by subsequent requests.
+   *
+   * @param uri The URI.
+   */
+  public void warmUp(Uri uri) {
+    HttpUrl url = HttpUrl.parse(uri.toString());
+    if (url == null) {
+      // Not an HTTP or HTTPS URI.
+      return;
+    }
+    final String origin = url.scheme() + "://" + url.host() + ":" + url.port();
+    synchronized (warmedUpOrigins) {
+      if (!warmedUpOrigins.add(origin)) {
+        return;
+      }
+    }
+    Request request = new Request.Builder()
+        .url(url)
+        .head()
+        .addHeader("User-Agent", userAgent)
+        .build();
+    client.newCall(request).enqueue(new Callback() {
+      @Override
+      public void onFailure(Call call, IOException e) {
+        // Allow a later attempt. The request for the media will report any persistent error.
+        synchronized (warmedUpOrigins) {
+          warmedUpOrigins.remove(origin);
+        }
+      }
+
+      @Override
+      public void onResponse(Call call, Response response) {
+        response.body().close();
+      }
+    });
+  }
+
+  private void warmUp(RangedUri rangedUri) {
+    if (rangedUri != null) {
+      warmUp(rangedUri.getUri());
+    }
+  }
+
+  private void warmUp(String baseUri, List<Variant> variants) {
+    for (Variant variant : variants) {
+      warmUp(UriUtil.resolveToUri(baseUri, variant.url));
+    }
+  }
+
+}
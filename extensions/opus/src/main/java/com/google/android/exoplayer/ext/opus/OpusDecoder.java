@@ -58,7 +58,18 @@ import java.util.List;
    */
   private static final int SAMPLE_RATE = 48000;
 
+  /**
+   * The maximum number of samples per channel in a packet, which is 120ms at 48000 Hz.
+   */
+  private static final int MAX_PACKET_SAMPLE_COUNT = 5760;
+
+  /**
+   * Opus fixed point decoding outputs 16 bit samples.
+   */
+  private static final int BYTES_PER_SAMPLE = 2;
+
   private final int channelCount;
+  private final int outputBufferSize;
   private final int headerSkipSamples;
   private final int headerSeekPreRollSamples;
   private final long nativeDecoderContext;
@@ -87,6 +98,7 @@ import java.util.List;
     if (channelCount > 8) {
       throw new OpusDecoderException("Invalid channel count: " + channelCount);
     }
+    outputBufferSize = MAX_PACKET_SAMPLE_COUNT * channelCount * BYTES_PER_SAMPLE;
     int preskip = readLittleEndian16(headerBytes, 10);
     int gain = readLittleEndian16(headerBytes, 16);
 
@@ -162,21 +174,20 @@ import java.util.List;
     SampleHolder sampleHolder = inputBuffer.sampleHolder;
     outputBuffer.timestampUs = sampleHolder.timeUs;
     sampleHolder.data.position(sampleHolder.data.position() - sampleHolder.size);
-    int requiredOutputBufferSize =
-        opusGetRequiredOutputBufferSize(sampleHolder.data, sampleHolder.size, SAMPLE_RATE);
-    if (requiredOutputBufferSize < 0) {
-      return new OpusDecoderException("Error when computing required output buffer size.");
-    }
-    outputBuffer.init(requiredOutputBufferSize);
-    int result = opusDecode(nativeDecoderContext, sampleHolder.data, sampleHolder.size,
-        outputBuffer.data, outputBuffer.data.capacity());
-    if (result < 0) {
-      return new OpusDecoderException("Decode error: " + opusGetErrorMessage(result));
+    // The output buffer is large enough for any packet, so it's only allocated once and the packet
+    // is decoded with a single call into libopus.
+    outputBuffer.init(outputBufferSize);
+    int sampleCount = opusDecode(nativeDecoderContext, sampleHolder.data, sampleHolder.size,
+        outputBuffer.data, MAX_PACKET_SAMPLE_COUNT);
+    if (sampleCount < 0) {
+      return new OpusDecoderException("Decode error: " + opusGetErrorMessage(sampleCount));
     }
+    int bytesPerSample = channelCount * BYTES_PER_SAMPLE;
+    int result = sampleCount * bytesPerSample;
     outputBuffer.data.position(0);
     outputBuffer.data.limit(result);
     if (skipSamples > 0) {
-      int bytesPerSample = channelCount * 2;
+      // Skipped samples are excluded by advancing the buffer's position, rather than by copying.
       int skipBytes = skipSamples * bytesPerSample;
       if (result <= skipBytes) {
         skipSamples -= result / bytesPerSample;
@@ -199,9 +210,7 @@ import java.util.List;
   private native long opusInit(int sampleRate, int channelCount, int numStreams, int numCoupled,
       int gain, byte[] streamMap);
   private native int opusDecode(long decoder, ByteBuffer inputBuffer, int inputSize,
-      ByteBuffer outputBuffer, int outputSize);
-  private native int opusGetRequiredOutputBufferSize(
-      ByteBuffer inputBuffer, int inputSize, int sampleRate);
+      ByteBuffer outputBuffer, int maxSampleCount);
   private native void opusClose(long decoder);
   private native void opusReset(long decoder);
   private native String opusGetErrorMessage(int errorCode);
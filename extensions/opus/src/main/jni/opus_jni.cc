@@ -45,13 +45,9 @@ jint JNI_OnLoad(JavaVM* vm, void* reserved) {
   return JNI_VERSION_1_6;
 }
 
-static const int kBytesPerSample = 2;  // opus fixed point uses 16 bit samples.
-static int channelCount;
-
 FUNC(jlong, opusInit, jint sampleRate, jint channelCount, jint numStreams,
      jint numCoupled, jint gain, jbyteArray jStreamMap) {
   int status = OPUS_INVALID_STATE;
-  ::channelCount = channelCount;
   jbyte* streamMapBytes = env->GetByteArrayElements(jStreamMap, 0);
   uint8_t* streamMap = reinterpret_cast<uint8_t*>(streamMapBytes);
   OpusMSDecoder* decoder = opus_multistream_decoder_create(
@@ -69,27 +65,19 @@ FUNC(jlong, opusInit, jint sampleRate, jint channelCount, jint numStreams,
   return reinterpret_cast<intptr_t>(decoder);
 }
 
+// Decodes a packet into the output buffer, which must have space for
+// maxSampleCount samples per channel. Returns the number of samples per
+// channel, or a negative libopus error code.
 FUNC(jint, opusDecode, jlong jDecoder, jobject jInputBuffer, jint inputSize,
-     jobject jOutputBuffer, jint outputSize) {
+     jobject jOutputBuffer, jint maxSampleCount) {
   OpusMSDecoder* decoder = reinterpret_cast<OpusMSDecoder*>(jDecoder);
   const uint8_t* inputBuffer =
       reinterpret_cast<const uint8_t*>(
           env->GetDirectBufferAddress(jInputBuffer));
   int16_t* outputBuffer = reinterpret_cast<int16_t*>(
       env->GetDirectBufferAddress(jOutputBuffer));
-  int sampleCount = opus_multistream_decode(decoder, inputBuffer, inputSize,
-                                            outputBuffer, outputSize, 0);
-  return (sampleCount < 0) ? sampleCount
-                           : sampleCount * kBytesPerSample * channelCount;
-}
-
-FUNC(jint, opusGetRequiredOutputBufferSize, jobject jInputBuffer,
-     jint inputSize, jint sampleRate) {
-  const uint8_t* inputBuffer = reinterpret_cast<const uint8_t*>(
-      env->GetDirectBufferAddress(jInputBuffer));
-  const int32_t sampleCount =
-      opus_packet_get_nb_samples(inputBuffer, inputSize, sampleRate);
-  return sampleCount * kBytesPerSample * channelCount;
+  return opus_multistream_decode(decoder, inputBuffer, inputSize, outputBuffer,
+                                 maxSampleCount, 0);
 }
 
 FUNC(void, opusClose, jlong jDecoder) {
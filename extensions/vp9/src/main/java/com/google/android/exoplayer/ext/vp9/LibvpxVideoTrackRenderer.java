@@ -24,6 +24,7 @@ import com.google.android.exoplayer.SampleSource;
 import com.google.android.exoplayer.SampleSourceTrackRenderer;
 import com.google.android.exoplayer.TrackRenderer;
 import com.google.android.exoplayer.util.MimeTypes;
+import com.google.android.exoplayer.util.SlidingPercentile;
 import com.google.android.exoplayer.util.extensions.Buffer;
 
 import android.graphics.Bitmap;
@@ -111,6 +112,16 @@ public final class LibvpxVideoTrackRenderer extends SampleSourceTrackRenderer {
    * to make progress.
    */
   private static final int NUM_BUFFERS = 16;
+  /**
+   * The number of additional input and output buffers per processor when multi-threaded decoding
+   * is enabled. Frames are decoded further ahead of the playback position, which absorbs variation
+   * in the time taken to decode each frame.
+   */
+  private static final int NUM_EXTRA_BUFFERS_PER_PROCESSOR = 1;
+  /**
+   * The maximum number of decode times over which percentiles are computed.
+   */
+  private static final int MAX_DECODE_TIME_SAMPLES = 300;
   private static final int INITIAL_INPUT_BUFFER_SIZE = 768 * 1024; // Value based on cs/SoftVpx.cpp.
 
   public final CodecCounters codecCounters = new CodecCounters();
@@ -119,7 +130,9 @@ public final class LibvpxVideoTrackRenderer extends SampleSourceTrackRenderer {
   private final Handler eventHandler;
   private final EventListener eventListener;
   private final int maxDroppedFrameCountToNotify;
+  private final boolean enableMultiThreadedDecoding;
   private final MediaFormatHolder formatHolder;
+  private final SlidingPercentile decodeTimesUs;
 
   private MediaFormat format;
   private VpxDecoder decoder;
@@ -164,14 +177,36 @@ public final class LibvpxVideoTrackRenderer extends SampleSourceTrackRenderer {
    */
   public LibvpxVideoTrackRenderer(SampleSource source, boolean scaleToFit,
       Handler eventHandler, EventListener eventListener, int maxDroppedFrameCountToNotify) {
+    this(source, scaleToFit, eventHandler, eventListener, maxDroppedFrameCountToNotify, false);
+  }
+
+  /**
+   * @param source The upstream source from which the renderer obtains samples.
+   * @param scaleToFit Boolean that indicates if video frames should be scaled to fit when
+   *     rendering.
+   * @param eventHandler A handler to use when delivering events to {@code eventListener}. May be
+   *     null if delivery of events is not required.
+   * @param eventListener A listener of events. May be null if delivery of events is not required.
+   * @param maxDroppedFrameCountToNotify The maximum number of frames that can be dropped between
+   *     invocations of {@link EventListener#onDroppedFrames(int, long)}.
+   * @param enableMultiThreadedDecoding Whether libvpx should decode each frame using a thread per
+   *     processor, splitting the work by rows rather than only by tile columns, and whether the
+   *     number of buffers should be increased in proportion to the number of processors. This
+   *     speeds up decoding of high resolution video on multi-core devices, at the cost of memory.
+   */
+  public LibvpxVideoTrackRenderer(SampleSource source, boolean scaleToFit,
+      Handler eventHandler, EventListener eventListener, int maxDroppedFrameCountToNotify,
+      boolean enableMultiThreadedDecoding) {
     super(source);
     this.scaleToFit = scaleToFit;
     this.eventHandler = eventHandler;
     this.eventListener = eventListener;
     this.maxDroppedFrameCountToNotify = maxDroppedFrameCountToNotify;
+    this.enableMultiThreadedDecoding = enableMultiThreadedDecoding;
     previousWidth = -1;
     previousHeight = -1;
     formatHolder = new MediaFormatHolder();
+    decodeTimesUs = new SlidingPercentile(MAX_DECODE_TIME_SAMPLES);
     outputMode = VpxDecoder.OUTPUT_MODE_UNKNOWN;
   }
 
@@ -189,6 +224,19 @@ public final class LibvpxVideoTrackRenderer extends SampleSourceTrackRenderer {
     return isLibvpxAvailable() ? VpxDecoder.getLibvpxVersion() : null;
   }
 
+  /**
+   * Returns a percentile of the time taken to decode recent frames, including frames that were
+   * decoded but not output. May be called from any thread.
+   *
+   * @param percentile The desired percentile, expressed as a fraction in the range (0,1].
+   * @return The percentile in microseconds, or {@link Float#NaN} if no frames have been decoded.
+   */
+  public float getDecodeTimePercentileUs(float percentile) {
+    synchronized (decodeTimesUs) {
+      return decodeTimesUs.getPercentile(percentile);
+    }
+  }
+
   @Override
   protected boolean handlesTrack(MediaFormat mediaFormat) {
     return MimeTypes.VIDEO_VP9.equalsIgnoreCase(mediaFormat.mimeType);
@@ -212,7 +260,13 @@ public final class LibvpxVideoTrackRenderer extends SampleSourceTrackRenderer {
       if (decoder == null) {
         // If we don't have a decoder yet, we need to instantiate one.
         long startElapsedRealtimeMs = SystemClock.elapsedRealtime();
-        decoder = new VpxDecoder(NUM_BUFFERS, NUM_BUFFERS, INITIAL_INPUT_BUFFER_SIZE);
+        int numBuffers = NUM_BUFFERS;
+        if (enableMultiThreadedDecoding) {
+          int processorCount = Runtime.getRuntime().availableProcessors();
+          numBuffers += NUM_EXTRA_BUFFERS_PER_PROCESSOR * processorCount;
+        }
+        decoder = new VpxDecoder(numBuffers, numBuffers, INITIAL_INPUT_BUFFER_SIZE,
+            enableMultiThreadedDecoding, decodeTimesUs);
         decoder.setOutputMode(outputMode);
         decoder.start();
         notifyDecoderInitialized(startElapsedRealtimeMs, SystemClock.elapsedRealtime());
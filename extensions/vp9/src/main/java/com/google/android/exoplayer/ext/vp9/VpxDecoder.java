@@ -16,6 +16,7 @@
 package com.google.android.exoplayer.ext.vp9;
 
 import com.google.android.exoplayer.SampleHolder;
+import com.google.android.exoplayer.util.SlidingPercentile;
 import com.google.android.exoplayer.util.extensions.Buffer;
 import com.google.android.exoplayer.util.extensions.SimpleDecoder;
 
@@ -53,6 +54,7 @@ import java.nio.ByteBuffer;
   public static native String getLibvpxVersion();
 
   private final long vpxDecContext;
+  private final SlidingPercentile decodeTimesUs;
 
   private volatile int outputMode;
 
@@ -62,12 +64,18 @@ import java.nio.ByteBuffer;
    * @param numInputBuffers The number of input buffers.
    * @param numOutputBuffers The number of output buffers.
    * @param initialInputBufferSize The initial size of each input buffer.
+   * @param enableRowMultiThreadMode Whether libvpx should decode rows of superblocks in parallel,
+   *     rather than only tile columns. Requires a version of libvpx that supports it.
+   * @param decodeTimesUs A {@link SlidingPercentile} to which the time taken to decode each frame
+   *     is added, in microseconds, or null. Samples are added whilst synchronized on the instance.
    * @throws VpxDecoderException Thrown if an exception occurs when initializing the decoder.
    */
-  public VpxDecoder(int numInputBuffers, int numOutputBuffers, int initialInputBufferSize)
+  public VpxDecoder(int numInputBuffers, int numOutputBuffers, int initialInputBufferSize,
+      boolean enableRowMultiThreadMode, SlidingPercentile decodeTimesUs)
       throws VpxDecoderException {
     super(new VpxInputBuffer[numInputBuffers], new VpxOutputBuffer[numOutputBuffers]);
-    vpxDecContext = vpxInit();
+    this.decodeTimesUs = decodeTimesUs;
+    vpxDecContext = vpxInit(enableRowMultiThreadMode);
     if (vpxDecContext == 0) {
       throw new VpxDecoderException("Failed to initialize decoder");
     }
@@ -105,6 +113,7 @@ import java.nio.ByteBuffer;
     SampleHolder sampleHolder = inputBuffer.sampleHolder;
     outputBuffer.timestampUs = sampleHolder.timeUs;
     sampleHolder.data.position(sampleHolder.data.position() - sampleHolder.size);
+    long startTimeNs = System.nanoTime();
     if (vpxDecode(vpxDecContext, sampleHolder.data, sampleHolder.size) != 0) {
       return new VpxDecoderException("Decode error: " + vpxGetErrorMessage(vpxDecContext));
     }
@@ -112,6 +121,12 @@ import java.nio.ByteBuffer;
     if (vpxGetFrame(vpxDecContext, outputBuffer) != 0) {
       outputBuffer.setFlag(Buffer.FLAG_DECODE_ONLY);
     }
+    if (decodeTimesUs != null) {
+      float decodeTimeUs = (System.nanoTime() - startTimeNs) / 1000f;
+      synchronized (decodeTimesUs) {
+        decodeTimesUs.addSample(1, decodeTimeUs);
+      }
+    }
     return null;
   }
 
@@ -121,7 +136,7 @@ import java.nio.ByteBuffer;
     vpxClose(vpxDecContext);
   }
 
-  private native long vpxInit();
+  private native long vpxInit(boolean enableRowMultiThreadMode);
   private native long vpxClose(long context);
   private native long vpxDecode(long context, ByteBuffer encoded, int length);
   private native int vpxGetFrame(long context, VpxOutputBuffer outputBuffer);
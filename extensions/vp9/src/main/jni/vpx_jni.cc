@@ -58,7 +58,7 @@ jint JNI_OnLoad(JavaVM* vm, void* reserved) {
   return JNI_VERSION_1_6;
 }
 
-FUNC(jlong, vpxInit) {
+FUNC(jlong, vpxInit, jboolean enableRowMultiThreadMode) {
   vpx_codec_ctx_t* context = new vpx_codec_ctx_t();
   vpx_codec_dec_cfg_t cfg = {0};
   cfg.threads = android_getCpuCount();
@@ -66,6 +66,19 @@ FUNC(jlong, vpxInit) {
     LOGE("ERROR: Fail to initialize libvpx decoder.");
     return 0;
   }
+  if (enableRowMultiThreadMode) {
+#ifdef VPX_CTRL_VP9D_SET_ROW_MT
+    // Without row based multi-threading, libvpx only decodes tiles in
+    // parallel, so most threads are idle for streams with few tile columns.
+    const vpx_codec_err_t status =
+        vpx_codec_control(context, VP9D_SET_ROW_MT, 1);
+    if (status != VPX_CODEC_OK) {
+      LOGE("ERROR: Failed to enable row multi-threading, status= %d", status);
+    }
+#else
+    LOGE("ERROR: Row multi-threading is not supported by this libvpx.");
+#endif
+  }
 
   // Populate JNI References.
   const jclass outputBufferClass = env->FindClass(
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.audio;
+
+import com.google.android.exoplayer.C;
+
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Unit tests for {@link ChannelMixingAudioProcessor}.
+ */
+public class ChannelMixingAudioProcessorTest extends TestCase {
+
+  public void testInactiveForIdentityMapAndFewerChannels() {
+    ChannelMixingAudioProcessor remapper = new ChannelMixingAudioProcessor(new int[] {0, 1});
+    assertFalse(remapper.configure(44100, 2, C.ENCODING_PCM_16BIT));
+    ChannelMixingAudioProcessor downmixer = new ChannelMixingAudioProcessor(2);
+    assertFalse(downmixer.configure(44100, 2, C.ENCODING_PCM_16BIT));
+    assertFalse(downmixer.configure(44100, 1, C.ENCODING_PCM_16BIT));
+  }
+
+  public void testRemap() {
+    ChannelMixingAudioProcessor processor = new ChannelMixingAudioProcessor(new int[] {1, 0, 0});
+    assertTrue(processor.configure(44100, 2, C.ENCODING_PCM_16BIT));
+    assertEquals(3, processor.getOutputChannelCount());
+
+    short[] output = process(processor, new short[] {1, -2, 3, -4});
+    assertShortsEqual(new short[] {-2, 1, 1, -4, 3, 3}, output);
+  }
+
+  public void testDownmixStereoToMono() {
+    ChannelMixingAudioProcessor processor = new ChannelMixingAudioProcessor(1);
+    assertTrue(processor.configure(44100, 2, C.ENCODING_PCM_16BIT));
+    assertEquals(1, processor.getOutputChannelCount());
+
+    short[] output = process(processor, new short[] {1000, 3000, -32768, -32768});
+    assertShortsEqual(new short[] {2000, -32768}, output);
+  }
+
+  public void testDownmix5Point1ToStereo() {
+    ChannelMixingAudioProcessor processor = new ChannelMixingAudioProcessor(2);
+    assertTrue(processor.configure(48000, 6, C.ENCODING_PCM_16BIT));
+    assertEquals(2, processor.getOutputChannelCount());
+
+    // Full scale in every channel must not clip.
+    short[] output = process(processor, new short[] {
+        32767, 32767, 32767, 32767, 32767, 32767,
+        10000, 0, 0, 0, 0, 0,
+        0, 0, 0, 10000, 0, 0});
+    assertEquals(6, output.length);
+    assertTrue(Math.abs(output[0] - 32767) <= 1);
+    assertTrue(Math.abs(output[1] - 32767) <= 1);
+    // The front left channel is only mixed into the left channel.
+    assertEquals(Math.round(10000 / (1 + 2 * 0.7071f)), output[2]);
+    assertEquals(0, output[3]);
+    // The low frequency effects channel is dropped.
+    assertEquals(0, output[4]);
+    assertEquals(0, output[5]);
+  }
+
+  private static short[] process(AudioProcessor processor, short[] input) {
+    ByteBuffer inputBuffer = ByteBuffer.allocateDirect(input.length * 2)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    inputBuffer.asShortBuffer().put(input);
+    ByteBuffer outputBuffer = processor.handleBuffer(inputBuffer);
+    assertEquals(inputBuffer.limit(), inputBuffer.position());
+    short[] output = new short[outputBuffer.remaining() / 2];
+    outputBuffer.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(output);
+    return output;
+  }
+
+  private static void assertShortsEqual(short[] expected, short[] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i]);
+    }
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.audio;
+
+import com.google.android.exoplayer.C;
+
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Unit tests for {@link ResamplingAudioProcessor}.
+ */
+public class ResamplingAudioProcessorTest extends TestCase {
+
+  public void testInactiveWhenRatesMatch() {
+    ResamplingAudioProcessor processor = new ResamplingAudioProcessor(48000);
+    assertFalse(processor.configure(48000, 2, C.ENCODING_PCM_16BIT));
+    assertTrue(processor.configure(44100, 2, C.ENCODING_PCM_16BIT));
+    assertEquals(48000, processor.getOutputSampleRateHz());
+  }
+
+  public void testOutputFrameCount() {
+    assertOutputFrameCount(44100, 48000);
+    assertOutputFrameCount(48000, 44100);
+    assertOutputFrameCount(96000, 48000);
+    assertOutputFrameCount(8000, 48000);
+  }
+
+  public void testConstantInputIsPreserved() {
+    ResamplingAudioProcessor processor = new ResamplingAudioProcessor(48000);
+    processor.configure(44100, 2, C.ENCODING_PCM_16BIT);
+    short[] input = new short[2 * 4410];
+    for (int i = 0; i < input.length; i++) {
+      input[i] = (short) (i % 2 == 0 ? 10000 : -20000);
+    }
+    short[] output = process(processor, input);
+    // Skip the output that depends on the silence before the first input frame.
+    for (int i = 2 * ResamplingAudioProcessor.TAPS_PER_PHASE * 2; i < output.length; i += 2) {
+      assertTrue(Math.abs(output[i] - 10000) <= 1);
+      assertTrue(Math.abs(output[i + 1] + 20000) <= 1);
+    }
+  }
+
+  public void testSineAmplitudeIsPreserved() {
+    ResamplingAudioProcessor processor = new ResamplingAudioProcessor(44100);
+    processor.configure(48000, 1, C.ENCODING_PCM_16BIT);
+    short[] input = new short[48000];
+    for (int i = 0; i < input.length; i++) {
+      input[i] = (short) Math.round(16000 * Math.sin(2 * Math.PI * 1000 * i / 48000));
+    }
+    short[] output = process(processor, input);
+    int peak = 0;
+    for (int i = ResamplingAudioProcessor.TAPS_PER_PHASE * 2; i < output.length; i++) {
+      peak = Math.max(peak, Math.abs(output[i]));
+    }
+    assertTrue(Math.abs(peak - 16000) < 160);
+  }
+
+  public void testFlushResetsState() {
+    ResamplingAudioProcessor processor = new ResamplingAudioProcessor(48000);
+    processor.configure(44100, 1, C.ENCODING_PCM_16BIT);
+    short[] input = new short[441];
+    for (int i = 0; i < input.length; i++) {
+      input[i] = (short) (i * 50);
+    }
+    short[] firstOutput = process(processor, input);
+    processor.flush();
+    short[] secondOutput = process(processor, input);
+    assertEquals(firstOutput.length, secondOutput.length);
+    for (int i = 0; i < firstOutput.length; i++) {
+      assertEquals(firstOutput[i], secondOutput[i]);
+    }
+  }
+
+  private static void assertOutputFrameCount(int inputSampleRateHz, int outputSampleRateHz) {
+    ResamplingAudioProcessor processor = new ResamplingAudioProcessor(outputSampleRateHz);
+    processor.configure(inputSampleRateHz, 2, C.ENCODING_PCM_16BIT);
+    int inputFrameCount = 0;
+    int outputFrameCount = 0;
+    // Process one second of input in buffers of varying sizes.
+    while (inputFrameCount < inputSampleRateHz) {
+      int frameCount = Math.min(1 + (inputFrameCount * 7) % 1500,
+          inputSampleRateHz - inputFrameCount);
+      outputFrameCount += process(processor, new short[2 * frameCount]).length / 2;
+      inputFrameCount += frameCount;
+    }
+    // Input frames still in the filter have not contributed to the output.
+    long heldBackFrameCount = (long) ResamplingAudioProcessor.TAPS_PER_PHASE * outputSampleRateHz
+        / inputSampleRateHz;
+    assertTrue(outputFrameCount <= outputSampleRateHz);
+    assertTrue(outputFrameCount >= outputSampleRateHz - heldBackFrameCount);
+  }
+
+  private static short[] process(AudioProcessor processor, short[] input) {
+    ByteBuffer inputBuffer = ByteBuffer.allocateDirect(input.length * 2)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    inputBuffer.asShortBuffer().put(input);
+    ByteBuffer outputBuffer = processor.handleBuffer(inputBuffer);
+    short[] output = new short[outputBuffer.remaining() / 2];
+    outputBuffer.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(output);
+    return output;
+  }
+
+}
@@ -18,6 +18,7 @@ package com.google.android.exoplayer.dash;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.google.android.exoplayer.LiveLatencyController;
 import com.google.android.exoplayer.TimeRange;
 import com.google.android.exoplayer.chunk.ChunkOperationHolder;
 import com.google.android.exoplayer.chunk.Format;
@@ -187,6 +188,37 @@ public class DashChunkSourceTest extends InstrumentationTestCase {
         availableRangeStartMs, availableRangeEndMs, chunkStartTimeMs, chunkEndTimeMs);
   }
 
+  public void testLiveLatencyControllerStartPosition() {
+    MediaPresentationDescription mpd = buildLiveMpdWithTimeline(LIVE_DURATION_MS, 0);
+    LiveLatencyController liveLatencyController = new LiveLatencyController(2000, 3000);
+    DashChunkSource chunkSource = buildDashChunkSource(mpd, true, liveLatencyController);
+    List<MediaChunk> queue = new ArrayList<>();
+    ChunkOperationHolder out = new ChunkOperationHolder();
+    // Playback should start at the target latency behind the live edge.
+    checkLiveEdgeConsistency(chunkSource, queue, out, 0, 0, LIVE_DURATION_MS,
+        LIVE_DURATION_MS - 2000, LIVE_DURATION_MS - 1000);
+  }
+
+  public void testLiveLatencyControllerResync() {
+    MediaPresentationDescription mpd = buildLiveMpdWithTimeline(LIVE_DURATION_MS, 0);
+    LiveLatencyController liveLatencyController = new LiveLatencyController(1000, 3000);
+    DashChunkSource chunkSource = buildDashChunkSource(mpd, false, liveLatencyController);
+    List<MediaChunk> queue = new ArrayList<>();
+    ChunkOperationHolder out = new ChunkOperationHolder();
+
+    // Start from the beginning of the live window.
+    checkLiveEdgeConsistency(chunkSource, queue, out, 0, 0, LIVE_DURATION_MS, 0, 1000);
+    queue.add((MediaChunk) out.chunk);
+    out.chunk = null;
+
+    // The playback position is further behind the live edge than the maximum latency, so the next
+    // chunk should be at the target latency instead of following on from the previous one.
+    checkLiveEdgeConsistency(chunkSource, queue, out, 0, 0, LIVE_DURATION_MS,
+        LIVE_DURATION_MS - 1000, LIVE_DURATION_MS);
+    assertEquals(LIVE_DURATION_MS * 1000, liveLatencyController.getCurrentLatencyUs());
+    assertEquals(1, liveLatencyController.getResyncCount());
+  }
+
   // Private methods.
 
   private static Representation buildVodRepresentation(Format format) {
@@ -318,14 +350,26 @@ public class DashChunkSourceTest extends InstrumentationTestCase {
 
   private static DashChunkSource buildDashChunkSource(MediaPresentationDescription mpd,
       boolean startAtLiveEdge, long liveEdgeLatencyMs) {
+    return buildDashChunkSource(mpd, startAtLiveEdge, liveEdgeLatencyMs, null);
+  }
+
+  private static DashChunkSource buildDashChunkSource(MediaPresentationDescription mpd,
+      boolean startAtLiveEdge, LiveLatencyController liveLatencyController) {
+    return buildDashChunkSource(mpd, startAtLiveEdge,
+        liveLatencyController.getTargetLatencyUs() / 1000, liveLatencyController);
+  }
+
+  private static DashChunkSource buildDashChunkSource(MediaPresentationDescription mpd,
+      boolean startAtLiveEdge, long liveEdgeLatencyMs,
+      LiveLatencyController liveLatencyController) {
     @SuppressWarnings("unchecked")
     ManifestFetcher<MediaPresentationDescription> manifestFetcher = mock(ManifestFetcher.class);
     when(manifestFetcher.getManifest()).thenReturn(mpd);
     DashChunkSource chunkSource = new DashChunkSource(manifestFetcher, mpd,
         DefaultDashTrackSelector.newVideoInstance(null, false, false), mock(DataSource.class), null,
         new FakeClock(mpd.availabilityStartTime + mpd.duration - ELAPSED_REALTIME_OFFSET_MS),
-        liveEdgeLatencyMs * 1000, ELAPSED_REALTIME_OFFSET_MS * 1000, startAtLiveEdge, null, null,
-        0);
+        liveEdgeLatencyMs * 1000, liveLatencyController, ELAPSED_REALTIME_OFFSET_MS * 1000,
+        startAtLiveEdge, null, null, 0);
     chunkSource.prepare();
     chunkSource.enable(0);
     return chunkSource;
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.dash;
+
+import com.google.android.exoplayer.dash.mpd.RangedUri;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for {@link DashInitializationCache}.
+ */
+public class DashInitializationCacheTest extends TestCase {
+
+  private static final String BASE_URI = "http://www.test.com/";
+
+  private DashInitializationCache cache;
+
+  @Override
+  public void setUp() {
+    cache = new DashInitializationCache(100);
+  }
+
+  public void testGetEqualRangedUri() {
+    byte[] data = new byte[10];
+    cache.put(new RangedUri(BASE_URI, "a.mp4", 0, 10), data);
+    assertSame(data, cache.get(new RangedUri(BASE_URI, "a.mp4", 0, 10)));
+    assertNull(cache.get(new RangedUri(BASE_URI, "a.mp4", 0, 20)));
+    assertNull(cache.get(new RangedUri(BASE_URI, "b.mp4", 0, 10)));
+  }
+
+  public void testLeastRecentlyUsedEvicted() {
+    RangedUri uriA = new RangedUri(BASE_URI, "a.mp4", 0, 40);
+    RangedUri uriB = new RangedUri(BASE_URI, "b.mp4", 0, 40);
+    RangedUri uriC = new RangedUri(BASE_URI, "c.mp4", 0, 40);
+    cache.put(uriA, new byte[40]);
+    cache.put(uriB, new byte[40]);
+    // Use A, so that B is evicted instead.
+    assertNotNull(cache.get(uriA));
+    cache.put(uriC, new byte[40]);
+    assertNotNull(cache.get(uriA));
+    assertNull(cache.get(uriB));
+    assertNotNull(cache.get(uriC));
+    assertEquals(80, cache.getSizeBytes());
+  }
+
+  public void testReplaceEntry() {
+    RangedUri uri = new RangedUri(BASE_URI, "a.mp4", 0, 40);
+    cache.put(uri, new byte[40]);
+    cache.put(uri, new byte[30]);
+    assertEquals(30, cache.getSizeBytes());
+  }
+
+  public void testOversizedDataNotCached() {
+    RangedUri uri = new RangedUri(BASE_URI, "a.mp4", 0, 101);
+    cache.put(uri, new byte[101]);
+    assertNull(cache.get(uri));
+    assertEquals(0, cache.getSizeBytes());
+  }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.drm;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.SampleHolder;
+
+import junit.framework.TestCase;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.UUID;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Unit test for {@link ClearKeySampleDecryptor}.
+ */
+public class ClearKeySampleDecryptorTest extends TestCase {
+
+  private static final UUID KEY_ID = new UUID(0x0123456789ABCDEFL, 0xFEDCBA9876543210L);
+  private static final byte[] KEY_ID_BYTES = new byte[] {0x01, 0x23, 0x45, 0x67, (byte) 0x89,
+      (byte) 0xAB, (byte) 0xCD, (byte) 0xEF, (byte) 0xFE, (byte) 0xDC, (byte) 0xBA, (byte) 0x98,
+      0x76, 0x54, 0x32, 0x10};
+  private static final byte[] KEY = new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+      16};
+  // An 8 byte initialization vector, padded with zeros.
+  private static final byte[] IV = new byte[] {1, 3, 5, 7, 9, 11, 13, 15, 0, 0, 0, 0, 0, 0, 0, 0};
+
+  private ClearKeySampleDecryptor decryptor;
+
+  @Override
+  public void setUp() throws GeneralSecurityException {
+    decryptor = new ClearKeySampleDecryptor(Collections.singletonMap(KEY_ID, KEY));
+  }
+
+  public void testDecryptFullSampleEncryption() throws GeneralSecurityException {
+    assertDecrypts(SampleHolder.BUFFER_REPLACEMENT_MODE_NORMAL, new int[] {0},
+        new int[] {1000});
+  }
+
+  public void testDecryptSubsamples() throws GeneralSecurityException {
+    // Encrypted ranges that end part way through a block.
+    int[] clearSizes = new int[] {5, 0, 100, 7};
+    int[] encryptedSizes = new int[] {35, 17, 0, 1024};
+    assertDecrypts(SampleHolder.BUFFER_REPLACEMENT_MODE_NORMAL, clearSizes, encryptedSizes);
+    assertDecrypts(SampleHolder.BUFFER_REPLACEMENT_MODE_DIRECT, clearSizes, encryptedSizes);
+  }
+
+  public void testUnknownKeyId() {
+    SampleHolder sampleHolder = buildSampleHolder(SampleHolder.BUFFER_REPLACEMENT_MODE_NORMAL,
+        new byte[16], new int[] {0}, new int[] {16});
+    sampleHolder.cryptoInfo.key = new byte[16];
+    try {
+      decryptor.decrypt(sampleHolder);
+      fail();
+    } catch (GeneralSecurityException e) {
+      // Expected.
+    }
+    assertTrue(sampleHolder.isEncrypted());
+  }
+
+  private void assertDecrypts(int bufferReplacementMode, int[] clearSizes, int[] encryptedSizes)
+      throws GeneralSecurityException {
+    int size = 0;
+    for (int i = 0; i < clearSizes.length; i++) {
+      size += clearSizes[i] + encryptedSizes[i];
+    }
+    byte[] data = new byte[size];
+    new Random(size).nextBytes(data);
+    byte[] encrypted = encrypt(data, clearSizes, encryptedSizes);
+    SampleHolder sampleHolder = buildSampleHolder(bufferReplacementMode, encrypted, clearSizes,
+        encryptedSizes);
+
+    decryptor.decrypt(sampleHolder);
+
+    assertFalse(sampleHolder.isEncrypted());
+    assertEquals(size, sampleHolder.data.position());
+    byte[] decrypted = new byte[size];
+    sampleHolder.data.flip();
+    sampleHolder.data.get(decrypted);
+    assertTrue(Arrays.equals(data, decrypted));
+  }
+
+  private static SampleHolder buildSampleHolder(int bufferReplacementMode, byte[] data,
+      int[] clearSizes, int[] encryptedSizes) {
+    SampleHolder sampleHolder = new SampleHolder(bufferReplacementMode);
+    sampleHolder.ensureSpaceForWrite(data.length);
+    sampleHolder.data.put(data);
+    sampleHolder.size = data.length;
+    sampleHolder.flags = C.SAMPLE_FLAG_ENCRYPTED;
+    sampleHolder.cryptoInfo.set(clearSizes.length, clearSizes, encryptedSizes, KEY_ID_BYTES,
+        IV, C.CRYPTO_MODE_AES_CTR);
+    return sampleHolder;
+  }
+
+  private static byte[] encrypt(byte[] data, int[] clearSizes, int[] encryptedSizes)
+      throws GeneralSecurityException {
+    Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
+    cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY, "AES"), new IvParameterSpec(IV));
+    byte[] encrypted = data.clone();
+    int position = 0;
+    for (int i = 0; i < clearSizes.length; i++) {
+      position += clearSizes[i];
+      cipher.update(data, position, encryptedSizes[i], encrypted, position);
+      position += encryptedSizes[i];
+    }
+    return encrypted;
+  }
+
+}
@@ -188,6 +188,39 @@ public final class Mp4ExtractorTest extends TestCase {
     }
   }
 
+  public void testTrickPlayOutputsVideoSyncSamples() throws Exception {
+    extractor.setTrickPlay(true, 0);
+    TestUtil.consumeTestData(extractor,
+        getTestInputData(true /* includeStss */, false /* mp4vFormat */));
+
+    // Only the video sync samples are output.
+    FakeTrackOutput videoTrackOutput = extractorOutput.trackOutputs.get(0);
+    videoTrackOutput.assertSampleCount(3);
+    assertTrickPlaySample(videoTrackOutput, 0, 0);
+    assertTrickPlaySample(videoTrackOutput, 1, 4);
+    assertTrickPlaySample(videoTrackOutput, 2, 5);
+    extractorOutput.trackOutputs.get(1).assertSampleCount(0);
+  }
+
+  public void testTrickPlayWithIntervalSkipsSyncSamples() throws Exception {
+    // The sync samples are at 0, 200 and 233 milliseconds.
+    extractor.setTrickPlay(true, 100000);
+    TestUtil.consumeTestData(extractor,
+        getTestInputData(true /* includeStss */, false /* mp4vFormat */));
+
+    FakeTrackOutput videoTrackOutput = extractorOutput.trackOutputs.get(0);
+    videoTrackOutput.assertSampleCount(2);
+    assertTrickPlaySample(videoTrackOutput, 0, 0);
+    assertTrickPlaySample(videoTrackOutput, 1, 4);
+    extractorOutput.trackOutputs.get(1).assertSampleCount(0);
+  }
+
+  private static void assertTrickPlaySample(FakeTrackOutput trackOutput, int outputIndex,
+      int sampleIndex) {
+    trackOutput.assertSample(outputIndex, getOutputSampleData(sampleIndex, true),
+        getVideoTimestampUs(SAMPLE_TIMESTAMPS[sampleIndex]), C.SAMPLE_FLAG_SYNC, null);
+  }
+
   private static void assertSeekMap(SeekMap seekMap, boolean haveStss) {
     assertNotNull(seekMap);
     int expectedSeekPosition = getSampleOffset(0);
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.hls;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.testutil.FakeDataSource;
+import com.google.android.exoplayer.upstream.DataSpec;
+
+import android.net.Uri;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Unit test for {@link Aes128DataSource}.
+ */
+public class Aes128DataSourceTest extends TestCase {
+
+  private static final byte[] KEY = new byte[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14,
+      15};
+  private static final byte[] IV = new byte[] {15, 14, 13, 12, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1,
+      0};
+
+  public void testDecrypt() throws Exception {
+    assertDecrypts(false, 100 * 1000);
+  }
+
+  public void testDecryptPipelined() throws Exception {
+    assertDecrypts(true, 100 * 1000);
+  }
+
+  public void testDecryptShortInput() throws Exception {
+    assertDecrypts(false, 5);
+    assertDecrypts(true, 5);
+  }
+
+  public void testDecryptBlockAlignedInput() throws Exception {
+    // The padding is a whole block when the input is a multiple of the block size.
+    assertDecrypts(false, 64);
+    assertDecrypts(true, 64);
+  }
+
+  public void testUpstreamErrorPipelined() throws Exception {
+    byte[] encrypted = encrypt(buildData(1000));
+    FakeDataSource upstream = new FakeDataSource.Builder()
+        .appendReadData(Arrays.copyOf(encrypted, 512))
+        .appendReadError(new IOException("Expected"))
+        .appendReadData(Arrays.copyOfRange(encrypted, 512, encrypted.length))
+        .build();
+    Aes128DataSource dataSource = new Aes128DataSource(upstream, KEY, IV, true);
+    dataSource.open(new DataSpec(Uri.parse("http://test")));
+    byte[] buffer = new byte[1024];
+    try {
+      while (true) {
+        dataSource.read(buffer, 0, buffer.length);
+      }
+    } catch (IOException e) {
+      assertEquals("Expected", e.getMessage());
+    } finally {
+      dataSource.close();
+    }
+  }
+
+  private static void assertDecrypts(boolean pipelined, int length) throws Exception {
+    byte[] data = buildData(length);
+    byte[] encrypted = encrypt(data);
+    // Split the input so that reads from the upstream source are not block aligned.
+    int splitPosition = encrypted.length / 3 + 1;
+    FakeDataSource upstream = new FakeDataSource.Builder()
+        .appendReadData(Arrays.copyOf(encrypted, splitPosition))
+        .appendReadData(Arrays.copyOfRange(encrypted, splitPosition, encrypted.length))
+        .build();
+    Aes128DataSource dataSource = new Aes128DataSource(upstream, KEY, IV, pipelined);
+    // Open the source twice, to check that a pooled cipher decrypts correctly.
+    for (int i = 0; i < 2; i++) {
+      assertEquals(C.LENGTH_UNBOUNDED, dataSource.open(new DataSpec(Uri.parse("http://test"))));
+      byte[] decrypted = new byte[length];
+      int position = 0;
+      int bytesRead;
+      while ((bytesRead = dataSource.read(decrypted, position,
+          Math.min(1000, decrypted.length - position))) > 0) {
+        position += bytesRead;
+      }
+      assertEquals(length, position);
+      assertEquals(C.RESULT_END_OF_INPUT, dataSource.read(new byte[1], 0, 1));
+      assertTrue(Arrays.equals(data, decrypted));
+      dataSource.close();
+    }
+  }
+
+  private static byte[] buildData(int length) {
+    byte[] data = new byte[length];
+    new Random(length).nextBytes(data);
+    return data;
+  }
+
+  private static byte[] encrypt(byte[] data) throws Exception {
+    Cipher cipher = Cipher.getInstance("AES/CBC/PKCS7Padding");
+    cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY, "AES"), new IvParameterSpec(IV));
+    return cipher.doFinal(data);
+  }
+
+}
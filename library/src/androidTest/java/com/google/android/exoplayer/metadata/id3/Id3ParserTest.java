@@ -20,6 +20,7 @@ import com.google.android.exoplayer.ParserException;
 import android.test.MoreAsserts;
 import junit.framework.TestCase;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -65,4 +66,47 @@ public class Id3ParserTest extends TestCase {
     assertEquals("Hello World", textInformationFrame.description);
   }
 
+  public void testParseWithFrameFilter() throws ParserException {
+    byte[] rawId3 = buildTxxxAndApicTag();
+    Id3Parser parser = new Id3Parser(Id3Parser.newFrameIdFilter(ApicFrame.ID), false);
+    List<Id3Frame> id3Frames = parser.parse(rawId3, rawId3.length);
+    assertEquals(1, id3Frames.size());
+    ApicFrame apicFrame = (ApicFrame) id3Frames.get(0);
+    assertEquals("Hello World", apicFrame.description);
+
+    parser = new Id3Parser(Id3Parser.newFrameIdFilter("TIT2"), false);
+    assertNull(parser.parse(rawId3, rawId3.length));
+  }
+
+  public void testParseLazily() throws ParserException {
+    byte[] rawId3 = buildTxxxAndApicTag();
+    Id3Parser parser = new Id3Parser(null, true);
+    List<Id3Frame> id3Frames = parser.parse(rawId3, rawId3.length);
+    assertEquals(2, id3Frames.size());
+    LazyId3Frame lazyTxxxFrame = (LazyId3Frame) id3Frames.get(0);
+    LazyId3Frame lazyApicFrame = (LazyId3Frame) id3Frames.get(1);
+    assertEquals(TxxxFrame.ID, lazyTxxxFrame.id);
+    assertEquals(ApicFrame.ID, lazyApicFrame.id);
+    assertEquals(35, lazyApicFrame.getSize());
+    assertEquals(35, lazyApicFrame.getData().remaining());
+    // Modifying the input must not affect the frames.
+    Arrays.fill(rawId3, (byte) 0);
+    TxxxFrame txxxFrame = (TxxxFrame) lazyTxxxFrame.decode();
+    assertEquals("mdialog_VINDICO1527664_start", txxxFrame.value);
+    assertSame(txxxFrame, lazyTxxxFrame.decode());
+    ApicFrame apicFrame = (ApicFrame) lazyApicFrame.decode();
+    assertEquals("image/jpeg", apicFrame.mimeType);
+    MoreAsserts.assertEquals(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 0}, apicFrame.pictureData);
+  }
+
+  private static byte[] buildTxxxAndApicTag() {
+    return new byte[] {73, 68, 51, 4, 0, 0, 0, 0, 0, 86,
+        // TXXX frame.
+        84, 88, 88, 88, 0, 0, 0, 31, 0, 0, 3, 0, 109, 100, 105, 97, 108, 111, 103, 95, 86, 73, 78,
+        68, 73, 67, 79, 49, 53, 50, 55, 54, 54, 52, 95, 115, 116, 97, 114, 116, 0,
+        // APIC frame.
+        65, 80, 73, 67, 0, 0, 0, 35, 0, 0, 3, 105, 109, 97, 103, 101, 47, 106, 112, 101, 103, 0,
+        16, 72, 101, 108, 108, 111, 32, 87, 111, 114, 108, 100, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 0};
+  }
+
 }
@@ -15,8 +15,11 @@
  */
 package com.google.android.exoplayer.smoothstreaming;
 
+import com.google.android.exoplayer.smoothstreaming.SmoothStreamingManifest.StreamElement;
+
 import android.test.InstrumentationTestCase;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -41,4 +44,51 @@ public class SmoothStreamingManifestParserTest extends InstrumentationTestCase {
                 getInstrumentation().getContext().getResources().getAssets().open(SAMPLE_ISMC_2);
         parser.parse("https://example.com/test.ismc", inputStream2);
     }
+
+    public void testParseRepeatedChunks() throws IOException {
+        String manifest = "<SmoothStreamingMedia MajorVersion=\"2\" MinorVersion=\"0\""
+                + " Duration=\"0\" TimeScale=\"1000\">"
+                + "<StreamIndex Type=\"audio\" Url=\"q/{bitrate}/f/{start time}\">"
+                + "<QualityLevel Bitrate=\"128000\" SamplingRate=\"44100\" Channels=\"2\"/>"
+                + "<c t=\"1000\" d=\"2000\" r=\"3\"/>"
+                + "<c d=\"2000\"/>"
+                + "<c t=\"10000\" d=\"1500\"/>"
+                + "</StreamIndex></SmoothStreamingMedia>";
+        StreamElement streamElement = parse(manifest).streamElements[0];
+        assertEquals(5, streamElement.chunkCount);
+        assertEquals(1000000, streamElement.getStartTimeUs(0));
+        assertEquals(7000000, streamElement.getStartTimeUs(3));
+        assertEquals(10000000, streamElement.getStartTimeUs(4));
+        // The duration of a chunk extends to the start of the next chunk.
+        assertEquals(3000000, streamElement.getChunkDurationUs(3));
+        assertEquals(1500000, streamElement.getChunkDurationUs(4));
+        assertEquals(0, streamElement.getChunkIndex(0));
+        assertEquals(2, streamElement.getChunkIndex(5000000));
+        assertEquals(3, streamElement.getChunkIndex(9999999));
+        assertEquals(4, streamElement.getChunkIndex(20000000));
+        assertEquals("https://example.com/q/128000/f/7000",
+                streamElement.buildRequestUri(0, 3).toString());
+    }
+
+    public void testParseManyChunks() throws IOException {
+        int chunkCount = 100000;
+        StringBuilder manifest = new StringBuilder(
+                "<SmoothStreamingMedia MajorVersion=\"2\" MinorVersion=\"0\" Duration=\"0\">"
+                + "<StreamIndex Type=\"audio\" Url=\"{start time}\">"
+                + "<QualityLevel Bitrate=\"128000\" SamplingRate=\"44100\" Channels=\"2\"/>");
+        for (int i = 0; i < chunkCount; i++) {
+            manifest.append("<c d=\"20000000\"/>");
+        }
+        manifest.append("</StreamIndex></SmoothStreamingMedia>");
+        StreamElement streamElement = parse(manifest.toString()).streamElements[0];
+        assertEquals(chunkCount, streamElement.chunkCount);
+        assertEquals((chunkCount - 1) * 2000000L, streamElement.getStartTimeUs(chunkCount - 1));
+        assertEquals(12345, streamElement.getChunkIndex(12345 * 2000000L + 1));
+    }
+
+    private static SmoothStreamingManifest parse(String manifest) throws IOException {
+        return new SmoothStreamingManifestParser().parse("https://example.com/test.ismc",
+                new ByteArrayInputStream(manifest.getBytes("UTF-8")));
+    }
+
 }
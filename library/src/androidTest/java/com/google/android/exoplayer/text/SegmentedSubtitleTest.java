@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.text;
+
+import com.google.android.exoplayer.ParserException;
+import com.google.android.exoplayer.text.webvtt.WebvttParser;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Unit test for {@link SegmentedSubtitle} and {@link SubtitleSegmentIndex}.
+ */
+public class SegmentedSubtitleTest extends TestCase {
+
+  private static final int CUE_COUNT = 100;
+  private static final int TARGET_SEGMENT_SIZE = 256;
+
+  private WebvttParser parser;
+  private byte[] data;
+
+  @Override
+  public void setUp() throws Exception {
+    parser = new WebvttParser();
+    // Each cue is displayed for 1.5 seconds, so consecutive cues overlap.
+    StringBuilder builder = new StringBuilder("WEBVTT\n\n");
+    for (int i = 0; i < CUE_COUNT; i++) {
+      builder.append(formatTimestamp(i * 1000)).append(" --> ")
+          .append(formatTimestamp(i * 1000 + 1500)).append("\nCue ").append(i).append("\n\n");
+    }
+    data = builder.toString().getBytes("UTF-8");
+  }
+
+  public void testIndexSegmentsAtBlockBoundaries() throws ParserException {
+    SubtitleSegmentIndex index = buildIndex();
+    assertTrue(index.getSegmentCount() > 1);
+    assertTrue(index.isOrdered());
+    for (int i = 1; i < index.getSegmentCount(); i++) {
+      int offset = index.getOffset(i);
+      assertEquals('\n', data[offset - 1]);
+      assertEquals('\n', data[offset - 2]);
+      assertEquals(offset, index.getOffset(i - 1) + index.getLength(i - 1));
+    }
+    int lastSegment = index.getSegmentCount() - 1;
+    assertEquals(data.length, index.getOffset(lastSegment) + index.getLength(lastSegment));
+  }
+
+  public void testSegmentedParseMatchesFullParse() throws ParserException {
+    Subtitle fullSubtitle = parser.parse(data, 0, data.length);
+    SubtitleSegmentIndex index = buildIndex();
+    SegmentedSubtitle subtitle = new SegmentedSubtitle();
+    for (int i = 0; i < index.getSegmentCount(); i++) {
+      subtitle.appendSegment(parser.parseCues(data, index.getOffset(i), index.getLength(i)));
+    }
+    assertEquals(fullSubtitle.getEventTimeCount(), subtitle.getEventTimeCount());
+    for (int i = 0; i < fullSubtitle.getEventTimeCount(); i++) {
+      assertEquals(fullSubtitle.getEventTime(i), subtitle.getEventTime(i));
+    }
+    for (long timeUs = 0; timeUs < (CUE_COUNT + 1) * 1000000L; timeUs += 250000) {
+      assertEquals(fullSubtitle.getNextEventTimeIndex(timeUs),
+          subtitle.getNextEventTimeIndex(timeUs));
+      assertEquals(getCueCount(fullSubtitle.getCues(timeUs)),
+          getCueCount(subtitle.getCues(timeUs)));
+    }
+  }
+
+  public void testParseFromSegmentContainingPosition() throws ParserException {
+    long positionUs = 50250000;
+    SubtitleSegmentIndex index = buildIndex();
+    int firstSegment = index.getSegmentIndex(positionUs);
+    assertTrue(firstSegment > 0);
+    SegmentedSubtitle subtitle = new SegmentedSubtitle();
+    for (int i = firstSegment; i <= firstSegment + 1; i++) {
+      subtitle.appendSegment(parser.parseCues(data, index.getOffset(i), index.getLength(i)));
+    }
+    // Cues 49 and 50 are displayed at the position.
+    assertEquals(2, getCueCount(subtitle.getCues(positionUs)));
+    assertTrue(subtitle.getEventTime(0) < positionUs);
+    assertTrue(subtitle.getNextEventTimeIndex(positionUs) != -1);
+  }
+
+  private SubtitleSegmentIndex buildIndex() throws ParserException {
+    return SubtitleSegmentIndex.build(parser, data, 0, data.length, TARGET_SEGMENT_SIZE);
+  }
+
+  private static int getCueCount(List<Cue> cues) {
+    // Cues from different segments aren't merged, so count the lines of text instead.
+    int count = 0;
+    for (int i = 0; i < cues.size(); i++) {
+      count += cues.get(i).text.toString().split("\n").length;
+    }
+    return count;
+  }
+
+  private static String formatTimestamp(long timeMs) {
+    return String.format("%02d:%02d:%02d.%03d", timeMs / 3600000, (timeMs / 60000) % 60,
+        (timeMs / 1000) % 60, timeMs % 1000);
+  }
+
+}
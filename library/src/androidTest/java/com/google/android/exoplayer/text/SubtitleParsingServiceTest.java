@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.text;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test for {@link SubtitleParsingService}.
+ */
+public class SubtitleParsingServiceTest extends TestCase {
+
+  private static final long TIMEOUT_MS = 5000;
+
+  private SubtitleParsingService service;
+  private List<Long> completedTimesUs;
+  private CountDownLatch blockingLatch;
+
+  @Override
+  public void setUp() throws Exception {
+    service = new SubtitleParsingService(1);
+    completedTimesUs = new ArrayList<>();
+    // Occupy the only worker thread, so that subsequent jobs are queued.
+    blockingLatch = new CountDownLatch(1);
+    CountDownLatch startedLatch = new CountDownLatch(1);
+    service.submit(new FakeJob(-1, startedLatch, blockingLatch), -1);
+    assertTrue(startedLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+  }
+
+  public void testQueuedJobsRunInTimeOrder() throws Exception {
+    CountDownLatch completedLatch = new CountDownLatch(3);
+    service.submit(new FakeJob(3000, completedLatch, null), 3000);
+    service.submit(new FakeJob(1000, completedLatch, null), 1000);
+    service.submit(new FakeJob(2000, completedLatch, null), 2000);
+    assertEquals(3, service.getQueuedJobCount());
+    assertEquals(3, service.getMaxQueuedJobCount());
+    blockingLatch.countDown();
+    assertTrue(completedLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    synchronized (completedTimesUs) {
+      assertEquals(4, completedTimesUs.size());
+      assertEquals(-1L, (long) completedTimesUs.get(0));
+      assertEquals(1000L, (long) completedTimesUs.get(1));
+      assertEquals(2000L, (long) completedTimesUs.get(2));
+      assertEquals(3000L, (long) completedTimesUs.get(3));
+    }
+    assertEquals(0, service.getQueuedJobCount());
+    assertFalse(Float.isNaN(service.getJobLatencyPercentileMs(0.5f)));
+  }
+
+  public void testCanceledJobNotRun() throws Exception {
+    CountDownLatch completedLatch = new CountDownLatch(1);
+    FakeJob canceledJob = new FakeJob(1000, null, null);
+    service.submit(canceledJob, 1000);
+    service.submit(new FakeJob(2000, completedLatch, null), 2000);
+    service.cancel(canceledJob);
+    assertEquals(1, service.getQueuedJobCount());
+    blockingLatch.countDown();
+    assertTrue(completedLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    synchronized (completedTimesUs) {
+      assertEquals(2, completedTimesUs.size());
+      assertEquals(2000L, (long) completedTimesUs.get(1));
+    }
+  }
+
+  private final class FakeJob extends SubtitleParsingService.Job {
+
+    private final long timeUs;
+    private final CountDownLatch completedLatch;
+    private final CountDownLatch blockingLatch;
+
+    public FakeJob(long timeUs, CountDownLatch completedLatch, CountDownLatch blockingLatch) {
+      this.timeUs = timeUs;
+      this.completedLatch = completedLatch;
+      this.blockingLatch = blockingLatch;
+    }
+
+    @Override
+    protected void parse() {
+      synchronized (completedTimesUs) {
+        completedTimesUs.add(timeUs);
+      }
+      if (completedLatch != null) {
+        completedLatch.countDown();
+      }
+      if (blockingLatch != null) {
+        try {
+          blockingLatch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.text.eia608;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for {@link ClosedCaptionListQueue} and {@link ClosedCaptionList}.
+ */
+public class ClosedCaptionListQueueTest extends TestCase {
+
+  private ClosedCaptionListQueue queue;
+
+  @Override
+  public void setUp() {
+    queue = new ClosedCaptionListQueue();
+  }
+
+  public void testListEntries() {
+    ClosedCaptionList list = queue.obtain();
+    list.reset(1000, false);
+    list.addChar('a');
+    list.addCtrl(ClosedCaptionCtrl.MISC_CHAN_2, ClosedCaptionCtrl.END_OF_CAPTION);
+    list.addChar('\u266A');
+    assertEquals(3, list.size());
+    assertFalse(list.isCtrl(0));
+    assertEquals('a', list.getChar(0));
+    assertTrue(list.isCtrl(1));
+    assertEquals(ClosedCaptionCtrl.MISC_CHAN_2, list.getCc1(1));
+    assertEquals(ClosedCaptionCtrl.END_OF_CAPTION, list.getCc2(1));
+    assertFalse(list.isCtrl(2));
+    assertEquals('\u266A', list.getChar(2));
+    list.reset(2000, true);
+    assertEquals(0, list.size());
+  }
+
+  public void testOrderedByTime() {
+    // Add lists out of order, as they would be for streams with B-frames, and enough of them to
+    // wrap around and grow the ring buffer.
+    long[] timesUs = new long[] {0, 3, 1, 2, 6, 4, 5, 9, 7, 8, 12, 10, 11, 15, 13, 14, 18, 16, 17};
+    for (int i = 0; i < 5; i++) {
+      add(timesUs[i]);
+    }
+    assertEquals(0, queue.pollFirst().timeUs);
+    assertEquals(1, queue.pollFirst().timeUs);
+    for (int i = 5; i < timesUs.length; i++) {
+      add(timesUs[i]);
+    }
+    for (int i = 2; i < timesUs.length; i++) {
+      assertEquals(i, queue.pollFirst().timeUs);
+    }
+    assertTrue(queue.isEmpty());
+  }
+
+  public void testDuplicateTimeDiscarded() {
+    assertTrue(add(1));
+    assertFalse(add(1));
+    assertEquals(1, queue.pollFirst().timeUs);
+    assertTrue(queue.isEmpty());
+  }
+
+  public void testListsReused() {
+    ClosedCaptionList first = queue.obtain();
+    first.reset(0, false);
+    queue.add(first);
+    queue.release(queue.pollFirst());
+    assertSame(first, queue.obtain());
+    queue.add(first);
+    queue.clear();
+    assertTrue(queue.isEmpty());
+    assertSame(first, queue.obtain());
+  }
+
+  private boolean add(long timeUs) {
+    ClosedCaptionList list = queue.obtain();
+    list.reset(timeUs, false);
+    return queue.add(list);
+  }
+
+}
@@ -186,6 +186,12 @@ public class WebvttSubtitleTest extends TestCase {
     assertSingleCueEmpty(nestedSubtitle.getCues(Long.MAX_VALUE));
   }
 
+  public void testCuesReusedWithinInterval() {
+    // The merged cue for overlapping subtitles is built once, not on each lookup.
+    assertSame(overlappingSubtitle.getCues(2000000), overlappingSubtitle.getCues(2999999));
+    assertSame(nestedSubtitle.getCues(1000000), nestedSubtitle.getCues(1999999));
+  }
+
   private void testSubtitleEventTimesHelper(WebvttSubtitle subtitle) {
     assertEquals(1000000, subtitle.getEventTime(0));
     assertEquals(2000000, subtitle.getEventTime(1));
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import android.net.Uri;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Unit tests for {@link HttpRequestRecorder}.
+ */
+public class HttpRequestRecorderTest extends TestCase {
+
+  public void testKeepsMostRecentRequests() {
+    HttpRequestRecorder recorder = new HttpRequestRecorder(2);
+    HttpRequestMetrics first = newMetrics(1);
+    HttpRequestMetrics second = newMetrics(2);
+    HttpRequestMetrics third = newMetrics(3);
+    recorder.onRequestFinished(first);
+    recorder.onRequestFinished(second);
+    recorder.onRequestFinished(third);
+
+    List<HttpRequestMetrics> requests = recorder.getRecentRequests();
+    assertEquals(2, requests.size());
+    assertSame(second, requests.get(0));
+    assertSame(third, requests.get(1));
+  }
+
+  public void testDump() {
+    HttpRequestRecorder recorder = new HttpRequestRecorder(4);
+    HttpRequestMetrics metrics = newMetrics(100);
+    metrics.connectEndTimeMs = 130;
+    metrics.responseStartTimeMs = 150;
+    metrics.firstByteTimeMs = 160;
+    metrics.requestEndTimeMs = 200;
+    metrics.responseCode = 200;
+    metrics.bytesRead = 1000;
+    metrics.connectionReuse = HttpRequestMetrics.CONNECTION_NEW;
+    recorder.onRequestFinished(metrics);
+    recorder.onRequestFinished(newMetrics(300));
+
+    String[] lines = recorder.dump().split("\n");
+    assertEquals(2, lines.length);
+    assertEquals("100 connect=30 response=50 firstByte=60 end=100 code=200 bytes=1000 "
+        + "redirects=0 reuse=new uri=http://test/100", lines[0]);
+    assertEquals("300 connect=? response=? firstByte=? end=? code=-1 bytes=0 redirects=0 "
+        + "reuse=? uri=http://test/300", lines[1]);
+  }
+
+  public void testClear() {
+    HttpRequestRecorder recorder = new HttpRequestRecorder(2);
+    recorder.onRequestFinished(newMetrics(1));
+    recorder.clear();
+    assertTrue(recorder.getRecentRequests().isEmpty());
+    assertEquals("", recorder.dump());
+  }
+
+  private static HttpRequestMetrics newMetrics(long requestStartTimeMs) {
+    DataSpec dataSpec = new DataSpec(Uri.parse("http://test/" + requestStartTimeMs));
+    return new HttpRequestMetrics(dataSpec, null, requestStartTimeMs);
+  }
+
+}
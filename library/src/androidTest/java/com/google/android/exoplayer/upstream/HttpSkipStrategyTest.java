@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for {@link HttpSkipStrategy}.
+ */
+public class HttpSkipStrategyTest extends TestCase {
+
+  private static final int MIN_SKIP_BYTES = 1000;
+
+  private HttpSkipStrategy skipStrategy;
+
+  @Override
+  public void setUp() {
+    skipStrategy = new HttpSkipStrategy(MIN_SKIP_BYTES);
+  }
+
+  public void testSmallSkipsAreRead() {
+    assertFalse(skipStrategy.shouldSkipWithNewRequest(MIN_SKIP_BYTES - 1));
+    assertTrue(skipStrategy.shouldSkipWithNewRequest(MIN_SKIP_BYTES));
+  }
+
+  public void testNewRequestWhenFasterThanReading() {
+    skipStrategy.onResponse(100);
+    // 1000 bytes per millisecond.
+    skipStrategy.onRead(100 * 1000, 100);
+    assertFalse(skipStrategy.shouldSkipWithNewRequest(50 * 1000));
+    assertTrue(skipStrategy.shouldSkipWithNewRequest(200 * 1000));
+  }
+
+  public void testResponseTimeIsSmoothed() {
+    skipStrategy.onResponse(100);
+    skipStrategy.onRead(100 * 1000, 100);
+    // A single slow response moves the estimate to 100 + 0.25 * (500 - 100) = 200ms.
+    skipStrategy.onResponse(500);
+    assertFalse(skipStrategy.shouldSkipWithNewRequest(150 * 1000));
+    assertTrue(skipStrategy.shouldSkipWithNewRequest(250 * 1000));
+  }
+
+  public void testNeverSkipWithNewRequest() {
+    skipStrategy = new HttpSkipStrategy(Long.MAX_VALUE);
+    assertFalse(skipStrategy.shouldSkipWithNewRequest(Long.MAX_VALUE - 1));
+  }
+
+  public void testCounters() {
+    skipStrategy.onDiscarded(10);
+    skipStrategy.onDiscarded(5);
+    skipStrategy.onSaved(1000);
+    assertEquals(15, skipStrategy.getBytesDiscarded());
+    assertEquals(1000, skipStrategy.getBytesSaved());
+  }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.util.Clock;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Unit tests for {@link LatencyAwareBandwidthMeter}.
+ */
+public class LatencyAwareBandwidthMeterTest extends TestCase {
+
+  private TestClock clock;
+  private TestEstimateStore estimateStore;
+  private LatencyAwareBandwidthMeter bandwidthMeter;
+
+  @Override
+  public void setUp() {
+    clock = new TestClock();
+    estimateStore = new TestEstimateStore();
+    bandwidthMeter = new LatencyAwareBandwidthMeter(null, null, estimateStore, clock,
+        LatencyAwareBandwidthMeter.DEFAULT_MAX_WEIGHT,
+        LatencyAwareBandwidthMeter.DEFAULT_HALF_LIFE_MS,
+        LatencyAwareBandwidthMeter.DEFAULT_AVERAGE_WEIGHT, 0);
+  }
+
+  public void testNoEstimateInitially() {
+    assertEquals(BandwidthMeter.NO_ESTIMATE, bandwidthMeter.getBitrateEstimate());
+    assertEquals(BandwidthMeter.NO_ESTIMATE, bandwidthMeter.getLatencyEstimateMs());
+  }
+
+  public void testLatencyExcludedFromThroughput() {
+    bandwidthMeter.onTransferStart();
+    // 500ms before the first bytes arrive.
+    clock.timeMs += 500;
+    bandwidthMeter.onBytesTransferred(1000);
+    // Then 100000 bytes in 1000ms.
+    clock.timeMs += 1000;
+    bandwidthMeter.onBytesTransferred(100000);
+    bandwidthMeter.onTransferEnd();
+    assertEquals(500, bandwidthMeter.getLatencyEstimateMs());
+    assertEquals(800000, bandwidthMeter.getBitrateEstimate());
+  }
+
+  public void testEstimateStoredAndRestored() {
+    bandwidthMeter.onTransferStart();
+    bandwidthMeter.onBytesTransferred(1000);
+    clock.timeMs += 1000;
+    bandwidthMeter.onBytesTransferred(100000);
+    bandwidthMeter.onTransferEnd();
+    assertEquals(800000, estimateStore.bitrateEstimate);
+    LatencyAwareBandwidthMeter restoredMeter = new LatencyAwareBandwidthMeter(null, null,
+        estimateStore);
+    assertEquals(800000, restoredMeter.getBitrateEstimate());
+  }
+
+  public void testDuplicateTransferEndIgnored() {
+    bandwidthMeter.onTransferStart();
+    bandwidthMeter.onBytesTransferred(1000);
+    clock.timeMs += 1000;
+    bandwidthMeter.onBytesTransferred(100000);
+    bandwidthMeter.onTransferEnd();
+    bandwidthMeter.onTransferEnd();
+    assertEquals(800000, bandwidthMeter.getBitrateEstimate());
+  }
+
+  public void testConcurrentTransfers() throws InterruptedException, ExecutionException {
+    ExecutorService otherThread = Executors.newSingleThreadExecutor();
+    bandwidthMeter.onTransferStart();
+    bandwidthMeter.onBytesTransferred(1000);
+    // Start a second transfer on a different thread, whilst the first is receiving.
+    otherThread.submit(new Runnable() {
+      @Override
+      public void run() {
+        bandwidthMeter.onTransferStart();
+        clock.timeMs += 500;
+        bandwidthMeter.onBytesTransferred(1000);
+        bandwidthMeter.onBytesTransferred(50000);
+      }
+    }).get();
+    bandwidthMeter.onBytesTransferred(50000);
+    // Both transfers received 50000 bytes in 500ms, giving an aggregate of 1600000 bits/sec.
+    otherThread.submit(new Runnable() {
+      @Override
+      public void run() {
+        bandwidthMeter.onTransferEnd();
+      }
+    }).get();
+    assertEquals(1600000, bandwidthMeter.getBitrateEstimate());
+    bandwidthMeter.onTransferEnd();
+    otherThread.shutdown();
+  }
+
+  public void testTransferListenerUpdatedOnAnotherThread()
+      throws InterruptedException, ExecutionException {
+    ExecutorService otherThread = Executors.newSingleThreadExecutor();
+    final TransferListener transferListener = bandwidthMeter.newTransferListener();
+    // Start a second transfer directly on this thread, so that the transfer can't be inferred.
+    bandwidthMeter.onTransferStart();
+    transferListener.onTransferStart();
+    clock.timeMs += 500;
+    // Report bytes on a different thread to the one that started the transfer.
+    otherThread.submit(new Runnable() {
+      @Override
+      public void run() {
+        transferListener.onBytesTransferred(1000);
+        clock.timeMs += 1000;
+        transferListener.onBytesTransferred(100000);
+      }
+    }).get();
+    transferListener.onTransferEnd();
+    assertEquals(500, bandwidthMeter.getLatencyEstimateMs());
+    assertEquals(800000, bandwidthMeter.getBitrateEstimate());
+    bandwidthMeter.onTransferEnd();
+    otherThread.shutdown();
+  }
+
+  public void testTransferUpdatedOnAnotherThread() throws InterruptedException, ExecutionException {
+    ExecutorService otherThread = Executors.newSingleThreadExecutor();
+    bandwidthMeter.onTransferStart();
+    clock.timeMs += 500;
+    // The only open transfer was started on this thread.
+    otherThread.submit(new Runnable() {
+      @Override
+      public void run() {
+        bandwidthMeter.onBytesTransferred(1000);
+        clock.timeMs += 1000;
+        bandwidthMeter.onBytesTransferred(100000);
+      }
+    }).get();
+    bandwidthMeter.onTransferEnd();
+    assertEquals(500, bandwidthMeter.getLatencyEstimateMs());
+    assertEquals(800000, bandwidthMeter.getBitrateEstimate());
+    otherThread.shutdown();
+  }
+
+  private static final class TestClock implements Clock {
+
+    public volatile long timeMs;
+
+    @Override
+    public long elapsedRealtime() {
+      return timeMs;
+    }
+
+  }
+
+  private static final class TestEstimateStore implements LatencyAwareBandwidthMeter.EstimateStore {
+
+    public long bitrateEstimate = BandwidthMeter.NO_ESTIMATE;
+
+    @Override
+    public long getBitrateEstimate() {
+      return bitrateEstimate;
+    }
+
+    @Override
+    public void setBitrateEstimate(long bitrateEstimate) {
+      this.bitrateEstimate = bitrateEstimate;
+    }
+
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test for {@link LoaderThreadPool}.
+ */
+public class LoaderThreadPoolTest extends TestCase {
+
+  private static final long TIMEOUT_MS = 5000;
+
+  private LoaderThreadPool threadPool;
+  private List<String> completedTasks;
+
+  @Override
+  public void setUp() {
+    threadPool = new LoaderThreadPool(2);
+    completedTasks = new ArrayList<>();
+  }
+
+  public void testThreadsCreatedOnDemand() throws Exception {
+    CountDownLatch blockingLatch = new CountDownLatch(1);
+    CountDownLatch completedLatch = new CountDownLatch(2);
+    threadPool.execute(new FakeTask("a", blockingLatch, completedLatch),
+        LoaderThreadPool.PRIORITY_MEDIA, "a");
+    threadPool.execute(new FakeTask("b", blockingLatch, completedLatch),
+        LoaderThreadPool.PRIORITY_MEDIA, "b");
+    assertEquals(2, threadPool.getThreadCount());
+    assertEquals(0, threadPool.getMaxQueuedTaskCount());
+    blockingLatch.countDown();
+    assertTrue(completedLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    // Threads are reused once idle.
+    CountDownLatch secondCompletedLatch = new CountDownLatch(1);
+    threadPool.execute(new FakeTask("c", null, secondCompletedLatch),
+        LoaderThreadPool.PRIORITY_MEDIA, "c");
+    assertTrue(secondCompletedLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertEquals(2, threadPool.getThreadCount());
+  }
+
+  public void testQueuedTasksRunInPriorityOrder() throws Exception {
+    threadPool = new LoaderThreadPool(1);
+    // Occupy the only thread, so that subsequent tasks are queued.
+    CountDownLatch blockingLatch = new CountDownLatch(1);
+    CountDownLatch startedLatch = new CountDownLatch(1);
+    threadPool.execute(new FakeTask("busy", blockingLatch, startedLatch),
+        LoaderThreadPool.PRIORITY_MEDIA, "busy");
+    assertTrue(startedLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    CountDownLatch completedLatch = new CountDownLatch(4);
+    threadPool.execute(new FakeTask("prefetch", null, completedLatch),
+        LoaderThreadPool.PRIORITY_PREFETCH, "prefetch");
+    threadPool.execute(new FakeTask("text", null, completedLatch),
+        LoaderThreadPool.PRIORITY_TEXT, "text");
+    threadPool.execute(new FakeTask("manifest", null, completedLatch),
+        LoaderThreadPool.PRIORITY_MANIFEST, "manifest");
+    threadPool.execute(new FakeTask("media", null, completedLatch),
+        LoaderThreadPool.PRIORITY_MEDIA, "media");
+    FakeTask canceledTask = new FakeTask("canceled", null, null);
+    threadPool.execute(canceledTask, LoaderThreadPool.PRIORITY_MEDIA, "canceled");
+    assertTrue(threadPool.remove(canceledTask));
+    assertFalse(threadPool.remove(canceledTask));
+    assertEquals(4, threadPool.getQueuedTaskCount());
+    assertEquals(5, threadPool.getMaxQueuedTaskCount());
+    blockingLatch.countDown();
+    assertTrue(completedLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    synchronized (completedTasks) {
+      assertEquals(5, completedTasks.size());
+      assertEquals("busy", completedTasks.get(0));
+      assertEquals("media", completedTasks.get(1));
+      assertEquals("manifest", completedTasks.get(2));
+      assertEquals("text", completedTasks.get(3));
+      assertEquals("prefetch", completedTasks.get(4));
+    }
+    assertEquals(0, threadPool.getQueuedTaskCount());
+    assertFalse(Float.isNaN(threadPool.getWaitTimePercentileMs(0.5f)));
+  }
+
+  public void testDefaultPoolNotFilledByBlockedTasks() throws Exception {
+    threadPool = LoaderThreadPool.getDefault();
+    // Block more tasks than a bounded pool would typically allow, as happens when many players have
+    // full buffers.
+    int blockedTaskCount = 20;
+    CountDownLatch blockingLatch = new CountDownLatch(1);
+    CountDownLatch startedLatch = new CountDownLatch(blockedTaskCount);
+    try {
+      for (int i = 0; i < blockedTaskCount; i++) {
+        String name = "blocked" + i;
+        threadPool.execute(new FakeTask(name, blockingLatch, startedLatch),
+            LoaderThreadPool.PRIORITY_MEDIA, name);
+      }
+      assertTrue(startedLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+      // A further task still runs.
+      CountDownLatch completedLatch = new CountDownLatch(1);
+      threadPool.execute(new FakeTask("manifest", null, completedLatch),
+          LoaderThreadPool.PRIORITY_MANIFEST, "manifest");
+      assertTrue(completedLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+      assertEquals(0, threadPool.getQueuedTaskCount());
+    } finally {
+      blockingLatch.countDown();
+    }
+  }
+
+  private final class FakeTask implements Runnable {
+
+    private final String name;
+    private final CountDownLatch blockingLatch;
+    private final CountDownLatch completedLatch;
+
+    public FakeTask(String name, CountDownLatch blockingLatch, CountDownLatch completedLatch) {
+      this.name = name;
+      this.blockingLatch = blockingLatch;
+      this.completedLatch = completedLatch;
+    }
+
+    @Override
+    public void run() {
+      assertEquals(name, Thread.currentThread().getName());
+      synchronized (completedTasks) {
+        completedTasks.add(name);
+      }
+      if (completedLatch != null) {
+        completedLatch.countDown();
+      }
+      if (blockingLatch != null) {
+        try {
+          blockingLatch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import android.net.Uri;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+
+/**
+ * Unit tests for {@link UdpDataSource} receiving on a dedicated thread, using the loopback
+ * interface.
+ */
+public class UdpDataSourceTest extends TestCase {
+
+  private static final int MAX_PACKET_SIZE = 64;
+  private static final int TIMEOUT_MS = 5000;
+
+  private DatagramSocket senderSocket;
+  private InetAddress address;
+  private int port;
+  private UdpDataSource dataSource;
+
+  @Override
+  public void setUp() throws IOException {
+    address = InetAddress.getByName("127.0.0.1");
+    // Find a free port.
+    DatagramSocket socket = new DatagramSocket(0, address);
+    port = socket.getLocalPort();
+    socket.close();
+    senderSocket = new DatagramSocket();
+  }
+
+  @Override
+  public void tearDown() {
+    if (dataSource != null) {
+      dataSource.close();
+    }
+    senderSocket.close();
+  }
+
+  public void testReadPackets() throws IOException {
+    open(16, false);
+    send(new byte[] {0, 1, 2});
+    send(new byte[] {3, 4});
+    byte[] data = new byte[5];
+    assertEquals(2, dataSource.read(data, 0, 2));
+    assertEquals(1, dataSource.read(data, 2, 3));
+    assertEquals(2, dataSource.read(data, 3, 2));
+    assertByteArraysEqual(new byte[] {0, 1, 2, 3, 4}, data);
+  }
+
+  public void testBurstOverrunsQueue() throws Exception {
+    open(4, false);
+    // Send a burst whilst nothing is reading. The receive thread keeps draining the socket, and
+    // drops the datagrams that do not fit in the queue.
+    for (int i = 0; i < 20; i++) {
+      send(new byte[] {(byte) i});
+    }
+    long deadlineMs = System.currentTimeMillis() + TIMEOUT_MS;
+    while (dataSource.getOverrunPacketCount() < 16) {
+      assertTrue(System.currentTimeMillis() < deadlineMs);
+      Thread.sleep(10);
+    }
+    assertEquals(16, dataSource.getOverrunPacketCount());
+    // The oldest datagrams are kept.
+    byte[] data = new byte[1];
+    for (int i = 0; i < 4; i++) {
+      assertEquals(1, dataSource.read(data, 0, 1));
+      assertEquals(i, data[0]);
+    }
+    // Reading frees space for further datagrams.
+    send(new byte[] {42});
+    assertEquals(1, dataSource.read(data, 0, 1));
+    assertEquals(42, data[0]);
+  }
+
+  public void testRtpPacketsReordered() throws IOException {
+    open(64, true);
+    sendRtp(0, 0);
+    sendRtp(2, 2);
+    sendRtp(1, 1);
+    sendRtp(1, 1);
+    sendRtp(3, 3);
+    byte[] data = new byte[1];
+    for (int i = 0; i < 4; i++) {
+      assertEquals(1, dataSource.read(data, 0, 1));
+      assertEquals(i, data[0]);
+    }
+    assertEquals(1, dataSource.getReorderedPacketCount());
+    assertEquals(1, dataSource.getDiscardedPacketCount());
+    assertEquals(0, dataSource.getLostPacketCount());
+  }
+
+  public void testRtpGapSkippedWhenNoFurtherPackets() throws IOException {
+    open(64, true);
+    sendRtp(0xFFFF, 0);
+    sendRtp(1, 2);
+    byte[] data = new byte[1];
+    assertEquals(1, dataSource.read(data, 0, 1));
+    assertEquals(0, data[0]);
+    // The packet with sequence number 0 never arrives, so the next packet is released once the
+    // receiver stops waiting for it.
+    assertEquals(1, dataSource.read(data, 0, 1));
+    assertEquals(2, data[0]);
+    assertEquals(1, dataSource.getLostPacketCount());
+  }
+
+  public void testInvalidRtpPacketDropped() throws IOException {
+    open(64, true);
+    send(new byte[] {0, 1, 2});
+    sendRtp(0, 7);
+    byte[] data = new byte[1];
+    assertEquals(1, dataSource.read(data, 0, 1));
+    assertEquals(7, data[0]);
+    assertEquals(1, dataSource.getInvalidPacketCount());
+  }
+
+  private void open(int packetQueueSize, boolean parseRtp) throws IOException {
+    dataSource = new UdpDataSource(null, MAX_PACKET_SIZE, TIMEOUT_MS, packetQueueSize, 0,
+        parseRtp);
+    dataSource.open(new DataSpec(Uri.parse("udp://127.0.0.1:" + port)));
+  }
+
+  private void sendRtp(int sequenceNumber, int payload) throws IOException {
+    byte[] data = new byte[13];
+    data[0] = (byte) 0x80;
+    data[2] = (byte) (sequenceNumber >> 8);
+    data[3] = (byte) sequenceNumber;
+    data[12] = (byte) payload;
+    send(data);
+  }
+
+  private void send(byte[] data) throws IOException {
+    senderSocket.send(new DatagramPacket(data, data.length, address, port));
+  }
+
+  private static void assertByteArraysEqual(byte[] expected, byte[] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i]);
+    }
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.util;
+
+import com.google.android.exoplayer.upstream.UriLoadable;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Unit tests for {@link ManifestParseCache}.
+ */
+public class ManifestParseCacheTest extends TestCase {
+
+  private static final String URL_1 = "https://example.com/1.m3u8";
+  private static final String URL_2 = "https://example.com/2.m3u8";
+
+  private CountingParser parser;
+  private ManifestParseCache cache;
+  private UriLoadable.Parser<String> cachingParser;
+
+  @Override
+  public void setUp() {
+    parser = new CountingParser();
+    cache = new ManifestParseCache(2);
+    cachingParser = cache.wrap(parser);
+  }
+
+  public void testIdenticalDataParsedOnce() throws IOException {
+    String first = parse(URL_1, "data");
+    String second = parse(URL_1, "data");
+    assertEquals("data", first);
+    assertSame(first, second);
+    assertEquals(1, parser.parseCount);
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  public void testDifferentDataOrUrlParsedAgain() throws IOException {
+    parse(URL_1, "data");
+    parse(URL_1, "other");
+    parse(URL_2, "data");
+    assertEquals(3, parser.parseCount);
+    assertEquals(0, cache.getHitCount());
+    assertEquals(3, cache.getMissCount());
+  }
+
+  public void testLeastRecentlyUsedEvicted() throws IOException {
+    parse(URL_1, "a");
+    parse(URL_1, "b");
+    // Use "a", so that "b" is the least recently used.
+    parse(URL_1, "a");
+    parse(URL_1, "c");
+    assertEquals(3, parser.parseCount);
+    parse(URL_1, "a");
+    assertEquals(3, parser.parseCount);
+    parse(URL_1, "b");
+    assertEquals(4, parser.parseCount);
+  }
+
+  private String parse(String url, String data) throws IOException {
+    return cachingParser.parse(url, new ByteArrayInputStream(data.getBytes("UTF-8")));
+  }
+
+  private static final class CountingParser implements UriLoadable.Parser<String> {
+
+    public int parseCount;
+
+    @Override
+    public String parse(String connectionUrl, InputStream inputStream) throws IOException {
+      parseCount++;
+      StringBuilder builder = new StringBuilder();
+      int value;
+      while ((value = inputStream.read()) != -1) {
+        builder.append((char) value);
+      }
+      return builder.toString();
+    }
+
+  }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.util.extensions;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test for {@link SimpleDecoder}, using a decoder that passes timestamps through.
+ */
+public class SimpleDecoderTest extends TestCase {
+
+  private static final int BUFFER_COUNT = 4;
+  private static final long TIMEOUT_MS = 5000;
+
+  private FakeDecoder decoder;
+
+  @Override
+  public void setUp() {
+    decoder = new FakeDecoder();
+    decoder.start();
+  }
+
+  @Override
+  public void tearDown() {
+    decoder.release();
+  }
+
+  public void testOutputInInputOrder() throws Exception {
+    // Decode many more buffers than the decoder has, so that every buffer is reused.
+    int inputCount = 0;
+    int outputCount = 0;
+    long deadlineMs = System.currentTimeMillis() + TIMEOUT_MS;
+    while (outputCount < 1000) {
+      InputBuffer inputBuffer = decoder.dequeueInputBuffer();
+      if (inputBuffer != null) {
+        inputBuffer.sampleHolder.timeUs = inputCount++;
+        decoder.queueInputBuffer(inputBuffer);
+      }
+      FakeOutputBuffer outputBuffer = decoder.dequeueOutputBuffer();
+      if (outputBuffer != null) {
+        assertEquals(outputCount++, outputBuffer.timestampUs);
+        outputBuffer.release();
+      }
+      assertTrue(System.currentTimeMillis() < deadlineMs);
+    }
+  }
+
+  public void testDecodeOnlyBuffersNotOutput() throws Exception {
+    queueInputBuffer(0, Buffer.FLAG_DECODE_ONLY);
+    queueInputBuffer(1, 0);
+    FakeOutputBuffer outputBuffer = awaitOutputBuffer();
+    assertEquals(1, outputBuffer.timestampUs);
+    outputBuffer.release();
+  }
+
+  public void testFlushDiscardsBuffersAndResetsDecoder() throws Exception {
+    CountDownLatch decodeLatch = new CountDownLatch(1);
+    decoder.decodeLatch = decodeLatch;
+    for (int i = 0; i < BUFFER_COUNT; i++) {
+      queueInputBuffer(i, 0);
+    }
+    // Flush while the first buffer is being decoded and the others are queued.
+    assertTrue(decoder.decodeStartedLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    decoder.flush();
+    decodeLatch.countDown();
+    // The flushed input buffers are returned, and none of them is output.
+    for (int i = 0; i < BUFFER_COUNT; i++) {
+      queueInputBuffer(BUFFER_COUNT + i, 0);
+    }
+    for (int i = 0; i < BUFFER_COUNT; i++) {
+      FakeOutputBuffer outputBuffer = awaitOutputBuffer();
+      assertEquals(BUFFER_COUNT + i, outputBuffer.timestampUs);
+      assertEquals(i == 0, outputBuffer.reset);
+      outputBuffer.release();
+    }
+  }
+
+  private void queueInputBuffer(long timeUs, int flags) throws Exception {
+    long deadlineMs = System.currentTimeMillis() + TIMEOUT_MS;
+    InputBuffer inputBuffer;
+    while ((inputBuffer = decoder.dequeueInputBuffer()) == null) {
+      assertTrue(System.currentTimeMillis() < deadlineMs);
+      Thread.yield();
+    }
+    inputBuffer.sampleHolder.timeUs = timeUs;
+    if (flags != 0) {
+      inputBuffer.setFlag(flags);
+    }
+    decoder.queueInputBuffer(inputBuffer);
+  }
+
+  private FakeOutputBuffer awaitOutputBuffer() throws Exception {
+    long deadlineMs = System.currentTimeMillis() + TIMEOUT_MS;
+    FakeOutputBuffer outputBuffer;
+    while ((outputBuffer = decoder.dequeueOutputBuffer()) == null) {
+      assertTrue(System.currentTimeMillis() < deadlineMs);
+      Thread.yield();
+    }
+    return outputBuffer;
+  }
+
+  private static final class FakeDecoder
+      extends SimpleDecoder<InputBuffer, FakeOutputBuffer, Exception> {
+
+    public final CountDownLatch decodeStartedLatch;
+    public volatile CountDownLatch decodeLatch;
+
+    public FakeDecoder() {
+      super(new InputBuffer[BUFFER_COUNT], new FakeOutputBuffer[BUFFER_COUNT]);
+      decodeStartedLatch = new CountDownLatch(1);
+    }
+
+    @Override
+    protected InputBuffer createInputBuffer() {
+      return new InputBuffer();
+    }
+
+    @Override
+    protected FakeOutputBuffer createOutputBuffer() {
+      return new FakeOutputBuffer(this);
+    }
+
+    @Override
+    protected Exception decode(InputBuffer inputBuffer, FakeOutputBuffer outputBuffer,
+        boolean reset) {
+      decodeStartedLatch.countDown();
+      CountDownLatch decodeLatch = this.decodeLatch;
+      if (decodeLatch != null) {
+        try {
+          decodeLatch.await();
+        } catch (InterruptedException e) {
+          return e;
+        }
+        this.decodeLatch = null;
+      }
+      outputBuffer.timestampUs = inputBuffer.sampleHolder.timeUs;
+      outputBuffer.reset = reset;
+      return null;
+    }
+
+  }
+
+  private static final class FakeOutputBuffer extends OutputBuffer {
+
+    private final FakeDecoder owner;
+
+    public boolean reset;
+
+    public FakeOutputBuffer(FakeDecoder owner) {
+      this.owner = owner;
+    }
+
+    @Override
+    public void release() {
+      owner.releaseOutputBuffer(this);
+    }
+
+  }
+
+}
@@ -27,7 +27,7 @@ import java.util.concurrent.CopyOnWriteArraySet;
 /**
  * Concrete implementation of {@link ExoPlayer}.
  */
-/* package */ final class ExoPlayerImpl implements ExoPlayer {
+/* package */ final class ExoPlayerImpl implements ExoPlayer, PlaybackLoopCounters.Provider {
 
   private static final String TAG = "ExoPlayerImpl";
 
@@ -190,6 +190,11 @@ import java.util.concurrent.CopyOnWriteArraySet;
         : (int) (duration == 0 ? 100 : (bufferedPosition * 100) / duration);
   }
 
+  @Override
+  public PlaybackLoopCounters getPlaybackLoopCounters() {
+    return internalPlayer.getPlaybackLoopCounters();
+  }
+
   // Not private so it can be called from an inner class without going through a thunk method.
   /* package */ void handleEvent(Message msg) {
     switch (msg.what) {
@@ -61,12 +61,14 @@ import java.util.concurrent.atomic.AtomicInteger;
 
   private static final int PREPARE_INTERVAL_MS = 10;
   private static final int RENDERING_INTERVAL_MS = 10;
+  private static final int MAX_RENDERING_INTERVAL_MS = 100;
   private static final int IDLE_INTERVAL_MS = 1000;
 
   private final Handler handler;
   private final HandlerThread internalPlaybackThread;
   private final Handler eventHandler;
   private final StandaloneMediaClock standaloneMediaClock;
+  private final PlaybackLoopCounters playbackLoopCounters;
   private final AtomicInteger pendingSeekCount;
   private final List<TrackRenderer> enabledRenderers;
   private final MediaFormat[][] trackFormats;
@@ -86,6 +88,7 @@ import java.util.concurrent.atomic.AtomicInteger;
   private int customMessagesProcessed = 0;
   private long lastSeekPositionMs;
   private long elapsedRealtimeUs;
+  private long lastWakeupTimeMs;
 
   private volatile long durationUs;
   private volatile long positionUs;
@@ -103,6 +106,8 @@ import java.util.concurrent.atomic.AtomicInteger;
     this.bufferedPositionUs = TrackRenderer.UNKNOWN_TIME_US;
 
     standaloneMediaClock = new StandaloneMediaClock();
+    playbackLoopCounters = new PlaybackLoopCounters();
+    lastWakeupTimeMs = -1;
     pendingSeekCount = new AtomicInteger();
     enabledRenderers = new ArrayList<>(selectedTrackIndices.length);
     trackFormats = new MediaFormat[selectedTrackIndices.length][];
@@ -132,6 +137,10 @@ import java.util.concurrent.atomic.AtomicInteger;
         : durationUs / 1000;
   }
 
+  public PlaybackLoopCounters getPlaybackLoopCounters() {
+    return playbackLoopCounters;
+  }
+
   public void prepare(TrackRenderer... renderers) {
     handler.obtainMessage(MSG_PREPARE, renderers).sendToTarget();
   }
@@ -420,6 +429,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
   private void doSomeWork() throws ExoPlaybackException {
     TraceUtil.beginSection("doSomeWork");
+    long workStartTimeUs = System.nanoTime() / 1000;
     long operationStartTimeMs = SystemClock.elapsedRealtime();
     long bufferedPositionUs = durationUs != TrackRenderer.UNKNOWN_TIME_US ? durationUs
         : Long.MAX_VALUE;
@@ -428,9 +438,6 @@ import java.util.concurrent.atomic.AtomicInteger;
     updatePositionUs();
     for (int i = 0; i < enabledRenderers.size(); i++) {
       TrackRenderer renderer = enabledRenderers.get(i);
-      // TODO: Each renderer should return the maximum delay before which it wishes to be
-      // invoked again. The minimum of these values should then be used as the delay before the next
-      // invocation of this method.
       renderer.doSomeWork(positionUs, elapsedRealtimeUs);
       allRenderersEnded = allRenderersEnded && renderer.isEnded();
 
@@ -478,15 +485,50 @@ import java.util.concurrent.atomic.AtomicInteger;
     }
 
     handler.removeMessages(MSG_DO_SOME_WORK);
-    if ((playWhenReady && state == ExoPlayer.STATE_READY) || state == ExoPlayer.STATE_BUFFERING) {
+    boolean scheduled = true;
+    if (playWhenReady && state == ExoPlayer.STATE_READY) {
+      scheduleNextOperation(MSG_DO_SOME_WORK, operationStartTimeMs, getRenderingIntervalMs());
+    } else if (state == ExoPlayer.STATE_BUFFERING) {
       scheduleNextOperation(MSG_DO_SOME_WORK, operationStartTimeMs, RENDERING_INTERVAL_MS);
     } else if (!enabledRenderers.isEmpty()) {
       scheduleNextOperation(MSG_DO_SOME_WORK, operationStartTimeMs, IDLE_INTERVAL_MS);
+    } else {
+      scheduled = false;
     }
 
+    updatePlaybackLoopCounters(workStartTimeUs, operationStartTimeMs, scheduled);
     TraceUtil.endSection();
   }
 
+  /**
+   * Returns the interval before the next invocation of {@link #doSomeWork()} whilst playing, which
+   * is the smallest of the maximum delays requested by the enabled renderers.
+   */
+  private long getRenderingIntervalMs() {
+    long intervalUs = MAX_RENDERING_INTERVAL_MS * 1000L;
+    for (int i = 0; i < enabledRenderers.size(); i++) {
+      TrackRenderer renderer = enabledRenderers.get(i);
+      if (renderer.getState() == TrackRenderer.STATE_STARTED) {
+        intervalUs = Math.min(intervalUs,
+            renderer.getMaxWakeupDelayUs(positionUs, elapsedRealtimeUs));
+      }
+    }
+    return Math.max(RENDERING_INTERVAL_MS, intervalUs / 1000);
+  }
+
+  private void updatePlaybackLoopCounters(long workStartTimeUs, long operationStartTimeMs,
+      boolean scheduled) {
+    long workTimeUs = System.nanoTime() / 1000 - workStartTimeUs;
+    playbackLoopCounters.wakeupCount++;
+    playbackLoopCounters.totalWorkTimeUs += workTimeUs;
+    playbackLoopCounters.maxWorkTimeUs = Math.max(playbackLoopCounters.maxWorkTimeUs, workTimeUs);
+    if (lastWakeupTimeMs != -1) {
+      playbackLoopCounters.loopTimeMs += operationStartTimeMs - lastWakeupTimeMs;
+    }
+    lastWakeupTimeMs = scheduled ? operationStartTimeMs : -1;
+    playbackLoopCounters.ensureUpdated();
+  }
+
   private void scheduleNextOperation(int operationType, long thisOperationStartTimeMs,
       long intervalMs) {
     long nextOperationStartTimeMs = thisOperationStartTimeMs + intervalMs;
@@ -540,6 +582,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
   private void resetInternal() {
     handler.removeMessages(MSG_DO_SOME_WORK);
+    lastWakeupTimeMs = -1;
     handler.removeMessages(MSG_INCREMENTAL_PREPARE);
     rebuffering = false;
     standaloneMediaClock.stop();
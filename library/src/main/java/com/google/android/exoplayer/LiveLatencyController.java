@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer;
+
+import com.google.android.exoplayer.util.Assertions;
+
+/**
+ * Tracks and controls the distance between the playback position and the live edge of a live
+ * stream.
+ * <p>
+ * Chunk sources that support the controller use it to pick the position from which playback of a
+ * live stream starts, so that playback starts {@link #getTargetLatencyUs()} behind the live edge.
+ * During playback they report the current live edge and playback position through
+ * {@link #updateLatency(long, long)}. If the latency has drifted above the maximum latency (for
+ * example because of rebuffering) then the source skips ahead, and loads media from the target
+ * latency again.
+ * <p>
+ * The most recently measured latency can be read from any thread using
+ * {@link #getCurrentLatencyUs()}. A controller instance should only be used by the chunk sources
+ * of a single playback.
+ */
+public final class LiveLatencyController {
+
+  private final long targetLatencyUs;
+  private final long maxLatencyUs;
+
+  private volatile long currentLatencyUs;
+  private volatile int resyncCount;
+
+  /**
+   * @param targetLatencyMs The desired distance between the playback position and the live edge,
+   *     in milliseconds.
+   * @param maxLatencyMs The distance between the playback position and the live edge, in
+   *     milliseconds, above which media is skipped to return to the target latency. Must be
+   *     greater than {@code targetLatencyMs}.
+   */
+  public LiveLatencyController(long targetLatencyMs, long maxLatencyMs) {
+    Assertions.checkArgument(maxLatencyMs > targetLatencyMs);
+    this.targetLatencyUs = targetLatencyMs * 1000;
+    this.maxLatencyUs = maxLatencyMs * 1000;
+    currentLatencyUs = C.UNKNOWN_TIME_US;
+  }
+
+  /**
+   * Returns the target latency in microseconds.
+   */
+  public long getTargetLatencyUs() {
+    return targetLatencyUs;
+  }
+
+  /**
+   * Returns the most recently measured latency in microseconds, or {@link C#UNKNOWN_TIME_US} if
+   * the latency has not been measured.
+   */
+  public long getCurrentLatencyUs() {
+    return currentLatencyUs;
+  }
+
+  /**
+   * Returns the number of times that media has been skipped to return to the target latency.
+   */
+  public int getResyncCount() {
+    return resyncCount;
+  }
+
+  /**
+   * Returns a suggested minimum duration of media that should be buffered for playback to start,
+   * for passing to {@link ExoPlayer.Factory#newInstance(int, int, int)}.
+   * <p>
+   * Buffering more media than the target latency is impossible, so the value is a fraction of the
+   * target latency when the target latency is small.
+   */
+  public int getMinBufferMs() {
+    return (int) Math.min(ExoPlayer.Factory.DEFAULT_MIN_BUFFER_MS, targetLatencyUs / 4000);
+  }
+
+  /**
+   * Returns a suggested minimum duration of media that should be buffered for playback to resume
+   * after rebuffering, for passing to {@link ExoPlayer.Factory#newInstance(int, int, int)}.
+   */
+  public int getMinRebufferMs() {
+    return (int) Math.min(ExoPlayer.Factory.DEFAULT_MIN_REBUFFER_MS, targetLatencyUs / 2000);
+  }
+
+  /**
+   * Returns the position from which playback should start.
+   *
+   * @param availableStartTimeUs The start of the available range of media.
+   * @param liveEdgeTimeUs The live edge, in the same timebase as {@code availableStartTimeUs}.
+   * @return The position from which playback should start.
+   */
+  public long getStartPositionUs(long availableStartTimeUs, long liveEdgeTimeUs) {
+    return Math.max(availableStartTimeUs, liveEdgeTimeUs - targetLatencyUs);
+  }
+
+  /**
+   * Updates the current latency.
+   *
+   * @param liveEdgeTimeUs The live edge.
+   * @param playbackPositionUs The current playback position, in the same timebase as
+   *     {@code liveEdgeTimeUs}.
+   * @return True if the latency exceeds the maximum latency, in which case the caller should skip
+   *     ahead to {@link #getStartPositionUs(long, long)} and then call {@link #onResync()}.
+   */
+  public boolean updateLatency(long liveEdgeTimeUs, long playbackPositionUs) {
+    long latencyUs = Math.max(0, liveEdgeTimeUs - playbackPositionUs);
+    currentLatencyUs = latencyUs;
+    return latencyUs > maxLatencyUs;
+  }
+
+  /**
+   * Invoked when a caller has skipped ahead to return to the target latency.
+   */
+  public void onResync() {
+    resyncCount++;
+  }
+
+}
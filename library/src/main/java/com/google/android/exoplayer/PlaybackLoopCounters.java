@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer;
+
+/**
+ * Maintains counts of the wake-ups of a player's rendering loop, for debugging purposes only.
+ * <p>
+ * Counters are written from the playback thread only. Counters may be read from any thread. To
+ * ensure that the counter values are correctly reflected between threads, users of this class
+ * should invoke {@link #ensureUpdated()} prior to reading.
+ * <p>
+ * Players created by {@link ExoPlayer.Factory} implement {@link Provider}, through which their
+ * counters can be obtained.
+ */
+public final class PlaybackLoopCounters {
+
+  /**
+   * Implemented by players that maintain counters of their rendering loop.
+   */
+  public interface Provider {
+
+    /**
+     * Gets counters that describe the wake-ups of the player's rendering loop, for debugging
+     * purposes.
+     *
+     * @return The counters of the player's rendering loop.
+     */
+    PlaybackLoopCounters getPlaybackLoopCounters();
+
+  }
+
+  /**
+   * The number of times that the rendering loop has woken up to do work.
+   */
+  public int wakeupCount;
+  /**
+   * The total time spent doing work, in microseconds.
+   */
+  public long totalWorkTimeUs;
+  /**
+   * The longest time spent doing work in a single wake-up, in microseconds.
+   */
+  public long maxWorkTimeUs;
+  /**
+   * The total time for which the rendering loop has been running, in milliseconds.
+   */
+  public long loopTimeMs;
+
+  /**
+   * Should be invoked from the playback thread after the counters have been updated. Should also
+   * be invoked from any other thread that wishes to read the counters, before reading. These calls
+   * ensure that counter updates are made visible to the reading threads.
+   */
+  public synchronized void ensureUpdated() {
+    // Do nothing. The use of synchronized ensures a memory barrier should another thread also
+    // call this method.
+  }
+
+  /**
+   * Returns the average number of wake-ups per second whilst the rendering loop was running.
+   */
+  public float getWakeupsPerSecond() {
+    ensureUpdated();
+    return loopTimeMs == 0 ? 0 : (wakeupCount * 1000f) / loopTimeMs;
+  }
+
+  /**
+   * Returns the average time spent doing work per wake-up, in microseconds.
+   */
+  public long getAverageWorkTimeUs() {
+    ensureUpdated();
+    return wakeupCount == 0 ? 0 : totalWorkTimeUs / wakeupCount;
+  }
+
+  public String getDebugString() {
+    ensureUpdated();
+    StringBuilder builder = new StringBuilder();
+    builder.append("wps:").append((int) getWakeupsPerSecond());
+    builder.append(" awt:").append(getAverageWorkTimeUs());
+    builder.append(" mwt:").append(maxWorkTimeUs);
+    return builder.toString();
+  }
+
+}
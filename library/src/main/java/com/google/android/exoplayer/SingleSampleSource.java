@@ -20,7 +20,9 @@ import com.google.android.exoplayer.upstream.DataSource;
 import com.google.android.exoplayer.upstream.DataSpec;
 import com.google.android.exoplayer.upstream.Loader;
 import com.google.android.exoplayer.upstream.Loader.Loadable;
+import com.google.android.exoplayer.upstream.LoaderThreadPool;
 import com.google.android.exoplayer.util.Assertions;
+import com.google.android.exoplayer.util.MimeTypes;
 
 import android.net.Uri;
 import android.os.Handler;
@@ -113,7 +115,8 @@ public final class SingleSampleSource implements SampleSource, SampleSourceReade
   @Override
   public boolean prepare(long positionUs) {
     if (loader == null) {
-      loader = new Loader("Loader:" + format.mimeType);
+      loader = new Loader("Loader:" + format.mimeType, MimeTypes.isText(format.mimeType)
+          ? LoaderThreadPool.PRIORITY_TEXT : LoaderThreadPool.PRIORITY_MEDIA);
     }
     return true;
   }
@@ -319,6 +319,32 @@ public abstract class TrackRenderer implements ExoPlayerComponent {
   protected abstract void doSomeWork(long positionUs, long elapsedRealtimeUs)
       throws ExoPlaybackException;
 
+  /**
+   * Returns the maximum delay before the renderer next requires {@link #doSomeWork(long, long)} to
+   * be invoked, given the state of the renderer after the most recent invocation.
+   * <p>
+   * Whilst playing, the player waits for the smallest delay returned by its enabled renderers
+   * before invoking {@link #doSomeWork(long, long)} again, subject to a minimum and maximum delay.
+   * Hence a renderer that has no work to do until a known time (for example because it has
+   * buffered enough output to play until then) can reduce the number of times the player wakes
+   * up. The player may invoke {@link #doSomeWork(long, long)} earlier than requested.
+   * <p>
+   * The default implementation returns 0, meaning that the renderer should be invoked as often as
+   * the player allows.
+   * <p>
+   * This method may be called when the renderer is in the following states:
+   * {@link #STATE_STARTED}
+   *
+   * @param positionUs The media time in microseconds that was passed to the most recent invocation
+   *     of {@link #doSomeWork(long, long)}.
+   * @param elapsedRealtimeUs {@link android.os.SystemClock#elapsedRealtime()} in microseconds,
+   *     measured at the start of the most recent iteration of the rendering loop.
+   * @return The maximum delay in microseconds, measured from {@code elapsedRealtimeUs}.
+   */
+  protected long getMaxWakeupDelayUs(long positionUs, long elapsedRealtimeUs) {
+    return 0;
+  }
+
   /**
    * Throws an error that's preventing the renderer from making progress or buffering more data at
    * this point in time.
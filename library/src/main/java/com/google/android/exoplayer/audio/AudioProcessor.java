@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.audio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Processes PCM audio data between a renderer and the {@link android.media.AudioTrack} that plays
+ * it back.
+ * <p>
+ * Processors are chained by {@link AudioTrack}, with the output format of each processor being the
+ * input format of the next. Each processor is configured whenever the input format changes, and
+ * processors that are not active for the format are bypassed.
+ */
+public interface AudioProcessor {
+
+  /**
+   * Configures the processor to process input in the specified format.
+   *
+   * @param sampleRateHz The sample rate of the input, in Hz.
+   * @param channelCount The number of channels in the input.
+   * @param encoding The encoding of the input. One of the {@code C.ENCODING_PCM_*} constants.
+   * @return Whether the processor is active for the format. If false, the processor is bypassed.
+   * @throws IllegalArgumentException If the processor does not support the format.
+   */
+  boolean configure(int sampleRateHz, int channelCount, int encoding);
+
+  /**
+   * Returns the number of channels in the output. Valid if the processor is active.
+   */
+  int getOutputChannelCount();
+
+  /**
+   * Returns the encoding of the output. Valid if the processor is active.
+   */
+  int getOutputEncoding();
+
+  /**
+   * Returns the sample rate of the output, in Hz. Valid if the processor is active.
+   */
+  int getOutputSampleRateHz();
+
+  /**
+   * Processes the data between the position and limit of a buffer, which must hold a whole number
+   * of frames. The position of the buffer is advanced to its limit.
+   * <p>
+   * The returned buffer is owned by the processor, and is valid until the next call to any of its
+   * methods. Its position is zero and its limit is the size of the output, which may be zero.
+   *
+   * @param buffer The input.
+   * @return The output.
+   */
+  ByteBuffer handleBuffer(ByteBuffer buffer);
+
+  /**
+   * Clears any state carried over from previously processed data, for example after a seek.
+   */
+  void flush();
+
+  /**
+   * Releases any resources held by the processor.
+   */
+  void release();
+
+}
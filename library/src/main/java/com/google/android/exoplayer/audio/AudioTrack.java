@@ -33,6 +33,7 @@ import android.util.Log;
 
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 
 /**
  * Plays audio data. The implementation delegates to an {@link android.media.AudioTrack} and handles
@@ -45,6 +46,10 @@ import java.nio.ByteBuffer;
  * {@link #handleDiscontinuity()} when a buffer is skipped. Call {@link #play()} to start playing
  * back written data.
  * <p>
+ * PCM data is passed through a chain of {@link AudioProcessor}s before being written. The chain
+ * starts with a {@link PcmConversionAudioProcessor}, so processors passed to the constructor
+ * receive 16-bit PCM. The underlying audio track plays back the output format of the chain.
+ * <p>
  * Call {@link #configure} again whenever the input format changes. If {@link #isInitialized()}
  * returns false after calling {@link #configure}, it is necessary to re-{@link #initialize} the
  * instance before writing more data.
@@ -190,6 +195,7 @@ public final class AudioTrack {
   private final ConditionVariable releasingConditionVariable;
   private final long[] playheadOffsets;
   private final AudioTrackUtil audioTrackUtil;
+  private final AudioProcessor[] audioProcessors;
 
   /**
    * Used to keep the audio session active on pre-V21 builds (see {@link #initialize()}).
@@ -197,6 +203,9 @@ public final class AudioTrack {
   private android.media.AudioTrack keepSessionIdAudioTrack;
 
   private android.media.AudioTrack audioTrack;
+  private int sourceSampleRate;
+  private int sourceChannelCount;
+  private AudioProcessor[] activeAudioProcessors;
   private int sampleRate;
   private int channelConfig;
   private int sourceEncoding;
@@ -227,8 +236,8 @@ public final class AudioTrack {
   private int temporaryBufferOffset;
   private int bufferBytesRemaining;
 
-  private ByteBuffer resampledBuffer;
-  private boolean useResampledBuffer;
+  private ByteBuffer processedBuffer;
+  private boolean useProcessedBuffer;
 
   /**
    * Creates an audio track with default audio capabilities (no encoded audio passthrough support).
@@ -244,8 +253,25 @@ public final class AudioTrack {
    * @param streamType The type of audio stream for the underlying {@link android.media.AudioTrack}.
    */
   public AudioTrack(AudioCapabilities audioCapabilities, int streamType) {
+    this(audioCapabilities, streamType, new AudioProcessor[0]);
+  }
+
+  /**
+   * Creates an audio track using the specified audio capabilities, stream type and processors.
+   *
+   * @param audioCapabilities The current audio playback capabilities.
+   * @param streamType The type of audio stream for the underlying {@link android.media.AudioTrack}.
+   * @param audioProcessors Processors to apply to 16-bit PCM data, in order, before it is played
+   *     back. Not applied to data played back using encoded audio passthrough.
+   */
+  public AudioTrack(AudioCapabilities audioCapabilities, int streamType,
+      AudioProcessor[] audioProcessors) {
     this.audioCapabilities = audioCapabilities;
     this.streamType = streamType;
+    this.audioProcessors = new AudioProcessor[audioProcessors.length + 1];
+    this.audioProcessors[0] = new PcmConversionAudioProcessor();
+    System.arraycopy(audioProcessors, 0, this.audioProcessors, 1, audioProcessors.length);
+    activeAudioProcessors = new AudioProcessor[0];
     releasingConditionVariable = new ConditionVariable(true);
     if (Util.SDK_INT >= 18) {
       try {
@@ -362,6 +388,48 @@ public final class AudioTrack {
    */
   public void configure(String mimeType, int channelCount, int sampleRate, int pcmEncoding,
       int specifiedBufferSize) {
+    boolean passthrough = !MimeTypes.AUDIO_RAW.equals(mimeType);
+    int sourceEncoding;
+    if (passthrough) {
+      sourceEncoding = getEncodingForMimeType(mimeType);
+    } else if (pcmEncoding == C.ENCODING_PCM_8BIT || pcmEncoding == C.ENCODING_PCM_16BIT
+        || pcmEncoding == C.ENCODING_PCM_24BIT || pcmEncoding == C.ENCODING_PCM_32BIT) {
+      sourceEncoding = pcmEncoding;
+    } else {
+      throw new IllegalArgumentException("Unsupported PCM encoding: " + pcmEncoding);
+    }
+
+    if (isInitialized() && this.sourceEncoding == sourceEncoding
+        && sourceSampleRate == sampleRate && sourceChannelCount == channelCount) {
+      // We already have an audio track with the correct sample rate, channel count and encoding.
+      return;
+    }
+
+    reset();
+
+    this.sourceEncoding = sourceEncoding;
+    this.passthrough = passthrough;
+    sourceSampleRate = sampleRate;
+    sourceChannelCount = channelCount;
+    targetEncoding = sourceEncoding;
+    if (passthrough) {
+      activeAudioProcessors = new AudioProcessor[0];
+    } else {
+      // Configure the processors in order, and play back the output format of the last active one.
+      ArrayList<AudioProcessor> activeAudioProcessorList = new ArrayList<>();
+      for (AudioProcessor audioProcessor : audioProcessors) {
+        if (audioProcessor.configure(sampleRate, channelCount, targetEncoding)) {
+          activeAudioProcessorList.add(audioProcessor);
+          sampleRate = audioProcessor.getOutputSampleRateHz();
+          channelCount = audioProcessor.getOutputChannelCount();
+          targetEncoding = audioProcessor.getOutputEncoding();
+        }
+      }
+      activeAudioProcessors = activeAudioProcessorList.toArray(
+          new AudioProcessor[activeAudioProcessorList.size()]);
+      Assertions.checkState(targetEncoding == C.ENCODING_PCM_16BIT);
+    }
+
     int channelConfig;
     switch (channelCount) {
       case 1:
@@ -392,30 +460,8 @@ public final class AudioTrack {
         throw new IllegalArgumentException("Unsupported channel count: " + channelCount);
     }
 
-    boolean passthrough = !MimeTypes.AUDIO_RAW.equals(mimeType);
-    int sourceEncoding;
-    if (passthrough) {
-      sourceEncoding = getEncodingForMimeType(mimeType);
-    } else if (pcmEncoding == C.ENCODING_PCM_8BIT || pcmEncoding == C.ENCODING_PCM_16BIT
-        || pcmEncoding == C.ENCODING_PCM_24BIT || pcmEncoding == C.ENCODING_PCM_32BIT) {
-      sourceEncoding = pcmEncoding;
-    } else {
-      throw new IllegalArgumentException("Unsupported PCM encoding: " + pcmEncoding);
-    }
-
-    if (isInitialized() && this.sourceEncoding == sourceEncoding && this.sampleRate == sampleRate
-        && this.channelConfig == channelConfig) {
-      // We already have an audio track with the correct sample rate, channel config and encoding.
-      return;
-    }
-
-    reset();
-
-    this.sourceEncoding = sourceEncoding;
-    this.passthrough = passthrough;
     this.sampleRate = sampleRate;
     this.channelConfig = channelConfig;
-    targetEncoding = passthrough ? sourceEncoding : C.ENCODING_PCM_16BIT;
     pcmFrameSize = 2 * channelCount; // 2 bytes per 16-bit sample * number of channels.
 
     if (specifiedBufferSize != 0) {
@@ -594,15 +640,17 @@ public final class AudioTrack {
       // The previous buffer (if there was one) was fully written to the audio track. We're now
       // seeing a new buffer for the first time.
 
-      useResampledBuffer = targetEncoding != sourceEncoding;
-      if (useResampledBuffer) {
-        Assertions.checkState(targetEncoding == C.ENCODING_PCM_16BIT);
-        // Resample the buffer to get the data in the target encoding.
-        resampledBuffer = resampleTo16BitPcm(buffer, offset, size, sourceEncoding, resampledBuffer);
-        // Use the resampled buffer, offset and size.
-        buffer = resampledBuffer;
-        offset = resampledBuffer.position();
-        size = resampledBuffer.limit();
+      useProcessedBuffer = activeAudioProcessors.length > 0;
+      if (useProcessedBuffer) {
+        processedBuffer = processBuffer(buffer, offset, size);
+        // Use the processed buffer, offset and size.
+        buffer = processedBuffer;
+        offset = processedBuffer.position();
+        size = processedBuffer.limit();
+        if (size == 0) {
+          // The processors are holding back all of the data.
+          return RESULT_BUFFER_CONSUMED;
+        }
       }
 
       bufferBytesRemaining = size;
@@ -655,7 +703,7 @@ public final class AudioTrack {
         }
       }
     } else {
-      ByteBuffer data = useResampledBuffer ? resampledBuffer : buffer;
+      ByteBuffer data = useProcessedBuffer ? processedBuffer : buffer;
       bytesWritten = writeNonBlockingV21(audioTrack, data, bufferBytesRemaining);
     }
 
@@ -686,6 +734,21 @@ public final class AudioTrack {
     }
   }
 
+  /**
+   * Returns the duration of the data that has been written to the audio track but not yet played
+   * back, in microseconds.
+   *
+   * @return The duration of the pending data in microseconds, or 0 if the audio track is not
+   *     initialized.
+   */
+  public long getPendingDataDurationUs() {
+    if (!isInitialized()) {
+      return 0;
+    }
+    long pendingFrames = getSubmittedFrames() - audioTrackUtil.getPlaybackHeadPosition();
+    return pendingFrames <= 0 ? 0 : framesToDurationUs(pendingFrames);
+  }
+
   /**
    * Returns whether the audio track has more data pending that will be played back.
    */
@@ -741,6 +804,9 @@ public final class AudioTrack {
    * resetting. The audio session may remain active until the instance is {@link #release}d.
    */
   public void reset() {
+    for (AudioProcessor audioProcessor : activeAudioProcessors) {
+      audioProcessor.flush();
+    }
     if (isInitialized()) {
       submittedPcmBytes = 0;
       submittedEncodedFrames = 0;
@@ -778,6 +844,9 @@ public final class AudioTrack {
   public void release() {
     reset();
     releaseKeepSessionIdAudioTrack();
+    for (AudioProcessor audioProcessor : audioProcessors) {
+      audioProcessor.release();
+    }
   }
 
   /**
@@ -962,72 +1031,23 @@ public final class AudioTrack {
   }
 
   /**
-   * Converts the provided buffer into 16-bit PCM.
+   * Passes data through the active processors.
    *
-   * @param buffer The buffer containing the data to convert.
+   * @param buffer The buffer containing the data to process.
    * @param offset The offset of the data in the buffer.
    * @param size The size in bytes of the data in the buffer.
-   * @param sourceEncoding The data encoding.
-   * @param out A buffer into which the output should be written, if its capacity is sufficient.
-   * @return The 16-bit PCM output. Different to the out parameter if null was passed, or if the
-   *     capacity was insufficient for the output.
+   * @return The output of the last processor, with position zero.
    */
-  private static ByteBuffer resampleTo16BitPcm(ByteBuffer buffer, int offset, int size,
-      int sourceEncoding, ByteBuffer out) {
-    int resampledSize;
-    switch (sourceEncoding) {
-      case C.ENCODING_PCM_8BIT:
-        resampledSize = size * 2;
-        break;
-      case C.ENCODING_PCM_24BIT:
-        resampledSize = (size / 3) * 2;
-        break;
-      case C.ENCODING_PCM_32BIT:
-        resampledSize = size / 2;
-        break;
-      default:
-        // Never happens.
-        throw new IllegalStateException();
-    }
-
-    ByteBuffer resampledBuffer = out;
-    if (resampledBuffer == null || resampledBuffer.capacity() < resampledSize) {
-      resampledBuffer = ByteBuffer.allocateDirect(resampledSize);
+  private ByteBuffer processBuffer(ByteBuffer buffer, int offset, int size) {
+    int limit = buffer.limit();
+    buffer.position(offset);
+    buffer.limit(offset + size);
+    ByteBuffer output = buffer;
+    for (AudioProcessor audioProcessor : activeAudioProcessors) {
+      output = audioProcessor.handleBuffer(output);
     }
-    resampledBuffer.position(0);
-    resampledBuffer.limit(resampledSize);
-
-    // Samples are little endian.
-    int limit = offset + size;
-    switch (sourceEncoding) {
-      case C.ENCODING_PCM_8BIT:
-        // 8->16 bit resampling. Shift each byte from [0, 256) to [-128, 128) and scale up.
-        for (int i = offset; i < limit; i++) {
-          resampledBuffer.put((byte) 0);
-          resampledBuffer.put((byte) ((buffer.get(i) & 0xFF) - 128));
-        }
-        break;
-      case C.ENCODING_PCM_24BIT:
-        // 24->16 bit resampling. Drop the least significant byte.
-        for (int i = offset; i < limit; i += 3) {
-          resampledBuffer.put(buffer.get(i + 1));
-          resampledBuffer.put(buffer.get(i + 2));
-        }
-        break;
-      case C.ENCODING_PCM_32BIT:
-        // 32->16 bit resampling. Drop the two least significant bytes.
-        for (int i = offset; i < limit; i += 4) {
-          resampledBuffer.put(buffer.get(i + 2));
-          resampledBuffer.put(buffer.get(i + 3));
-        }
-        break;
-      default:
-        // Never happens.
-        throw new IllegalStateException();
-    }
-
-    resampledBuffer.position(0);
-    return resampledBuffer;
+    buffer.limit(limit);
+    return output;
   }
 
   private static int getEncodingForMimeType(String mimeType) {
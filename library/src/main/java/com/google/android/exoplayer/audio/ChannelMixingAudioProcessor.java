@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.audio;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.util.Assertions;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * An {@link AudioProcessor} that remaps the channels of 16-bit PCM, or downmixes multichannel
+ * 16-bit PCM to stereo or mono.
+ * <p>
+ * Input channels are assumed to be in the order used by {@link AudioTrack} for each channel count.
+ * When downmixing, center and surround channels are mixed into the front channels at -3dB, and the
+ * low frequency effects channel is dropped. The gains of each output channel are scaled so that
+ * the output cannot clip.
+ */
+public final class ChannelMixingAudioProcessor implements AudioProcessor {
+
+  // Channel positions.
+  private static final int FL = 0;
+  private static final int FR = 1;
+  private static final int FC = 2;
+  private static final int LFE = 3;
+  private static final int BL = 4;
+  private static final int BR = 5;
+  private static final int BC = 6;
+  private static final int SL = 7;
+  private static final int SR = 8;
+
+  /**
+   * The channel positions for each channel count, matching the channel configurations used by
+   * {@link AudioTrack#configure}.
+   */
+  private static final int[][] CHANNEL_POSITIONS = new int[][] {
+      {},
+      {FC},
+      {FL, FR},
+      {FL, FR, FC},
+      {FL, FR, BL, BR},
+      {FL, FR, FC, BL, BR},
+      {FL, FR, FC, LFE, BL, BR},
+      {FL, FR, FC, LFE, BL, BR, BC},
+      {FL, FR, FC, LFE, BL, BR, SL, SR}};
+
+  // The gains with which each channel position is mixed into the left and right output channels.
+  private static final float[] LEFT_GAINS =
+      new float[] {1f, 0f, 0.7071f, 0f, 0.7071f, 0f, 0.5f, 0.7071f, 0f};
+  private static final float[] RIGHT_GAINS =
+      new float[] {0f, 1f, 0.7071f, 0f, 0f, 0.7071f, 0.5f, 0f, 0.7071f};
+
+  private final int maxOutputChannelCount;
+  private final int[] channelMap;
+
+  private int sampleRateHz;
+  private int channelCount;
+  private int outputChannelCount;
+  private float[] gains;
+  private byte[] inputArray;
+  private ByteBuffer outputBuffer;
+
+  /**
+   * Creates a processor that downmixes input with more than {@code maxOutputChannelCount} channels.
+   *
+   * @param maxOutputChannelCount The maximum number of output channels. Either 1 or 2.
+   */
+  public ChannelMixingAudioProcessor(int maxOutputChannelCount) {
+    Assertions.checkArgument(maxOutputChannelCount == 1 || maxOutputChannelCount == 2);
+    this.maxOutputChannelCount = maxOutputChannelCount;
+    this.channelMap = null;
+  }
+
+  /**
+   * Creates a processor that remaps channels, outputting input channel {@code channelMap[i]} as
+   * output channel {@code i}. Input channels may be output more than once, or dropped.
+   *
+   * @param channelMap The index of the input channel to output as each output channel.
+   */
+  public ChannelMixingAudioProcessor(int[] channelMap) {
+    Assertions.checkArgument(channelMap.length > 0);
+    this.maxOutputChannelCount = 0;
+    this.channelMap = channelMap.clone();
+  }
+
+  @Override
+  public boolean configure(int sampleRateHz, int channelCount, int encoding) {
+    if (encoding != C.ENCODING_PCM_16BIT) {
+      throw new IllegalArgumentException("Unsupported PCM encoding: " + encoding);
+    }
+    this.sampleRateHz = sampleRateHz;
+    this.channelCount = channelCount;
+    if (channelMap != null) {
+      boolean identity = channelMap.length == channelCount;
+      for (int i = 0; i < channelMap.length; i++) {
+        if (channelMap[i] < 0 || channelMap[i] >= channelCount) {
+          throw new IllegalArgumentException("Invalid channel map for " + channelCount
+              + " channels");
+        }
+        identity &= channelMap[i] == i;
+      }
+      outputChannelCount = channelMap.length;
+      gains = null;
+      return !identity;
+    }
+    if (channelCount <= maxOutputChannelCount) {
+      outputChannelCount = channelCount;
+      gains = null;
+      return false;
+    }
+    if (channelCount >= CHANNEL_POSITIONS.length) {
+      throw new IllegalArgumentException("Unsupported channel count: " + channelCount);
+    }
+    outputChannelCount = maxOutputChannelCount;
+    gains = getDownmixGains(CHANNEL_POSITIONS[channelCount], maxOutputChannelCount);
+    return true;
+  }
+
+  @Override
+  public int getOutputChannelCount() {
+    return outputChannelCount;
+  }
+
+  @Override
+  public int getOutputEncoding() {
+    return C.ENCODING_PCM_16BIT;
+  }
+
+  @Override
+  public int getOutputSampleRateHz() {
+    return sampleRateHz;
+  }
+
+  @Override
+  public ByteBuffer handleBuffer(ByteBuffer buffer) {
+    int size = buffer.remaining();
+    if (inputArray == null || inputArray.length < size) {
+      inputArray = new byte[size];
+    }
+    buffer.get(inputArray, 0, size);
+
+    int inputFrameSize = 2 * channelCount;
+    int frameCount = size / inputFrameSize;
+    int outputSize = frameCount * 2 * outputChannelCount;
+    if (outputBuffer == null || outputBuffer.capacity() < outputSize) {
+      outputBuffer = ByteBuffer.allocate(outputSize).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    byte[] input = inputArray;
+    byte[] output = outputBuffer.array();
+
+    int outputIndex = 0;
+    if (gains == null) {
+      // Remap by copying the bytes of each sample.
+      for (int frameOffset = 0; frameOffset < frameCount * inputFrameSize;
+          frameOffset += inputFrameSize) {
+        for (int i = 0; i < outputChannelCount; i++) {
+          int inputIndex = frameOffset + 2 * channelMap[i];
+          output[outputIndex++] = input[inputIndex];
+          output[outputIndex++] = input[inputIndex + 1];
+        }
+      }
+    } else {
+      for (int frameOffset = 0; frameOffset < frameCount * inputFrameSize;
+          frameOffset += inputFrameSize) {
+        for (int i = 0; i < outputChannelCount; i++) {
+          int gainOffset = i * channelCount;
+          float sample = 0;
+          for (int j = 0; j < channelCount; j++) {
+            int inputIndex = frameOffset + 2 * j;
+            int inputSample = (input[inputIndex] & 0xFF) | (input[inputIndex + 1] << 8);
+            sample += gains[gainOffset + j] * inputSample;
+          }
+          // Rounding errors in the scaled gains could otherwise cause full scale input to wrap.
+          int value = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(sample)));
+          output[outputIndex++] = (byte) value;
+          output[outputIndex++] = (byte) (value >> 8);
+        }
+      }
+    }
+
+    outputBuffer.position(0);
+    outputBuffer.limit(outputSize);
+    return outputBuffer;
+  }
+
+  @Override
+  public void flush() {
+    // Do nothing.
+  }
+
+  @Override
+  public void release() {
+    inputArray = null;
+    outputBuffer = null;
+  }
+
+  /**
+   * Returns the gains with which each input channel is mixed into each output channel, indexed by
+   * {@code outputChannel * inputChannelCount + inputChannel}.
+   */
+  private static float[] getDownmixGains(int[] channelPositions, int outputChannelCount) {
+    int channelCount = channelPositions.length;
+    float[] gains = new float[outputChannelCount * channelCount];
+    for (int j = 0; j < channelCount; j++) {
+      float leftGain = LEFT_GAINS[channelPositions[j]];
+      float rightGain = RIGHT_GAINS[channelPositions[j]];
+      if (outputChannelCount == 1) {
+        gains[j] = (leftGain + rightGain) / 2;
+      } else {
+        gains[j] = leftGain;
+        gains[channelCount + j] = rightGain;
+      }
+    }
+    // Scale the gains so that the sum of the gains of each output channel is at most one.
+    float maxGainSum = 0;
+    for (int i = 0; i < outputChannelCount; i++) {
+      float gainSum = 0;
+      for (int j = 0; j < channelCount; j++) {
+        gainSum += gains[i * channelCount + j];
+      }
+      maxGainSum = Math.max(maxGainSum, gainSum);
+    }
+    if (maxGainSum > 1) {
+      for (int i = 0; i < gains.length; i++) {
+        gains[i] /= maxGainSum;
+      }
+    }
+    return gains;
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.audio;
+
+import com.google.android.exoplayer.C;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * An {@link AudioProcessor} that converts 8-bit, 24-bit and 32-bit PCM to 16-bit PCM.
+ * <p>
+ * The input is copied into a reused array in bulk and converted with array accesses, rather than
+ * being read a sample at a time from the input buffer. The output buffer is reused, and only grows
+ * if a larger input is processed.
+ */
+public final class PcmConversionAudioProcessor implements AudioProcessor {
+
+  private int sampleRateHz;
+  private int channelCount;
+  private int encoding;
+  private byte[] inputArray;
+  private ByteBuffer outputBuffer;
+
+  public PcmConversionAudioProcessor() {
+    encoding = C.ENCODING_INVALID;
+  }
+
+  @Override
+  public boolean configure(int sampleRateHz, int channelCount, int encoding) {
+    if (encoding != C.ENCODING_PCM_8BIT && encoding != C.ENCODING_PCM_16BIT
+        && encoding != C.ENCODING_PCM_24BIT && encoding != C.ENCODING_PCM_32BIT) {
+      throw new IllegalArgumentException("Unsupported PCM encoding: " + encoding);
+    }
+    this.sampleRateHz = sampleRateHz;
+    this.channelCount = channelCount;
+    this.encoding = encoding;
+    return encoding != C.ENCODING_PCM_16BIT;
+  }
+
+  @Override
+  public int getOutputChannelCount() {
+    return channelCount;
+  }
+
+  @Override
+  public int getOutputEncoding() {
+    return C.ENCODING_PCM_16BIT;
+  }
+
+  @Override
+  public int getOutputSampleRateHz() {
+    return sampleRateHz;
+  }
+
+  @Override
+  public ByteBuffer handleBuffer(ByteBuffer buffer) {
+    int size = buffer.remaining();
+    if (inputArray == null || inputArray.length < size) {
+      inputArray = new byte[size];
+    }
+    buffer.get(inputArray, 0, size);
+
+    int outputSize;
+    switch (encoding) {
+      case C.ENCODING_PCM_8BIT:
+        outputSize = size * 2;
+        break;
+      case C.ENCODING_PCM_24BIT:
+        outputSize = (size / 3) * 2;
+        break;
+      case C.ENCODING_PCM_32BIT:
+        outputSize = size / 2;
+        break;
+      default:
+        // Never happens.
+        throw new IllegalStateException();
+    }
+    if (outputBuffer == null || outputBuffer.capacity() < outputSize) {
+      outputBuffer = ByteBuffer.allocate(outputSize).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    byte[] input = inputArray;
+    byte[] output = outputBuffer.array();
+
+    // Samples are little endian.
+    int outputIndex = 0;
+    switch (encoding) {
+      case C.ENCODING_PCM_8BIT:
+        // 8->16 bit conversion. Shift each byte from [0, 256) to [-128, 128) and scale up.
+        for (int i = 0; i < size; i++) {
+          output[outputIndex++] = 0;
+          output[outputIndex++] = (byte) ((input[i] & 0xFF) - 128);
+        }
+        break;
+      case C.ENCODING_PCM_24BIT:
+        // 24->16 bit conversion. Drop the least significant byte.
+        for (int i = 0; i < outputSize / 2 * 3; i += 3) {
+          output[outputIndex++] = input[i + 1];
+          output[outputIndex++] = input[i + 2];
+        }
+        break;
+      case C.ENCODING_PCM_32BIT:
+        // 32->16 bit conversion. Drop the two least significant bytes.
+        for (int i = 0; i < outputSize * 2; i += 4) {
+          output[outputIndex++] = input[i + 2];
+          output[outputIndex++] = input[i + 3];
+        }
+        break;
+      default:
+        // Never happens.
+        throw new IllegalStateException();
+    }
+
+    outputBuffer.position(0);
+    outputBuffer.limit(outputSize);
+    return outputBuffer;
+  }
+
+  @Override
+  public void flush() {
+    // Do nothing.
+  }
+
+  @Override
+  public void release() {
+    inputArray = null;
+    outputBuffer = null;
+  }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.audio;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.util.Assertions;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * An {@link AudioProcessor} that converts the sample rate of 16-bit PCM using a polyphase filter.
+ * <p>
+ * For an input rate of {@code M * k} and an output rate of {@code L * k}, where {@code k} is the
+ * greatest common divisor of the rates, the input is conceptually upsampled by {@code L}, low pass
+ * filtered and decimated by {@code M}. Only the filter phases that contribute to output samples
+ * are evaluated, with {@link #TAPS_PER_PHASE} multiply-adds per output sample and channel.
+ * Conversions that need more than {@link #MAX_PHASE_COUNT} phases are not supported.
+ * <p>
+ * The output is delayed by {@code TAPS_PER_PHASE / 2} input frames. Input frames that have not yet
+ * contributed to the output when the stream ends are not output.
+ */
+public final class ResamplingAudioProcessor implements AudioProcessor {
+
+  /**
+   * The number of filter taps applied to the input for each output sample.
+   */
+  public static final int TAPS_PER_PHASE = 32;
+  /**
+   * The maximum number of filter phases.
+   */
+  public static final int MAX_PHASE_COUNT = 1024;
+
+  /**
+   * The cutoff frequency of the filter, as a fraction of the lower of the input and output Nyquist
+   * frequencies.
+   */
+  private static final double CUTOFF = 0.9;
+
+  private final int outputSampleRateHz;
+
+  private int sampleRateHz;
+  private int channelCount;
+  private int phaseCount;
+  private int phaseIncrement;
+  private float[] coefficients;
+
+  private byte[] inputArray;
+  private float[] samples;
+  private int frameIndex;
+  private int phase;
+  private ByteBuffer outputBuffer;
+
+  /**
+   * @param outputSampleRateHz The sample rate of the output, in Hz.
+   */
+  public ResamplingAudioProcessor(int outputSampleRateHz) {
+    Assertions.checkArgument(outputSampleRateHz > 0);
+    this.outputSampleRateHz = outputSampleRateHz;
+  }
+
+  @Override
+  public boolean configure(int sampleRateHz, int channelCount, int encoding) {
+    if (encoding != C.ENCODING_PCM_16BIT) {
+      throw new IllegalArgumentException("Unsupported PCM encoding: " + encoding);
+    }
+    this.channelCount = channelCount;
+    if (sampleRateHz == outputSampleRateHz) {
+      this.sampleRateHz = sampleRateHz;
+      coefficients = null;
+      return false;
+    }
+    int divisor = gcd(sampleRateHz, outputSampleRateHz);
+    int phaseCount = outputSampleRateHz / divisor;
+    if (phaseCount > MAX_PHASE_COUNT) {
+      throw new IllegalArgumentException("Unsupported sample rate conversion: " + sampleRateHz
+          + " to " + outputSampleRateHz);
+    }
+    if (sampleRateHz != this.sampleRateHz || coefficients == null) {
+      this.sampleRateHz = sampleRateHz;
+      this.phaseCount = phaseCount;
+      phaseIncrement = sampleRateHz / divisor;
+      coefficients = getCoefficients(phaseCount, phaseIncrement);
+    }
+    samples = null;
+    flush();
+    return true;
+  }
+
+  @Override
+  public int getOutputChannelCount() {
+    return channelCount;
+  }
+
+  @Override
+  public int getOutputEncoding() {
+    return C.ENCODING_PCM_16BIT;
+  }
+
+  @Override
+  public int getOutputSampleRateHz() {
+    return outputSampleRateHz;
+  }
+
+  @Override
+  public ByteBuffer handleBuffer(ByteBuffer buffer) {
+    int size = buffer.remaining();
+    if (inputArray == null || inputArray.length < size) {
+      inputArray = new byte[size];
+    }
+    buffer.get(inputArray, 0, size);
+
+    // Append the input to the frames retained from the previous buffer.
+    int historyLength = (TAPS_PER_PHASE - 1) * channelCount;
+    int inputFrameCount = size / (2 * channelCount);
+    int inputLength = inputFrameCount * channelCount;
+    if (samples.length < historyLength + inputLength) {
+      float[] newSamples = new float[historyLength + inputLength];
+      System.arraycopy(samples, 0, newSamples, 0, historyLength);
+      samples = newSamples;
+    }
+    byte[] input = inputArray;
+    float[] samples = this.samples;
+    for (int i = 0; i < inputLength; i++) {
+      samples[historyLength + i] = (input[2 * i] & 0xFF) | (input[2 * i + 1] << 8);
+    }
+
+    // Output a frame for each position in the upsampled input before the end of the input.
+    int frameCount = TAPS_PER_PHASE - 1 + inputFrameCount;
+    long remainingUpsampledFrames = (long) (frameCount - frameIndex) * phaseCount - phase;
+    int outputFrameCount = remainingUpsampledFrames <= 0 ? 0
+        : (int) ((remainingUpsampledFrames + phaseIncrement - 1) / phaseIncrement);
+    int outputSize = outputFrameCount * 2 * channelCount;
+    if (outputBuffer == null || outputBuffer.capacity() < outputSize) {
+      outputBuffer = ByteBuffer.allocate(outputSize).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    byte[] output = outputBuffer.array();
+    float[] coefficients = this.coefficients;
+    int outputIndex = 0;
+    for (int i = 0; i < outputFrameCount; i++) {
+      int sampleOffset = (frameIndex - (TAPS_PER_PHASE - 1)) * channelCount;
+      int coefficientOffset = phase * TAPS_PER_PHASE;
+      for (int channel = 0; channel < channelCount; channel++) {
+        float sample = 0;
+        int sampleIndex = sampleOffset + channel;
+        for (int tap = 0; tap < TAPS_PER_PHASE; tap++) {
+          sample += coefficients[coefficientOffset + tap] * samples[sampleIndex];
+          sampleIndex += channelCount;
+        }
+        int value = Math.round(sample);
+        if (value > Short.MAX_VALUE) {
+          value = Short.MAX_VALUE;
+        } else if (value < Short.MIN_VALUE) {
+          value = Short.MIN_VALUE;
+        }
+        output[outputIndex++] = (byte) value;
+        output[outputIndex++] = (byte) (value >> 8);
+      }
+      phase += phaseIncrement;
+      frameIndex += phase / phaseCount;
+      phase %= phaseCount;
+    }
+
+    // Retain the last frames of the input, which later output frames will depend on.
+    System.arraycopy(samples, inputLength, samples, 0, historyLength);
+    frameIndex -= inputFrameCount;
+
+    outputBuffer.position(0);
+    outputBuffer.limit(outputSize);
+    return outputBuffer;
+  }
+
+  @Override
+  public void flush() {
+    if (coefficients == null) {
+      return;
+    }
+    int historyLength = (TAPS_PER_PHASE - 1) * channelCount;
+    if (samples == null) {
+      samples = new float[historyLength];
+    } else {
+      for (int i = 0; i < historyLength; i++) {
+        samples[i] = 0;
+      }
+    }
+    frameIndex = TAPS_PER_PHASE - 1;
+    phase = 0;
+  }
+
+  @Override
+  public void release() {
+    coefficients = null;
+    inputArray = null;
+    samples = null;
+    outputBuffer = null;
+  }
+
+  /**
+   * Returns the coefficients of each phase of a Blackman windowed sinc low pass filter, indexed by
+   * {@code phase * TAPS_PER_PHASE + tap}. Tap {@code TAPS_PER_PHASE - 1} is applied to the most
+   * recent input frame. The coefficients of each phase sum to one.
+   */
+  private static float[] getCoefficients(int phaseCount, int phaseIncrement) {
+    int length = TAPS_PER_PHASE * phaseCount;
+    double center = (length - 1) / 2.0;
+    // The cutoff frequency in cycles per sample of the upsampled input.
+    double cutoff = CUTOFF / (2 * Math.max(phaseCount, phaseIncrement));
+    float[] coefficients = new float[length];
+    double[] phaseCoefficients = new double[TAPS_PER_PHASE];
+    for (int phase = 0; phase < phaseCount; phase++) {
+      double sum = 0;
+      for (int tap = 0; tap < TAPS_PER_PHASE; tap++) {
+        // The most recent input frame is at index phase in the upsampled filter.
+        int index = (TAPS_PER_PHASE - 1 - tap) * phaseCount + phase;
+        double x = 2 * cutoff * (index - center);
+        double sinc = x == 0 ? 1 : Math.sin(Math.PI * x) / (Math.PI * x);
+        double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * index / (length - 1))
+            + 0.08 * Math.cos(4 * Math.PI * index / (length - 1));
+        phaseCoefficients[tap] = sinc * window;
+        sum += phaseCoefficients[tap];
+      }
+      for (int tap = 0; tap < TAPS_PER_PHASE; tap++) {
+        coefficients[phase * TAPS_PER_PHASE + tap] = (float) (phaseCoefficients[tap] / sum);
+      }
+    }
+    return coefficients;
+  }
+
+  private static int gcd(int a, int b) {
+    while (b != 0) {
+      int remainder = a % b;
+      a = b;
+      b = remainder;
+    }
+    return a;
+  }
+
+}
@@ -26,7 +26,9 @@ import com.google.android.exoplayer.TrackRenderer;
 import com.google.android.exoplayer.extractor.DefaultTrackOutput;
 import com.google.android.exoplayer.upstream.Loader;
 import com.google.android.exoplayer.upstream.Loader.Loadable;
+import com.google.android.exoplayer.upstream.LoaderThreadPool;
 import com.google.android.exoplayer.util.Assertions;
+import com.google.android.exoplayer.util.MimeTypes;
 
 import android.os.Handler;
 import android.os.SystemClock;
@@ -161,7 +163,9 @@ public class ChunkSampleSource implements SampleSource, SampleSourceReader, Load
       return false;
     }
     if (chunkSource.getTrackCount() > 0) {
-      loader = new Loader("Loader:" + chunkSource.getFormat(0).mimeType);
+      String mimeType = chunkSource.getFormat(0).mimeType;
+      loader = new Loader("Loader:" + mimeType, MimeTypes.isText(mimeType)
+          ? LoaderThreadPool.PRIORITY_TEXT : LoaderThreadPool.PRIORITY_MEDIA);
     }
     state = STATE_PREPARED;
     return true;
@@ -17,6 +17,7 @@ package com.google.android.exoplayer.dash;
 
 import com.google.android.exoplayer.BehindLiveWindowException;
 import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.LiveLatencyController;
 import com.google.android.exoplayer.MediaFormat;
 import com.google.android.exoplayer.TimeRange;
 import com.google.android.exoplayer.TimeRange.DynamicTimeRange;
@@ -44,8 +45,12 @@ import com.google.android.exoplayer.drm.DrmInitData;
 import com.google.android.exoplayer.extractor.ChunkIndex;
 import com.google.android.exoplayer.extractor.mp4.FragmentedMp4Extractor;
 import com.google.android.exoplayer.extractor.webm.WebmExtractor;
+import com.google.android.exoplayer.upstream.ByteArrayDataSink;
+import com.google.android.exoplayer.upstream.ByteArrayDataSource;
 import com.google.android.exoplayer.upstream.DataSource;
 import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.TeeDataSource;
+import com.google.android.exoplayer.util.Assertions;
 import com.google.android.exoplayer.util.Clock;
 import com.google.android.exoplayer.util.ManifestFetcher;
 import com.google.android.exoplayer.util.MimeTypes;
@@ -105,6 +110,8 @@ public class DashChunkSource implements ChunkSource, Output {
 
   private static final String TAG = "DashChunkSource";
 
+  private static final long TRICK_PLAY_DISABLED = -1;
+
   private final Handler eventHandler;
   private final EventListener eventListener;
 
@@ -117,6 +124,7 @@ public class DashChunkSource implements ChunkSource, Output {
   private final SparseArray<PeriodHolder> periodHolders;
   private final Clock systemClock;
   private final long liveEdgeLatencyUs;
+  private final LiveLatencyController liveLatencyController;
   private final long elapsedRealtimeOffsetUs;
   private final long[] availableRangeValues;
   private final boolean live;
@@ -131,6 +139,11 @@ public class DashChunkSource implements ChunkSource, Output {
   private boolean startAtLiveEdge;
   private boolean lastChunkWasInitialization;
   private IOException fatalError;
+  private DashInitializationCache initializationCache;
+  private InitializationChunk loadingInitializationChunk;
+  private RangedUri loadingInitializationUri;
+  private ByteArrayDataSink loadingInitializationSink;
+  private volatile long trickPlayIntervalUs;
 
   /**
    * Lightweight constructor to use for fixed duration content.
@@ -181,7 +194,7 @@ public class DashChunkSource implements ChunkSource, Output {
   public DashChunkSource(MediaPresentationDescription manifest, DashTrackSelector trackSelector,
       DataSource dataSource, FormatEvaluator adaptiveFormatEvaluator) {
     this(null, manifest, trackSelector, dataSource, adaptiveFormatEvaluator, new SystemClock(), 0,
-        0, false, null, null, 0);
+        null, 0, false, null, null, 0);
   }
 
   /**
@@ -213,10 +226,42 @@ public class DashChunkSource implements ChunkSource, Output {
       FormatEvaluator adaptiveFormatEvaluator, long liveEdgeLatencyMs, long elapsedRealtimeOffsetMs,
       Handler eventHandler, EventListener eventListener, int eventSourceId) {
     this(manifestFetcher, manifestFetcher.getManifest(), trackSelector,
-        dataSource, adaptiveFormatEvaluator, new SystemClock(), liveEdgeLatencyMs * 1000,
+        dataSource, adaptiveFormatEvaluator, new SystemClock(), liveEdgeLatencyMs * 1000, null,
         elapsedRealtimeOffsetMs * 1000, true, eventHandler, eventListener, eventSourceId);
   }
 
+  /**
+   * Constructor to use for low latency live streaming.
+   * <p>
+   * Playback starts at the controller's target latency behind the live edge. If the latency grows
+   * beyond the controller's maximum latency during playback (for example after rebuffering) then
+   * the source skips ahead, so that subsequently loaded media is at the target latency again.
+   *
+   * @param manifestFetcher A fetcher for the manifest, which must have already successfully
+   *     completed an initial load.
+   * @param trackSelector Selects tracks from manifest periods to be exposed by this source.
+   * @param dataSource A {@link DataSource} suitable for loading the media data.
+   * @param adaptiveFormatEvaluator For adaptive tracks, selects from the available formats.
+   * @param liveLatencyController Controls the distance between playback and the live edge.
+   * @param elapsedRealtimeOffsetMs If known, an estimate of the instantaneous difference between
+   *     server-side unix time and {@link SystemClock#elapsedRealtime()} in milliseconds, specified
+   *     as the server's unix time minus the local elapsed time. It unknown, set to 0.
+   * @param eventHandler A handler to use when delivering events to {@code EventListener}. May be
+   *     null if delivery of events is not required.
+   * @param eventListener A listener of events. May be null if delivery of events is not required.
+   * @param eventSourceId An identifier that gets passed to {@code eventListener} methods.
+   */
+  public DashChunkSource(ManifestFetcher<MediaPresentationDescription> manifestFetcher,
+      DashTrackSelector trackSelector, DataSource dataSource,
+      FormatEvaluator adaptiveFormatEvaluator, LiveLatencyController liveLatencyController,
+      long elapsedRealtimeOffsetMs, Handler eventHandler, EventListener eventListener,
+      int eventSourceId) {
+    this(manifestFetcher, manifestFetcher.getManifest(), trackSelector, dataSource,
+        adaptiveFormatEvaluator, new SystemClock(), liveLatencyController.getTargetLatencyUs(),
+        liveLatencyController, elapsedRealtimeOffsetMs * 1000, true, eventHandler, eventListener,
+        eventSourceId);
+  }
+
   /**
    * Constructor to use for live DVR streaming.
    *
@@ -246,7 +291,7 @@ public class DashChunkSource implements ChunkSource, Output {
       boolean startAtLiveEdge, Handler eventHandler, EventListener eventListener,
       int eventSourceId) {
     this(manifestFetcher, manifestFetcher.getManifest(), trackSelector,
-        dataSource, adaptiveFormatEvaluator, new SystemClock(), liveEdgeLatencyMs * 1000,
+        dataSource, adaptiveFormatEvaluator, new SystemClock(), liveEdgeLatencyMs * 1000, null,
         elapsedRealtimeOffsetMs * 1000, startAtLiveEdge, eventHandler, eventListener,
         eventSourceId);
   }
@@ -254,9 +299,9 @@ public class DashChunkSource implements ChunkSource, Output {
   /* package */ DashChunkSource(ManifestFetcher<MediaPresentationDescription> manifestFetcher,
       MediaPresentationDescription initialManifest, DashTrackSelector trackSelector,
       DataSource dataSource, FormatEvaluator adaptiveFormatEvaluator,
-      Clock systemClock, long liveEdgeLatencyUs, long elapsedRealtimeOffsetUs,
-      boolean startAtLiveEdge, Handler eventHandler, EventListener eventListener,
-      int eventSourceId) {
+      Clock systemClock, long liveEdgeLatencyUs, LiveLatencyController liveLatencyController,
+      long elapsedRealtimeOffsetUs, boolean startAtLiveEdge, Handler eventHandler,
+      EventListener eventListener, int eventSourceId) {
     this.manifestFetcher = manifestFetcher;
     this.currentManifest = initialManifest;
     this.trackSelector = trackSelector;
@@ -264,6 +309,7 @@ public class DashChunkSource implements ChunkSource, Output {
     this.adaptiveFormatEvaluator = adaptiveFormatEvaluator;
     this.systemClock = systemClock;
     this.liveEdgeLatencyUs = liveEdgeLatencyUs;
+    this.liveLatencyController = liveLatencyController;
     this.elapsedRealtimeOffsetUs = elapsedRealtimeOffsetUs;
     this.startAtLiveEdge = startAtLiveEdge;
     this.eventHandler = eventHandler;
@@ -274,6 +320,39 @@ public class DashChunkSource implements ChunkSource, Output {
     periodHolders = new SparseArray<>();
     tracks = new ArrayList<>();
     live = initialManifest.dynamic;
+    initializationCache = DashInitializationCache.getDefault();
+    trickPlayIntervalUs = TRICK_PLAY_DISABLED;
+  }
+
+  /**
+   * Sets the cache in which loaded initialization and index data is stored, so that it need not be
+   * loaded again when the same representation is played by another source. Must be called before
+   * the source is enabled.
+   *
+   * @param initializationCache The cache, or null to disable caching. By default the cache returned
+   *     by {@link DashInitializationCache#getDefault()} is used.
+   */
+  public void setInitializationCache(DashInitializationCache initializationCache) {
+    this.initializationCache = initializationCache;
+  }
+
+  /**
+   * Enables or disables trick-play mode, in which only the sync samples of fragmented MP4 video
+   * representations are loaded, for fast seeking and scrubbing. Segments that start less than
+   * {@code minSegmentIntervalUs} after the previous segment are not requested at all, and within a
+   * segment the data of samples that are not output is skipped. Other tracks, which output no
+   * samples in this mode, should be disabled whilst it is enabled.
+   * <p>
+   * The mode takes effect from the next chunk to be loaded. To discard chunks that have already
+   * been buffered, seek to the current position after changing it.
+   *
+   * @param enabled Whether trick-play mode is enabled.
+   * @param minSegmentIntervalUs The minimum interval between the start times of loaded segments,
+   *     and between the sync samples output from each segment, or 0 to load every sync sample.
+   */
+  public void setTrickPlay(boolean enabled, long minSegmentIntervalUs) {
+    Assertions.checkArgument(minSegmentIntervalUs >= 0);
+    trickPlayIntervalUs = enabled ? minSegmentIntervalUs : TRICK_PLAY_DISABLED;
   }
 
   // ChunkSource implementation.
@@ -338,6 +417,11 @@ public class DashChunkSource implements ChunkSource, Output {
       processedManifest = newManifest;
     }
 
+    if (liveLatencyController != null && availableRange != null && !startAtLiveEdge) {
+      availableRange.getCurrentBoundsUs(availableRangeValues);
+      liveLatencyController.updateLatency(availableRangeValues[1], playbackPositionUs);
+    }
+
     // TODO: This is a temporary hack to avoid constantly refreshing the MPD in cases where
     // minUpdatePeriod is set to 0. In such cases we shouldn't refresh unless there is explicit
     // signaling in the stream, according to:
@@ -397,8 +481,10 @@ public class DashChunkSource implements ChunkSource, Output {
         if (startAtLiveEdge) {
           // We want live streams to start at the live edge instead of the beginning of the
           // manifest
-          playbackPositionUs = Math.max(availableRangeValues[0],
-              availableRangeValues[1] - liveEdgeLatencyUs);
+          playbackPositionUs = liveLatencyController != null
+              ? liveLatencyController.getStartPositionUs(availableRangeValues[0],
+                  availableRangeValues[1])
+              : Math.max(availableRangeValues[0], availableRangeValues[1] - liveEdgeLatencyUs);
         } else {
           // we subtract 1 from the upper bound because it's exclusive for that bound
           playbackPositionUs = Math.min(playbackPositionUs, availableRangeValues[1] - 1);
@@ -493,8 +579,38 @@ public class DashChunkSource implements ChunkSource, Output {
     int segmentNum = queue.isEmpty() ? representationHolder.getSegmentNum(playbackPositionUs)
           : startingNewPeriod ? representationHolder.getFirstAvailableSegmentNum()
           : queue.get(out.queueSize - 1).getNextChunkIndex();
+    if (live && liveLatencyController != null && !queue.isEmpty() && !startingNewPeriod
+        && liveLatencyController.updateLatency(availableRangeValues[1], playbackPositionUs)) {
+      // Playback has drifted too far behind the live edge. Skip ahead to the target latency.
+      int resyncSegmentNum = representationHolder.getSegmentNum(
+          liveLatencyController.getStartPositionUs(availableRangeValues[0],
+              availableRangeValues[1]));
+      if (resyncSegmentNum > segmentNum
+          && !representationHolder.isBeyondLastSegment(resyncSegmentNum)) {
+        segmentNum = resyncSegmentNum;
+        liveLatencyController.onResync();
+      }
+    }
+    int trigger = evaluation.trigger;
+    long trickPlayIntervalUs = this.trickPlayIntervalUs;
+    if (trickPlayIntervalUs != TRICK_PLAY_DISABLED) {
+      trigger = Chunk.TRIGGER_TRICK_PLAY;
+      if (!queue.isEmpty() && !startingNewPeriod) {
+        // Skip the segments that start too soon after the previous one.
+        int trickPlaySegmentNum = representationHolder.getSegmentNum(
+            queue.get(out.queueSize - 1).startTimeUs + trickPlayIntervalUs);
+        if (trickPlaySegmentNum > segmentNum
+            && !representationHolder.isBeyondLastSegment(trickPlaySegmentNum)) {
+          segmentNum = trickPlaySegmentNum;
+        }
+      }
+    }
+    if (representationHolder.fragmentedMp4Extractor != null) {
+      representationHolder.fragmentedMp4Extractor.setTrickPlay(
+          trickPlayIntervalUs != TRICK_PLAY_DISABLED, Math.max(trickPlayIntervalUs, 0));
+    }
     Chunk nextMediaChunk = newMediaChunk(periodHolder, representationHolder, dataSource,
-        mediaFormat, enabledTrack, segmentNum, evaluation.trigger);
+        mediaFormat, enabledTrack, segmentNum, trigger);
     lastChunkWasInitialization = false;
     out.chunk = nextMediaChunk;
   }
@@ -503,6 +619,14 @@ public class DashChunkSource implements ChunkSource, Output {
   public void onChunkLoadCompleted(Chunk chunk) {
     if (chunk instanceof InitializationChunk) {
       InitializationChunk initializationChunk = (InitializationChunk) chunk;
+      if (initializationChunk == loadingInitializationChunk) {
+        byte[] data = loadingInitializationSink.getData();
+        // The data is incomplete if the load was resumed after an error.
+        if (data != null && data.length > 0 && data.length == initializationChunk.bytesLoaded()) {
+          initializationCache.put(loadingInitializationUri, data);
+        }
+        clearLoadingInitialization();
+      }
       String formatId = initializationChunk.format.id;
       PeriodHolder periodHolder = periodHolders.get(initializationChunk.parentId);
       if (periodHolder == null) {
@@ -544,6 +668,7 @@ public class DashChunkSource implements ChunkSource, Output {
       manifestFetcher.disable();
     }
     periodHolders.clear();
+    clearLoadingInitialization();
     evaluation.format = null;
     availableRange = null;
     fatalError = null;
@@ -686,10 +811,34 @@ public class DashChunkSource implements ChunkSource, Output {
     } else {
       requestUri = indexUri;
     }
+    byte[] cachedData = initializationCache != null ? initializationCache.get(requestUri) : null;
+    if (cachedData != null) {
+      // Replay the cached data, so that the extractor is initialized without making a request.
+      DataSpec dataSpec = new DataSpec(requestUri.getUri(), requestUri.start, 0, cachedData.length,
+          representation.getCacheKey(), 0);
+      return new InitializationChunk(new ByteArrayDataSource(cachedData), dataSpec, trigger,
+          representation.format, extractor, manifestIndex);
+    }
     DataSpec dataSpec = new DataSpec(requestUri.getUri(), requestUri.start, requestUri.length,
         representation.getCacheKey());
-    return new InitializationChunk(dataSource, dataSpec, trigger, representation.format,
-        extractor, manifestIndex);
+    if (initializationCache == null) {
+      return new InitializationChunk(dataSource, dataSpec, trigger, representation.format,
+          extractor, manifestIndex);
+    }
+    ByteArrayDataSink sink = new ByteArrayDataSink();
+    InitializationChunk initializationChunk = new InitializationChunk(
+        new TeeDataSource(dataSource, sink), dataSpec, trigger, representation.format, extractor,
+        manifestIndex);
+    loadingInitializationChunk = initializationChunk;
+    loadingInitializationUri = requestUri;
+    loadingInitializationSink = sink;
+    return initializationChunk;
+  }
+
+  private void clearLoadingInitialization() {
+    loadingInitializationChunk = null;
+    loadingInitializationUri = null;
+    loadingInitializationSink = null;
   }
 
   protected Chunk newMediaChunk(
@@ -868,6 +1017,7 @@ public class DashChunkSource implements ChunkSource, Output {
 
     public final boolean mimeTypeIsRawText;
     public final ChunkExtractorWrapper extractorWrapper;
+    public final FragmentedMp4Extractor fragmentedMp4Extractor;
 
     public Representation representation;
     public DashSegmentIndex segmentIndex;
@@ -885,8 +1035,16 @@ public class DashChunkSource implements ChunkSource, Output {
       this.representation = representation;
       String mimeType = representation.format.mimeType;
       mimeTypeIsRawText = mimeTypeIsRawText(mimeType);
-      extractorWrapper = mimeTypeIsRawText ? null : new ChunkExtractorWrapper(
-          mimeTypeIsWebm(mimeType) ? new WebmExtractor() : new FragmentedMp4Extractor());
+      if (mimeTypeIsRawText) {
+        extractorWrapper = null;
+        fragmentedMp4Extractor = null;
+      } else if (mimeTypeIsWebm(mimeType)) {
+        extractorWrapper = new ChunkExtractorWrapper(new WebmExtractor());
+        fragmentedMp4Extractor = null;
+      } else {
+        fragmentedMp4Extractor = new FragmentedMp4Extractor();
+        extractorWrapper = new ChunkExtractorWrapper(fragmentedMp4Extractor);
+      }
       segmentIndex = representation.getIndex();
     }
 
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.dash;
+
+import com.google.android.exoplayer.dash.mpd.RangedUri;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size bounded, in-memory cache of loaded initialization and index data, which can be shared by
+ * {@link DashChunkSource}s across players.
+ * <p>
+ * The data is cached rather than the parsed results, because each source's extractor must parse
+ * the initialization data before it can parse media segments. When the cache is full, the least
+ * recently used data is evicted.
+ */
+public final class DashInitializationCache {
+
+  /**
+   * The default maximum size of the cached data, in bytes.
+   */
+  public static final int DEFAULT_MAX_SIZE_BYTES = 1024 * 1024;
+
+  private static DashInitializationCache defaultInstance;
+
+  private final int maxSizeBytes;
+  private final LinkedHashMap<RangedUri, byte[]> entries;
+
+  private int sizeBytes;
+
+  /**
+   * Returns a cache with a maximum size of {@link #DEFAULT_MAX_SIZE_BYTES}, which is used by
+   * {@link DashChunkSource}s unless they are given a different cache.
+   */
+  public static synchronized DashInitializationCache getDefault() {
+    if (defaultInstance == null) {
+      defaultInstance = new DashInitializationCache(DEFAULT_MAX_SIZE_BYTES);
+    }
+    return defaultInstance;
+  }
+
+  /**
+   * @param maxSizeBytes The maximum size of the cached data, in bytes.
+   */
+  public DashInitializationCache(int maxSizeBytes) {
+    this.maxSizeBytes = maxSizeBytes;
+    entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Returns the cached data for a request, or null if it is not cached.
+   *
+   * @param requestUri The requested range.
+   * @return The data, or null.
+   */
+  public synchronized byte[] get(RangedUri requestUri) {
+    return entries.get(requestUri);
+  }
+
+  /**
+   * Caches the data loaded for a request. Data larger than the maximum size of the cache is not
+   * cached.
+   *
+   * @param requestUri The requested range.
+   * @param data The data loaded for the whole range.
+   */
+  public synchronized void put(RangedUri requestUri, byte[] data) {
+    if (data.length > maxSizeBytes) {
+      return;
+    }
+    byte[] previousData = entries.put(requestUri, data);
+    if (previousData != null) {
+      sizeBytes -= previousData.length;
+    }
+    sizeBytes += data.length;
+    Iterator<Map.Entry<RangedUri, byte[]>> iterator = entries.entrySet().iterator();
+    while (sizeBytes > maxSizeBytes) {
+      sizeBytes -= iterator.next().getValue().length;
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Returns the total size of the cached data, in bytes.
+   */
+  public synchronized int getSizeBytes() {
+    return sizeBytes;
+  }
+
+  /**
+   * Removes all data from the cache.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    sizeBytes = 0;
+  }
+
+}
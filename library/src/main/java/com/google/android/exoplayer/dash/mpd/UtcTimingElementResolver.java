@@ -18,6 +18,7 @@ package com.google.android.exoplayer.dash.mpd;
 import com.google.android.exoplayer.ParserException;
 import com.google.android.exoplayer.upstream.Loader;
 import com.google.android.exoplayer.upstream.Loader.Loadable;
+import com.google.android.exoplayer.upstream.LoaderThreadPool;
 import com.google.android.exoplayer.upstream.UriDataSource;
 import com.google.android.exoplayer.upstream.UriLoadable;
 import com.google.android.exoplayer.util.Assertions;
@@ -123,7 +124,7 @@ public final class UtcTimingElementResolver implements Loader.Callback {
   }
 
   private void resolveHttp(UriLoadable.Parser<Long> parser) {
-    singleUseLoader = new Loader("utctiming");
+    singleUseLoader = new Loader("utctiming", LoaderThreadPool.PRIORITY_MANIFEST);
     singleUseLoadable = new UriLoadable<>(timingElement.value, uriDataSource, parser);
     singleUseLoader.startLoading(singleUseLoadable, this);
   }
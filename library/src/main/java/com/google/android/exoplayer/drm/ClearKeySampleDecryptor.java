@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.drm;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.CryptoInfo;
+import com.google.android.exoplayer.SampleHolder;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Decrypts samples encrypted using the 'cenc' scheme of Common Encryption (ISO/IEC 23001-7), given
+ * the content keys in the clear.
+ * <p>
+ * Samples are decrypted in place. The encrypted parts of the subsamples described by
+ * {@link SampleHolder#cryptoInfo} are decrypted as a single AES-CTR stream, with one cipher
+ * operation per subsample. Instances are not thread safe.
+ */
+public final class ClearKeySampleDecryptor {
+
+  private static final String TRANSFORMATION = "AES/CTR/NoPadding";
+
+  private final Map<UUID, SecretKeySpec> keys;
+  private final Cipher cipher;
+
+  private byte[] lastKeyId;
+  private SecretKeySpec lastKey;
+
+  /**
+   * @param keys The content keys, keyed by key ID. Each key is 16 bytes long.
+   * @throws GeneralSecurityException If AES-CTR decryption is not supported.
+   */
+  public ClearKeySampleDecryptor(Map<UUID, byte[]> keys) throws GeneralSecurityException {
+    this.keys = new HashMap<>();
+    for (Map.Entry<UUID, byte[]> entry : keys.entrySet()) {
+      this.keys.put(entry.getKey(), new SecretKeySpec(entry.getValue(), "AES"));
+    }
+    cipher = Cipher.getInstance(TRANSFORMATION);
+  }
+
+  /**
+   * Decrypts an encrypted sample in place, and clears {@link C#SAMPLE_FLAG_ENCRYPTED}.
+   * <p>
+   * The sample data is the {@link SampleHolder#size} bytes before the position of
+   * {@link SampleHolder#data}.
+   *
+   * @param sampleHolder The sample to decrypt.
+   * @throws GeneralSecurityException If there is no key for the sample, if the sample is encrypted
+   *     using an unsupported mode, or if the sample cannot be decrypted.
+   */
+  public void decrypt(SampleHolder sampleHolder) throws GeneralSecurityException {
+    CryptoInfo cryptoInfo = sampleHolder.cryptoInfo;
+    if (cryptoInfo.mode != C.CRYPTO_MODE_AES_CTR) {
+      throw new GeneralSecurityException("Unsupported encryption mode: " + cryptoInfo.mode);
+    }
+    cipher.init(Cipher.DECRYPT_MODE, getKey(cryptoInfo.key), new IvParameterSpec(cryptoInfo.iv));
+
+    ByteBuffer data = sampleHolder.data;
+    ByteBuffer input = data.duplicate();
+    ByteBuffer output = data.duplicate();
+    int position = data.position() - sampleHolder.size;
+    for (int i = 0; i < cryptoInfo.numSubSamples; i++) {
+      position += cryptoInfo.numBytesOfClearData[i];
+      int encryptedLength = cryptoInfo.numBytesOfEncryptedData[i];
+      if (encryptedLength == 0) {
+        continue;
+      }
+      // Cipher.update is copy-safe, so the data can be decrypted in place. The counter carries over
+      // from one subsample to the next, including within a partially used block.
+      input.limit(position + encryptedLength);
+      input.position(position);
+      output.limit(position + encryptedLength);
+      output.position(position);
+      cipher.update(input, output);
+      position += encryptedLength;
+    }
+    sampleHolder.flags &= ~C.SAMPLE_FLAG_ENCRYPTED;
+  }
+
+  private SecretKeySpec getKey(byte[] keyId) throws KeyException {
+    if (lastKey != null && Arrays.equals(keyId, lastKeyId)) {
+      return lastKey;
+    }
+    if (keyId == null || keyId.length != 16) {
+      throw new KeyException("Invalid key ID");
+    }
+    ByteBuffer keyIdBuffer = ByteBuffer.wrap(keyId);
+    UUID uuid = new UUID(keyIdBuffer.getLong(), keyIdBuffer.getLong());
+    SecretKeySpec key = keys.get(uuid);
+    if (key == null) {
+      throw new KeyException("No key for key ID " + uuid);
+    }
+    lastKeyId = keyId.clone();
+    lastKey = key;
+    return key;
+  }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.drm;
+
+import com.google.android.exoplayer.MediaFormat;
+import com.google.android.exoplayer.MediaFormatHolder;
+import com.google.android.exoplayer.SampleHolder;
+import com.google.android.exoplayer.SampleSource;
+import com.google.android.exoplayer.SampleSource.SampleSourceReader;
+import com.google.android.exoplayer.util.Assertions;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+/**
+ * A {@link SampleSource} that decrypts the samples of another source using a
+ * {@link ClearKeySampleDecryptor}.
+ * <p>
+ * Samples and formats are output without DRM information, so that they can be consumed by any
+ * renderer, including renderers without {@link DrmSessionManager} support.
+ */
+public final class ClearKeySampleSource implements SampleSource, SampleSourceReader {
+
+  private final SampleSource upstream;
+  private final ClearKeySampleDecryptor decryptor;
+
+  private SampleSourceReader upstreamReader;
+  private GeneralSecurityException decryptionError;
+
+  /**
+   * @param upstream The source of encrypted samples.
+   * @param decryptor Decrypts the samples.
+   */
+  public ClearKeySampleSource(SampleSource upstream, ClearKeySampleDecryptor decryptor) {
+    this.upstream = upstream;
+    this.decryptor = decryptor;
+  }
+
+  @Override
+  public SampleSourceReader register() {
+    Assertions.checkState(upstreamReader == null);
+    upstreamReader = upstream.register();
+    return this;
+  }
+
+  @Override
+  public void maybeThrowError() throws IOException {
+    if (decryptionError != null) {
+      throw new IOException(decryptionError);
+    }
+    upstreamReader.maybeThrowError();
+  }
+
+  @Override
+  public boolean prepare(long positionUs) {
+    return upstreamReader.prepare(positionUs);
+  }
+
+  @Override
+  public int getTrackCount() {
+    return upstreamReader.getTrackCount();
+  }
+
+  @Override
+  public MediaFormat getFormat(int track) {
+    return upstreamReader.getFormat(track);
+  }
+
+  @Override
+  public void enable(int track, long positionUs) {
+    upstreamReader.enable(track, positionUs);
+  }
+
+  @Override
+  public boolean continueBuffering(int track, long positionUs) {
+    return upstreamReader.continueBuffering(track, positionUs);
+  }
+
+  @Override
+  public long readDiscontinuity(int track) {
+    return upstreamReader.readDiscontinuity(track);
+  }
+
+  @Override
+  public int readData(int track, long positionUs, MediaFormatHolder formatHolder,
+      SampleHolder sampleHolder) {
+    if (decryptionError != null) {
+      return NOTHING_READ;
+    }
+    int result = upstreamReader.readData(track, positionUs, formatHolder, sampleHolder);
+    if (result == FORMAT_READ) {
+      formatHolder.drmInitData = null;
+    } else if (result == SAMPLE_READ && sampleHolder.isEncrypted()) {
+      try {
+        decryptor.decrypt(sampleHolder);
+      } catch (GeneralSecurityException e) {
+        // The error is thrown from maybeThrowError.
+        decryptionError = e;
+        return NOTHING_READ;
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void seekToUs(long positionUs) {
+    upstreamReader.seekToUs(positionUs);
+  }
+
+  @Override
+  public long getBufferedPositionUs() {
+    return upstreamReader.getBufferedPositionUs();
+  }
+
+  @Override
+  public void disable(int track) {
+    upstreamReader.disable(track);
+  }
+
+  @Override
+  public void release() {
+    upstreamReader.release();
+  }
+
+}
@@ -17,6 +17,7 @@ package com.google.android.exoplayer.extractor;
 
 import com.google.android.exoplayer.C;
 import com.google.android.exoplayer.upstream.DataSource;
+import com.google.android.exoplayer.upstream.SkippableDataSource;
 
 import java.io.EOFException;
 import java.io.IOException;
@@ -30,6 +31,7 @@ public final class DefaultExtractorInput implements ExtractorInput {
   private static final byte[] SCRATCH_SPACE = new byte[4096];
 
   private final DataSource dataSource;
+  private final SkippableDataSource skippableDataSource;
   private final long streamLength;
 
   private long position;
@@ -44,6 +46,8 @@ public final class DefaultExtractorInput implements ExtractorInput {
    */
   public DefaultExtractorInput(DataSource dataSource, long position, long length) {
     this.dataSource = dataSource;
+    skippableDataSource = dataSource instanceof SkippableDataSource
+        ? (SkippableDataSource) dataSource : null;
     this.position = position;
     this.streamLength = length;
     peekBuffer = new byte[8 * 1024];
@@ -80,8 +84,8 @@ public final class DefaultExtractorInput implements ExtractorInput {
   public int skip(int length) throws IOException, InterruptedException {
     int bytesSkipped = skipFromPeekBuffer(length);
     if (bytesSkipped == 0) {
-      bytesSkipped =
-          readFromDataSource(SCRATCH_SPACE, 0, Math.min(length, SCRATCH_SPACE.length), 0, true);
+      bytesSkipped = skippableDataSource != null ? skipFromDataSource(length, 0, true)
+          : readFromDataSource(SCRATCH_SPACE, 0, Math.min(length, SCRATCH_SPACE.length), 0, true);
     }
     commitBytesRead(bytesSkipped);
     return bytesSkipped;
@@ -92,8 +96,11 @@ public final class DefaultExtractorInput implements ExtractorInput {
       throws IOException, InterruptedException {
     int bytesSkipped = skipFromPeekBuffer(length);
     while (bytesSkipped < length && bytesSkipped != C.RESULT_END_OF_INPUT) {
-      bytesSkipped = readFromDataSource(SCRATCH_SPACE, -bytesSkipped,
-          Math.min(length, bytesSkipped + SCRATCH_SPACE.length), bytesSkipped, allowEndOfInput);
+      bytesSkipped = skippableDataSource != null
+          ? skipFromDataSource(length, bytesSkipped, allowEndOfInput)
+          : readFromDataSource(SCRATCH_SPACE, -bytesSkipped,
+              Math.min(length, bytesSkipped + SCRATCH_SPACE.length), bytesSkipped,
+              allowEndOfInput);
     }
     commitBytesRead(bytesSkipped);
     return bytesSkipped != C.RESULT_END_OF_INPUT;
@@ -247,6 +254,38 @@ public final class DefaultExtractorInput implements ExtractorInput {
     return bytesAlreadyRead + bytesRead;
   }
 
+  /**
+   * Starts or continues a skip using {@link SkippableDataSource#skip(long)}, which may avoid
+   * reading the skipped data.
+   *
+   * @param length The number of bytes to skip from the input.
+   * @param bytesAlreadySkipped The number of bytes already skipped from the input.
+   * @param allowEndOfInput True if encountering the end of the input having skipped no data is
+   *     allowed, and should result in {@link C#RESULT_END_OF_INPUT} being returned. False if it
+   *     should be considered an error, causing an {@link EOFException} to be thrown.
+   * @return The total number of bytes skipped so far, or {@link C#RESULT_END_OF_INPUT} if
+   *     {@code allowEndOfInput} is true and the input has ended having skipped no bytes.
+   * @throws EOFException If the end of input was encountered having partially satisfied the skip
+   *     (i.e. having skipped at least one byte, but fewer than {@code length}), or if no bytes were
+   *     skipped and {@code allowEndOfInput} is false.
+   * @throws IOException If an error occurs skipping from the input.
+   * @throws InterruptedException If the thread is interrupted.
+   */
+  private int skipFromDataSource(int length, int bytesAlreadySkipped, boolean allowEndOfInput)
+      throws InterruptedException, IOException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    long bytesSkipped = skippableDataSource.skip(length - bytesAlreadySkipped);
+    if (bytesSkipped == C.RESULT_END_OF_INPUT) {
+      if (bytesAlreadySkipped == 0 && allowEndOfInput) {
+        return C.RESULT_END_OF_INPUT;
+      }
+      throw new EOFException();
+    }
+    return bytesAlreadySkipped + (int) bytesSkipped;
+  }
+
   /**
    * Advances the position by the specified number of bytes read.
    *
@@ -71,6 +71,8 @@ public final class FragmentedMp4Extractor implements Extractor {
    */
   private static final int FLAG_SIDELOADED = 4;
 
+  private static final long TRICK_PLAY_DISABLED = -1;
+
   private static final byte[] PIFF_SAMPLE_ENCRYPTION_BOX_EXTENDED_TYPE =
       new byte[] {-94, 57, 79, 82, 90, -101, 79, 20, -94, 68, 108, 66, 124, 100, -115, -12};
 
@@ -116,6 +118,10 @@ public final class FragmentedMp4Extractor implements Extractor {
   // Whether extractorOutput.seekMap has been invoked.
   private boolean haveOutputSeekMap;
 
+  // Trick-play.
+  private volatile long trickPlayIntervalUs;
+  private long lastTrickPlaySampleTimeUs;
+
   public FragmentedMp4Extractor() {
     this(0);
   }
@@ -142,9 +148,30 @@ public final class FragmentedMp4Extractor implements Extractor {
     extendedTypeScratch = new byte[16];
     containerAtoms = new Stack<>();
     trackBundles = new SparseArray<>();
+    trickPlayIntervalUs = TRICK_PLAY_DISABLED;
+    lastTrickPlaySampleTimeUs = C.UNKNOWN_TIME_US;
     enterReadingAtomHeaderState();
   }
 
+  /**
+   * Enables or disables trick-play mode, in which only the sync samples of video tracks are output,
+   * and samples of other tracks are not output at all. The data of samples that are not output is
+   * skipped using {@link ExtractorInput#skipFully(int)}, which allows sources that support skipping
+   * to avoid loading it.
+   * <p>
+   * The mode may be changed whilst the extractor is being used from another thread, and takes
+   * effect from the next sample. The interval between output samples is measured from the first
+   * sample output after the most recent call to {@link #seek()}.
+   *
+   * @param enabled Whether trick-play mode is enabled.
+   * @param minSampleIntervalUs The minimum interval between the timestamps of output samples, or 0
+   *     to output every sync sample.
+   */
+  public void setTrickPlay(boolean enabled, long minSampleIntervalUs) {
+    Assertions.checkArgument(minSampleIntervalUs >= 0);
+    trickPlayIntervalUs = enabled ? minSampleIntervalUs : TRICK_PLAY_DISABLED;
+  }
+
   @Override
   public boolean sniff(ExtractorInput input) throws IOException, InterruptedException {
     return Sniffer.sniffFragmented(input);
@@ -168,6 +195,7 @@ public final class FragmentedMp4Extractor implements Extractor {
       trackBundles.valueAt(i).reset();
     }
     containerAtoms.clear();
+    lastTrickPlaySampleTimeUs = C.UNKNOWN_TIME_US;
     enterReadingAtomHeaderState();
   }
 
@@ -838,6 +866,13 @@ public final class FragmentedMp4Extractor implements Extractor {
         }
         input.skipFully(bytesToSkip);
       }
+      long trickPlayIntervalUs = this.trickPlayIntervalUs;
+      if (trickPlayIntervalUs != TRICK_PLAY_DISABLED
+          && !skipToTrickPlaySample(input, currentTrackBundle, trickPlayIntervalUs)) {
+        // No samples to output remain in the current fragment run.
+        currentTrackBundle = null;
+        return false;
+      }
       sampleSize = currentTrackBundle.fragment
           .sampleSizeTable[currentTrackBundle.currentSampleIndex];
       if (currentTrackBundle.fragment.definesEncryptionData) {
@@ -898,6 +933,7 @@ public final class FragmentedMp4Extractor implements Extractor {
     byte[] encryptionKey = fragment.definesEncryptionData
         ? track.sampleDescriptionEncryptionBoxes[sampleDescriptionIndex].keyId : null;
     output.sampleMetadata(sampleTimeUs, sampleFlags, sampleSize, 0, encryptionKey);
+    lastTrickPlaySampleTimeUs = sampleTimeUs;
 
     currentTrackBundle.currentSampleIndex++;
     if (currentTrackBundle.currentSampleIndex == fragment.length) {
@@ -907,6 +943,42 @@ public final class FragmentedMp4Extractor implements Extractor {
     return true;
   }
 
+  /**
+   * Skips the samples at the current position in a fragment run that are not output in trick-play
+   * mode.
+   *
+   * @param input The {@link ExtractorInput} from which to skip data.
+   * @param trackBundle The {@link TrackBundle} whose fragment run is being read.
+   * @param trickPlayIntervalUs The minimum interval between the timestamps of output samples.
+   * @return Whether a sample to output remains in the fragment run.
+   * @throws IOException If an error occurs reading from the input.
+   * @throws InterruptedException If the thread is interrupted.
+   */
+  private boolean skipToTrickPlaySample(ExtractorInput input, TrackBundle trackBundle,
+      long trickPlayIntervalUs) throws IOException, InterruptedException {
+    TrackFragment fragment = trackBundle.fragment;
+    boolean isVideo = trackBundle.track.type == Track.TYPE_vide;
+    long minSampleTimeUs = lastTrickPlaySampleTimeUs == C.UNKNOWN_TIME_US ? Long.MIN_VALUE
+        : lastTrickPlaySampleTimeUs + trickPlayIntervalUs;
+    // Skip the data of consecutive samples at once, so that large ranges can be skipped by the
+    // source rather than read.
+    int bytesToSkip = 0;
+    while (trackBundle.currentSampleIndex < fragment.length) {
+      int sampleIndex = trackBundle.currentSampleIndex;
+      if (isVideo && fragment.sampleIsSyncFrameTable[sampleIndex]
+          && fragment.getSamplePresentationTime(sampleIndex) * 1000L >= minSampleTimeUs) {
+        break;
+      }
+      bytesToSkip += fragment.sampleSizeTable[sampleIndex];
+      if (fragment.definesEncryptionData) {
+        skipSampleEncryptionData(trackBundle);
+      }
+      trackBundle.currentSampleIndex++;
+    }
+    input.skipFully(bytesToSkip);
+    return trackBundle.currentSampleIndex < fragment.length;
+  }
+
   /**
    * Returns the {@link TrackBundle} whose fragment run has the earliest file position out of those
    * yet to be consumed, or null if all have been consumed.
@@ -968,6 +1040,25 @@ public final class FragmentedMp4Extractor implements Extractor {
     return 1 + vectorSize + subsampleDataLength;
   }
 
+  /**
+   * Skips the encryption data of the current sample of a {@link TrackBundle}, for a sample that is
+   * not output.
+   *
+   * @param trackBundle The {@link TrackBundle} whose current sample is being skipped.
+   */
+  private static void skipSampleEncryptionData(TrackBundle trackBundle) {
+    TrackFragment trackFragment = trackBundle.fragment;
+    ParsableByteArray sampleEncryptionData = trackFragment.sampleEncryptionData;
+    int sampleDescriptionIndex = trackFragment.header.sampleDescriptionIndex;
+    TrackEncryptionBox encryptionBox = trackBundle.track
+        .sampleDescriptionEncryptionBoxes[sampleDescriptionIndex];
+    sampleEncryptionData.skipBytes(encryptionBox.initializationVectorSize);
+    if (trackFragment.sampleHasSubsampleEncryptionTable[trackBundle.currentSampleIndex]) {
+      int subsampleCount = sampleEncryptionData.readUnsignedShort();
+      sampleEncryptionData.skipBytes(6 * subsampleCount);
+    }
+  }
+
   /** Returns whether the extractor should parse a leaf atom with type {@code atom}. */
   private static boolean shouldParseLeafAtom(int atom) {
     return atom == Atom.TYPE_hdlr || atom == Atom.TYPE_mdhd || atom == Atom.TYPE_mvhd
@@ -15,6 +15,7 @@
  */
 package com.google.android.exoplayer.extractor.mp4;
 
+import com.google.android.exoplayer.C;
 import com.google.android.exoplayer.MediaFormat;
 import com.google.android.exoplayer.ParserException;
 import com.google.android.exoplayer.extractor.Extractor;
@@ -55,6 +56,8 @@ public final class Mp4Extractor implements Extractor, SeekMap {
    */
   private static final long RELOAD_MINIMUM_SEEK_DISTANCE = 256 * 1024;
 
+  private static final long TRICK_PLAY_DISABLED = -1;
+
   // Temporary arrays.
   private final ParsableByteArray nalStartCode;
   private final ParsableByteArray nalLength;
@@ -77,14 +80,42 @@ public final class Mp4Extractor implements Extractor, SeekMap {
   private Mp4Track[] tracks;
   private boolean isQuickTime;
 
+  // Trick-play.
+  private volatile long trickPlayIntervalUs;
+  private long lastTrickPlaySampleTimeUs;
+
   public Mp4Extractor() {
     atomHeader = new ParsableByteArray(Atom.LONG_HEADER_SIZE);
     containerAtoms = new Stack<>();
     nalStartCode = new ParsableByteArray(NalUnitUtil.NAL_START_CODE);
     nalLength = new ParsableByteArray(4);
+    trickPlayIntervalUs = TRICK_PLAY_DISABLED;
+    lastTrickPlaySampleTimeUs = C.UNKNOWN_TIME_US;
     enterReadingAtomHeaderState();
   }
 
+  /**
+   * Enables or disables trick-play mode, in which only the synchronization samples of video tracks
+   * are output, and samples of other tracks are not output at all. The sample table is used to read
+   * only the data of the output samples, so that scrubbing and fast-forwarding through a file
+   * require a fraction of the data and decoding of normal playback.
+   * <p>
+   * The mode may be changed whilst the extractor is being used from another thread, and takes
+   * effect from the next sample. It should be changed by seeking, so that samples already output
+   * in the previous mode are discarded, and so that samples of other tracks are output again once
+   * trick-play is disabled. Renderers for tracks other than video should be disabled during
+   * trick-play.
+   *
+   * @param enabled Whether trick-play mode is enabled.
+   * @param minSampleIntervalUs The minimum interval between the timestamps of output samples, or 0
+   *     to output every synchronization sample. Larger intervals scale down the data read in
+   *     proportion, and are suitable for faster playback rates.
+   */
+  public void setTrickPlay(boolean enabled, long minSampleIntervalUs) {
+    Assertions.checkArgument(minSampleIntervalUs >= 0);
+    trickPlayIntervalUs = enabled ? minSampleIntervalUs : TRICK_PLAY_DISABLED;
+  }
+
   @Override
   public boolean sniff(ExtractorInput input) throws IOException, InterruptedException {
     return Sniffer.sniffUnfragmented(input);
@@ -101,6 +132,7 @@ public final class Mp4Extractor implements Extractor, SeekMap {
     atomHeaderBytesRead = 0;
     sampleBytesWritten = 0;
     sampleCurrentNalBytesRemaining = 0;
+    lastTrickPlaySampleTimeUs = C.UNKNOWN_TIME_US;
     parserState = STATE_AFTER_SEEK;
   }
 
@@ -354,6 +386,10 @@ public final class Mp4Extractor implements Extractor, SeekMap {
    */
   private int readSample(ExtractorInput input, PositionHolder positionHolder)
       throws IOException, InterruptedException {
+    long trickPlayIntervalUs = this.trickPlayIntervalUs;
+    if (trickPlayIntervalUs != TRICK_PLAY_DISABLED && sampleBytesWritten == 0) {
+      skipToTrickPlaySamples(trickPlayIntervalUs);
+    }
     int trackIndex = getTrackIndexOfEarliestCurrentSample();
     if (trackIndex == TrackSampleTable.NO_SAMPLE) {
       return RESULT_END_OF_INPUT;
@@ -408,12 +444,38 @@ public final class Mp4Extractor implements Extractor, SeekMap {
     }
     trackOutput.sampleMetadata(track.sampleTable.timestampsUs[sampleIndex],
         track.sampleTable.flags[sampleIndex], sampleSize, 0, null);
+    lastTrickPlaySampleTimeUs = track.sampleTable.timestampsUs[sampleIndex];
     track.sampleIndex++;
     sampleBytesWritten = 0;
     sampleCurrentNalBytesRemaining = 0;
     return RESULT_CONTINUE;
   }
 
+  /**
+   * Advances the current sample of each track to the next sample to output in trick-play mode.
+   * Tracks other than video are advanced to their end.
+   *
+   * @param trickPlayIntervalUs The minimum interval between the timestamps of output samples.
+   */
+  private void skipToTrickPlaySamples(long trickPlayIntervalUs) {
+    for (Mp4Track track : tracks) {
+      TrackSampleTable sampleTable = track.sampleTable;
+      if (track.track.type != Track.TYPE_vide) {
+        track.sampleIndex = sampleTable.sampleCount;
+        continue;
+      }
+      long minTimeUs = lastTrickPlaySampleTimeUs == C.UNKNOWN_TIME_US ? Long.MIN_VALUE
+          : lastTrickPlaySampleTimeUs + trickPlayIntervalUs;
+      int sampleIndex = track.sampleIndex;
+      while (sampleIndex < sampleTable.sampleCount
+          && ((sampleTable.flags[sampleIndex] & C.SAMPLE_FLAG_SYNC) == 0
+          || sampleTable.timestampsUs[sampleIndex] < minTimeUs)) {
+        sampleIndex++;
+      }
+      track.sampleIndex = sampleIndex;
+    }
+  }
+
   /**
    * Returns the index of the track that contains the earliest current sample, or
    * {@link TrackSampleTable#NO_SAMPLE} if no samples remain.
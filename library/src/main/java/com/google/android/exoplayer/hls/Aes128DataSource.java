@@ -17,19 +17,25 @@ package com.google.android.exoplayer.hls;
 
 import com.google.android.exoplayer.C;
 import com.google.android.exoplayer.upstream.DataSource;
-import com.google.android.exoplayer.upstream.DataSourceInputStream;
 import com.google.android.exoplayer.upstream.DataSpec;
 import com.google.android.exoplayer.util.Assertions;
+import com.google.android.exoplayer.util.Util;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
-import java.security.Key;
 import java.security.NoSuchAlgorithmException;
-import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.crypto.Cipher;
-import javax.crypto.CipherInputStream;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
@@ -38,17 +44,36 @@ import javax.crypto.spec.SecretKeySpec;
  * A {@link DataSource} that decrypts data read from an upstream source, encrypted with AES-128 with
  * a 128-bit key and PKCS7 padding.
  * <p>
+ * Data is read from the upstream source and decrypted in large blocks. Reads from the upstream
+ * source are always made on the calling thread. If the source is pipelined then each block is
+ * decrypted on a worker thread shared by all sources, so that decryption of the next block overlaps
+ * consumption of the current one. {@link Cipher} instances are pooled across sources.
+ * <p>
  * Note that this {@link DataSource} does not support being opened from arbitrary offsets. It is
  * designed specifically for reading whole files as defined in an HLS media playlist. For this
  * reason the implementation is private to the HLS package.
  */
 /* package */ final class Aes128DataSource implements DataSource {
 
+  private static final String TRANSFORMATION = "AES/CBC/PKCS7Padding";
+  private static final int AES_BLOCK_SIZE = 16;
+  private static final int BUFFER_SIZE = 16 * 1024;
+  private static final int PIPELINED_BUFFER_COUNT = 2;
+  private static final int MAX_POOLED_CIPHERS = 4;
+
+  private static final ArrayDeque<PooledCipher> cipherPool = new ArrayDeque<>();
+
+  private static ExecutorService decryptionExecutor;
+
   private final DataSource upstream;
   private final byte[] encryptionKey;
   private final byte[] encryptionIv;
+  private final boolean pipelined;
 
-  private CipherInputStream cipherInputStream;
+  private PooledCipher cipher;
+  private Buffer[] buffers;
+  private Buffer currentBuffer;
+  private Future<Buffer> pendingDecryption;
 
   /**
    * @param upstream The upstream {@link DataSource}.
@@ -56,53 +81,270 @@ import javax.crypto.spec.SecretKeySpec;
    * @param encryptionIv The encryption initialization vector.
    */
   public Aes128DataSource(DataSource upstream, byte[] encryptionKey, byte[] encryptionIv) {
+    this(upstream, encryptionKey, encryptionIv, false);
+  }
+
+  /**
+   * @param upstream The upstream {@link DataSource}.
+   * @param encryptionKey The encryption key.
+   * @param encryptionIv The encryption initialization vector.
+   * @param pipelined Whether to decrypt the next block of data on a worker thread whilst the
+   *     current block is being read.
+   */
+  public Aes128DataSource(DataSource upstream, byte[] encryptionKey, byte[] encryptionIv,
+      boolean pipelined) {
     this.upstream = upstream;
     this.encryptionKey = encryptionKey;
     this.encryptionIv = encryptionIv;
+    this.pipelined = pipelined;
   }
 
   @Override
   public long open(DataSpec dataSpec) throws IOException {
-    Cipher cipher;
-    try {
-      cipher = Cipher.getInstance("AES/CBC/PKCS7Padding");
-    } catch (NoSuchAlgorithmException e) {
-      throw new RuntimeException(e);
-    } catch (NoSuchPaddingException e) {
-      throw new RuntimeException(e);
-    }
+    Assertions.checkState(cipher == null);
+    cipher = acquireCipher(encryptionKey, encryptionIv);
+    // The cipher is released by close, which must be called even if opening the upstream fails.
+    upstream.open(dataSpec);
 
-    Key cipherKey = new SecretKeySpec(encryptionKey, "AES");
-    AlgorithmParameterSpec cipherIV = new IvParameterSpec(encryptionIv);
-
-    try {
-      cipher.init(Cipher.DECRYPT_MODE, cipherKey, cipherIV);
-    } catch (InvalidKeyException e) {
-      throw new RuntimeException(e);
-    } catch (InvalidAlgorithmParameterException e) {
-      throw new RuntimeException(e);
+    if (buffers == null) {
+      buffers = new Buffer[pipelined ? PIPELINED_BUFFER_COUNT : 1];
+      for (int i = 0; i < buffers.length; i++) {
+        buffers[i] = new Buffer();
+      }
     }
-
-    cipherInputStream = new CipherInputStream(
-        new DataSourceInputStream(upstream, dataSpec), cipher);
-
+    // The length of the decrypted data is not known until the padding has been decrypted.
     return C.LENGTH_UNBOUNDED;
   }
 
   @Override
   public void close() throws IOException {
-    cipherInputStream = null;
+    if (pendingDecryption != null) {
+      // The cipher cannot be released whilst it's in use. Decryption does not block, so this wait
+      // is short.
+      boolean interrupted = false;
+      while (true) {
+        try {
+          pendingDecryption.get();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          // Ignore errors, since the source is being closed.
+          break;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      pendingDecryption = null;
+    }
+    currentBuffer = null;
+    if (cipher != null) {
+      releaseCipher(cipher);
+      cipher = null;
+    }
     upstream.close();
   }
 
   @Override
   public int read(byte[] buffer, int offset, int readLength) throws IOException {
-    Assertions.checkState(cipherInputStream != null);
-    int bytesRead = cipherInputStream.read(buffer, offset, readLength);
-    if (bytesRead < 0) {
-      return -1;
+    Assertions.checkState(cipher != null);
+    if (readLength == 0) {
+      return 0;
     }
+    while (currentBuffer == null || currentBuffer.position == currentBuffer.length) {
+      if (currentBuffer != null && currentBuffer.endOfInput) {
+        return C.RESULT_END_OF_INPUT;
+      }
+      if (pipelined) {
+        currentBuffer = takeDecryptedBuffer();
+      } else {
+        currentBuffer = buffers[0];
+        readBuffer(currentBuffer);
+        decryptBuffer(currentBuffer);
+      }
+    }
+    int bytesRead = Math.min(readLength, currentBuffer.length - currentBuffer.position);
+    System.arraycopy(currentBuffer.data, currentBuffer.position, buffer, offset, bytesRead);
+    currentBuffer.position += bytesRead;
     return bytesRead;
   }
 
+  /**
+   * Waits for the next block to be decrypted, and then reads the block after it from the upstream
+   * source and starts its decryption.
+   */
+  private Buffer takeDecryptedBuffer() throws IOException {
+    if (pendingDecryption == null) {
+      startDecryption(buffers[0]);
+    }
+    Buffer buffer;
+    try {
+      buffer = pendingDecryption.get();
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    } finally {
+      pendingDecryption = null;
+    }
+    if (!buffer.endOfInput) {
+      startDecryption(buffer == buffers[0] ? buffers[1] : buffers[0]);
+    }
+    return buffer;
+  }
+
+  /**
+   * Reads a block of data from the upstream source on the calling thread, and submits it to be
+   * decrypted on the worker thread.
+   */
+  private void startDecryption(final Buffer buffer) throws IOException {
+    readBuffer(buffer);
+    pendingDecryption = getDecryptionExecutor().submit(new Callable<Buffer>() {
+      @Override
+      public Buffer call() throws IOException {
+        decryptBuffer(buffer);
+        return buffer;
+      }
+    });
+  }
+
+  /**
+   * Reads a block of encrypted data from the upstream source.
+   *
+   * @param buffer The buffer to fill.
+   * @throws IOException If an error occurs reading from the upstream source.
+   */
+  private void readBuffer(Buffer buffer) throws IOException {
+    buffer.position = 0;
+    buffer.length = upstream.read(buffer.data, 0, BUFFER_SIZE);
+    buffer.endOfInput = false;
+  }
+
+  /**
+   * Decrypts a block of data read by {@link #readBuffer(Buffer)} in place.
+   *
+   * @param buffer The buffer to decrypt.
+   * @throws IOException If the data cannot be decrypted.
+   */
+  private void decryptBuffer(Buffer buffer) throws IOException {
+    try {
+      if (buffer.length == C.RESULT_END_OF_INPUT) {
+        buffer.length = cipher.cipher.doFinal(buffer.data, 0);
+        buffer.endOfInput = true;
+        // A cipher that has completed an operation is reset to its initialized state.
+        cipher.initialized = true;
+      } else {
+        // Cipher.update is copy-safe, so the input can be decrypted in place.
+        buffer.length = cipher.cipher.update(buffer.data, 0, buffer.length, buffer.data, 0);
+      }
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static synchronized ExecutorService getDecryptionExecutor() {
+    if (decryptionExecutor == null) {
+      decryptionExecutor = Util.newSingleThreadExecutor("Aes128DataSource");
+    }
+    return decryptionExecutor;
+  }
+
+  private static PooledCipher acquireCipher(byte[] key, byte[] iv) {
+    PooledCipher cipher = null;
+    synchronized (cipherPool) {
+      // Prefer a cipher that is already initialized with the same key and initialization vector.
+      Iterator<PooledCipher> iterator = cipherPool.iterator();
+      while (iterator.hasNext()) {
+        PooledCipher pooledCipher = iterator.next();
+        if (pooledCipher.isInitialized(key, iv)) {
+          iterator.remove();
+          cipher = pooledCipher;
+          break;
+        }
+      }
+      if (cipher == null) {
+        cipher = cipherPool.pollLast();
+      }
+    }
+    if (cipher == null) {
+      try {
+        cipher = new PooledCipher(Cipher.getInstance(TRANSFORMATION));
+      } catch (NoSuchAlgorithmException e) {
+        throw new RuntimeException(e);
+      } catch (NoSuchPaddingException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    if (!cipher.isInitialized(key, iv)) {
+      cipher.init(key, iv);
+    }
+    // Until the operation completes, the cipher's state depends on the data decrypted so far.
+    cipher.initialized = false;
+    return cipher;
+  }
+
+  private static void releaseCipher(PooledCipher cipher) {
+    synchronized (cipherPool) {
+      if (cipherPool.size() < MAX_POOLED_CIPHERS) {
+        cipherPool.addLast(cipher);
+      }
+    }
+  }
+
+  /**
+   * A {@link Cipher} that can be reused by any source, with the key and initialization vector
+   * with which it was last initialized.
+   */
+  private static final class PooledCipher {
+
+    public final Cipher cipher;
+
+    public byte[] key;
+    public byte[] iv;
+    public boolean initialized;
+
+    public PooledCipher(Cipher cipher) {
+      this.cipher = cipher;
+    }
+
+    public boolean isInitialized(byte[] key, byte[] iv) {
+      return initialized && Arrays.equals(this.key, key) && Arrays.equals(this.iv, iv);
+    }
+
+    public void init(byte[] key, byte[] iv) {
+      try {
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+      } catch (InvalidKeyException e) {
+        throw new RuntimeException(e);
+      } catch (InvalidAlgorithmParameterException e) {
+        throw new RuntimeException(e);
+      }
+      this.key = key.clone();
+      this.iv = iv.clone();
+      initialized = true;
+    }
+
+  }
+
+  /**
+   * Holds a block of decrypted data.
+   */
+  private static final class Buffer {
+
+    // Decrypting a block may also output data held back from the previous block.
+    public final byte[] data = new byte[BUFFER_SIZE + AES_BLOCK_SIZE];
+
+    public int position;
+    public int length;
+    public boolean endOfInput;
+
+  }
+
 }
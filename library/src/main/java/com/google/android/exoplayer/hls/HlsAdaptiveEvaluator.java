@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.hls;
+
+import com.google.android.exoplayer.chunk.Chunk;
+import com.google.android.exoplayer.chunk.Format;
+import com.google.android.exoplayer.chunk.FormatEvaluator;
+import com.google.android.exoplayer.chunk.MediaChunk;
+import com.google.android.exoplayer.upstream.BandwidthMeter;
+
+import java.util.List;
+
+/**
+ * The default {@link FormatEvaluator} used by {@link HlsChunkSource} for adaptive variant
+ * selection.
+ * <p>
+ * The evaluator selects the highest bitrate format that fits within a fraction of the estimated
+ * bandwidth, but only switches away from the current format when the buffered duration permits.
+ * A switch to a higher bitrate requires that more than a minimum duration is buffered, and a
+ * switch to a lower bitrate is deferred for as long as more than a maximum duration is buffered.
+ * If the current format is not one of the formats passed to {@link #evaluate} (for example
+ * because its variant has been blacklisted) then a switch is made immediately.
+ */
+public final class HlsAdaptiveEvaluator implements FormatEvaluator {
+
+  /**
+   * The default fraction of the available bandwidth that the evaluator considers available for use.
+   */
+  public static final float DEFAULT_BANDWIDTH_FRACTION = 0.8f;
+
+  private final BandwidthMeter bandwidthMeter;
+  private final boolean splicedSwitching;
+  private final long minBufferDurationToSwitchUpUs;
+  private final long maxBufferDurationToSwitchDownUs;
+  private final float bandwidthFraction;
+
+  /**
+   * @param bandwidthMeter Provides an estimate of the currently available bandwidth.
+   * @param splicedSwitching True if switches splice overlapping segments of the old and new
+   *     variants (i.e. {@link HlsChunkSource#ADAPTIVE_MODE_SPLICE}). In this case the last queued
+   *     chunk will be requested again after a switch, and so is not counted as buffered.
+   */
+  public HlsAdaptiveEvaluator(BandwidthMeter bandwidthMeter, boolean splicedSwitching) {
+    this(bandwidthMeter, splicedSwitching, HlsChunkSource.DEFAULT_MIN_BUFFER_TO_SWITCH_UP_MS,
+        HlsChunkSource.DEFAULT_MAX_BUFFER_TO_SWITCH_DOWN_MS, DEFAULT_BANDWIDTH_FRACTION);
+  }
+
+  /**
+   * @param bandwidthMeter Provides an estimate of the currently available bandwidth.
+   * @param splicedSwitching True if switches splice overlapping segments of the old and new
+   *     variants (i.e. {@link HlsChunkSource#ADAPTIVE_MODE_SPLICE}). In this case the last queued
+   *     chunk will be requested again after a switch, and so is not counted as buffered.
+   * @param minBufferDurationToSwitchUpMs The minimum duration of media that needs to be buffered
+   *     for a switch to a higher quality variant to be considered.
+   * @param maxBufferDurationToSwitchDownMs The maximum duration of media that needs to be buffered
+   *     for a switch to a lower quality variant to be considered.
+   * @param bandwidthFraction The fraction of the available bandwidth that the evaluator should
+   *     consider available for use.
+   */
+  public HlsAdaptiveEvaluator(BandwidthMeter bandwidthMeter, boolean splicedSwitching,
+      long minBufferDurationToSwitchUpMs, long maxBufferDurationToSwitchDownMs,
+      float bandwidthFraction) {
+    this.bandwidthMeter = bandwidthMeter;
+    this.splicedSwitching = splicedSwitching;
+    this.minBufferDurationToSwitchUpUs = minBufferDurationToSwitchUpMs * 1000;
+    this.maxBufferDurationToSwitchDownUs = maxBufferDurationToSwitchDownMs * 1000;
+    this.bandwidthFraction = bandwidthFraction;
+  }
+
+  @Override
+  public void enable() {
+    // Do nothing.
+  }
+
+  @Override
+  public void disable() {
+    // Do nothing.
+  }
+
+  @Override
+  public void evaluate(List<? extends MediaChunk> queue, long playbackPositionUs,
+      Format[] formats, Evaluation evaluation) {
+    long bitrateEstimate = bandwidthMeter.getBitrateEstimate();
+    int idealIndex = getIdealFormatIndex(formats, bitrateEstimate);
+    int currentIndex = indexOf(formats, evaluation.format);
+    if (currentIndex == -1) {
+      // The current format is unavailable (or there isn't one), so we have no choice but to
+      // re-evaluate.
+      setFormat(formats[idealIndex], evaluation);
+      return;
+    }
+    if (queue.isEmpty() || bitrateEstimate == BandwidthMeter.NO_ESTIMATE
+        || idealIndex == currentIndex) {
+      // Don't consider switching if we don't have a previous chunk or a bandwidth estimate, or if
+      // we're already using the ideal format.
+      return;
+    }
+    // We're not using the ideal format for the available bandwidth, but only switch if the
+    // conditions are appropriate.
+    MediaChunk lastChunk = queue.get(queue.size() - 1);
+    long bufferedPositionUs = splicedSwitching ? lastChunk.startTimeUs : lastChunk.endTimeUs;
+    long bufferedUs = bufferedPositionUs - playbackPositionUs;
+    if ((idealIndex > currentIndex && bufferedUs < maxBufferDurationToSwitchDownUs)
+        || (idealIndex < currentIndex && bufferedUs > minBufferDurationToSwitchUpUs)) {
+      setFormat(formats[idealIndex], evaluation);
+    }
+  }
+
+  private int getIdealFormatIndex(Format[] formats, long bitrateEstimate) {
+    long effectiveBitrate = bitrateEstimate == BandwidthMeter.NO_ESTIMATE ? 0
+        : (long) (bitrateEstimate * bandwidthFraction);
+    for (int i = 0; i < formats.length; i++) {
+      if (formats[i].bitrate <= effectiveBitrate) {
+        return i;
+      }
+    }
+    // Select the lowest quality.
+    return formats.length - 1;
+  }
+
+  private static void setFormat(Format format, Evaluation evaluation) {
+    if (evaluation.format != null && !format.equals(evaluation.format)) {
+      evaluation.trigger = Chunk.TRIGGER_ADAPTIVE;
+    }
+    evaluation.format = format;
+  }
+
+  private static int indexOf(Format[] formats, Format format) {
+    if (format == null) {
+      return -1;
+    }
+    for (int i = 0; i < formats.length; i++) {
+      if (formats[i].equals(format)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+}
@@ -18,12 +18,15 @@ package com.google.android.exoplayer.hls;
 import android.os.Handler;
 import com.google.android.exoplayer.BehindLiveWindowException;
 import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.LiveLatencyController;
 import com.google.android.exoplayer.MediaFormat;
 import com.google.android.exoplayer.chunk.BaseChunkSampleSourceEventListener;
 import com.google.android.exoplayer.chunk.Chunk;
 import com.google.android.exoplayer.chunk.ChunkOperationHolder;
 import com.google.android.exoplayer.chunk.DataChunk;
 import com.google.android.exoplayer.chunk.Format;
+import com.google.android.exoplayer.chunk.FormatEvaluator;
+import com.google.android.exoplayer.chunk.FormatEvaluator.Evaluation;
 import com.google.android.exoplayer.extractor.Extractor;
 import com.google.android.exoplayer.extractor.mp3.Mp3Extractor;
 import com.google.android.exoplayer.extractor.ts.AdtsExtractor;
@@ -128,7 +131,6 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
   private static final String MP3_FILE_EXTENSION = ".mp3";
   private static final String VTT_FILE_EXTENSION = ".vtt";
   private static final String WEBVTT_FILE_EXTENSION = ".webvtt";
-  private static final float BANDWIDTH_FRACTION = 0.8f;
 
   private final boolean isMaster;
   private final DataSource dataSource;
@@ -138,9 +140,11 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
   private final BandwidthMeter bandwidthMeter;
   private final PtsTimestampAdjusterProvider timestampAdjusterProvider;
   private final int adaptiveMode;
+  private final FormatEvaluator adaptiveFormatEvaluator;
+  private final Evaluation evaluation;
+  private final ArrayList<TsChunk> evaluationQueue;
+  private final LiveLatencyController liveLatencyController;
   private final String baseUri;
-  private final long minBufferDurationToSwitchUpUs;
-  private final long maxBufferDurationToSwitchDownUs;
 
   // TODO: Expose tracks.
   private final ArrayList<ExposedTrack> tracks;
@@ -154,9 +158,12 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
   private HlsMediaPlaylist[] variantPlaylists;
   private long[] variantLastPlaylistLoadTimesMs;
   private long[] variantBlacklistTimes;
+  // The formats of the variants that are not blacklisted, ordered by decreasing bandwidth.
+  private Format[] enabledVariantFormats;
 
   // The index in variants of the currently selected variant.
   private int selectedVariantIndex;
+  private boolean formatEvaluatorEnabled;
 
   private boolean prepareCalled;
   private byte[] scratchSpace;
@@ -249,19 +256,60 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
       PtsTimestampAdjusterProvider timestampAdjusterProvider, int adaptiveMode,
       long minBufferDurationToSwitchUpMs, long maxBufferDurationToSwitchDownMs,
       Handler eventHandler, EventListener eventListener) {
+    this(isMaster, dataSource, playlist, trackSelector, bandwidthMeter, timestampAdjusterProvider,
+        adaptiveMode, new HlsAdaptiveEvaluator(bandwidthMeter,
+            adaptiveMode == ADAPTIVE_MODE_SPLICE, minBufferDurationToSwitchUpMs,
+            maxBufferDurationToSwitchDownMs, HlsAdaptiveEvaluator.DEFAULT_BANDWIDTH_FRACTION),
+        null, eventHandler, eventListener);
+  }
+
+  /**
+   * @param isMaster True if this is the master source for the playback. False otherwise. Each
+   *     playback must have exactly one master source, which should be the source providing video
+   *     chunks (or audio chunks for audio only playbacks).
+   * @param dataSource A {@link DataSource} suitable for loading the media data.
+   * @param playlist The HLS playlist.
+   * @param trackSelector Selects tracks to be exposed by this source.
+   * @param bandwidthMeter Provides an estimate of the currently available bandwidth.
+   * @param timestampAdjusterProvider A provider of {@link PtsTimestampAdjuster} instances. If
+   *     multiple {@link HlsChunkSource}s are used for a single playback, they should all share the
+   *     same provider.
+   * @param adaptiveMode The mode for switching from one variant to another. One of
+   *     {@link #ADAPTIVE_MODE_NONE}, {@link #ADAPTIVE_MODE_ABRUPT} and
+   *     {@link #ADAPTIVE_MODE_SPLICE}.
+   * @param adaptiveFormatEvaluator For adaptive tracks, selects from the available variants. The
+   *     evaluator is passed the formats of the variants that are not currently blacklisted, and a
+   *     queue containing the most recently loaded {@link TsChunk} (or an empty queue at the start
+   *     of playback and after a seek). The desired queue size of the evaluation is ignored. May be
+   *     null if {@code adaptiveMode} is {@link #ADAPTIVE_MODE_NONE}.
+   * @param liveLatencyController For live playbacks, controls the distance between playback and the
+   *     live edge. If null, live playbacks start three segments from the end of the playlist and
+   *     the distance is not controlled.
+   * @param eventHandler A handler to use when delivering events to {@code eventListener}. May be
+   *     null if delivery of events is not required.
+   * @param eventListener A listener of events. May be null if delivery of events is not required.
+   */
+  public HlsChunkSource(boolean isMaster, DataSource dataSource, HlsPlaylist playlist,
+      HlsTrackSelector trackSelector, BandwidthMeter bandwidthMeter,
+      PtsTimestampAdjusterProvider timestampAdjusterProvider, int adaptiveMode,
+      FormatEvaluator adaptiveFormatEvaluator, LiveLatencyController liveLatencyController,
+      Handler eventHandler, EventListener eventListener) {
+    Assertions.checkArgument(adaptiveMode == ADAPTIVE_MODE_NONE || adaptiveFormatEvaluator != null);
     this.isMaster = isMaster;
     this.dataSource = dataSource;
     this.trackSelector = trackSelector;
     this.bandwidthMeter = bandwidthMeter;
     this.timestampAdjusterProvider = timestampAdjusterProvider;
     this.adaptiveMode = adaptiveMode;
+    this.adaptiveFormatEvaluator = adaptiveFormatEvaluator;
+    this.liveLatencyController = liveLatencyController;
     this.eventListener = eventListener;
     this.eventHandler = eventHandler;
-    minBufferDurationToSwitchUpUs = minBufferDurationToSwitchUpMs * 1000;
-    maxBufferDurationToSwitchDownUs = maxBufferDurationToSwitchDownMs * 1000;
     baseUri = playlist.baseUri;
     playlistParser = new HlsPlaylistParser();
     tracks = new ArrayList<>();
+    evaluation = new Evaluation();
+    evaluationQueue = new ArrayList<>(1);
 
     if (playlist.type == HlsPlaylist.TYPE_MASTER) {
       masterPlaylist = (HlsMasterPlaylist) playlist;
@@ -396,6 +444,9 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
     variantPlaylists = new HlsMediaPlaylist[variants.length];
     variantLastPlaylistLoadTimesMs = new long[variants.length];
     variantBlacklistTimes = new long[variants.length];
+    enabledVariantFormats = null;
+    evaluation.format = null;
+    evaluation.trigger = Chunk.TRIGGER_INITIAL;
   }
 
   /**
@@ -416,6 +467,10 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
    */
   public void reset() {
     fatalError = null;
+    if (formatEvaluatorEnabled) {
+      adaptiveFormatEvaluator.disable();
+      formatEvaluatorEnabled = false;
+    }
   }
 
   /**
@@ -433,14 +488,17 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
       ChunkOperationHolder out) {
     int nextVariantIndex;
     boolean switchingVariantSpliced;
+    int trigger;
     if (adaptiveMode == ADAPTIVE_MODE_NONE) {
       nextVariantIndex = selectedVariantIndex;
       switchingVariantSpliced = false;
+      trigger = Chunk.TRIGGER_UNSPECIFIED;
     } else {
       nextVariantIndex = getNextVariantIndex(previousTsChunk, playbackPositionUs);
       switchingVariantSpliced = previousTsChunk != null
           && !variants[nextVariantIndex].format.equals(previousTsChunk.format)
           && adaptiveMode == ADAPTIVE_MODE_SPLICE;
+      trigger = evaluation.trigger;
     }
 
     HlsMediaPlaylist mediaPlaylist = variantPlaylists[nextVariantIndex];
@@ -452,6 +510,7 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
 
     selectedVariantIndex = nextVariantIndex;
     int chunkMediaSequence = 0;
+    boolean skippingToLiveLatencyTarget = false;
     if (live) {
       if (previousTsChunk == null) {
         chunkMediaSequence = getLiveStartChunkMediaSequence(nextVariantIndex);
@@ -462,6 +521,17 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
           fatalError = new BehindLiveWindowException();
           return;
         }
+        if (liveLatencyController != null) {
+          int resyncChunkMediaSequence = getLiveResyncChunkMediaSequence(nextVariantIndex,
+              previousTsChunk, playbackPositionUs);
+          if (resyncChunkMediaSequence > chunkMediaSequence) {
+            // Playback has drifted too far behind the live edge. Skip ahead to the target latency.
+            chunkMediaSequence = resyncChunkMediaSequence;
+            skippingToLiveLatencyTarget = true;
+            switchingVariantSpliced = false;
+            liveLatencyController.onResync();
+          }
+        }
       }
     } else {
       // Not live.
@@ -511,6 +581,9 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
     if (live) {
       if (previousTsChunk == null) {
         startTimeUs = 0;
+      } else if (skippingToLiveLatencyTarget) {
+        startTimeUs = previousTsChunk.endTimeUs + getSegmentsDurationUs(mediaPlaylist,
+            previousTsChunk.chunkIndex + 1, chunkMediaSequence);
       } else if (switchingVariantSpliced) {
         startTimeUs = previousTsChunk.startTimeUs;
       } else {
@@ -520,7 +593,6 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
       startTimeUs = segment.startTimeUs;
     }
     long endTimeUs = startTimeUs + (long) (segment.durationSecs * C.MICROS_PER_SECOND);
-    int trigger = Chunk.TRIGGER_UNSPECIFIED;
     Format format = variants[selectedVariantIndex].format;
 
     // Configure the extractor that will read the chunk.
@@ -644,6 +716,7 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
         }
         boolean alreadyBlacklisted = variantBlacklistTimes[variantIndex] != 0;
         variantBlacklistTimes[variantIndex] = SystemClock.elapsedRealtime();
+        enabledVariantFormats = null;
         if (alreadyBlacklisted) {
           // The playlist was already blacklisted.
           Log.w(TAG, "Already blacklisted variant (" + responseCode + "): "
@@ -720,57 +793,45 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
 
   private int getNextVariantIndex(TsChunk previousTsChunk, long playbackPositionUs) {
     clearStaleBlacklistedVariants();
-    long bitrateEstimate = bandwidthMeter.getBitrateEstimate();
-    if (variantBlacklistTimes[selectedVariantIndex] != 0) {
-      // The current variant has been blacklisted, so we have no choice but to re-evaluate.
-      return getVariantIndexForBandwidth(bitrateEstimate);
-    }
-    if (previousTsChunk == null) {
-      // Don't consider switching if we don't have a previous chunk.
-      return selectedVariantIndex;
-    }
-    if (bitrateEstimate == BandwidthMeter.NO_ESTIMATE) {
-      // Don't consider switching if we don't have a bandwidth estimate.
-      return selectedVariantIndex;
-    }
-    int idealIndex = getVariantIndexForBandwidth(bitrateEstimate);
-    if (idealIndex == selectedVariantIndex) {
-      // We're already using the ideal variant.
-      return selectedVariantIndex;
-    }
-    // We're not using the ideal variant for the available bandwidth, but only switch if the
-    // conditions are appropriate.
-    long bufferedPositionUs = adaptiveMode == ADAPTIVE_MODE_SPLICE ? previousTsChunk.startTimeUs
-        : previousTsChunk.endTimeUs;
-    long bufferedUs = bufferedPositionUs - playbackPositionUs;
-    if (variantBlacklistTimes[selectedVariantIndex] != 0
-        || (idealIndex > selectedVariantIndex && bufferedUs < maxBufferDurationToSwitchDownUs)
-        || (idealIndex < selectedVariantIndex && bufferedUs > minBufferDurationToSwitchUpUs)) {
-      // Switch variant.
-      return idealIndex;
-    }
-    // Stick with the current variant for now.
-    return selectedVariantIndex;
-  }
-
-  private int getVariantIndexForBandwidth(long bitrateEstimate) {
-    if (bitrateEstimate == BandwidthMeter.NO_ESTIMATE) {
-      // Select the lowest quality.
-      bitrateEstimate = 0;
-    }
-    int effectiveBitrate = (int) (bitrateEstimate * BANDWIDTH_FRACTION);
-    int lowestQualityEnabledVariantIndex = -1;
+    if (!formatEvaluatorEnabled) {
+      adaptiveFormatEvaluator.enable();
+      formatEvaluatorEnabled = true;
+    }
+    if (enabledVariantFormats == null) {
+      enabledVariantFormats = getEnabledVariantFormats();
+    }
+    evaluationQueue.clear();
+    if (previousTsChunk != null) {
+      evaluationQueue.add(previousTsChunk);
+    }
+    if (evaluation.format == null) {
+      // Start from the default variant, which may be replaced by the evaluator.
+      evaluation.format = variants[selectedVariantIndex].format;
+    }
+    evaluation.queueSize = evaluationQueue.size();
+    adaptiveFormatEvaluator.evaluate(evaluationQueue, playbackPositionUs, enabledVariantFormats,
+        evaluation);
+    evaluationQueue.clear();
+    return getVariantIndex(evaluation.format);
+  }
+
+  private Format[] getEnabledVariantFormats() {
+    int enabledVariantCount = 0;
     for (int i = 0; i < variants.length; i++) {
       if (variantBlacklistTimes[i] == 0) {
-        if (variants[i].format.bitrate <= effectiveBitrate) {
-          return i;
-        }
-        lowestQualityEnabledVariantIndex = i;
+        enabledVariantCount++;
       }
     }
     // At least one variant should always be enabled.
-    Assertions.checkState(lowestQualityEnabledVariantIndex != -1);
-    return lowestQualityEnabledVariantIndex;
+    Assertions.checkState(enabledVariantCount > 0);
+    Format[] formats = new Format[enabledVariantCount];
+    int formatIndex = 0;
+    for (int i = 0; i < variants.length; i++) {
+      if (variantBlacklistTimes[i] == 0) {
+        formats[formatIndex++] = variants[i].format;
+      }
+    }
+    return formats;
   }
 
   private boolean shouldRerequestLiveMediaPlaylist(int nextVariantIndex) {
@@ -782,10 +843,57 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
   }
 
   private int getLiveStartChunkMediaSequence(int variantIndex) {
-    // For live start playback from the third chunk from the end.
     HlsMediaPlaylist mediaPlaylist = variantPlaylists[variantIndex];
-    int chunkIndex = mediaPlaylist.segments.size() > 3 ? mediaPlaylist.segments.size() - 3 : 0;
-    return chunkIndex + mediaPlaylist.mediaSequence;
+    List<HlsMediaPlaylist.Segment> segments = mediaPlaylist.segments;
+    if (liveLatencyController == null) {
+      // For live start playback from the third chunk from the end.
+      int chunkIndex = segments.size() > 3 ? segments.size() - 3 : 0;
+      return chunkIndex + mediaPlaylist.mediaSequence;
+    }
+    // Start playback from the latest chunk that leaves at least the target latency to the end.
+    long targetLatencyUs = liveLatencyController.getTargetLatencyUs();
+    long durationToEndUs = 0;
+    for (int i = segments.size() - 1; i > 0; i--) {
+      durationToEndUs += (long) (segments.get(i).durationSecs * C.MICROS_PER_SECOND);
+      if (durationToEndUs >= targetLatencyUs) {
+        return i + mediaPlaylist.mediaSequence;
+      }
+    }
+    return mediaPlaylist.mediaSequence;
+  }
+
+  /**
+   * Updates the {@link LiveLatencyController} with the current distance to the live edge, and
+   * returns the media sequence number from which loading should resume if playback has drifted
+   * too far behind the live edge, or -1 if it has not.
+   */
+  private int getLiveResyncChunkMediaSequence(int variantIndex, TsChunk previousTsChunk,
+      long playbackPositionUs) {
+    HlsMediaPlaylist mediaPlaylist = variantPlaylists[variantIndex];
+    int endChunkMediaSequence = mediaPlaylist.mediaSequence + mediaPlaylist.segments.size();
+    // The live edge is the end of the last segment in the playlist, in the timebase of the chunks.
+    long liveEdgeTimeUs = previousTsChunk.endTimeUs + getSegmentsDurationUs(mediaPlaylist,
+        previousTsChunk.chunkIndex + 1, endChunkMediaSequence);
+    if (!liveLatencyController.updateLatency(liveEdgeTimeUs, playbackPositionUs)) {
+      return -1;
+    }
+    return getLiveStartChunkMediaSequence(variantIndex);
+  }
+
+  /**
+   * Returns the total duration of the segments in a playlist with media sequence numbers from
+   * {@code fromChunkMediaSequence} (inclusive) to {@code toChunkMediaSequence} (exclusive).
+   */
+  private static long getSegmentsDurationUs(HlsMediaPlaylist mediaPlaylist,
+      int fromChunkMediaSequence, int toChunkMediaSequence) {
+    int fromIndex = Math.max(0, fromChunkMediaSequence - mediaPlaylist.mediaSequence);
+    int toIndex = Math.min(mediaPlaylist.segments.size(),
+        toChunkMediaSequence - mediaPlaylist.mediaSequence);
+    long durationUs = 0;
+    for (int i = fromIndex; i < toIndex; i++) {
+      durationUs += (long) (mediaPlaylist.segments.get(i).durationSecs * C.MICROS_PER_SECOND);
+    }
+    return durationUs;
   }
 
   private MediaPlaylistChunk newMediaPlaylistChunk(int variantIndex) {
@@ -850,6 +958,7 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
       if (variantBlacklistTimes[i] != 0
           && currentTime - variantBlacklistTimes[i] > DEFAULT_PLAYLIST_BLACKLIST_MS) {
         variantBlacklistTimes[i] = 0;
+        enabledVariantFormats = null;
       }
     }
   }
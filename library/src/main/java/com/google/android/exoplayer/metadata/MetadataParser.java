@@ -37,7 +37,8 @@ public interface MetadataParser<T> {
    *
    * @param data The raw binary data from which to parse the metadata.
    * @param size The size of the input data.
-   * @return @return A parsed metadata object of type <T>.
+   * @return A parsed metadata object of type <T>, or null if the data does not contain any
+   *     metadata of interest.
    * @throws ParserException If a problem occurred parsing the data.
    */
   public T parse(byte[] data, int size) throws ParserException;
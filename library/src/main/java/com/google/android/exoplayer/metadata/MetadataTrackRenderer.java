@@ -68,7 +68,9 @@ public final class MetadataTrackRenderer<T> extends SampleSourceTrackRenderer im
 
   /**
    * @param source A source from which samples containing metadata can be read.
-   * @param metadataParser A parser for parsing the metadata.
+   * @param metadataParser A parser for parsing the metadata. Samples for which the parser returns
+   *     null are not passed to the metadata renderer, so a parser can be configured to parse only
+   *     the metadata that the metadata renderer handles.
    * @param metadataRenderer The metadata renderer to receive the parsed metadata.
    * @param metadataRendererLooper The looper associated with the thread on which metadataRenderer
    *     should be invoked. If the renderer makes use of standard Android UI components, then this
@@ -122,6 +124,15 @@ public final class MetadataTrackRenderer<T> extends SampleSourceTrackRenderer im
     }
   }
 
+  @Override
+  protected long getMaxWakeupDelayUs(long positionUs, long elapsedRealtimeUs) {
+    if (pendingMetadata != null) {
+      return Math.max(0, pendingMetadataTimestamp - positionUs);
+    }
+    // If the input hasn't ended then we're waiting for the next sample to be read.
+    return inputStreamEnded ? Long.MAX_VALUE : 0;
+  }
+
   @Override
   protected void onDisabled() throws ExoPlaybackException {
     pendingMetadata = null;
@@ -28,15 +28,94 @@ import java.util.List;
 import java.util.Locale;
 
 /**
- * Extracts individual TXXX text frames from raw ID3 data.
+ * Extracts individual frames from raw ID3 data.
+ * <p>
+ * By default every frame is decoded. A {@link FrameFilter} can be provided so that frames that
+ * aren't of interest are skipped without being decoded or copied. If a filter is provided and a
+ * tag contains no frames that pass it, {@link #parse(byte[], int)} returns null.
+ * <p>
+ * In lazy mode, frames are returned as {@link LazyId3Frame}s. The payloads of all frames that
+ * pass the filter are copied once into a single array that the returned frames share, and each
+ * frame is only decoded when {@link LazyId3Frame#decode()} is called. This avoids decoding text
+ * and copying binary payloads, such as artwork, that are never read.
  */
 public final class Id3Parser implements MetadataParser<List<Id3Frame>> {
 
+  /**
+   * Decides whether frames should be parsed, based on their IDs.
+   */
+  public interface FrameFilter {
+
+    /**
+     * Returns whether a frame should be parsed.
+     *
+     * @param frameId0 The first byte of the frame ID.
+     * @param frameId1 The second byte of the frame ID.
+     * @param frameId2 The third byte of the frame ID.
+     * @param frameId3 The fourth byte of the frame ID.
+     * @return Whether the frame should be parsed.
+     */
+    boolean accept(int frameId0, int frameId1, int frameId2, int frameId3);
+
+  }
+
   private static final int ID3_TEXT_ENCODING_ISO_8859_1 = 0;
   private static final int ID3_TEXT_ENCODING_UTF_16 = 1;
   private static final int ID3_TEXT_ENCODING_UTF_16BE = 2;
   private static final int ID3_TEXT_ENCODING_UTF_8 = 3;
 
+  private static final int FRAME_HEADER_SIZE = 10;
+
+  private final FrameFilter frameFilter;
+  private final boolean lazy;
+
+  /**
+   * Creates a parser that decodes every frame.
+   */
+  public Id3Parser() {
+    this(null, false);
+  }
+
+  /**
+   * @param frameFilter A filter for the frames to parse, or null to parse every frame.
+   * @param lazy Whether to return {@link LazyId3Frame}s, which are only decoded on request.
+   */
+  public Id3Parser(FrameFilter frameFilter, boolean lazy) {
+    this.frameFilter = frameFilter;
+    this.lazy = lazy;
+  }
+
+  /**
+   * Returns a {@link FrameFilter} that accepts frames with the specified IDs.
+   *
+   * @param frameIds The IDs of the frames to accept, each of which must consist of four ASCII
+   *     characters.
+   * @return The filter.
+   */
+  public static FrameFilter newFrameIdFilter(String... frameIds) {
+    final int[] packedIds = new int[frameIds.length];
+    for (int i = 0; i < frameIds.length; i++) {
+      String frameId = frameIds[i];
+      if (frameId.length() != 4) {
+        throw new IllegalArgumentException("Invalid frame ID: " + frameId);
+      }
+      packedIds[i] = packFrameId(frameId.charAt(0), frameId.charAt(1), frameId.charAt(2),
+          frameId.charAt(3));
+    }
+    return new FrameFilter() {
+      @Override
+      public boolean accept(int frameId0, int frameId1, int frameId2, int frameId3) {
+        int packedId = packFrameId(frameId0, frameId1, frameId2, frameId3);
+        for (int i = 0; i < packedIds.length; i++) {
+          if (packedIds[i] == packedId) {
+            return true;
+          }
+        }
+        return false;
+      }
+    };
+  }
+
   @Override
   public boolean canParse(String mimeType) {
     return mimeType.equals(MimeTypes.APPLICATION_ID3);
@@ -47,49 +126,106 @@ public final class Id3Parser implements MetadataParser<List<Id3Frame>> {
     List<Id3Frame> id3Frames = new ArrayList<>();
     ParsableByteArray id3Data = new ParsableByteArray(data, size);
     int id3Size = parseId3Header(id3Data);
+    int framesStartPosition = id3Data.getPosition();
+
+    // If parsing lazily, the payloads of accepted frames are copied into a single array. The array
+    // is allocated once the size of the accepted payloads is known.
+    int lazyDataSize = 0;
+    for (int pass = lazy ? 0 : 1; pass < 2; pass++) {
+      byte[] lazyData = pass == 1 && lazy ? new byte[lazyDataSize] : null;
+      int lazyDataOffset = 0;
+      int remainingSize = id3Size;
+      id3Data.setPosition(framesStartPosition);
+      while (remainingSize > 0) {
+        int frameId0 = id3Data.readUnsignedByte();
+        int frameId1 = id3Data.readUnsignedByte();
+        int frameId2 = id3Data.readUnsignedByte();
+        int frameId3 = id3Data.readUnsignedByte();
+        int frameSize = id3Data.readSynchSafeInt();
+        if (frameSize <= 1) {
+          break;
+        }
 
-    while (id3Size > 0) {
-      int frameId0 = id3Data.readUnsignedByte();
-      int frameId1 = id3Data.readUnsignedByte();
-      int frameId2 = id3Data.readUnsignedByte();
-      int frameId3 = id3Data.readUnsignedByte();
-      int frameSize = id3Data.readSynchSafeInt();
-      if (frameSize <= 1) {
-        break;
-      }
+        // Skip frame flags.
+        id3Data.skipBytes(2);
+        int frameStartPosition = id3Data.getPosition();
+        remainingSize -= frameSize + FRAME_HEADER_SIZE;
+        if (frameFilter != null
+            && !frameFilter.accept(frameId0, frameId1, frameId2, frameId3)) {
+          id3Data.setPosition(frameStartPosition + frameSize);
+          continue;
+        }
 
-      // Skip frame flags.
-      id3Data.skipBytes(2);
-
-      try {
-        Id3Frame frame;
-        if (frameId0 == 'T' && frameId1 == 'X' && frameId2 == 'X' && frameId3 == 'X') {
-          frame = parseTxxxFrame(id3Data, frameSize);
-        } else if (frameId0 == 'P' && frameId1 == 'R' && frameId2 == 'I' && frameId3 == 'V') {
-          frame = parsePrivFrame(id3Data, frameSize);
-        } else if (frameId0 == 'G' && frameId1 == 'E' && frameId2 == 'O' && frameId3 == 'B') {
-          frame = parseGeobFrame(id3Data, frameSize);
-        } else if (frameId0 == 'A' && frameId1 == 'P' && frameId2 == 'I' && frameId3 == 'C') {
-          frame = parseApicFrame(id3Data, frameSize);
-        } else if (frameId0 == 'T') {
-          String id = String.format(Locale.US, "%c%c%c%c", frameId0, frameId1, frameId2, frameId3);
-          frame = parseTextInformationFrame(id3Data, frameSize, id);
+        if (pass == 0) {
+          lazyDataSize += frameSize;
+        } else if (lazy) {
+          System.arraycopy(data, frameStartPosition, lazyData, lazyDataOffset, frameSize);
+          id3Frames.add(new LazyId3Frame(getFrameId(frameId0, frameId1, frameId2, frameId3),
+              lazyData, lazyDataOffset, frameSize));
+          lazyDataOffset += frameSize;
         } else {
-          String id = String.format(Locale.US, "%c%c%c%c", frameId0, frameId1, frameId2, frameId3);
-          frame = parseBinaryFrame(id3Data, frameSize, id);
+          id3Frames.add(decodeFrame(frameId0, frameId1, frameId2, frameId3, data,
+              frameStartPosition, frameSize));
         }
-        id3Frames.add(frame);
-        id3Size -= frameSize + 10 /* header size */;
-      } catch (UnsupportedEncodingException e) {
-        throw new ParserException(e);
+        id3Data.setPosition(frameStartPosition + frameSize);
       }
     }
 
+    if (frameFilter != null && id3Frames.isEmpty()) {
+      return null;
+    }
     return Collections.unmodifiableList(id3Frames);
   }
 
-  private static int indexOfEos(byte[] data, int fromIndex, int encoding) {
-    int terminationPos = indexOfZeroByte(data, fromIndex);
+  /**
+   * Decodes the payload of a frame.
+   *
+   * @param frameId The ID of the frame.
+   * @param data The array holding the payload.
+   * @param offset The offset of the payload in {@code data}.
+   * @param size The size of the payload.
+   * @return The decoded frame.
+   * @throws ParserException If the payload could not be decoded.
+   */
+  /* package */ static Id3Frame decodeFrame(String frameId, byte[] data, int offset, int size)
+      throws ParserException {
+    return decodeFrame(frameId.charAt(0), frameId.charAt(1), frameId.charAt(2),
+        frameId.charAt(3), data, offset, size);
+  }
+
+  private static Id3Frame decodeFrame(int frameId0, int frameId1, int frameId2, int frameId3,
+      byte[] data, int offset, int size) throws ParserException {
+    try {
+      if (frameId0 == 'T' && frameId1 == 'X' && frameId2 == 'X' && frameId3 == 'X') {
+        return parseTxxxFrame(data, offset, size);
+      } else if (frameId0 == 'P' && frameId1 == 'R' && frameId2 == 'I' && frameId3 == 'V') {
+        return parsePrivFrame(data, offset, size);
+      } else if (frameId0 == 'G' && frameId1 == 'E' && frameId2 == 'O' && frameId3 == 'B') {
+        return parseGeobFrame(data, offset, size);
+      } else if (frameId0 == 'A' && frameId1 == 'P' && frameId2 == 'I' && frameId3 == 'C') {
+        return parseApicFrame(data, offset, size);
+      } else if (frameId0 == 'T') {
+        String id = getFrameId(frameId0, frameId1, frameId2, frameId3);
+        return parseTextInformationFrame(data, offset, size, id);
+      } else {
+        String id = getFrameId(frameId0, frameId1, frameId2, frameId3);
+        return parseBinaryFrame(data, offset, size, id);
+      }
+    } catch (UnsupportedEncodingException e) {
+      throw new ParserException(e);
+    }
+  }
+
+  private static int packFrameId(int frameId0, int frameId1, int frameId2, int frameId3) {
+    return (frameId0 << 24) | (frameId1 << 16) | (frameId2 << 8) | frameId3;
+  }
+
+  private static String getFrameId(int frameId0, int frameId1, int frameId2, int frameId3) {
+    return String.format(Locale.US, "%c%c%c%c", frameId0, frameId1, frameId2, frameId3);
+  }
+
+  private static int indexOfEos(byte[] data, int fromIndex, int limit, int encoding) {
+    int terminationPos = indexOfZeroByte(data, fromIndex, limit);
 
     // For single byte encoding charsets, we're done.
     if (encoding == ID3_TEXT_ENCODING_ISO_8859_1 || encoding == ID3_TEXT_ENCODING_UTF_8) {
@@ -97,23 +233,23 @@ public final class Id3Parser implements MetadataParser<List<Id3Frame>> {
     }
 
     // Otherwise look for a second zero byte.
-    while (terminationPos < data.length - 1) {
+    while (terminationPos < limit - 1) {
       if (data[terminationPos + 1] == (byte) 0) {
         return terminationPos;
       }
-      terminationPos = indexOfZeroByte(data, terminationPos + 1);
+      terminationPos = indexOfZeroByte(data, terminationPos + 1, limit);
     }
 
-    return data.length;
+    return limit;
   }
 
-  private static int indexOfZeroByte(byte[] data, int fromIndex) {
-    for (int i = fromIndex; i < data.length; i++) {
+  private static int indexOfZeroByte(byte[] data, int fromIndex, int limit) {
+    for (int i = fromIndex; i < limit; i++) {
       if (data[i] == (byte) 0) {
         return i;
       }
     }
-    return data.length;
+    return limit;
   }
 
   private static int delimiterLength(int encodingByte) {
@@ -158,108 +294,105 @@ public final class Id3Parser implements MetadataParser<List<Id3Frame>> {
     return id3Size;
   }
 
-  private static TxxxFrame parseTxxxFrame(ParsableByteArray id3Data, int frameSize)
+  private static TxxxFrame parseTxxxFrame(byte[] data, int offset, int size)
       throws UnsupportedEncodingException {
-    int encoding = id3Data.readUnsignedByte();
+    int encoding = data[offset] & 0xFF;
     String charset = getCharsetName(encoding);
+    int start = offset + 1;
+    int limit = offset + size;
 
-    byte[] data = new byte[frameSize - 1];
-    id3Data.readBytes(data, 0, frameSize - 1);
-
-    int descriptionEndIndex = indexOfEos(data, 0, encoding);
-    String description = new String(data, 0, descriptionEndIndex, charset);
+    int descriptionEndIndex = indexOfEos(data, start, limit, encoding);
+    String description = new String(data, start, descriptionEndIndex - start, charset);
 
     int valueStartIndex = descriptionEndIndex + delimiterLength(encoding);
-    int valueEndIndex = indexOfEos(data, valueStartIndex, encoding);
-    String value = new String(data, valueStartIndex, valueEndIndex - valueStartIndex, charset);
+    int valueEndIndex = indexOfEos(data, valueStartIndex, limit, encoding);
+    String value = decodeString(data, valueStartIndex, valueEndIndex, charset);
 
     return new TxxxFrame(description, value);
   }
 
-  private static PrivFrame parsePrivFrame(ParsableByteArray id3Data, int frameSize)
+  private static PrivFrame parsePrivFrame(byte[] data, int offset, int size)
       throws UnsupportedEncodingException {
-    byte[] data = new byte[frameSize];
-    id3Data.readBytes(data, 0, frameSize);
+    int limit = offset + size;
 
-    int ownerEndIndex = indexOfZeroByte(data, 0);
-    String owner = new String(data, 0, ownerEndIndex, "ISO-8859-1");
+    int ownerEndIndex = indexOfZeroByte(data, offset, limit);
+    String owner = new String(data, offset, ownerEndIndex - offset, "ISO-8859-1");
 
     int privateDataStartIndex = ownerEndIndex + 1;
-    byte[] privateData = Arrays.copyOfRange(data, privateDataStartIndex, data.length);
+    byte[] privateData = copyOfRange(data, privateDataStartIndex, limit);
 
     return new PrivFrame(owner, privateData);
   }
 
-  private static GeobFrame parseGeobFrame(ParsableByteArray id3Data, int frameSize)
+  private static GeobFrame parseGeobFrame(byte[] data, int offset, int size)
       throws UnsupportedEncodingException {
-    int encoding = id3Data.readUnsignedByte();
+    int encoding = data[offset] & 0xFF;
     String charset = getCharsetName(encoding);
+    int start = offset + 1;
+    int limit = offset + size;
 
-    byte[] data = new byte[frameSize - 1];
-    id3Data.readBytes(data, 0, frameSize - 1);
-
-    int mimeTypeEndIndex = indexOfZeroByte(data, 0);
-    String mimeType = new String(data, 0, mimeTypeEndIndex, "ISO-8859-1");
+    int mimeTypeEndIndex = indexOfZeroByte(data, start, limit);
+    String mimeType = new String(data, start, mimeTypeEndIndex - start, "ISO-8859-1");
 
     int filenameStartIndex = mimeTypeEndIndex + 1;
-    int filenameEndIndex = indexOfEos(data, filenameStartIndex, encoding);
-    String filename = new String(data, filenameStartIndex, filenameEndIndex - filenameStartIndex,
-        charset);
+    int filenameEndIndex = indexOfEos(data, filenameStartIndex, limit, encoding);
+    String filename = decodeString(data, filenameStartIndex, filenameEndIndex, charset);
 
     int descriptionStartIndex = filenameEndIndex + delimiterLength(encoding);
-    int descriptionEndIndex = indexOfEos(data, descriptionStartIndex, encoding);
-    String description = new String(data, descriptionStartIndex,
-        descriptionEndIndex - descriptionStartIndex, charset);
+    int descriptionEndIndex = indexOfEos(data, descriptionStartIndex, limit, encoding);
+    String description = decodeString(data, descriptionStartIndex, descriptionEndIndex, charset);
 
     int objectDataStartIndex = descriptionEndIndex + delimiterLength(encoding);
-    byte[] objectData = Arrays.copyOfRange(data, objectDataStartIndex, data.length);
+    byte[] objectData = copyOfRange(data, objectDataStartIndex, limit);
 
     return new GeobFrame(mimeType, filename, description, objectData);
   }
 
-  private static ApicFrame parseApicFrame(ParsableByteArray id3Data, int frameSize)
+  private static ApicFrame parseApicFrame(byte[] data, int offset, int size)
       throws UnsupportedEncodingException {
-    int encoding = id3Data.readUnsignedByte();
+    int encoding = data[offset] & 0xFF;
     String charset = getCharsetName(encoding);
+    int start = offset + 1;
+    int limit = offset + size;
 
-    byte[] data = new byte[frameSize - 1];
-    id3Data.readBytes(data, 0, frameSize - 1);
-
-    int mimeTypeEndIndex = indexOfZeroByte(data, 0);
-    String mimeType = new String(data, 0, mimeTypeEndIndex, "ISO-8859-1");
+    int mimeTypeEndIndex = indexOfZeroByte(data, start, limit);
+    String mimeType = new String(data, start, mimeTypeEndIndex - start, "ISO-8859-1");
 
     int pictureType = data[mimeTypeEndIndex + 1] & 0xFF;
 
     int descriptionStartIndex = mimeTypeEndIndex + 2;
-    int descriptionEndIndex = indexOfEos(data, descriptionStartIndex, encoding);
-    String description = new String(data, descriptionStartIndex,
-        descriptionEndIndex - descriptionStartIndex, charset);
+    int descriptionEndIndex = indexOfEos(data, descriptionStartIndex, limit, encoding);
+    String description = decodeString(data, descriptionStartIndex, descriptionEndIndex, charset);
 
     int pictureDataStartIndex = descriptionEndIndex + delimiterLength(encoding);
-    byte[] pictureData = Arrays.copyOfRange(data, pictureDataStartIndex, data.length);
+    byte[] pictureData = copyOfRange(data, pictureDataStartIndex, limit);
 
     return new ApicFrame(mimeType, description, pictureType, pictureData);
   }
 
-  private static TextInformationFrame parseTextInformationFrame(ParsableByteArray id3Data,
-      int frameSize, String id) throws UnsupportedEncodingException {
-    int encoding = id3Data.readUnsignedByte();
+  private static TextInformationFrame parseTextInformationFrame(byte[] data, int offset,
+      int size, String id) throws UnsupportedEncodingException {
+    int encoding = data[offset] & 0xFF;
     String charset = getCharsetName(encoding);
+    int start = offset + 1;
 
-    byte[] data = new byte[frameSize - 1];
-    id3Data.readBytes(data, 0, frameSize - 1);
-
-    int descriptionEndIndex = indexOfEos(data, 0, encoding);
-    String description = new String(data, 0, descriptionEndIndex, charset);
+    int descriptionEndIndex = indexOfEos(data, start, offset + size, encoding);
+    String description = new String(data, start, descriptionEndIndex - start, charset);
 
     return new TextInformationFrame(id, description);
   }
 
-  private static BinaryFrame parseBinaryFrame(ParsableByteArray id3Data, int frameSize, String id) {
-    byte[] frame = new byte[frameSize];
-    id3Data.readBytes(frame, 0, frameSize);
+  private static BinaryFrame parseBinaryFrame(byte[] data, int offset, int size, String id) {
+    return new BinaryFrame(id, Arrays.copyOfRange(data, offset, offset + size));
+  }
+
+  private static String decodeString(byte[] data, int from, int to, String charset)
+      throws UnsupportedEncodingException {
+    return to <= from ? "" : new String(data, from, to - from, charset);
+  }
 
-    return new BinaryFrame(id, frame);
+  private static byte[] copyOfRange(byte[] data, int from, int to) {
+    return to <= from ? new byte[0] : Arrays.copyOfRange(data, from, to);
   }
 
   /**
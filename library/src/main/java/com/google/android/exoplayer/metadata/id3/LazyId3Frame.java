@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.metadata.id3;
+
+import com.google.android.exoplayer.ParserException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An ID3 frame whose payload has not been decoded.
+ * <p>
+ * The payload is held in an array that may be shared with other frames parsed from the same tag.
+ * It is only decoded when {@link #decode()} is called.
+ */
+public final class LazyId3Frame extends Id3Frame {
+
+  private final byte[] data;
+  private final int offset;
+  private final int size;
+
+  private Id3Frame decodedFrame;
+
+  /* package */ LazyId3Frame(String id, byte[] data, int offset, int size) {
+    super(id);
+    this.data = data;
+    this.offset = offset;
+    this.size = size;
+  }
+
+  /**
+   * Returns the size of the frame's payload in bytes.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns a read-only view of the frame's payload. The payload is not copied.
+   */
+  public ByteBuffer getData() {
+    return ByteBuffer.wrap(data, offset, size).slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Decodes the frame's payload. The result is cached, so the payload is decoded at most once.
+   *
+   * @return The decoded frame. For example, a {@link TxxxFrame} if the frame ID is
+   *     {@link TxxxFrame#ID}.
+   * @throws ParserException If the payload could not be decoded.
+   */
+  public synchronized Id3Frame decode() throws ParserException {
+    if (decodedFrame == null) {
+      decodedFrame = Id3Parser.decodeFrame(id, data, offset, size);
+    }
+    return decodedFrame;
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.smoothstreaming;
+
+import java.util.Arrays;
+
+/**
+ * An append-only, auto-growing table of chunk start times, stored as runs of equally spaced
+ * chunks.
+ * <p>
+ * A run is defined by the start time of its first chunk, the spacing of its chunks and the number
+ * of chunks that it contains. Consecutive chunks of equal duration are merged into a single run,
+ * so a stream element whose chunks have a constant duration occupies a few words, irrespective of
+ * the number of chunks that it contains. Start times are in the timescale of the stream element.
+ */
+/* package */ final class ChunkRunArray {
+
+  private static final int DEFAULT_INITIAL_CAPACITY = 4;
+
+  private int chunkCount;
+  private int runCount;
+  private int[] runStartIndices;
+  private long[] runStartTimes;
+  private long[] runDurations;
+
+  public ChunkRunArray() {
+    runStartIndices = new int[DEFAULT_INITIAL_CAPACITY];
+    runStartTimes = new long[DEFAULT_INITIAL_CAPACITY];
+    runDurations = new long[DEFAULT_INITIAL_CAPACITY];
+  }
+
+  /**
+   * Appends equally spaced chunks.
+   *
+   * @param startTime The start time of the first chunk.
+   * @param duration The duration of each chunk, or -1 if unknown. Must not be -1 if {@code count}
+   *     is greater than one.
+   * @param count The number of chunks to append.
+   */
+  public void add(long startTime, long duration, int count) {
+    if (runCount > 0) {
+      int lastRun = runCount - 1;
+      long lastRunDuration = runDurations[lastRun];
+      int lastRunCount = chunkCount - runStartIndices[lastRun];
+      if (duration != -1 && duration == lastRunDuration
+          && startTime == runStartTimes[lastRun] + lastRunCount * lastRunDuration) {
+        // The chunks continue the last run.
+        chunkCount += count;
+        return;
+      }
+    }
+    if (runCount == runStartTimes.length) {
+      int newCapacity = runCount * 2;
+      runStartIndices = Arrays.copyOf(runStartIndices, newCapacity);
+      runStartTimes = Arrays.copyOf(runStartTimes, newCapacity);
+      runDurations = Arrays.copyOf(runDurations, newCapacity);
+    }
+    runStartIndices[runCount] = chunkCount;
+    runStartTimes[runCount] = startTime;
+    runDurations[runCount] = duration;
+    runCount++;
+    chunkCount += count;
+  }
+
+  /**
+   * Gets the start time of a chunk.
+   *
+   * @param chunkIndex The index of the chunk.
+   * @return The start time of the chunk.
+   * @throws IndexOutOfBoundsException If the index is less than zero, or greater than or equal to
+   *     {@link #size()}
+   */
+  public long getStartTime(int chunkIndex) {
+    if (chunkIndex < 0 || chunkIndex >= chunkCount) {
+      throw new IndexOutOfBoundsException("Invalid index " + chunkIndex + ", size is "
+          + chunkCount);
+    }
+    int run = Arrays.binarySearch(runStartIndices, 0, runCount, chunkIndex);
+    if (run < 0) {
+      run = -(run + 2);
+    }
+    return runStartTimes[run] + (chunkIndex - runStartIndices[run]) * runDurations[run];
+  }
+
+  /**
+   * Gets the number of chunks.
+   *
+   * @return The number of chunks.
+   */
+  public int size() {
+    return chunkCount;
+  }
+
+  /**
+   * Gets the number of runs in which the chunks are stored.
+   *
+   * @return The number of runs.
+   */
+  public int getRunCount() {
+    return runCount;
+  }
+
+}
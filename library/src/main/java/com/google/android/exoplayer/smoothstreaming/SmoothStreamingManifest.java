@@ -174,14 +174,22 @@ public class SmoothStreamingManifest {
     private final String baseUri;
     private final String chunkTemplate;
 
-    private final List<Long> chunkStartTimes;
-    private final long[] chunkStartTimesUs;
+    private final ChunkRunArray chunkStartTimes;
     private final long lastChunkDurationUs;
 
     public StreamElement(String baseUri, String chunkTemplate, int type, String subType,
         long timescale, String name, int qualityLevels, int maxWidth, int maxHeight,
         int displayWidth, int displayHeight, String language, TrackElement[] tracks,
         List<Long> chunkStartTimes, long lastChunkDuration) {
+      this(baseUri, chunkTemplate, type, subType, timescale, name, qualityLevels, maxWidth,
+          maxHeight, displayWidth, displayHeight, language, tracks,
+          toChunkRunArray(chunkStartTimes, lastChunkDuration), lastChunkDuration);
+    }
+
+    /* package */ StreamElement(String baseUri, String chunkTemplate, int type, String subType,
+        long timescale, String name, int qualityLevels, int maxWidth, int maxHeight,
+        int displayWidth, int displayHeight, String language, TrackElement[] tracks,
+        ChunkRunArray chunkStartTimes, long lastChunkDuration) {
       this.baseUri = baseUri;
       this.chunkTemplate = chunkTemplate;
       this.type = type;
@@ -199,8 +207,6 @@ public class SmoothStreamingManifest {
       this.chunkStartTimes = chunkStartTimes;
       lastChunkDurationUs =
           Util.scaleLargeTimestamp(lastChunkDuration, C.MICROS_PER_SECOND, timescale);
-      chunkStartTimesUs =
-          Util.scaleLargeTimestamps(chunkStartTimes, C.MICROS_PER_SECOND, timescale);
     }
 
     /**
@@ -210,7 +216,18 @@ public class SmoothStreamingManifest {
      * @return The index of the corresponding chunk.
      */
     public int getChunkIndex(long timeUs) {
-      return Util.binarySearchFloor(chunkStartTimesUs, timeUs, true, true);
+      // Find the last chunk that starts at or before timeUs, or the first chunk if there is none.
+      int low = 0;
+      int high = chunkCount - 1;
+      while (low < high) {
+        int mid = (low + high + 1) >>> 1;
+        if (getStartTimeUs(mid) <= timeUs) {
+          low = mid;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return low;
     }
 
     /**
@@ -220,7 +237,8 @@ public class SmoothStreamingManifest {
      * @return The start time of the chunk, in microseconds.
      */
     public long getStartTimeUs(int chunkIndex) {
-      return chunkStartTimesUs[chunkIndex];
+      return Util.scaleLargeTimestamp(chunkStartTimes.getStartTime(chunkIndex),
+          C.MICROS_PER_SECOND, timescale);
     }
 
     /**
@@ -231,7 +249,7 @@ public class SmoothStreamingManifest {
      */
     public long getChunkDurationUs(int chunkIndex) {
       return (chunkIndex == chunkCount - 1) ? lastChunkDurationUs
-          : chunkStartTimesUs[chunkIndex + 1] - chunkStartTimesUs[chunkIndex];
+          : getStartTimeUs(chunkIndex + 1) - getStartTimeUs(chunkIndex);
     }
 
     /**
@@ -243,14 +261,27 @@ public class SmoothStreamingManifest {
      */
     public Uri buildRequestUri(int track, int chunkIndex) {
       Assertions.checkState(tracks != null);
-      Assertions.checkState(chunkStartTimes != null);
-      Assertions.checkState(chunkIndex < chunkStartTimes.size());
+      Assertions.checkState(chunkIndex < chunkCount);
       String chunkUrl = chunkTemplate
           .replace(URL_PLACEHOLDER_BITRATE, Integer.toString(tracks[track].format.bitrate))
-          .replace(URL_PLACEHOLDER_START_TIME, chunkStartTimes.get(chunkIndex).toString());
+          .replace(URL_PLACEHOLDER_START_TIME,
+              Long.toString(chunkStartTimes.getStartTime(chunkIndex)));
       return UriUtil.resolveToUri(baseUri, chunkUrl);
     }
 
+    private static ChunkRunArray toChunkRunArray(List<Long> chunkStartTimes,
+        long lastChunkDuration) {
+      ChunkRunArray chunkRunArray = new ChunkRunArray();
+      int chunkCount = chunkStartTimes.size();
+      for (int i = 0; i < chunkCount; i++) {
+        long startTime = chunkStartTimes.get(i);
+        long duration = i == chunkCount - 1 ? lastChunkDuration
+            : chunkStartTimes.get(i + 1) - startTime;
+        chunkRunArray.add(startTime, duration, 1);
+      }
+      return chunkRunArray;
+    }
+
   }
 
 }
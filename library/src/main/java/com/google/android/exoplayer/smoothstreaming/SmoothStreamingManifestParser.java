@@ -36,7 +36,6 @@ import org.xmlpull.v1.XmlPullParserFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 
@@ -98,7 +97,7 @@ public class SmoothStreamingManifestParser implements UriLoadable.Parser<SmoothS
       this.parent = parent;
       this.baseUri = baseUri;
       this.tag = tag;
-      this.normalizedAttributes = new LinkedList<>();
+      this.normalizedAttributes = new ArrayList<>();
     }
 
     public final Object parse(XmlPullParser xmlParser) throws XmlPullParserException, IOException,
@@ -345,7 +344,7 @@ public class SmoothStreamingManifestParser implements UriLoadable.Parser<SmoothS
       super(parent, baseUri, TAG);
       lookAheadCount = -1;
       protectionElement = null;
-      streamElements = new LinkedList<>();
+      streamElements = new ArrayList<>();
     }
 
     @Override
@@ -475,14 +474,15 @@ public class SmoothStreamingManifestParser implements UriLoadable.Parser<SmoothS
     private int displayWidth;
     private int displayHeight;
     private String language;
-    private ArrayList<Long> startTimes;
+    private ChunkRunArray startTimes;
 
+    private long lastChunkStartTime;
     private long lastChunkDuration;
 
     public StreamElementParser(ElementParser parent, String baseUri) {
       super(parent, baseUri, TAG);
       this.baseUri = baseUri;
-      tracks = new LinkedList<>();
+      tracks = new ArrayList<>();
     }
 
     @Override
@@ -500,32 +500,30 @@ public class SmoothStreamingManifestParser implements UriLoadable.Parser<SmoothS
     }
 
     private void parseStreamFragmentStartTag(XmlPullParser parser) throws ParserException {
-      int chunkIndex = startTimes.size();
       long startTime = parseLong(parser, KEY_FRAGMENT_START_TIME, -1L);
       if (startTime == -1L) {
-        if (chunkIndex == 0) {
+        if (startTimes.size() == 0) {
           // Assume the track starts at t = 0.
           startTime = 0;
         } else if (lastChunkDuration != -1L) {
           // Infer the start time from the previous chunk's start time and duration.
-          startTime = startTimes.get(chunkIndex - 1) + lastChunkDuration;
+          startTime = lastChunkStartTime + lastChunkDuration;
         } else {
           // We don't have the start time, and we're unable to infer it.
           throw new ParserException("Unable to infer start time");
         }
       }
-      chunkIndex++;
-      startTimes.add(startTime);
       lastChunkDuration = parseLong(parser, KEY_FRAGMENT_DURATION, -1L);
-      // Handle repeated chunks.
+      // Handle repeated chunks. They're appended as a single run, rather than one by one.
       long repeatCount = parseLong(parser, KEY_FRAGMENT_REPEAT_COUNT, 1L);
       if (repeatCount > 1 && lastChunkDuration == -1L) {
         throw new ParserException("Repeated chunk with unspecified duration");
+      } else if (repeatCount > Integer.MAX_VALUE - startTimes.size()) {
+        throw new ParserException("Invalid repeat count: " + repeatCount);
       }
-      for (int i = 1; i < repeatCount; i++) {
-        chunkIndex++;
-        startTimes.add(startTime + (lastChunkDuration * i));
-      }
+      int chunkCount = (int) Math.max(1, repeatCount);
+      startTimes.add(startTime, lastChunkDuration, chunkCount);
+      lastChunkStartTime = startTime + lastChunkDuration * (chunkCount - 1);
     }
 
     private void parseStreamElementStartTag(XmlPullParser parser) throws ParserException {
@@ -549,7 +547,7 @@ public class SmoothStreamingManifestParser implements UriLoadable.Parser<SmoothS
       if (timescale == -1) {
         timescale = (Long) getNormalizedAttribute(KEY_TIME_SCALE);
       }
-      startTimes = new ArrayList<>();
+      startTimes = new ChunkRunArray();
     }
 
     private int parseType(XmlPullParser parser) throws ParserException {
@@ -614,7 +612,7 @@ public class SmoothStreamingManifestParser implements UriLoadable.Parser<SmoothS
 
     public TrackElementParser(ElementParser parent, String baseUri) {
       super(parent, baseUri, TAG);
-      this.csd = new LinkedList<>();
+      this.csd = new ArrayList<>();
     }
 
     @Override
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.text;
+
+import com.google.android.exoplayer.util.Assertions;
+import com.google.android.exoplayer.util.Util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Maps times to the cues that should be displayed, for use by {@link Subtitle} implementations.
+ * <p>
+ * The index holds a sorted table of boundary times, at which the displayed cues may change, and
+ * the cues that should be displayed in each interval between consecutive boundaries. The cues are
+ * computed once when the index is built, so that {@link #getCues(long)} consists of a binary
+ * search and an array lookup, and does not allocate.
+ */
+public final class CueIntervalIndex {
+
+  /**
+   * Computes the cues that should be displayed at a given time.
+   */
+  public interface CueProvider {
+
+    /**
+     * Computes the cues that should be displayed at a given time.
+     *
+     * @param timeUs The time in microseconds.
+     * @return The cues that should be displayed, possibly empty.
+     */
+    List<Cue> getCues(long timeUs);
+
+  }
+
+  private final long[] boundaryTimesUs;
+  private final List<Cue>[] cues;
+
+  /**
+   * Builds an index by querying a {@link CueProvider} once for each interval.
+   *
+   * @param boundaryTimesUs The boundary times, in microseconds. The cues returned by
+   *     {@code cueProvider} must not change between consecutive boundaries. The array need not be
+   *     sorted, and may contain duplicates.
+   * @param cueProvider Computes the cues for each interval.
+   * @return The index.
+   */
+  public static CueIntervalIndex build(long[] boundaryTimesUs, CueProvider cueProvider) {
+    long[] sortedTimesUs = sortAndRemoveDuplicates(boundaryTimesUs);
+    List<Cue>[] cues = newCueListArray(sortedTimesUs.length + 1);
+    cues[0] = cueProvider.getCues(sortedTimesUs.length == 0 ? 0 : sortedTimesUs[0] - 1);
+    for (int i = 0; i < sortedTimesUs.length; i++) {
+      cues[i + 1] = cueProvider.getCues(sortedTimesUs[i]);
+    }
+    return new CueIntervalIndex(sortedTimesUs, cues);
+  }
+
+  /**
+   * @param boundaryTimesUs The boundary times, in microseconds. Must be sorted in ascending order
+   *     and must not contain duplicates.
+   * @param cues The cues to display in each interval, where {@code cues[0]} are displayed before
+   *     the first boundary and {@code cues[i + 1]} are displayed from {@code boundaryTimesUs[i]}
+   *     until the next boundary. The length must be one greater than that of
+   *     {@code boundaryTimesUs}.
+   */
+  public CueIntervalIndex(long[] boundaryTimesUs, List<Cue>[] cues) {
+    Assertions.checkArgument(cues.length == boundaryTimesUs.length + 1);
+    this.boundaryTimesUs = boundaryTimesUs;
+    this.cues = cues;
+    for (int i = 0; i < cues.length; i++) {
+      cues[i] = cues[i] == null || cues[i].isEmpty() ? Collections.<Cue>emptyList()
+          : Collections.unmodifiableList(cues[i]);
+    }
+  }
+
+  /**
+   * Returns the cues that should be displayed at a given time.
+   *
+   * @param timeUs The time in microseconds.
+   * @return An unmodifiable list of the cues that should be displayed, possibly empty.
+   */
+  public List<Cue> getCues(long timeUs) {
+    return cues[Util.binarySearchFloor(boundaryTimesUs, timeUs, true, false) + 1];
+  }
+
+  /**
+   * Returns a sorted copy of an array of times, with duplicate times removed.
+   *
+   * @param timesUs The times.
+   * @return The sorted times, without duplicates.
+   */
+  public static long[] sortAndRemoveDuplicates(long[] timesUs) {
+    long[] sortedTimesUs = Arrays.copyOf(timesUs, timesUs.length);
+    Arrays.sort(sortedTimesUs);
+    int count = 0;
+    for (int i = 0; i < sortedTimesUs.length; i++) {
+      if (count == 0 || sortedTimesUs[i] != sortedTimesUs[count - 1]) {
+        sortedTimesUs[count++] = sortedTimesUs[i];
+      }
+    }
+    return count == sortedTimesUs.length ? sortedTimesUs : Arrays.copyOf(sortedTimesUs, count);
+  }
+
+  /**
+   * Creates an array of cue lists.
+   *
+   * @param length The length of the array.
+   * @return The array.
+   */
+  @SuppressWarnings("unchecked")
+  public static List<Cue>[] newCueListArray(int length) {
+    return (List<Cue>[]) new List<?>[length];
+  }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.text;
+
+import com.google.android.exoplayer.util.Assertions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link Subtitle} that grows as consecutive segments of the underlying data are parsed.
+ * <p>
+ * Segments are appended in order of start time from the thread on which parsing occurs, and may be
+ * read concurrently from another thread. Cues that are active at the same time but that were
+ * parsed from different segments are returned as separate cues.
+ */
+/* package */ final class SegmentedSubtitle implements Subtitle {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private Subtitle[] segments;
+  private long[] segmentStartTimesUs;
+  private long[] segmentMaxEndTimesUs;
+  private int segmentCount;
+
+  private long[] eventTimesUs;
+  private int eventTimeCount;
+
+  public SegmentedSubtitle() {
+    segments = new Subtitle[INITIAL_CAPACITY];
+    segmentStartTimesUs = new long[INITIAL_CAPACITY];
+    segmentMaxEndTimesUs = new long[INITIAL_CAPACITY];
+    eventTimesUs = new long[0];
+  }
+
+  /**
+   * Appends a parsed segment.
+   *
+   * @param segment The parsed segment. The time of its first event should be greater than or equal
+   *     to that of any previously appended segment. If it is not then cues in the segment that
+   *     start earlier than the previously appended segment may not be returned by
+   *     {@link #getCues(long)}.
+   */
+  public synchronized void appendSegment(Subtitle segment) {
+    int segmentEventTimeCount = segment.getEventTimeCount();
+    if (segmentEventTimeCount == 0) {
+      return;
+    }
+    long startTimeUs = segment.getEventTime(0);
+    long endTimeUs = segment.getLastEventTime();
+    if (segmentCount > 0) {
+      startTimeUs = Math.max(startTimeUs, segmentStartTimesUs[segmentCount - 1]);
+      endTimeUs = Math.max(endTimeUs, segmentMaxEndTimesUs[segmentCount - 1]);
+    }
+    if (segmentCount == segments.length) {
+      int newCapacity = segmentCount * 2;
+      segments = Arrays.copyOf(segments, newCapacity);
+      segmentStartTimesUs = Arrays.copyOf(segmentStartTimesUs, newCapacity);
+      segmentMaxEndTimesUs = Arrays.copyOf(segmentMaxEndTimesUs, newCapacity);
+    }
+    segments[segmentCount] = segment;
+    segmentStartTimesUs[segmentCount] = startTimeUs;
+    segmentMaxEndTimesUs[segmentCount] = endTimeUs;
+    segmentCount++;
+    mergeEventTimes(segment, segmentEventTimeCount);
+  }
+
+  @Override
+  public synchronized int getNextEventTimeIndex(long timeUs) {
+    int index = Arrays.binarySearch(eventTimesUs, 0, eventTimeCount, timeUs);
+    index = index < 0 ? -(index + 1) : index + 1;
+    // Skip over any duplicates of the found time.
+    while (index < eventTimeCount && eventTimesUs[index] <= timeUs) {
+      index++;
+    }
+    return index < eventTimeCount ? index : -1;
+  }
+
+  @Override
+  public synchronized int getEventTimeCount() {
+    return eventTimeCount;
+  }
+
+  @Override
+  public synchronized long getEventTime(int index) {
+    Assertions.checkArgument(index >= 0);
+    Assertions.checkArgument(index < eventTimeCount);
+    return eventTimesUs[index];
+  }
+
+  @Override
+  public synchronized long getLastEventTime() {
+    return eventTimeCount == 0 ? -1 : eventTimesUs[eventTimeCount - 1];
+  }
+
+  @Override
+  public synchronized List<Cue> getCues(long timeUs) {
+    // Find the last segment that starts at or before timeUs.
+    int lastIndex = Arrays.binarySearch(segmentStartTimesUs, 0, segmentCount, timeUs);
+    if (lastIndex < 0) {
+      lastIndex = -(lastIndex + 2);
+    } else {
+      while (lastIndex + 1 < segmentCount && segmentStartTimesUs[lastIndex + 1] == timeUs) {
+        lastIndex++;
+      }
+    }
+    if (lastIndex < 0) {
+      return Collections.emptyList();
+    }
+    // Earlier segments can only contain active cues whilst their maximum end time is after timeUs.
+    int firstIndex = lastIndex;
+    while (firstIndex > 0 && segmentMaxEndTimesUs[firstIndex - 1] > timeUs) {
+      firstIndex--;
+    }
+    List<Cue> cues = null;
+    ArrayList<Cue> mergedCues = null;
+    for (int i = firstIndex; i <= lastIndex; i++) {
+      List<Cue> segmentCues = segments[i].getCues(timeUs);
+      if (segmentCues.isEmpty()) {
+        continue;
+      }
+      if (cues == null) {
+        cues = segmentCues;
+      } else {
+        if (mergedCues == null) {
+          mergedCues = new ArrayList<>(cues);
+          cues = mergedCues;
+        }
+        mergedCues.addAll(segmentCues);
+      }
+    }
+    return cues == null ? Collections.<Cue>emptyList() : cues;
+  }
+
+  private void mergeEventTimes(Subtitle segment, int segmentEventTimeCount) {
+    long[] mergedTimesUs = new long[eventTimeCount + segmentEventTimeCount];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < eventTimeCount && j < segmentEventTimeCount) {
+      long segmentTimeUs = segment.getEventTime(j);
+      if (eventTimesUs[i] <= segmentTimeUs) {
+        mergedTimesUs[k++] = eventTimesUs[i++];
+      } else {
+        mergedTimesUs[k++] = segmentTimeUs;
+        j++;
+      }
+    }
+    while (i < eventTimeCount) {
+      mergedTimesUs[k++] = eventTimesUs[i++];
+    }
+    while (j < segmentEventTimeCount) {
+      mergedTimesUs[k++] = segment.getEventTime(j++);
+    }
+    eventTimesUs = mergedTimesUs;
+    eventTimeCount = mergedTimesUs.length;
+  }
+
+}
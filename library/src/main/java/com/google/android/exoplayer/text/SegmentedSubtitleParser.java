@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.text;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.ParserException;
+
+/**
+ * A {@link SubtitleParser} for line based formats whose cues can be parsed independently of one
+ * another, allowing large subtitle files to be parsed incrementally.
+ * <p>
+ * The body of the data must consist of blocks separated by blank lines, where no cue spans more
+ * than one block. Any run of consecutive blocks is referred to as a segment.
+ */
+public interface SegmentedSubtitleParser extends SubtitleParser {
+
+  /**
+   * Validates and skips any header that precedes the first block.
+   *
+   * @param bytes The array holding the subtitle data.
+   * @param offset The offset of the subtitle data in bytes.
+   * @param length The length of the subtitle data in bytes.
+   * @return The offset of the first byte following the header.
+   * @throws ParserException If the header is invalid.
+   */
+  public int skipHeader(byte[] bytes, int offset, int length) throws ParserException;
+
+  /**
+   * Returns the start time of the first cue in a segment, without parsing the segment.
+   *
+   * @param bytes The array holding the subtitle data.
+   * @param offset The offset of the segment in bytes.
+   * @param length The length of the segment in bytes.
+   * @return The start time of the first cue in microseconds, or {@link C#UNKNOWN_TIME_US} if the
+   *     segment does not contain a valid cue.
+   */
+  public long peekCueStartTimeUs(byte[] bytes, int offset, int length);
+
+  /**
+   * Parses the cues in a segment.
+   *
+   * @param bytes The array holding the subtitle data.
+   * @param offset The offset of the segment in bytes.
+   * @param length The length of the segment in bytes.
+   * @return A parsed representation of the cues in the segment.
+   * @throws ParserException If a problem occurred parsing the segment.
+   */
+  public Subtitle parseCues(byte[] bytes, int offset, int length) throws ParserException;
+
+}
@@ -19,29 +19,35 @@ import com.google.android.exoplayer.MediaFormat;
 import com.google.android.exoplayer.ParserException;
 import com.google.android.exoplayer.SampleHolder;
 import com.google.android.exoplayer.util.Assertions;
-import com.google.android.exoplayer.util.Util;
 
 import android.media.MediaCodec;
-import android.os.Handler;
-import android.os.Looper;
-import android.os.Message;
 
 import java.io.IOException;
 
 /**
  * Wraps a {@link SubtitleParser}, exposing an interface similar to {@link MediaCodec} for
- * asynchronous parsing of subtitles.
+ * asynchronous parsing of subtitles. Parsing is performed by a {@link SubtitleParsingService},
+ * which may be shared with other helpers.
+ * <p>
+ * If the parser is a {@link SegmentedSubtitleParser} and a sample is larger than a single segment,
+ * the sample is parsed incrementally. Parsing starts from the segment containing the playback
+ * position, and the result is made available as soon as that segment has been parsed. The
+ * remaining segments are then parsed one at a time and appended to the result, and the helper
+ * continues to report that it is parsing until the whole sample has been parsed.
  */
-/* package */ final class SubtitleParserHelper implements Handler.Callback {
+/* package */ final class SubtitleParserHelper {
 
-  private static final int MSG_FORMAT = 0;
-  private static final int MSG_SAMPLE = 1;
+  /**
+   * The target size of the segments into which samples are divided for incremental parsing.
+   */
+  private static final int TARGET_SEGMENT_SIZE = 64 * 1024;
 
+  private final SubtitleParsingService service;
   private final SubtitleParser parser;
-  private final Handler handler;
 
   private SampleHolder sampleHolder;
   private boolean parsing;
+  private ParseJob pendingJob;
   private PlayableSubtitle result;
   private IOException error;
   private RuntimeException runtimeError;
@@ -50,11 +56,11 @@ import java.io.IOException;
   private long subtitleOffsetUs;
 
   /**
-   * @param looper The {@link Looper} associated with the thread on which parsing should occur.
+   * @param service The service that should be used to parse the raw data.
    * @param parser The parser that should be used to parse the raw data.
    */
-  public SubtitleParserHelper(Looper looper, SubtitleParser parser) {
-    this.handler = new Handler(looper, this);
+  public SubtitleParserHelper(SubtitleParsingService service, SubtitleParser parser) {
+    this.service = service;
     this.parser = parser;
     flush();
   }
@@ -63,6 +69,10 @@ import java.io.IOException;
    * Flushes the helper, canceling the current parsing operation, if there is one.
    */
   public synchronized void flush() {
+    if (pendingJob != null) {
+      service.cancel(pendingJob);
+      pendingJob = null;
+    }
     sampleHolder = new SampleHolder(SampleHolder.BUFFER_REPLACEMENT_MODE_NORMAL);
     parsing = false;
     result = null;
@@ -97,8 +107,9 @@ import java.io.IOException;
    *
    * @param format The format.
    */
-  public void setFormat(MediaFormat format) {
-    handler.obtainMessage(MSG_FORMAT, format).sendToTarget();
+  public synchronized void setFormat(MediaFormat format) {
+    subtitlesAreRelative = format.subsampleOffsetUs == MediaFormat.OFFSET_SAMPLE_RELATIVE;
+    subtitleOffsetUs = subtitlesAreRelative ? 0 : format.subsampleOffsetUs;
   }
 
   /**
@@ -108,13 +119,27 @@ import java.io.IOException;
    * parsed prior to calling this method.
    */
   public synchronized void startParseOperation() {
+    startParseOperation(sampleHolder.timeUs);
+  }
+
+  /**
+   * Start a parsing operation.
+   * <p>
+   * The holder returned by {@link #getSampleHolder()} should be populated with the data to be
+   * parsed prior to calling this method.
+   *
+   * @param positionUs The current playback position. If the sample is parsed incrementally, the
+   *     cues displayed at this position are parsed first.
+   */
+  public synchronized void startParseOperation(long positionUs) {
     Assertions.checkState(!parsing);
     parsing = true;
     result = null;
     error = null;
     runtimeError = null;
-    handler.obtainMessage(MSG_SAMPLE, Util.getTopInt(sampleHolder.timeUs),
-        Util.getBottomInt(sampleHolder.timeUs), sampleHolder).sendToTarget();
+    PlayableSubtitleFactory factory = new PlayableSubtitleFactory(sampleHolder.timeUs,
+        subtitlesAreRelative, subtitleOffsetUs);
+    submit(new ParseJob(sampleHolder, factory, positionUs));
   }
 
   /**
@@ -142,48 +167,183 @@ import java.io.IOException;
     }
   }
 
-  @Override
-  public boolean handleMessage(Message msg) {
-    switch (msg.what) {
-      case MSG_FORMAT:
-        handleFormat((MediaFormat) msg.obj);
-        break;
-      case MSG_SAMPLE:
-        long sampleTimeUs = Util.getLong(msg.arg1, msg.arg2);
-        SampleHolder holder = (SampleHolder) msg.obj;
-        handleSample(sampleTimeUs, holder);
-        break;
-    }
-    return true;
-  }
-
-  private void handleFormat(MediaFormat format) {
-    subtitlesAreRelative = format.subsampleOffsetUs == MediaFormat.OFFSET_SAMPLE_RELATIVE;
-    subtitleOffsetUs = subtitlesAreRelative ? 0 : format.subsampleOffsetUs;
+  private void submit(ParseJob job) {
+    pendingJob = job;
+    service.submit(job, job.factory.sampleTimeUs);
   }
 
-  private void handleSample(long sampleTimeUs, SampleHolder holder) {
+  private void handleSample(ParseJob job) {
+    SampleHolder holder = job.holder;
+    PlayableSubtitleFactory factory = job.factory;
     Subtitle parsedSubtitle = null;
+    SegmentedParseOperation segmentedParseOperation = null;
     ParserException error = null;
     RuntimeException runtimeError = null;
     try {
-      parsedSubtitle = parser.parse(holder.data.array(), 0, holder.size);
+      if (parser instanceof SegmentedSubtitleParser && holder.size > TARGET_SEGMENT_SIZE) {
+        long offsetUs = (factory.subtitlesAreRelative ? factory.sampleTimeUs : 0)
+            + factory.subtitleOffsetUs;
+        segmentedParseOperation = startSegmentedParse(holder, job.positionUs - offsetUs);
+      }
+      if (segmentedParseOperation != null) {
+        parsedSubtitle = segmentedParseOperation.subtitle;
+        parseNextSegment(segmentedParseOperation);
+      } else {
+        parsedSubtitle = parser.parse(holder.data.array(), 0, holder.size);
+      }
     } catch (ParserException e) {
       error = e;
     } catch (RuntimeException e) {
       runtimeError = e;
     }
     synchronized (this) {
-      if (sampleHolder != holder) {
-        // A flush has occurred since this holder was posted. Do nothing.
+      if (pendingJob != job) {
+        // A flush has occurred since this job was submitted. Do nothing.
       } else {
-        this.result = new PlayableSubtitle(parsedSubtitle, subtitlesAreRelative, sampleTimeUs,
-            subtitleOffsetUs);
+        pendingJob = null;
+        this.result = factory.createPlayableSubtitle(parsedSubtitle);
+        this.error = error;
+        this.runtimeError = runtimeError;
+        if (error == null && runtimeError == null && segmentedParseOperation != null
+            && segmentedParseOperation.hasNextSegment()) {
+          submit(new ParseJob(job, segmentedParseOperation));
+        } else {
+          this.parsing = false;
+        }
+      }
+    }
+  }
+
+  private void handleSegment(ParseJob job) {
+    SegmentedParseOperation operation = job.operation;
+    ParserException error = null;
+    RuntimeException runtimeError = null;
+    try {
+      parseNextSegment(operation);
+    } catch (ParserException e) {
+      error = e;
+    } catch (RuntimeException e) {
+      runtimeError = e;
+    }
+    synchronized (this) {
+      if (pendingJob != job) {
+        // A flush has occurred since this job was submitted. Do nothing.
+      } else if (error != null || runtimeError != null || !operation.hasNextSegment()) {
+        pendingJob = null;
         this.error = error;
         this.runtimeError = runtimeError;
         this.parsing = false;
+      } else {
+        submit(new ParseJob(job, operation));
       }
     }
   }
 
+  /**
+   * Indexes the segments of a sample, returning an operation that starts from the segment
+   * containing the specified time, or null if the sample should be parsed in one go.
+   */
+  private SegmentedParseOperation startSegmentedParse(SampleHolder holder, long timeUs)
+      throws ParserException {
+    SegmentedSubtitleParser segmentedParser = (SegmentedSubtitleParser) parser;
+    SubtitleSegmentIndex index = SubtitleSegmentIndex.build(segmentedParser, holder.data.array(),
+        0, holder.size, TARGET_SEGMENT_SIZE);
+    if (index.getSegmentCount() == 1 || !index.isOrdered()) {
+      // Segments of unordered data cannot be parsed independently.
+      return null;
+    }
+    return new SegmentedParseOperation(holder, index, index.getSegmentIndex(timeUs));
+  }
+
+  private void parseNextSegment(SegmentedParseOperation operation) throws ParserException {
+    SubtitleSegmentIndex index = operation.index;
+    int segmentIndex = operation.nextSegmentIndex++;
+    Subtitle segment = ((SegmentedSubtitleParser) parser).parseCues(operation.holder.data.array(),
+        index.getOffset(segmentIndex), index.getLength(segmentIndex));
+    operation.subtitle.appendSegment(segment);
+  }
+
+  private final class ParseJob extends SubtitleParsingService.Job {
+
+    public final SampleHolder holder;
+    public final PlayableSubtitleFactory factory;
+    public final long positionUs;
+    public final SegmentedParseOperation operation;
+
+    /**
+     * Creates a job that parses a sample, or the first segment of a sample.
+     */
+    public ParseJob(SampleHolder holder, PlayableSubtitleFactory factory, long positionUs) {
+      this.holder = holder;
+      this.factory = factory;
+      this.positionUs = positionUs;
+      this.operation = null;
+    }
+
+    /**
+     * Creates a job that parses the next segment of a sample.
+     */
+    public ParseJob(ParseJob previousJob, SegmentedParseOperation operation) {
+      this.holder = previousJob.holder;
+      this.factory = previousJob.factory;
+      this.positionUs = previousJob.positionUs;
+      this.operation = operation;
+    }
+
+    @Override
+    protected void parse() {
+      if (operation == null) {
+        handleSample(this);
+      } else {
+        handleSegment(this);
+      }
+    }
+
+  }
+
+  /**
+   * The timing information needed to create a {@link PlayableSubtitle}, captured when parsing of
+   * the corresponding sample is started.
+   */
+  private static final class PlayableSubtitleFactory {
+
+    public final long sampleTimeUs;
+    public final boolean subtitlesAreRelative;
+    public final long subtitleOffsetUs;
+
+    public PlayableSubtitleFactory(long sampleTimeUs, boolean subtitlesAreRelative,
+        long subtitleOffsetUs) {
+      this.sampleTimeUs = sampleTimeUs;
+      this.subtitlesAreRelative = subtitlesAreRelative;
+      this.subtitleOffsetUs = subtitleOffsetUs;
+    }
+
+    public PlayableSubtitle createPlayableSubtitle(Subtitle subtitle) {
+      return new PlayableSubtitle(subtitle, subtitlesAreRelative, sampleTimeUs, subtitleOffsetUs);
+    }
+
+  }
+
+  private static final class SegmentedParseOperation {
+
+    public final SampleHolder holder;
+    public final SubtitleSegmentIndex index;
+    public final SegmentedSubtitle subtitle;
+
+    public int nextSegmentIndex;
+
+    public SegmentedParseOperation(SampleHolder holder, SubtitleSegmentIndex index,
+        int firstSegmentIndex) {
+      this.holder = holder;
+      this.index = index;
+      this.nextSegmentIndex = firstSegmentIndex;
+      subtitle = new SegmentedSubtitle();
+    }
+
+    public boolean hasNextSegment() {
+      return nextSegmentIndex < index.getSegmentCount();
+    }
+
+  }
+
 }
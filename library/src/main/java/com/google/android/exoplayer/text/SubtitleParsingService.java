@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.text;
+
+import com.google.android.exoplayer.util.SlidingPercentile;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parses subtitles for any number of {@link TextTrackRenderer}s on a small pool of worker threads.
+ * <p>
+ * Each renderer has at most one parsing job queued or running at a time, so jobs for different
+ * renderers run in parallel whilst jobs for the same renderer run in order. Queued jobs are run in
+ * order of increasing media time, so that the subtitle needed soonest is parsed first. Jobs are
+ * removed from the queue when their renderer is flushed or disabled, so only jobs for enabled
+ * tracks are run. Worker threads are started on demand, and stop when they have been idle for a
+ * while.
+ */
+public final class SubtitleParsingService {
+
+  /**
+   * The default number of worker threads.
+   */
+  public static final int DEFAULT_THREAD_COUNT = 2;
+
+  private static final int KEEP_ALIVE_TIME_MS = 5000;
+  private static final int MAX_LATENCY_SAMPLES = 100;
+
+  private static SubtitleParsingService defaultInstance;
+
+  private final ThreadPoolExecutor executor;
+  private final AtomicInteger jobSequenceNumber;
+  private final SlidingPercentile jobLatenciesMs;
+
+  private int maxQueuedJobCount;
+
+  /**
+   * Returns a service with {@link #DEFAULT_THREAD_COUNT} threads, which is shared by all renderers
+   * that are not given a service explicitly.
+   */
+  public static synchronized SubtitleParsingService getDefault() {
+    if (defaultInstance == null) {
+      defaultInstance = new SubtitleParsingService(DEFAULT_THREAD_COUNT);
+    }
+    return defaultInstance;
+  }
+
+  /**
+   * @param threadCount The maximum number of subtitles to parse in parallel.
+   */
+  public SubtitleParsingService(int threadCount) {
+    final AtomicInteger threadCounter = new AtomicInteger();
+    executor = new ThreadPoolExecutor(threadCount, threadCount, KEEP_ALIVE_TIME_MS,
+        TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "textParser:" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    jobSequenceNumber = new AtomicInteger();
+    jobLatenciesMs = new SlidingPercentile(MAX_LATENCY_SAMPLES);
+  }
+
+  /**
+   * Returns the number of jobs waiting for a worker thread.
+   */
+  public int getQueuedJobCount() {
+    return executor.getQueue().size();
+  }
+
+  /**
+   * Returns the maximum number of jobs that have been waiting for a worker thread at one time.
+   */
+  public synchronized int getMaxQueuedJobCount() {
+    return maxQueuedJobCount;
+  }
+
+  /**
+   * Returns a percentile of the latency of recently completed jobs, measured from when each job
+   * was submitted until it completed.
+   *
+   * @param percentile The desired percentile, expressed as a fraction in the range (0,1].
+   * @return The percentile in milliseconds, or {@link Float#NaN} if no jobs have completed.
+   */
+  public synchronized float getJobLatencyPercentileMs(float percentile) {
+    return jobLatenciesMs.getPercentile(percentile);
+  }
+
+  /**
+   * Submits a job to be run on a worker thread. Returns without blocking.
+   *
+   * @param job The job.
+   * @param timeUs The media time of the subtitle being parsed, in microseconds.
+   */
+  /* package */ void submit(Job job, long timeUs) {
+    job.service = this;
+    job.timeUs = timeUs;
+    job.sequenceNumber = jobSequenceNumber.getAndIncrement();
+    job.submitTimeMs = SystemClock.elapsedRealtime();
+    executor.execute(job);
+    int queuedJobCount = executor.getQueue().size();
+    synchronized (this) {
+      maxQueuedJobCount = Math.max(maxQueuedJobCount, queuedJobCount);
+    }
+  }
+
+  /**
+   * Removes a job from the queue if it has not started running. A job that has started running
+   * is not interrupted.
+   *
+   * @param job The job.
+   */
+  /* package */ void cancel(Job job) {
+    executor.remove(job);
+  }
+
+  private synchronized void onJobCompleted(Job job) {
+    jobLatenciesMs.addSample(1, SystemClock.elapsedRealtime() - job.submitTimeMs);
+  }
+
+  /**
+   * A parsing job.
+   */
+  /* package */ abstract static class Job implements Runnable, Comparable<Job> {
+
+    private SubtitleParsingService service;
+    private long timeUs;
+    private int sequenceNumber;
+    private long submitTimeMs;
+
+    @Override
+    public final void run() {
+      try {
+        parse();
+      } finally {
+        service.onJobCompleted(this);
+      }
+    }
+
+    @Override
+    public final int compareTo(Job other) {
+      if (timeUs != other.timeUs) {
+        return timeUs < other.timeUs ? -1 : 1;
+      }
+      return sequenceNumber - other.sequenceNumber;
+    }
+
+    /**
+     * Performs the job.
+     */
+    protected abstract void parse();
+
+  }
+
+}
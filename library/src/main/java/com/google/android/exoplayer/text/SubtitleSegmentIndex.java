@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.text;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.ParserException;
+
+import java.util.Arrays;
+
+/**
+ * Divides the data of a subtitle into segments of roughly equal size, each of which consists of
+ * whole blocks, and records the start time of the first cue in each segment.
+ * <p>
+ * Building the index requires a single scan of the data for blank lines, and the parsing of one
+ * cue timing per segment.
+ */
+/* package */ final class SubtitleSegmentIndex {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final int segmentCount;
+  private final int[] offsets;
+  private final long[] startTimesUs;
+  private final boolean ordered;
+
+  /**
+   * Builds an index.
+   *
+   * @param parser The parser for the subtitle data.
+   * @param bytes The array holding the subtitle data.
+   * @param offset The offset of the subtitle data in bytes.
+   * @param length The length of the subtitle data in bytes.
+   * @param targetSegmentSize The target size of each segment in bytes.
+   * @return The index.
+   * @throws ParserException If the header of the subtitle data is invalid.
+   */
+  public static SubtitleSegmentIndex build(SegmentedSubtitleParser parser, byte[] bytes,
+      int offset, int length, int targetSegmentSize) throws ParserException {
+    int limit = offset + length;
+    int segmentCount = 0;
+    int[] offsets = new int[INITIAL_CAPACITY];
+    long[] startTimesUs = new long[INITIAL_CAPACITY];
+    boolean ordered = true;
+    long previousStartTimeUs = Long.MIN_VALUE;
+    int position = parser.skipHeader(bytes, offset, length);
+    do {
+      int segmentEnd = findBlockBoundary(bytes, Math.min(position + targetSegmentSize, limit),
+          limit);
+      long startTimeUs = parser.peekCueStartTimeUs(bytes, position, segmentEnd - position);
+      if (startTimeUs == C.UNKNOWN_TIME_US) {
+        // The segment doesn't contain any cues.
+        startTimeUs = previousStartTimeUs;
+      } else if (startTimeUs < previousStartTimeUs) {
+        ordered = false;
+      }
+      if (segmentCount + 1 == offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        startTimesUs = Arrays.copyOf(startTimesUs, startTimesUs.length * 2);
+      }
+      offsets[segmentCount] = position;
+      startTimesUs[segmentCount] = startTimeUs;
+      segmentCount++;
+      previousStartTimeUs = startTimeUs;
+      position = segmentEnd;
+    } while (position < limit);
+    offsets[segmentCount] = limit;
+    return new SubtitleSegmentIndex(segmentCount, offsets, startTimesUs, ordered);
+  }
+
+  private SubtitleSegmentIndex(int segmentCount, int[] offsets, long[] startTimesUs,
+      boolean ordered) {
+    this.segmentCount = segmentCount;
+    this.offsets = offsets;
+    this.startTimesUs = startTimesUs;
+    this.ordered = ordered;
+  }
+
+  /**
+   * Returns the number of segments.
+   */
+  public int getSegmentCount() {
+    return segmentCount;
+  }
+
+  /**
+   * Returns whether the start times of the segments are in ascending order. If they are not, the
+   * cues in the data are not ordered by start time and the segments cannot be parsed independently.
+   */
+  public boolean isOrdered() {
+    return ordered;
+  }
+
+  /**
+   * Returns the offset of a segment in bytes.
+   */
+  public int getOffset(int segmentIndex) {
+    return offsets[segmentIndex];
+  }
+
+  /**
+   * Returns the length of a segment in bytes.
+   */
+  public int getLength(int segmentIndex) {
+    return offsets[segmentIndex + 1] - offsets[segmentIndex];
+  }
+
+  /**
+   * Returns the index of the segment from which parsing should start in order to obtain the cues
+   * displayed at a given time.
+   * <p>
+   * The segment containing the time is the last segment that starts strictly before it. Parsing
+   * starts one segment earlier, so that cues that start in the preceding segment and are still
+   * displayed at the time are obtained too.
+   *
+   * @param timeUs The time in microseconds.
+   * @return The index of the segment.
+   */
+  public int getSegmentIndex(long timeUs) {
+    if (!ordered) {
+      return 0;
+    }
+    // Find the first segment that starts at or after timeUs.
+    int low = 0;
+    int high = segmentCount;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (startTimesUs[mid] < timeUs) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return Math.max(0, low - 2);
+  }
+
+  /**
+   * Returns the offset following the first blank line at or after a given position, or the limit
+   * if there is no such blank line.
+   */
+  /* package */ static int findBlockBoundary(byte[] bytes, int position, int limit) {
+    for (int i = position; i < limit; i++) {
+      if (bytes[i] != '\n') {
+        continue;
+      }
+      int next = i + 1;
+      if (next < limit && bytes[next] == '\r') {
+        next++;
+      }
+      if (next < limit && bytes[next] == '\n') {
+        return next + 1;
+      }
+    }
+    return limit;
+  }
+
+}
@@ -27,7 +27,6 @@ import com.google.android.exoplayer.util.Assertions;
 import android.annotation.TargetApi;
 import android.os.Handler;
 import android.os.Handler.Callback;
-import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
 
@@ -114,14 +113,15 @@ public final class TextTrackRenderer extends SampleSourceTrackRenderer implement
   private final TextRenderer textRenderer;
   private final MediaFormatHolder formatHolder;
   private final SubtitleParser[] subtitleParsers;
+  private final SubtitleParsingService parsingService;
 
   private int parserIndex;
   private boolean inputStreamEnded;
   private PlayableSubtitle subtitle;
   private PlayableSubtitle nextSubtitle;
   private SubtitleParserHelper parserHelper;
-  private HandlerThread parserThread;
   private int nextSubtitleEventIndex;
+  private int subtitleEventTimeCount;
 
   /**
    * @param source A source from which samples containing subtitle data can be read.
@@ -152,7 +152,28 @@ public final class TextTrackRenderer extends SampleSourceTrackRenderer implement
    */
   public TextTrackRenderer(SampleSource[] sources, TextRenderer textRenderer,
       Looper textRendererLooper, SubtitleParser... subtitleParsers) {
+    this(sources, textRenderer, textRendererLooper, SubtitleParsingService.getDefault(),
+        subtitleParsers);
+  }
+
+  /**
+   * @param sources Sources from which samples containing subtitle data can be read.
+   * @param textRenderer The text renderer.
+   * @param textRendererLooper The looper associated with the thread on which textRenderer should be
+   *     invoked. If the renderer makes use of standard Android UI components, then this should
+   *     normally be the looper associated with the applications' main thread, which can be
+   *     obtained using {@link android.app.Activity#getMainLooper()}. Null may be passed if the
+   *     renderer should be invoked directly on the player's internal rendering thread.
+   * @param parsingService The service on which subtitles should be parsed. The service may be
+   *     shared with other renderers.
+   * @param subtitleParsers {@link SubtitleParser}s to parse text samples, in order of decreasing
+   *     priority. If omitted, the default parsers will be used.
+   */
+  public TextTrackRenderer(SampleSource[] sources, TextRenderer textRenderer,
+      Looper textRendererLooper, SubtitleParsingService parsingService,
+      SubtitleParser... subtitleParsers) {
     super(sources);
+    this.parsingService = Assertions.checkNotNull(parsingService);
     this.textRenderer = Assertions.checkNotNull(textRenderer);
     this.textRendererHandler = textRendererLooper == null ? null
         : new Handler(textRendererLooper, this);
@@ -182,9 +203,7 @@ public final class TextTrackRenderer extends SampleSourceTrackRenderer implement
       throws ExoPlaybackException {
     super.onEnabled(track, positionUs, joining);
     parserIndex = getParserIndex(getFormat(track));
-    parserThread = new HandlerThread("textParser");
-    parserThread.start();
-    parserHelper = new SubtitleParserHelper(parserThread.getLooper(), subtitleParsers[parserIndex]);
+    parserHelper = new SubtitleParserHelper(parsingService, subtitleParsers[parserIndex]);
   }
 
   @Override
@@ -216,6 +235,13 @@ public final class TextTrackRenderer extends SampleSourceTrackRenderer implement
     boolean textRendererNeedsUpdate = false;
     long subtitleNextEventTimeUs = Long.MAX_VALUE;
     if (subtitle != null) {
+      if (subtitle.getEventTimeCount() != subtitleEventTimeCount) {
+        // The subtitle is being parsed incrementally and has grown. Sync the next event index and
+        // trigger an update, in case the new events affect the current cues.
+        subtitleEventTimeCount = subtitle.getEventTimeCount();
+        nextSubtitleEventIndex = subtitle.getNextEventTimeIndex(positionUs);
+        textRendererNeedsUpdate = true;
+      }
       // We're iterating through the events in a subtitle. Set textRendererNeedsUpdate if we
       // advance to the next event.
       subtitleNextEventTimeUs = getNextEventTime();
@@ -230,6 +256,7 @@ public final class TextTrackRenderer extends SampleSourceTrackRenderer implement
       // Advance to the next subtitle. Sync the next event index and trigger an update.
       subtitle = nextSubtitle;
       nextSubtitle = null;
+      subtitleEventTimeCount = subtitle.getEventTimeCount();
       nextSubtitleEventIndex = subtitle.getNextEventTimeIndex(positionUs);
       textRendererNeedsUpdate = true;
     }
@@ -247,19 +274,32 @@ public final class TextTrackRenderer extends SampleSourceTrackRenderer implement
       if (result == SampleSource.FORMAT_READ) {
         parserHelper.setFormat(formatHolder.format);
       } else if (result == SampleSource.SAMPLE_READ) {
-        parserHelper.startParseOperation();
+        parserHelper.startParseOperation(positionUs);
       } else if (result == SampleSource.END_OF_STREAM) {
         inputStreamEnded = true;
       }
     }
   }
 
+  @Override
+  protected long getMaxWakeupDelayUs(long positionUs, long elapsedRealtimeUs) {
+    if (!inputStreamEnded && nextSubtitle == null) {
+      // We're waiting for the next subtitle to be read and parsed.
+      return 0;
+    }
+    long nextEventTimeUs = subtitle == null ? Long.MAX_VALUE : getNextEventTime();
+    if (nextSubtitle != null) {
+      nextEventTimeUs = Math.min(nextEventTimeUs, nextSubtitle.startTimeUs);
+    }
+    return nextEventTimeUs == Long.MAX_VALUE ? Long.MAX_VALUE
+        : Math.max(0, nextEventTimeUs - positionUs);
+  }
+
   @Override
   protected void onDisabled() throws ExoPlaybackException {
     subtitle = null;
     nextSubtitle = null;
-    parserThread.quit();
-    parserThread = null;
+    parserHelper.flush();
     parserHelper = null;
     clearTextRenderer();
     super.onDisabled();
@@ -273,7 +313,9 @@ public final class TextTrackRenderer extends SampleSourceTrackRenderer implement
 
   @Override
   protected boolean isEnded() {
-    return inputStreamEnded && (subtitle == null || getNextEventTime() == Long.MAX_VALUE);
+    // If the helper is still parsing then the current subtitle may still grow.
+    return inputStreamEnded && !parserHelper.isParsing()
+        && (subtitle == null || getNextEventTime() == Long.MAX_VALUE);
   }
 
   @Override
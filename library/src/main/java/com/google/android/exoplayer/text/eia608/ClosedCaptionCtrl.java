@@ -15,7 +15,10 @@
  */
 package com.google.android.exoplayer.text.eia608;
 
-/* package */ final class ClosedCaptionCtrl extends ClosedCaption {
+/**
+ * Constants and predicates for EIA-608 control codes, each of which consists of a pair of bytes.
+ */
+/* package */ final class ClosedCaptionCtrl {
 
   /**
    * The receipt of the {@link #RESUME_CAPTION_LOADING} command initiates pop-on style captioning.
@@ -69,32 +72,25 @@ package com.google.android.exoplayer.text.eia608;
   public static final byte TAB_OFFSET_CHAN_1 = 0x17;
   public static final byte TAB_OFFSET_CHAN_2 = 0x1F;
 
-  public final byte cc1;
-  public final byte cc2;
-
-  protected ClosedCaptionCtrl(byte cc1, byte cc2) {
-    super(ClosedCaption.TYPE_CTRL);
-    this.cc1 = cc1;
-    this.cc2 = cc2;
-  }
+  private ClosedCaptionCtrl() {}
 
-  public boolean isMidRowCode() {
+  public static boolean isMidRowCode(byte cc1, byte cc2) {
     return (cc1 == MID_ROW_CHAN_1 || cc1 == MID_ROW_CHAN_2) && (cc2 >= 0x20 && cc2 <= 0x2F);
   }
 
-  public boolean isMiscCode() {
+  public static boolean isMiscCode(byte cc1, byte cc2) {
     return (cc1 == MISC_CHAN_1 || cc1 == MISC_CHAN_2) && (cc2 >= 0x20 && cc2 <= 0x2F);
   }
 
-  public boolean isTabOffsetCode() {
+  public static boolean isTabOffsetCode(byte cc1, byte cc2) {
     return (cc1 == TAB_OFFSET_CHAN_1 || cc1 == TAB_OFFSET_CHAN_2) && (cc2 >= 0x21 && cc2 <= 0x23);
   }
 
-  public boolean isPreambleAddressCode() {
+  public static boolean isPreambleAddressCode(byte cc1, byte cc2) {
     return (cc1 >= 0x10 && cc1 <= 0x1F) && (cc2 >= 0x40 && cc2 <= 0x7F);
   }
 
-  public boolean isRepeatable() {
+  public static boolean isRepeatable(byte cc1) {
     return cc1 >= 0x10 && cc1 <= 0x1F;
   }
 
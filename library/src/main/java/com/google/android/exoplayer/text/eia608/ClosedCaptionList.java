@@ -15,25 +15,76 @@
  */
 package com.google.android.exoplayer.text.eia608;
 
-/* package */ final class ClosedCaptionList implements Comparable<ClosedCaptionList> {
+import java.util.Arrays;
 
-  public final long timeUs;
-  public final boolean decodeOnly;
-  public final ClosedCaption[] captions;
+/**
+ * A reusable list of the characters and control codes decoded from a single caption sample.
+ * <p>
+ * Entries are held in a primitive array, so that a list can be refilled for each sample without
+ * allocating. A character is stored as its value. A control code is stored as its two bytes, with
+ * a flag bit set that distinguishes it from a character.
+ */
+/* package */ final class ClosedCaptionList {
+
+  // A sample contains up to 31 byte pairs, each of which decodes to at most two entries.
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int CTRL_FLAG = 1 << 16;
+
+  public long timeUs;
+  public boolean decodeOnly;
+
+  private int[] entries;
+  private int size;
+
+  public ClosedCaptionList() {
+    entries = new int[INITIAL_CAPACITY];
+  }
 
-  public ClosedCaptionList(long timeUs, boolean decodeOnly, ClosedCaption[] captions) {
+  /**
+   * Clears the list and sets its attributes.
+   *
+   * @param timeUs The presentation time of the sample from which the list is decoded.
+   * @param decodeOnly Whether the sample was marked as decode only.
+   */
+  public void reset(long timeUs, boolean decodeOnly) {
     this.timeUs = timeUs;
     this.decodeOnly = decodeOnly;
-    this.captions = captions;
+    size = 0;
+  }
+
+  public void addChar(char value) {
+    add(value);
+  }
+
+  public void addCtrl(byte cc1, byte cc2) {
+    add(CTRL_FLAG | ((cc1 & 0xFF) << 8) | (cc2 & 0xFF));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isCtrl(int index) {
+    return (entries[index] & CTRL_FLAG) != 0;
+  }
+
+  public char getChar(int index) {
+    return (char) entries[index];
+  }
+
+  public byte getCc1(int index) {
+    return (byte) (entries[index] >> 8);
+  }
+
+  public byte getCc2(int index) {
+    return (byte) entries[index];
   }
 
-  @Override
-  public int compareTo(ClosedCaptionList other) {
-    long delta = timeUs - other.timeUs;
-    if (delta == 0) {
-      return 0;
+  private void add(int entry) {
+    if (size == entries.length) {
+      entries = Arrays.copyOf(entries, size * 2);
     }
-    return delta > 0 ? 1 : -1;
+    entries[size++] = entry;
   }
 
 }
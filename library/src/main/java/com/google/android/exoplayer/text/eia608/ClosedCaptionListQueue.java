@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.text.eia608;
+
+import java.util.Arrays;
+
+/**
+ * A queue of {@link ClosedCaptionList}s ordered by time, together with a pool of lists that are
+ * not in use.
+ * <p>
+ * Pending lists are held in a ring buffer. Samples normally arrive in presentation order, or
+ * close to it, so insertion rarely moves more than a few entries. As with a sorted set, a list
+ * whose time equals that of a pending list is discarded. Lists are only allocated when the pool is
+ * empty, so the number allocated is bounded by the maximum number pending at any one time.
+ */
+/* package */ final class ClosedCaptionListQueue {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private ClosedCaptionList[] pending;
+  private int pendingStart;
+  private int pendingCount;
+
+  private ClosedCaptionList[] pool;
+  private int poolCount;
+
+  public ClosedCaptionListQueue() {
+    pending = new ClosedCaptionList[INITIAL_CAPACITY];
+    pool = new ClosedCaptionList[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Obtains a list from the pool, allocating a new list if the pool is empty.
+   */
+  public ClosedCaptionList obtain() {
+    return poolCount == 0 ? new ClosedCaptionList() : pool[--poolCount];
+  }
+
+  /**
+   * Returns a list to the pool.
+   */
+  public void release(ClosedCaptionList list) {
+    if (poolCount == pool.length) {
+      pool = Arrays.copyOf(pool, poolCount * 2);
+    }
+    pool[poolCount++] = list;
+  }
+
+  /**
+   * Adds a list to the queue, or returns it to the pool if a pending list has the same time.
+   *
+   * @param list The list to add.
+   * @return Whether the list was added.
+   */
+  public boolean add(ClosedCaptionList list) {
+    int index = pendingCount;
+    while (index > 0 && get(index - 1).timeUs > list.timeUs) {
+      index--;
+    }
+    if (index > 0 && get(index - 1).timeUs == list.timeUs) {
+      release(list);
+      return false;
+    }
+    if (pendingCount == pending.length) {
+      growPending();
+    }
+    for (int i = pendingCount; i > index; i--) {
+      set(i, get(i - 1));
+    }
+    set(index, list);
+    pendingCount++;
+    return true;
+  }
+
+  /**
+   * Returns whether the queue is empty.
+   */
+  public boolean isEmpty() {
+    return pendingCount == 0;
+  }
+
+  /**
+   * Returns the earliest pending list, without removing it. Must not be called if the queue is
+   * empty.
+   */
+  public ClosedCaptionList peekFirst() {
+    return pending[pendingStart];
+  }
+
+  /**
+   * Removes and returns the earliest pending list. The caller should {@link #release} the list once
+   * it has been consumed. Must not be called if the queue is empty.
+   */
+  public ClosedCaptionList pollFirst() {
+    ClosedCaptionList list = pending[pendingStart];
+    pending[pendingStart] = null;
+    pendingStart = (pendingStart + 1) % pending.length;
+    pendingCount--;
+    return list;
+  }
+
+  /**
+   * Returns all pending lists to the pool.
+   */
+  public void clear() {
+    while (pendingCount > 0) {
+      release(pollFirst());
+    }
+    pendingStart = 0;
+  }
+
+  private ClosedCaptionList get(int index) {
+    return pending[(pendingStart + index) % pending.length];
+  }
+
+  private void set(int index, ClosedCaptionList list) {
+    pending[(pendingStart + index) % pending.length] = list;
+  }
+
+  private void growPending() {
+    ClosedCaptionList[] newPending = new ClosedCaptionList[pending.length * 2];
+    for (int i = 0; i < pendingCount; i++) {
+      newPending[i] = get(i);
+    }
+    pending = newPending;
+    pendingStart = 0;
+  }
+
+}
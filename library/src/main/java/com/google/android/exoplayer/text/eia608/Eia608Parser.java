@@ -20,8 +20,6 @@ import com.google.android.exoplayer.util.MimeTypes;
 import com.google.android.exoplayer.util.ParsableBitArray;
 import com.google.android.exoplayer.util.ParsableByteArray;
 
-import java.util.ArrayList;
-
 /**
  * Facilitates the extraction and parsing of EIA-608 (a.k.a. "line 21 captions" and "CEA-608")
  * Closed Captions from the SEI data block from H.264.
@@ -103,26 +101,29 @@ public final class Eia608Parser {
   };
 
   private final ParsableBitArray seiBuffer;
-  private final StringBuilder stringBuilder;
-  private final ArrayList<ClosedCaption> captions;
 
   /* package */ Eia608Parser() {
     seiBuffer = new ParsableBitArray();
-    stringBuilder = new StringBuilder();
-    captions = new ArrayList<>();
   }
 
   /* package */ boolean canParse(String mimeType) {
     return mimeType.equals(MimeTypes.APPLICATION_EIA608);
   }
 
-  /* package */ ClosedCaptionList parse(SampleHolder sampleHolder) {
+  /**
+   * Decodes the characters and control codes in a sample.
+   *
+   * @param sampleHolder The sample.
+   * @param out The list into which the characters and control codes should be decoded. The list
+   *     is reset before decoding.
+   * @return Whether any characters or control codes were decoded.
+   */
+  /* package */ boolean parse(SampleHolder sampleHolder, ClosedCaptionList out) {
     if (sampleHolder.size < 10) {
-      return null;
+      return false;
     }
 
-    captions.clear();
-    stringBuilder.setLength(0);
+    out.reset(sampleHolder.timeUs, sampleHolder.isDecodeOnly());
     seiBuffer.reset(sampleHolder.data.array());
 
     // country_code (8) + provider_code (16) + user_identifier (32) + user_data_type_code (8) +
@@ -157,7 +158,7 @@ public final class Eia608Parser {
       // ccData2 - P|0|1|1|X|X|X|X
       if ((ccData1 == 0x11 || ccData1 == 0x19)
           && ((ccData2 & 0x70) == 0x30)) {
-        stringBuilder.append(getSpecialChar(ccData2));
+        out.addChar(getSpecialChar(ccData2));
         continue;
       }
 
@@ -165,8 +166,8 @@ public final class Eia608Parser {
       // ccData2 - P|0|1|X|X|X|X|X
       if ((ccData1 == 0x12 || ccData1 == 0x1A)
           && ((ccData2 & 0x60) == 0x20)) {
-        backspace(); // Remove standard equivalent of the special extended char.
-        stringBuilder.append(getExtendedEsFrChar(ccData2));
+        backspace(out); // Remove standard equivalent of the special extended char.
+        out.addChar(getExtendedEsFrChar(ccData2));
         continue;
       }
 
@@ -174,33 +175,25 @@ public final class Eia608Parser {
       // ccData2 - P|0|1|X|X|X|X|X
       if ((ccData1 == 0x13 || ccData1 == 0x1B)
           && ((ccData2 & 0x60) == 0x20)) {
-        backspace(); // Remove standard equivalent of the special extended char.
-        stringBuilder.append(getExtendedPtDeChar(ccData2));
+        backspace(out); // Remove standard equivalent of the special extended char.
+        out.addChar(getExtendedPtDeChar(ccData2));
         continue;
       }
 
       // Control character.
       if (ccData1 < 0x20) {
-        addCtrl(ccData1, ccData2);
+        out.addCtrl(ccData1, ccData2);
         continue;
       }
 
       // Basic North American character set.
-      stringBuilder.append(getChar(ccData1));
+      out.addChar(getChar(ccData1));
       if (ccData2 >= 0x20) {
-        stringBuilder.append(getChar(ccData2));
+        out.addChar(getChar(ccData2));
       }
     }
 
-    addBufferedText();
-
-    if (captions.isEmpty()) {
-      return null;
-    }
-
-    ClosedCaption[] captionArray = new ClosedCaption[captions.size()];
-    captions.toArray(captionArray);
-    return new ClosedCaptionList(sampleHolder.timeUs, sampleHolder.isDecodeOnly(), captionArray);
+    return out.size() > 0;
   }
 
   private static char getChar(byte ccData) {
@@ -223,20 +216,8 @@ public final class Eia608Parser {
     return (char) SPECIAL_PT_DE_CHARACTER_SET[index];
   }
 
-  private void addBufferedText() {
-    if (stringBuilder.length() > 0) {
-      captions.add(new ClosedCaptionText(stringBuilder.toString()));
-      stringBuilder.setLength(0);
-    }
-  }
-
-  private void addCtrl(byte ccData1, byte ccData2) {
-    addBufferedText();
-    captions.add(new ClosedCaptionCtrl(ccData1, ccData2));
-  }
-
-  private void backspace() {
-    addCtrl((byte) 0x14, ClosedCaptionCtrl.BACKSPACE);
+  private static void backspace(ClosedCaptionList out) {
+    out.addCtrl(ClosedCaptionCtrl.MISC_CHAN_1, ClosedCaptionCtrl.BACKSPACE);
   }
 
   /**
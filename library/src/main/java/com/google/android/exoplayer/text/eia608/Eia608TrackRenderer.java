@@ -34,7 +34,6 @@ import android.os.Looper;
 import android.os.Message;
 
 import java.util.Collections;
-import java.util.TreeSet;
 
 /**
  * A {@link TrackRenderer} for EIA-608 closed captions in a media stream.
@@ -59,14 +58,16 @@ public final class Eia608TrackRenderer extends SampleSourceTrackRenderer impleme
   private final MediaFormatHolder formatHolder;
   private final SampleHolder sampleHolder;
   private final StringBuilder captionStringBuilder;
-  private final TreeSet<ClosedCaptionList> pendingCaptionLists;
+  private final ClosedCaptionListQueue pendingCaptionLists;
 
   private boolean inputStreamEnded;
   private int captionMode;
   private int captionRowCount;
   private String caption;
   private String lastRenderedCaption;
-  private ClosedCaptionCtrl repeatableControl;
+  private boolean hasRepeatableControl;
+  private byte repeatableControlCc1;
+  private byte repeatableControlCc2;
 
   /**
    * @param source A source from which samples containing EIA-608 closed captions can be read.
@@ -86,7 +87,7 @@ public final class Eia608TrackRenderer extends SampleSourceTrackRenderer impleme
     formatHolder = new MediaFormatHolder();
     sampleHolder = new SampleHolder(SampleHolder.BUFFER_REPLACEMENT_MODE_NORMAL);
     captionStringBuilder = new StringBuilder();
-    pendingCaptionLists = new TreeSet<>();
+    pendingCaptionLists = new ClosedCaptionListQueue();
   }
 
   @Override
@@ -103,7 +104,7 @@ public final class Eia608TrackRenderer extends SampleSourceTrackRenderer impleme
   @Override
   protected void onDiscontinuity(long positionUs) {
     inputStreamEnded = false;
-    repeatableControl = null;
+    hasRepeatableControl = false;
     pendingCaptionLists.clear();
     clearPendingSample();
     captionRowCount = DEFAULT_CAPTIONS_ROW_COUNT;
@@ -129,15 +130,17 @@ public final class Eia608TrackRenderer extends SampleSourceTrackRenderer impleme
     }
 
     while (!pendingCaptionLists.isEmpty()) {
-      if (pendingCaptionLists.first().timeUs > positionUs) {
+      if (pendingCaptionLists.peekFirst().timeUs > positionUs) {
         // We're too early to render any of the pending caption lists.
         return;
       }
       // Remove and consume the next caption list.
       ClosedCaptionList nextCaptionList = pendingCaptionLists.pollFirst();
       consumeCaptionList(nextCaptionList);
+      boolean decodeOnly = nextCaptionList.decodeOnly;
+      pendingCaptionLists.release(nextCaptionList);
       // Update the renderer, unless the caption list was marked for decoding only.
-      if (!nextCaptionList.decodeOnly) {
+      if (!decodeOnly) {
         invokeRenderer(caption);
       }
     }
@@ -159,6 +162,8 @@ public final class Eia608TrackRenderer extends SampleSourceTrackRenderer impleme
   }
 
   private void invokeRenderer(String text) {
+    // The caption is only replaced by a new string when its text changes, so in the common case
+    // that it hasn't changed this is a reference comparison.
     if (Util.areEqual(lastRenderedCaption, text)) {
       // No change.
       return;
@@ -195,59 +200,64 @@ public final class Eia608TrackRenderer extends SampleSourceTrackRenderer impleme
       // We're too early to parse the sample.
       return;
     }
-    ClosedCaptionList holder = eia608Parser.parse(sampleHolder);
+    ClosedCaptionList captionList = pendingCaptionLists.obtain();
+    boolean parsed = eia608Parser.parse(sampleHolder, captionList);
     clearPendingSample();
-    if (holder != null) {
-      pendingCaptionLists.add(holder);
+    if (parsed) {
+      pendingCaptionLists.add(captionList);
+    } else {
+      pendingCaptionLists.release(captionList);
     }
   }
 
   private void consumeCaptionList(ClosedCaptionList captionList) {
-    int captionBufferSize = captionList.captions.length;
+    int captionBufferSize = captionList.size();
     if (captionBufferSize == 0) {
       return;
     }
 
     boolean isRepeatableControl = false;
     for (int i = 0; i < captionBufferSize; i++) {
-      ClosedCaption caption = captionList.captions[i];
-      if (caption.type == ClosedCaption.TYPE_CTRL) {
-        ClosedCaptionCtrl captionCtrl = (ClosedCaptionCtrl) caption;
-        isRepeatableControl = captionBufferSize == 1 && captionCtrl.isRepeatable();
-        if (isRepeatableControl && repeatableControl != null
-            && repeatableControl.cc1 == captionCtrl.cc1
-            && repeatableControl.cc2 == captionCtrl.cc2) {
-          repeatableControl = null;
+      if (captionList.isCtrl(i)) {
+        byte cc1 = captionList.getCc1(i);
+        byte cc2 = captionList.getCc2(i);
+        isRepeatableControl = captionBufferSize == 1 && ClosedCaptionCtrl.isRepeatable(cc1);
+        if (isRepeatableControl && hasRepeatableControl
+            && repeatableControlCc1 == cc1
+            && repeatableControlCc2 == cc2) {
+          hasRepeatableControl = false;
           continue;
         } else if (isRepeatableControl) {
-          repeatableControl = captionCtrl;
+          hasRepeatableControl = true;
+          repeatableControlCc1 = cc1;
+          repeatableControlCc2 = cc2;
         }
-        if (captionCtrl.isMiscCode()) {
-          handleMiscCode(captionCtrl);
-        } else if (captionCtrl.isPreambleAddressCode()) {
+        if (ClosedCaptionCtrl.isMiscCode(cc1, cc2)) {
+          handleMiscCode(cc2);
+        } else if (ClosedCaptionCtrl.isPreambleAddressCode(cc1, cc2)) {
           handlePreambleAddressCode();
         }
       } else {
-        handleText((ClosedCaptionText) caption);
+        handleText(captionList.getChar(i));
       }
     }
 
     if (!isRepeatableControl) {
-      repeatableControl = null;
+      hasRepeatableControl = false;
     }
     if (captionMode == CC_MODE_ROLL_UP || captionMode == CC_MODE_PAINT_ON) {
       caption = getDisplayCaption();
     }
   }
 
-  private void handleText(ClosedCaptionText captionText) {
+  private void handleText(char captionChar) {
     if (captionMode != CC_MODE_UNKNOWN) {
-      captionStringBuilder.append(captionText.text);
+      captionStringBuilder.append(captionChar);
     }
   }
 
-  private void handleMiscCode(ClosedCaptionCtrl captionCtrl) {
-    switch (captionCtrl.cc2) {
+  private void handleMiscCode(byte cc2) {
+    switch (cc2) {
       case ClosedCaptionCtrl.ROLL_UP_CAPTIONS_2_ROWS:
         captionRowCount = 2;
         setCaptionMode(CC_MODE_ROLL_UP);
@@ -272,7 +282,7 @@ public final class Eia608TrackRenderer extends SampleSourceTrackRenderer impleme
       return;
     }
 
-    switch (captionCtrl.cc2) {
+    switch (cc2) {
       case ClosedCaptionCtrl.ERASE_DISPLAYED_MEMORY:
         caption = null;
         if (captionMode == CC_MODE_ROLL_UP || captionMode == CC_MODE_PAINT_ON) {
@@ -336,7 +346,7 @@ public final class Eia608TrackRenderer extends SampleSourceTrackRenderer impleme
 
     int endIndex = endsWithNewline ? buildLength - 1 : buildLength;
     if (captionMode != CC_MODE_ROLL_UP) {
-      return captionStringBuilder.substring(0, endIndex);
+      return getCaptionString(endIndex);
     }
 
     int startIndex = 0;
@@ -348,7 +358,24 @@ public final class Eia608TrackRenderer extends SampleSourceTrackRenderer impleme
       startIndex = searchBackwardFromIndex + 1;
     }
     captionStringBuilder.delete(0, startIndex);
-    return captionStringBuilder.substring(0, endIndex - startIndex);
+    return getCaptionString(endIndex - startIndex);
+  }
+
+  /**
+   * Returns the first {@code length} characters of the working memory as a string. If they match
+   * the current caption then the current caption is returned, rather than a new string.
+   */
+  private String getCaptionString(int length) {
+    if (caption != null && caption.length() == length) {
+      boolean matches = true;
+      for (int i = 0; i < length && matches; i++) {
+        matches = caption.charAt(i) == captionStringBuilder.charAt(i);
+      }
+      if (matches) {
+        return caption;
+      }
+    }
+    return captionStringBuilder.substring(0, length);
   }
 
   private void clearPendingSample() {
@@ -15,8 +15,9 @@
  */
 package com.google.android.exoplayer.text.subrip;
 
+import com.google.android.exoplayer.C;
 import com.google.android.exoplayer.text.Cue;
-import com.google.android.exoplayer.text.SubtitleParser;
+import com.google.android.exoplayer.text.SegmentedSubtitleParser;
 import com.google.android.exoplayer.util.LongArray;
 import com.google.android.exoplayer.util.MimeTypes;
 import com.google.android.exoplayer.util.ParsableByteArray;
@@ -33,7 +34,7 @@ import java.util.regex.Pattern;
 /**
  * A simple SubRip parser.
  */
-public final class SubripParser implements SubtitleParser {
+public final class SubripParser implements SegmentedSubtitleParser {
 
   private static final String TAG = "SubripParser";
 
@@ -54,6 +55,35 @@ public final class SubripParser implements SubtitleParser {
 
   @Override
   public SubripSubtitle parse(byte[] bytes, int offset, int length) {
+    return parseCues(bytes, offset, length);
+  }
+
+  @Override
+  public int skipHeader(byte[] bytes, int offset, int length) {
+    // SubRip data does not have a header.
+    return offset;
+  }
+
+  @Override
+  public long peekCueStartTimeUs(byte[] bytes, int offset, int length) {
+    ParsableByteArray subripData = new ParsableByteArray(bytes, offset + length);
+    subripData.setPosition(offset);
+    String currentLine;
+    while ((currentLine = subripData.readLine()) != null) {
+      Matcher matcher = SUBRIP_TIMING_LINE.matcher(currentLine);
+      if (matcher.find()) {
+        try {
+          return parseTimecode(matcher.group(1));
+        } catch (NumberFormatException e) {
+          // Skip the invalid timing line.
+        }
+      }
+    }
+    return C.UNKNOWN_TIME_US;
+  }
+
+  @Override
+  public SubripSubtitle parseCues(byte[] bytes, int offset, int length) {
     ArrayList<Cue> cues = new ArrayList<>();
     LongArray cueTimesUs = new LongArray();
     ParsableByteArray subripData = new ParsableByteArray(bytes, offset + length);
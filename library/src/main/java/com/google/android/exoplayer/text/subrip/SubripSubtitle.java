@@ -16,6 +16,7 @@
 package com.google.android.exoplayer.text.subrip;
 
 import com.google.android.exoplayer.text.Cue;
+import com.google.android.exoplayer.text.CueIntervalIndex;
 import com.google.android.exoplayer.text.Subtitle;
 import com.google.android.exoplayer.util.Assertions;
 import com.google.android.exoplayer.util.Util;
@@ -28,16 +29,25 @@ import java.util.List;
  */
 /* package */ final class SubripSubtitle implements Subtitle {
 
-  private final Cue[] cues;
   private final long[] cueTimesUs;
+  private final CueIntervalIndex cueIndex;
 
   /**
    * @param cues The cues in the subtitle. Null entries may be used to represent empty cues.
    * @param cueTimesUs The cue times, in microseconds.
    */
   public SubripSubtitle(Cue[] cues, long[] cueTimesUs) {
-    this.cues = cues;
     this.cueTimesUs = cueTimesUs;
+    long[] boundaryTimesUs = CueIntervalIndex.sortAndRemoveDuplicates(cueTimesUs);
+    List<Cue>[] intervalCues = CueIntervalIndex.newCueListArray(boundaryTimesUs.length + 1);
+    for (int i = 0; i < boundaryTimesUs.length; i++) {
+      // Where several cue times are equal, the last of the corresponding cues is displayed.
+      int index = Util.binarySearchFloor(cueTimesUs, boundaryTimesUs[i], true, false);
+      if (cues[index] != null) {
+        intervalCues[i + 1] = Collections.singletonList(cues[index]);
+      }
+    }
+    cueIndex = new CueIntervalIndex(boundaryTimesUs, intervalCues);
   }
 
   @Override
@@ -68,13 +78,7 @@ import java.util.List;
 
   @Override
   public List<Cue> getCues(long timeUs) {
-    int index = Util.binarySearchFloor(cueTimesUs, timeUs, true, false);
-    if (index == -1 || cues[index] == null) {
-      // timeUs is earlier than the start of the first cue, or we have an empty cue.
-      return Collections.<Cue>emptyList();
-    } else {
-      return Collections.singletonList(cues[index]);
-    }
+    return cueIndex.getCues(timeUs);
   }
 
 }
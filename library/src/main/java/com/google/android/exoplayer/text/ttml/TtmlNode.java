@@ -16,7 +16,9 @@
 package com.google.android.exoplayer.text.ttml;
 
 import com.google.android.exoplayer.text.Cue;
+import com.google.android.exoplayer.text.CueIntervalIndex;
 import com.google.android.exoplayer.util.Assertions;
+import com.google.android.exoplayer.util.LongArray;
 
 import android.text.SpannableStringBuilder;
 
@@ -26,7 +28,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 /**
  * A package internal representation of TTML node.
@@ -139,20 +140,28 @@ import java.util.TreeSet;
     return children == null ? 0 : children.size();
   }
 
+  /**
+   * Returns the sorted, distinct times at which the text within paragraphs may change.
+   */
   public long[] getEventTimesUs() {
-    TreeSet<Long> eventTimeSet = new TreeSet<>();
-    getEventTimes(eventTimeSet, false);
-    long[] eventTimes = new long[eventTimeSet.size()];
-    int i = 0;
-    for (long eventTimeUs : eventTimeSet) {
-      eventTimes[i++] = eventTimeUs;
-    }
-    return eventTimes;
+    LongArray eventTimes = new LongArray();
+    getEventTimes(eventTimes, false, false);
+    return CueIntervalIndex.sortAndRemoveDuplicates(eventTimes.toArray());
+  }
+
+  /**
+   * Returns the sorted, distinct times at which any node in the tree becomes active or inactive.
+   * The cues returned by {@link #getCues(long, Map, Map)} do not change between consecutive times.
+   */
+  public long[] getBoundaryTimesUs() {
+    LongArray boundaryTimes = new LongArray();
+    getEventTimes(boundaryTimes, false, true);
+    return CueIntervalIndex.sortAndRemoveDuplicates(boundaryTimes.toArray());
   }
 
-  private void getEventTimes(TreeSet<Long> out, boolean descendsPNode) {
+  private void getEventTimes(LongArray out, boolean descendsPNode, boolean includeAllNodes) {
     boolean isPNode = TAG_P.equals(tag);
-    if (descendsPNode || isPNode) {
+    if (includeAllNodes || descendsPNode || isPNode) {
       if (startTimeUs != UNDEFINED_TIME) {
         out.add(startTimeUs);
       }
@@ -164,7 +173,7 @@ import java.util.TreeSet;
       return;
     }
     for (int i = 0; i < children.size(); i++) {
-      children.get(i).getEventTimes(out, descendsPNode || isPNode);
+      children.get(i).getEventTimes(out, descendsPNode || isPNode, includeAllNodes);
     }
   }
 
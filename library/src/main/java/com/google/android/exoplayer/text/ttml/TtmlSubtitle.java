@@ -25,6 +25,11 @@ import java.util.Map;
 
 /**
  * A representation of a TTML subtitle.
+ * <p>
+ * Cues are computed when they are first requested for an interval between consecutive times at
+ * which any node becomes active or inactive, and the cues for the most recently requested interval
+ * are retained. Rendering usually queries the same interval repeatedly, so most queries reuse the
+ * retained cues, whilst parsing does not need to walk the tree for every interval.
  */
 public final class TtmlSubtitle implements Subtitle {
 
@@ -32,6 +37,10 @@ public final class TtmlSubtitle implements Subtitle {
   private final long[] eventTimesUs;
   private final Map<String, TtmlStyle> globalStyles;
   private final Map<String, TtmlRegion> regionMap;
+  private final long[] boundaryTimesUs;
+
+  private int cachedIntervalIndex;
+  private List<Cue> cachedCues;
 
   public TtmlSubtitle(TtmlNode root, Map<String, TtmlStyle> globalStyles,
       Map<String, TtmlRegion> regionMap) {
@@ -40,6 +49,8 @@ public final class TtmlSubtitle implements Subtitle {
     this.globalStyles = globalStyles != null
         ? Collections.unmodifiableMap(globalStyles) : Collections.<String, TtmlStyle>emptyMap();
     this.eventTimesUs = root.getEventTimesUs();
+    this.boundaryTimesUs = root.getBoundaryTimesUs();
+    cachedIntervalIndex = -1;
   }
 
   @Override
@@ -70,7 +81,12 @@ public final class TtmlSubtitle implements Subtitle {
 
   @Override
   public List<Cue> getCues(long timeUs) {
-    return root.getCues(timeUs, globalStyles, regionMap);
+    int intervalIndex = Util.binarySearchFloor(boundaryTimesUs, timeUs, true, false) + 1;
+    if (intervalIndex != cachedIntervalIndex) {
+      cachedCues = Collections.unmodifiableList(root.getCues(timeUs, globalStyles, regionMap));
+      cachedIntervalIndex = intervalIndex;
+    }
+    return cachedCues;
   }
 
   /* @VisibleForTesting */
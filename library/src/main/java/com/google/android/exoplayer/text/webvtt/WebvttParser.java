@@ -15,21 +15,23 @@
  */
 package com.google.android.exoplayer.text.webvtt;
 
+import com.google.android.exoplayer.C;
 import com.google.android.exoplayer.ParserException;
-import com.google.android.exoplayer.text.SubtitleParser;
+import com.google.android.exoplayer.text.SegmentedSubtitleParser;
 import com.google.android.exoplayer.util.MimeTypes;
 import com.google.android.exoplayer.util.ParsableByteArray;
 
 import android.text.TextUtils;
 
 import java.util.ArrayList;
+import java.util.regex.Matcher;
 
 /**
  * A simple WebVTT parser.
  * <p>
  * @see <a href="http://dev.w3.org/html5/webvtt">WebVTT specification</a>
  */
-public final class WebvttParser implements SubtitleParser {
+public final class WebvttParser implements SegmentedSubtitleParser {
 
   private final WebvttCueParser cueParser;
   private final ParsableByteArray parsableWebvttData;
@@ -48,13 +50,40 @@ public final class WebvttParser implements SubtitleParser {
 
   @Override
   public final WebvttSubtitle parse(byte[] bytes, int offset, int length) throws ParserException {
+    int bodyOffset = skipHeader(bytes, offset, length);
+    return parseCues(bytes, bodyOffset, offset + length - bodyOffset);
+  }
+
+  @Override
+  public final int skipHeader(byte[] bytes, int offset, int length) throws ParserException {
     parsableWebvttData.reset(bytes, offset + length);
     parsableWebvttData.setPosition(offset);
-    webvttCueBuilder.reset(); // In case a previous parse run failed with a ParserException.
-
     // Validate the first line of the header, and skip the remainder.
     WebvttParserUtil.validateWebvttHeaderLine(parsableWebvttData);
     while (!TextUtils.isEmpty(parsableWebvttData.readLine())) {}
+    return parsableWebvttData.getPosition();
+  }
+
+  @Override
+  public final long peekCueStartTimeUs(byte[] bytes, int offset, int length) {
+    parsableWebvttData.reset(bytes, offset + length);
+    parsableWebvttData.setPosition(offset);
+    Matcher cueHeaderMatcher;
+    while ((cueHeaderMatcher = WebvttCueParser.findNextCueHeader(parsableWebvttData)) != null) {
+      try {
+        return WebvttParserUtil.parseTimestampUs(cueHeaderMatcher.group(1));
+      } catch (NumberFormatException e) {
+        // Skip the invalid cue, as the cue parser does.
+      }
+    }
+    return C.UNKNOWN_TIME_US;
+  }
+
+  @Override
+  public final WebvttSubtitle parseCues(byte[] bytes, int offset, int length) {
+    parsableWebvttData.reset(bytes, offset + length);
+    parsableWebvttData.setPosition(offset);
+    webvttCueBuilder.reset(); // In case a previous parse run failed with a ParserException.
 
     // Extract Cues
     ArrayList<WebvttCue> subtitles = new ArrayList<>();
@@ -16,6 +16,7 @@
 package com.google.android.exoplayer.text.webvtt;
 
 import com.google.android.exoplayer.text.Cue;
+import com.google.android.exoplayer.text.CueIntervalIndex;
 import com.google.android.exoplayer.text.Subtitle;
 import com.google.android.exoplayer.util.Assertions;
 import com.google.android.exoplayer.util.Util;
@@ -24,7 +25,7 @@ import android.text.SpannableStringBuilder;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -36,6 +37,7 @@ public final class WebvttSubtitle implements Subtitle {
   private final int numCues;
   private final long[] cueTimesUs;
   private final long[] sortedCueTimesUs;
+  private final CueIntervalIndex cueIndex;
 
   /**
    * @param cues A list of the cues in this subtitle.
@@ -52,6 +54,7 @@ public final class WebvttSubtitle implements Subtitle {
     }
     sortedCueTimesUs = Arrays.copyOf(cueTimesUs, cueTimesUs.length);
     Arrays.sort(sortedCueTimesUs);
+    cueIndex = buildCueIndex();
   }
 
   @Override
@@ -82,31 +85,84 @@ public final class WebvttSubtitle implements Subtitle {
 
   @Override
   public List<Cue> getCues(long timeUs) {
-    ArrayList<Cue> list = null;
-    WebvttCue firstNormalCue = null;
-    SpannableStringBuilder normalCueTextBuilder = null;
+    return cueIndex.getCues(timeUs);
+  }
 
+  /**
+   * Builds the index by sweeping through the boundary times, maintaining the set of active cues.
+   */
+  private CueIntervalIndex buildCueIndex() {
+    long[] boundaryTimesUs = CueIntervalIndex.sortAndRemoveDuplicates(cueTimesUs);
+    List<Cue>[] intervalCues = CueIntervalIndex.newCueListArray(boundaryTimesUs.length + 1);
+    // Cue indices in order of start time. The sort is stable, so cues with equal start times
+    // remain in the order in which they're defined.
+    Integer[] cuesByStartTime = new Integer[numCues];
     for (int i = 0; i < numCues; i++) {
-      if ((cueTimesUs[i * 2] <= timeUs) && (timeUs < cueTimesUs[i * 2 + 1])) {
-        if (list == null) {
-          list = new ArrayList<>();
+      cuesByStartTime[i] = i;
+    }
+    Arrays.sort(cuesByStartTime, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer first, Integer second) {
+        long firstStartTimeUs = cueTimesUs[first * 2];
+        long secondStartTimeUs = cueTimesUs[second * 2];
+        return firstStartTimeUs < secondStartTimeUs ? -1
+            : (firstStartTimeUs == secondStartTimeUs ? 0 : 1);
+      }
+    });
+    // The indices of the active cues, in the order in which they're defined.
+    int[] activeCues = new int[numCues];
+    int activeCueCount = 0;
+    int nextCueByStartTime = 0;
+    for (int i = 0; i < boundaryTimesUs.length; i++) {
+      long timeUs = boundaryTimesUs[i];
+      int retainedCueCount = 0;
+      for (int j = 0; j < activeCueCount; j++) {
+        if (timeUs < cueTimesUs[activeCues[j] * 2 + 1]) {
+          activeCues[retainedCueCount++] = activeCues[j];
         }
-        WebvttCue cue = cues.get(i);
-        if (cue.isNormalCue()) {
-          // we want to merge all of the normal cues into a single cue to ensure they are drawn
-          // correctly (i.e. don't overlap) and to emulate roll-up, but only if there are multiple
-          // normal cues, otherwise we can just append the single normal cue
-          if (firstNormalCue == null) {
-            firstNormalCue = cue;
-          } else if (normalCueTextBuilder == null) {
-            normalCueTextBuilder = new SpannableStringBuilder();
-            normalCueTextBuilder.append(firstNormalCue.text).append("\n").append(cue.text);
-          } else {
-            normalCueTextBuilder.append("\n").append(cue.text);
+      }
+      activeCueCount = retainedCueCount;
+      while (nextCueByStartTime < numCues
+          && cueTimesUs[cuesByStartTime[nextCueByStartTime] * 2] <= timeUs) {
+        int cueIndex = cuesByStartTime[nextCueByStartTime++];
+        if (timeUs < cueTimesUs[cueIndex * 2 + 1]) {
+          // Insert the cue, keeping the active cues in the order in which they're defined.
+          int insertionIndex = activeCueCount++;
+          while (insertionIndex > 0 && activeCues[insertionIndex - 1] > cueIndex) {
+            activeCues[insertionIndex] = activeCues[insertionIndex - 1];
+            insertionIndex--;
           }
+          activeCues[insertionIndex] = cueIndex;
+        }
+      }
+      intervalCues[i + 1] = buildCues(activeCues, activeCueCount);
+    }
+    return new CueIntervalIndex(boundaryTimesUs, intervalCues);
+  }
+
+  private List<Cue> buildCues(int[] cueIndices, int cueCount) {
+    if (cueCount == 0) {
+      return null;
+    }
+    ArrayList<Cue> list = new ArrayList<>(cueCount);
+    WebvttCue firstNormalCue = null;
+    SpannableStringBuilder normalCueTextBuilder = null;
+    for (int i = 0; i < cueCount; i++) {
+      WebvttCue cue = cues.get(cueIndices[i]);
+      if (cue.isNormalCue()) {
+        // we want to merge all of the normal cues into a single cue to ensure they are drawn
+        // correctly (i.e. don't overlap) and to emulate roll-up, but only if there are multiple
+        // normal cues, otherwise we can just append the single normal cue
+        if (firstNormalCue == null) {
+          firstNormalCue = cue;
+        } else if (normalCueTextBuilder == null) {
+          normalCueTextBuilder = new SpannableStringBuilder();
+          normalCueTextBuilder.append(firstNormalCue.text).append("\n").append(cue.text);
         } else {
-          list.add(cue);
+          normalCueTextBuilder.append("\n").append(cue.text);
         }
+      } else {
+        list.add(cue);
       }
     }
     if (normalCueTextBuilder != null) {
@@ -116,12 +172,7 @@ public final class WebvttSubtitle implements Subtitle {
       // there was only a single normal cue, so just add it to the list
       list.add(firstNormalCue);
     }
-
-    if (list != null) {
-      return list;
-    } else {
-      return Collections.<Cue>emptyList();
-    }
+    return list;
   }
 
 }
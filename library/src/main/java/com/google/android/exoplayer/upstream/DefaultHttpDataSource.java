@@ -20,6 +20,7 @@ import com.google.android.exoplayer.util.Assertions;
 import com.google.android.exoplayer.util.Predicate;
 import com.google.android.exoplayer.util.Util;
 
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -46,8 +47,13 @@ import java.util.regex.Pattern;
  * HTTP to HTTPS or vice versa). Cross-protocol redirects can be enabled by using the
  * {@link #DefaultHttpDataSource(String, Predicate, TransferListener, int, int, boolean)}
  * constructor and passing {@code true} as the final argument.
+ * <p>
+ * When the source is asked to skip a large amount of data, it may close its connection and request
+ * the data that follows instead of reading and discarding the skipped data. This is decided by an
+ * {@link HttpSkipStrategy}. If the skip reaches the end of the requested range, the connection is
+ * closed without a new request.
  */
-public class DefaultHttpDataSource implements HttpDataSource {
+public class DefaultHttpDataSource implements HttpDataSource, SkippableDataSource {
 
   /**
    * The default connection timeout, in milliseconds.
@@ -71,7 +77,10 @@ public class DefaultHttpDataSource implements HttpDataSource {
   private final Predicate<String> contentTypePredicate;
   private final HashMap<String, String> requestProperties;
   private final TransferListener listener;
+  private final HttpSkipStrategy skipStrategy;
 
+  private HttpRequestListener requestListener;
+  private HttpRequestMetrics requestMetrics;
   private DataSpec dataSpec;
   private HttpURLConnection connection;
   private InputStream inputStream;
@@ -139,6 +148,29 @@ public class DefaultHttpDataSource implements HttpDataSource {
   public DefaultHttpDataSource(String userAgent, Predicate<String> contentTypePredicate,
       TransferListener listener, int connectTimeoutMillis, int readTimeoutMillis,
       boolean allowCrossProtocolRedirects) {
+    this(userAgent, contentTypePredicate, listener, connectTimeoutMillis, readTimeoutMillis,
+        allowCrossProtocolRedirects,
+        new HttpSkipStrategy(HttpSkipStrategy.DEFAULT_MIN_REQUEST_SKIP_BYTES));
+  }
+
+  /**
+   * @param userAgent The User-Agent string that should be used.
+   * @param contentTypePredicate An optional {@link Predicate}. If a content type is
+   *     rejected by the predicate then a {@link HttpDataSource.InvalidContentTypeException} is
+   *     thrown from {@link #open(DataSpec)}.
+   * @param listener An optional listener.
+   * @param connectTimeoutMillis The connection timeout, in milliseconds. A timeout of zero is
+   *     interpreted as an infinite timeout. Pass {@link #DEFAULT_CONNECT_TIMEOUT_MILLIS} to use
+   *     the default value.
+   * @param readTimeoutMillis The read timeout, in milliseconds. A timeout of zero is interpreted
+   *     as an infinite timeout. Pass {@link #DEFAULT_READ_TIMEOUT_MILLIS} to use the default value.
+   * @param allowCrossProtocolRedirects Whether cross-protocol redirects (i.e. redirects from HTTP
+   *     to HTTPS and vice versa) are enabled.
+   * @param skipStrategy Decides how data is skipped. May be shared with other sources.
+   */
+  public DefaultHttpDataSource(String userAgent, Predicate<String> contentTypePredicate,
+      TransferListener listener, int connectTimeoutMillis, int readTimeoutMillis,
+      boolean allowCrossProtocolRedirects, HttpSkipStrategy skipStrategy) {
     this.userAgent = Assertions.checkNotEmpty(userAgent);
     this.contentTypePredicate = contentTypePredicate;
     this.listener = listener;
@@ -146,6 +178,27 @@ public class DefaultHttpDataSource implements HttpDataSource {
     this.connectTimeoutMillis = connectTimeoutMillis;
     this.readTimeoutMillis = readTimeoutMillis;
     this.allowCrossProtocolRedirects = allowCrossProtocolRedirects;
+    this.skipStrategy = Assertions.checkNotNull(skipStrategy);
+  }
+
+  /**
+   * Returns the strategy that decides how data is skipped, which also counts the bytes skipped.
+   */
+  public final HttpSkipStrategy getSkipStrategy() {
+    return skipStrategy;
+  }
+
+  /**
+   * Sets a listener to receive the timings of each request made by the source.
+   * <p>
+   * Connection reuse is not exposed by {@link HttpURLConnection}, so it is always reported as
+   * {@link HttpRequestMetrics#CONNECTION_REUSE_UNKNOWN}. If cross-protocol redirects are disabled
+   * then redirects are followed by {@link HttpURLConnection}, and at most one is reported.
+   *
+   * @param requestListener The listener, or null.
+   */
+  public void setRequestListener(HttpRequestListener requestListener) {
+    this.requestListener = requestListener;
   }
 
   @Override
@@ -184,6 +237,20 @@ public class DefaultHttpDataSource implements HttpDataSource {
 
   @Override
   public long open(DataSpec dataSpec) throws HttpDataSourceException {
+    long requestStartTimeMs = SystemClock.elapsedRealtime();
+    startRequestMetrics(dataSpec, requestStartTimeMs);
+    try {
+      return openInternal(dataSpec, requestStartTimeMs);
+    } catch (HttpDataSourceException e) {
+      if (requestMetrics != null) {
+        requestMetrics.error = e;
+      }
+      throw e;
+    }
+  }
+
+  private long openInternal(DataSpec dataSpec, long requestStartTimeMs)
+      throws HttpDataSourceException {
     this.dataSpec = dataSpec;
     this.bytesRead = 0;
     this.bytesSkipped = 0;
@@ -197,6 +264,8 @@ public class DefaultHttpDataSource implements HttpDataSource {
     int responseCode;
     try {
       responseCode = connection.getResponseCode();
+      skipStrategy.onResponse(SystemClock.elapsedRealtime() - requestStartTimeMs);
+      onResponseStarted(dataSpec, responseCode);
     } catch (IOException e) {
       closeConnectionQuietly();
       throw new HttpDataSourceException("Unable to connect to " + dataSpec.uri.toString(), e,
@@ -257,6 +326,38 @@ public class DefaultHttpDataSource implements HttpDataSource {
       skipInternal();
       return readInternal(buffer, offset, readLength);
     } catch (IOException e) {
+      if (requestMetrics != null) {
+        requestMetrics.error = e;
+      }
+      throw new HttpDataSourceException(e, dataSpec, HttpDataSourceException.TYPE_READ);
+    }
+  }
+
+  @Override
+  public long skip(long length) throws HttpDataSourceException {
+    try {
+      skipInternal();
+      long bytesRemaining = bytesRemaining();
+      if (bytesRemaining == 0) {
+        return C.RESULT_END_OF_INPUT;
+      }
+      if (bytesRemaining != C.LENGTH_UNBOUNDED) {
+        length = Math.min(length, bytesRemaining);
+      }
+      if (canSkipWithNewRequest() && skipStrategy.shouldSkipWithNewRequest(length)) {
+        if (length == bytesRemaining) {
+          // There is no data left to request.
+          skipToEnd();
+        } else {
+          skipWithNewRequest(length);
+        }
+        return length;
+      }
+      return skipByReading(length);
+    } catch (IOException e) {
+      if (requestMetrics != null) {
+        requestMetrics.error = e;
+      }
       throw new HttpDataSourceException(e, dataSpec, HttpDataSourceException.TYPE_READ);
     }
   }
@@ -275,6 +376,7 @@ public class DefaultHttpDataSource implements HttpDataSource {
     } finally {
       inputStream = null;
       closeConnectionQuietly();
+      finishRequestMetrics();
       if (opened) {
         opened = false;
         if (listener != null) {
@@ -305,7 +407,7 @@ public class DefaultHttpDataSource implements HttpDataSource {
 
   /**
    * Returns the number of bytes that have been read since the most recent call to
-   * {@link #open(DataSpec)}.
+   * {@link #open(DataSpec)}, including bytes skipped by {@link #skip(long)}.
    *
    * @return The number of bytes read.
    */
@@ -362,6 +464,9 @@ public class DefaultHttpDataSource implements HttpDataSource {
         String location = connection.getHeaderField("Location");
         connection.disconnect();
         url = handleRedirect(url, location);
+        if (requestMetrics != null) {
+          requestMetrics.redirectCount++;
+        }
       } else {
         return connection;
       }
@@ -413,6 +518,9 @@ public class DefaultHttpDataSource implements HttpDataSource {
     } else {
       connection.connect();
     }
+    if (requestMetrics != null) {
+      requestMetrics.connectEndTimeMs = SystemClock.elapsedRealtime();
+    }
     return connection;
   }
 
@@ -510,7 +618,7 @@ public class DefaultHttpDataSource implements HttpDataSource {
 
     while (bytesSkipped != bytesToSkip) {
       int readLength = (int) Math.min(bytesToSkip - bytesSkipped, skipBuffer.length);
-      int read = inputStream.read(skipBuffer, 0, readLength);
+      int read = readFromInputStream(skipBuffer, 0, readLength);
       if (Thread.interrupted()) {
         throw new InterruptedIOException();
       }
@@ -518,6 +626,7 @@ public class DefaultHttpDataSource implements HttpDataSource {
         throw new EOFException();
       }
       bytesSkipped += read;
+      skipStrategy.onDiscarded(read);
       if (listener != null) {
         listener.onBytesTransferred(read);
       }
@@ -527,6 +636,101 @@ public class DefaultHttpDataSource implements HttpDataSource {
     skipBufferReference.set(skipBuffer);
   }
 
+  /**
+   * Returns whether the current connection can be replaced by a request for a later range.
+   */
+  private boolean canSkipWithNewRequest() {
+    // Gzipped responses cannot be split, and a server that ignored the range of the original
+    // request will ignore the range of a new one too.
+    return (dataSpec.flags & DataSpec.FLAG_ALLOW_GZIP) == 0 && dataSpec.postBody == null
+        && bytesToSkip == 0;
+  }
+
+  /**
+   * Skips data by closing the current connection and requesting the data that follows it.
+   *
+   * @param length The number of bytes to skip.
+   * @throws IOException If an error occurs making the new request.
+   */
+  private void skipWithNewRequest(long length) throws IOException {
+    long bytesRemaining = bytesRemaining();
+    DataSpec skipDataSpec = new DataSpec(dataSpec.uri, dataSpec.absoluteStreamPosition + bytesRead
+        + length, dataSpec.position + bytesRead + length,
+        bytesRemaining == C.LENGTH_UNBOUNDED ? C.LENGTH_UNBOUNDED : bytesRemaining - length,
+        dataSpec.key, dataSpec.flags);
+    Util.maybeTerminateInputStream(connection, bytesRemaining);
+    try {
+      inputStream.close();
+    } catch (IOException e) {
+      // Do nothing. The connection is being replaced.
+    }
+    inputStream = null;
+    closeConnectionQuietly();
+    finishRequestMetrics();
+
+    long requestStartTimeMs = SystemClock.elapsedRealtime();
+    startRequestMetrics(skipDataSpec, requestStartTimeMs);
+    connection = makeConnection(skipDataSpec);
+    int responseCode = connection.getResponseCode();
+    skipStrategy.onResponse(SystemClock.elapsedRealtime() - requestStartTimeMs);
+    onResponseStarted(skipDataSpec, responseCode);
+    if (responseCode == 200) {
+      // The server ignored the range this time. Read up to the requested position.
+      bytesToSkip = skipDataSpec.position;
+      bytesSkipped = 0;
+    } else if (responseCode == 206) {
+      skipStrategy.onSaved(length);
+    } else {
+      Map<String, List<String>> headers = connection.getHeaderFields();
+      closeConnectionQuietly();
+      throw new InvalidResponseCodeException(responseCode, headers, skipDataSpec);
+    }
+    inputStream = connection.getInputStream();
+    bytesRead += length;
+  }
+
+  /**
+   * Skips the remainder of the requested range by closing the current connection.
+   */
+  private void skipToEnd() {
+    long bytesRemaining = bytesRemaining();
+    Util.maybeTerminateInputStream(connection, bytesRemaining);
+    try {
+      inputStream.close();
+    } catch (IOException e) {
+      // Do nothing. The remaining data is not needed.
+    }
+    inputStream = null;
+    closeConnectionQuietly();
+    skipStrategy.onSaved(bytesRemaining);
+    bytesRead += bytesRemaining;
+  }
+
+  /**
+   * Skips data by reading and discarding it.
+   *
+   * @param length The maximum number of bytes to skip.
+   * @return The number of bytes skipped, or {@link C#RESULT_END_OF_INPUT} if the end of the opened
+   *     range is reached.
+   * @throws IOException If an error occurs reading from the source.
+   */
+  private long skipByReading(long length) throws IOException {
+    // Acquire the shared skip buffer.
+    byte[] skipBuffer = skipBufferReference.getAndSet(null);
+    if (skipBuffer == null) {
+      skipBuffer = new byte[4096];
+    }
+
+    int read = readInternal(skipBuffer, 0, (int) Math.min(length, skipBuffer.length));
+    if (read != C.RESULT_END_OF_INPUT) {
+      skipStrategy.onDiscarded(read);
+    }
+
+    // Release the shared skip buffer.
+    skipBufferReference.set(skipBuffer);
+    return read;
+  }
+
   /**
    * Reads up to {@code length} bytes of data and stores them into {@code buffer}, starting at
    * index {@code offset}.
@@ -549,7 +753,7 @@ public class DefaultHttpDataSource implements HttpDataSource {
       return C.RESULT_END_OF_INPUT;
     }
 
-    int read = inputStream.read(buffer, offset, readLength);
+    int read = readFromInputStream(buffer, offset, readLength);
     if (read == -1) {
       if (bytesToRead != C.LENGTH_UNBOUNDED && bytesToRead != bytesRead) {
         // The server closed the connection having not sent sufficient data.
@@ -565,6 +769,54 @@ public class DefaultHttpDataSource implements HttpDataSource {
     return read;
   }
 
+  /**
+   * Reads from the input stream, recording the rate at which data is read.
+   */
+  private int readFromInputStream(byte[] buffer, int offset, int readLength) throws IOException {
+    long startTimeMs = SystemClock.elapsedRealtime();
+    int read = inputStream.read(buffer, offset, readLength);
+    if (read > 0) {
+      long endTimeMs = SystemClock.elapsedRealtime();
+      skipStrategy.onRead(read, endTimeMs - startTimeMs);
+      if (requestMetrics != null) {
+        if (requestMetrics.firstByteTimeMs == -1) {
+          requestMetrics.firstByteTimeMs = endTimeMs;
+        }
+        requestMetrics.bytesRead += read;
+      }
+    }
+    return read;
+  }
+
+  private void startRequestMetrics(DataSpec dataSpec, long requestStartTimeMs) {
+    requestMetrics = requestListener == null ? null
+        : new HttpRequestMetrics(dataSpec, Loader.getCurrentLoadable(), requestStartTimeMs);
+  }
+
+  private void onResponseStarted(DataSpec dataSpec, int responseCode) {
+    if (requestMetrics == null) {
+      return;
+    }
+    requestMetrics.responseStartTimeMs = SystemClock.elapsedRealtime();
+    requestMetrics.responseCode = responseCode;
+    requestMetrics.responseUri = connection.getURL().toString();
+    if (!allowCrossProtocolRedirects
+        && !requestMetrics.responseUri.equals(dataSpec.uri.toString())) {
+      // HttpURLConnection followed one or more redirects.
+      requestMetrics.redirectCount = 1;
+    }
+  }
+
+  private void finishRequestMetrics() {
+    if (requestMetrics != null) {
+      requestMetrics.requestEndTimeMs = SystemClock.elapsedRealtime();
+      if (requestListener != null) {
+        requestListener.onRequestFinished(requestMetrics);
+      }
+      requestMetrics = null;
+    }
+  }
+
   /**
    * Closes the current connection quietly, if there is one.
    */
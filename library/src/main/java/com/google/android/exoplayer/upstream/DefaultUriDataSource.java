@@ -34,7 +34,7 @@ import java.io.IOException;
  * <li>content: For fetching data from a content URI (e.g. content://authority/path/123).
  * </ul>
  */
-public final class DefaultUriDataSource implements UriDataSource {
+public final class DefaultUriDataSource implements UriDataSource, SkippableDataSource {
 
   private static final String SCHEME_ASSET = "asset";
   private static final String SCHEME_CONTENT = "content";
@@ -49,6 +49,7 @@ public final class DefaultUriDataSource implements UriDataSource {
    * data source is a file, or {@link #httpDataSource} otherwise.
    */
   private UriDataSource dataSource;
+  private byte[] skipBuffer;
 
   /**
    * Constructs a new instance.
@@ -140,6 +141,17 @@ public final class DefaultUriDataSource implements UriDataSource {
     return dataSource.read(buffer, offset, readLength);
   }
 
+  @Override
+  public long skip(long length) throws IOException {
+    if (dataSource instanceof SkippableDataSource) {
+      return ((SkippableDataSource) dataSource).skip(length);
+    }
+    if (skipBuffer == null) {
+      skipBuffer = new byte[4096];
+    }
+    return dataSource.read(skipBuffer, 0, (int) Math.min(length, skipBuffer.length));
+  }
+
   @Override
   public String getUri() {
     return dataSource == null ? null : dataSource.getUri();
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2014 The Android Open Source Project
+ * Copyright (C) 2016 The Android Open Source Project
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -13,15 +13,19 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package com.google.android.exoplayer.text.eia608;
+package com.google.android.exoplayer.upstream;
 
-/* package */ final class ClosedCaptionText extends ClosedCaption {
-
-  public final String text;
+/**
+ * Receives the timings of requests made by an {@link HttpDataSource}.
+ */
+public interface HttpRequestListener {
 
-  public ClosedCaptionText(String text) {
-    super(ClosedCaption.TYPE_TEXT);
-    this.text = text;
-  }
+  /**
+   * Invoked when a request has finished, either because the source was closed or because the
+   * request failed. Invoked on the thread that made the request.
+   *
+   * @param metrics The timings of the request. Not modified after this method is invoked.
+   */
+  void onRequestFinished(HttpRequestMetrics metrics);
 
 }
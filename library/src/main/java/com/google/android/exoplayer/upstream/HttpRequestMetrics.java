@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.upstream.Loader.Loadable;
+
+/**
+ * The timings of a request made by an {@link HttpDataSource}.
+ * <p>
+ * Times are in milliseconds, measured by {@link android.os.SystemClock#elapsedRealtime()}, and are
+ * -1 if the request did not reach the corresponding phase or if the phase cannot be measured.
+ */
+public final class HttpRequestMetrics {
+
+  /**
+   * Whether the request reused an existing connection is not known.
+   */
+  public static final int CONNECTION_REUSE_UNKNOWN = 0;
+  /**
+   * The request was made on a new connection.
+   */
+  public static final int CONNECTION_NEW = 1;
+  /**
+   * The request reused an existing connection.
+   */
+  public static final int CONNECTION_REUSED = 2;
+
+  /**
+   * The requested data.
+   */
+  public final DataSpec dataSpec;
+  /**
+   * The load that made the request, as returned by {@link Loader#getCurrentLoadable()}, or null if
+   * the request was not made by a load.
+   */
+  public final Loadable loadable;
+  /**
+   * The time at which the request was started.
+   */
+  public final long requestStartTimeMs;
+
+  /**
+   * The time at which a connection to the server was established, including any DNS lookup and
+   * TLS handshake. If the request was redirected, this is for the final connection.
+   */
+  public long connectEndTimeMs;
+  /**
+   * The time at which the response headers were received.
+   */
+  public long responseStartTimeMs;
+  /**
+   * The time at which the first byte of the response body was read.
+   */
+  public long firstByteTimeMs;
+  /**
+   * The time at which the request finished.
+   */
+  public long requestEndTimeMs;
+  /**
+   * The URI of the response, after any redirects, or null if no response was received.
+   */
+  public String responseUri;
+  /**
+   * The HTTP status code of the response, or -1 if no response was received.
+   */
+  public int responseCode;
+  /**
+   * The number of redirects that were followed.
+   */
+  public int redirectCount;
+  /**
+   * Whether the request reused an existing connection. One of {@link #CONNECTION_REUSE_UNKNOWN},
+   * {@link #CONNECTION_NEW} and {@link #CONNECTION_REUSED}.
+   */
+  public int connectionReuse;
+  /**
+   * The number of bytes of the response body that were read, including any that were skipped.
+   */
+  public long bytesRead;
+  /**
+   * The error that caused the request to fail, or null.
+   */
+  public Exception error;
+
+  /**
+   * @param dataSpec The requested data.
+   * @param loadable The load that made the request, or null.
+   * @param requestStartTimeMs The time at which the request was started.
+   */
+  public HttpRequestMetrics(DataSpec dataSpec, Loadable loadable, long requestStartTimeMs) {
+    this.dataSpec = dataSpec;
+    this.loadable = loadable;
+    this.requestStartTimeMs = requestStartTimeMs;
+    connectEndTimeMs = -1;
+    responseStartTimeMs = -1;
+    firstByteTimeMs = -1;
+    requestEndTimeMs = -1;
+    responseCode = -1;
+  }
+
+  /**
+   * Returns the time from the start of the request until the first byte of the response body was
+   * read, or -1 if no body was read.
+   */
+  public long getTimeToFirstByteMs() {
+    return firstByteTimeMs == -1 ? -1 : firstByteTimeMs - requestStartTimeMs;
+  }
+
+  /**
+   * Returns the rate at which the response body was read after its first byte, in bits per second,
+   * or -1 if it cannot be calculated.
+   */
+  public long getThroughputBitsPerSecond() {
+    long elapsedMs = requestEndTimeMs - firstByteTimeMs;
+    if (firstByteTimeMs == -1 || requestEndTimeMs == -1 || elapsedMs <= 0) {
+      return -1;
+    }
+    return bytesRead * 8000 / elapsedMs;
+  }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.chunk.Chunk;
+import com.google.android.exoplayer.util.Assertions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link HttpRequestListener} that keeps the metrics of the most recent requests in a ring
+ * buffer, so that their timelines can be dumped for analysis.
+ * <p>
+ * Recording a request only stores a reference to its metrics. Instances may be shared by sources
+ * on different threads.
+ */
+public final class HttpRequestRecorder implements HttpRequestListener {
+
+  private final HttpRequestMetrics[] requests;
+
+  private int nextIndex;
+  private int size;
+
+  /**
+   * @param capacity The maximum number of requests to keep.
+   */
+  public HttpRequestRecorder(int capacity) {
+    Assertions.checkArgument(capacity > 0);
+    requests = new HttpRequestMetrics[capacity];
+  }
+
+  @Override
+  public synchronized void onRequestFinished(HttpRequestMetrics metrics) {
+    requests[nextIndex] = metrics;
+    nextIndex = (nextIndex + 1) % requests.length;
+    size = Math.min(size + 1, requests.length);
+  }
+
+  /**
+   * Returns the metrics of the recorded requests, oldest first.
+   */
+  public synchronized List<HttpRequestMetrics> getRecentRequests() {
+    List<HttpRequestMetrics> recentRequests = new ArrayList<>(size);
+    int index = (nextIndex - size + requests.length) % requests.length;
+    for (int i = 0; i < size; i++) {
+      recentRequests.add(requests[index]);
+      index = (index + 1) % requests.length;
+    }
+    return recentRequests;
+  }
+
+  /**
+   * Removes all recorded requests.
+   */
+  public synchronized void clear() {
+    for (int i = 0; i < requests.length; i++) {
+      requests[i] = null;
+    }
+    nextIndex = 0;
+    size = 0;
+  }
+
+  /**
+   * Returns the timelines of the recorded requests, oldest first, one per line.
+   * <p>
+   * Each line gives the start time of the request followed by the time taken to connect, to
+   * receive the response headers, to read the first byte of the body and to finish, each measured
+   * from the start of the request. Requests made by a {@link Chunk} are tagged with its type,
+   * format and trigger.
+   */
+  public String dump() {
+    StringBuilder builder = new StringBuilder();
+    for (HttpRequestMetrics metrics : getRecentRequests()) {
+      long startTimeMs = metrics.requestStartTimeMs;
+      builder.append(startTimeMs)
+          .append(" connect=").append(getOffsetMs(startTimeMs, metrics.connectEndTimeMs))
+          .append(" response=").append(getOffsetMs(startTimeMs, metrics.responseStartTimeMs))
+          .append(" firstByte=").append(getOffsetMs(startTimeMs, metrics.firstByteTimeMs))
+          .append(" end=").append(getOffsetMs(startTimeMs, metrics.requestEndTimeMs))
+          .append(" code=").append(metrics.responseCode)
+          .append(" bytes=").append(metrics.bytesRead)
+          .append(" redirects=").append(metrics.redirectCount)
+          .append(" reuse=").append(getConnectionReuseString(metrics.connectionReuse));
+      if (metrics.loadable instanceof Chunk) {
+        Chunk chunk = (Chunk) metrics.loadable;
+        builder.append(" type=").append(chunk.type)
+            .append(" format=").append(chunk.format == null ? null : chunk.format.id)
+            .append(" trigger=").append(chunk.trigger);
+      }
+      if (metrics.error != null) {
+        builder.append(" error=").append(metrics.error);
+      }
+      builder.append(" uri=").append(metrics.responseUri != null ? metrics.responseUri
+          : metrics.dataSpec.uri).append('\n');
+    }
+    return builder.toString();
+  }
+
+  private static String getOffsetMs(long startTimeMs, long timeMs) {
+    return timeMs == -1 ? "?" : Long.toString(timeMs - startTimeMs);
+  }
+
+  private static String getConnectionReuseString(int connectionReuse) {
+    switch (connectionReuse) {
+      case HttpRequestMetrics.CONNECTION_NEW:
+        return "new";
+      case HttpRequestMetrics.CONNECTION_REUSED:
+        return "reused";
+      default:
+        return "?";
+    }
+  }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+/**
+ * Decides whether an HTTP data source should skip data by reading and discarding it, or by
+ * closing its connection and requesting the data that follows it.
+ * <p>
+ * The cost of a new request is estimated from the time taken to receive the headers of recent
+ * responses, and the cost of reading is estimated from the rate at which data has been read. Data
+ * is only skipped by making a new request if the request is estimated to be faster, and if at
+ * least a minimum number of bytes are being skipped.
+ */
+public final class HttpSkipStrategy {
+
+  /**
+   * The default minimum number of bytes that are skipped by making a new request.
+   */
+  public static final long DEFAULT_MIN_REQUEST_SKIP_BYTES = 256 * 1024;
+
+  /**
+   * The number of bytes that must be read before the read rate is used. Below this, any skip of
+   * at least the minimum size is performed by making a new request.
+   */
+  private static final long MIN_BYTES_FOR_READ_RATE = 64 * 1024;
+
+  /**
+   * The weight of the most recent sample in the moving average of the response time.
+   */
+  private static final float RESPONSE_TIME_SMOOTHING_FACTOR = 0.25f;
+
+  private final long minRequestSkipBytes;
+
+  private float responseTimeMs;
+  private long bytesRead;
+  private long readTimeMs;
+  private long bytesDiscarded;
+  private long bytesSaved;
+
+  /**
+   * @param minRequestSkipBytes The minimum number of bytes that are skipped by making a new
+   *     request, or {@link Long#MAX_VALUE} to always skip by reading.
+   */
+  public HttpSkipStrategy(long minRequestSkipBytes) {
+    this.minRequestSkipBytes = minRequestSkipBytes;
+    responseTimeMs = -1;
+  }
+
+  /**
+   * Returns whether to skip data by making a new request.
+   *
+   * @param length The number of bytes to skip.
+   */
+  public synchronized boolean shouldSkipWithNewRequest(long length) {
+    if (length < minRequestSkipBytes) {
+      return false;
+    }
+    if (responseTimeMs < 0 || bytesRead < MIN_BYTES_FOR_READ_RATE) {
+      return true;
+    }
+    float estimatedReadTimeMs = (float) length * readTimeMs / bytesRead;
+    return estimatedReadTimeMs > responseTimeMs;
+  }
+
+  /**
+   * Called when the headers of a response have been received.
+   *
+   * @param elapsedMs The time since the request was made, in milliseconds.
+   */
+  public synchronized void onResponse(long elapsedMs) {
+    responseTimeMs = responseTimeMs < 0 ? elapsedMs
+        : responseTimeMs + RESPONSE_TIME_SMOOTHING_FACTOR * (elapsedMs - responseTimeMs);
+  }
+
+  /**
+   * Called when data has been read from a response, whether the data is used or discarded.
+   *
+   * @param bytes The number of bytes read.
+   * @param elapsedMs The time taken to read the data, in milliseconds.
+   */
+  public synchronized void onRead(int bytes, long elapsedMs) {
+    bytesRead += bytes;
+    readTimeMs += elapsedMs;
+  }
+
+  /**
+   * Called when data has been skipped by reading and discarding it.
+   *
+   * @param bytes The number of bytes discarded.
+   */
+  public synchronized void onDiscarded(long bytes) {
+    bytesDiscarded += bytes;
+  }
+
+  /**
+   * Called when data has been skipped by making a new request.
+   *
+   * @param bytes The number of bytes that did not need to be read.
+   */
+  public synchronized void onSaved(long bytes) {
+    bytesSaved += bytes;
+  }
+
+  /**
+   * Returns the number of bytes that have been read and discarded in order to skip them.
+   */
+  public synchronized long getBytesDiscarded() {
+    return bytesDiscarded;
+  }
+
+  /**
+   * Returns the number of bytes that have been skipped without being read, by making new
+   * requests.
+   */
+  public synchronized long getBytesSaved() {
+    return bytesSaved;
+  }
+
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.util.Assertions;
+import com.google.android.exoplayer.util.Clock;
+import com.google.android.exoplayer.util.SlidingPercentile;
+import com.google.android.exoplayer.util.SystemClock;
+
+import android.os.Handler;
+
+import java.util.ArrayList;
+
+/**
+ * A {@link BandwidthMeter} that separates the latency of each transfer from the throughput of the
+ * connection.
+ * <p>
+ * The time between the start of a transfer and its first bytes arriving is treated as latency,
+ * and is excluded from the throughput measurement along with the first bytes themselves. The
+ * throughput is measured over the periods during which at least one transfer is receiving data,
+ * so bytes from concurrent transfers are attributed to the time in which they were actually
+ * transferred. Throughput samples feed both an exponentially weighted moving average, which
+ * reacts quickly to changes, and a sliding median, which is robust to outliers. The reported
+ * estimate is a weighted blend of the two.
+ * <p>
+ * Each listener returned by {@link #newTransferListener()} tracks the transfers of a single source,
+ * one at a time, and its callbacks may be invoked on any thread. Transfers reported directly to the
+ * meter are distinguished by the thread that started them. Bytes and the end of a transfer reported
+ * on a different thread are attributed to the only transfer that's open, if there is exactly one.
+ * Sources that may read on a thread other than the one that opened them, and that may run
+ * concurrently with other sources, should be given a listener from {@link #newTransferListener()}.
+ * <p>
+ * If an {@link EstimateStore} is provided then the last estimate is persisted to it periodically,
+ * and is read back on construction so that a new meter can provide an estimate immediately.
+ */
+public final class LatencyAwareBandwidthMeter implements BandwidthMeter {
+
+  /**
+   * Persists bitrate estimates across meter instances.
+   */
+  public interface EstimateStore {
+
+    /**
+     * Returns the stored bitrate estimate for the current network, in bits/sec.
+     *
+     * @return The stored estimate, or {@link BandwidthMeter#NO_ESTIMATE} if none is stored.
+     */
+    long getBitrateEstimate();
+
+    /**
+     * Stores a bitrate estimate for the current network.
+     *
+     * @param bitrateEstimate The estimate to store, in bits/sec.
+     */
+    void setBitrateEstimate(long bitrateEstimate);
+
+  }
+
+  public static final int DEFAULT_MAX_WEIGHT = 2000;
+  public static final int DEFAULT_HALF_LIFE_MS = 2000;
+  public static final float DEFAULT_AVERAGE_WEIGHT = 0.5f;
+  public static final int DEFAULT_STORE_INTERVAL_MS = 10000;
+
+  /**
+   * The weight given to each new sample when updating the latency estimate.
+   */
+  private static final float LATENCY_SMOOTHING_FACTOR = 0.25f;
+
+  private final Handler eventHandler;
+  private final EventListener eventListener;
+  private final Clock clock;
+  private final EstimateStore estimateStore;
+  private final SlidingPercentile slidingPercentile;
+  private final int halfLifeMs;
+  private final float averageWeight;
+  private final int storeIntervalMs;
+  private final ThreadLocal<Transfer> threadTransfers;
+  private final ArrayList<Transfer> openThreadTransfers;
+
+  private int receivingCount;
+  private long receivingStartTimeMs;
+  private long bytesAccumulator;
+  private double averageBitrate;
+  private long bitrateEstimate;
+  private long latencyEstimateMs;
+  private long lastStoreTimeMs;
+
+  public LatencyAwareBandwidthMeter() {
+    this(null, null, null);
+  }
+
+  public LatencyAwareBandwidthMeter(Handler eventHandler, EventListener eventListener,
+      EstimateStore estimateStore) {
+    this(eventHandler, eventListener, estimateStore, new SystemClock(), DEFAULT_MAX_WEIGHT,
+        DEFAULT_HALF_LIFE_MS, DEFAULT_AVERAGE_WEIGHT, DEFAULT_STORE_INTERVAL_MS);
+  }
+
+  /**
+   * @param eventHandler A handler for events. May be null if delivery of events is not required.
+   * @param eventListener A listener of events. May be null if delivery of events is not required.
+   * @param estimateStore A store in which to persist the estimate. May be null.
+   * @param clock The clock used to time transfers.
+   * @param maxWeight The maximum weight of the sliding median.
+   * @param halfLifeMs The duration of transfer after which the weight of earlier samples in the
+   *     moving average is halved.
+   * @param averageWeight The weight in [0, 1] given to the moving average when blending it with
+   *     the sliding median.
+   * @param storeIntervalMs The minimum interval between writes to {@code estimateStore}.
+   */
+  public LatencyAwareBandwidthMeter(Handler eventHandler, EventListener eventListener,
+      EstimateStore estimateStore, Clock clock, int maxWeight, int halfLifeMs,
+      float averageWeight, int storeIntervalMs) {
+    Assertions.checkArgument(averageWeight >= 0 && averageWeight <= 1);
+    this.eventHandler = eventHandler;
+    this.eventListener = eventListener;
+    this.estimateStore = estimateStore;
+    this.clock = clock;
+    this.halfLifeMs = halfLifeMs;
+    this.averageWeight = averageWeight;
+    this.storeIntervalMs = storeIntervalMs;
+    slidingPercentile = new SlidingPercentile(maxWeight);
+    openThreadTransfers = new ArrayList<>();
+    threadTransfers = new ThreadLocal<Transfer>() {
+      @Override
+      protected Transfer initialValue() {
+        return new Transfer();
+      }
+    };
+    bitrateEstimate = estimateStore == null ? NO_ESTIMATE : estimateStore.getBitrateEstimate();
+    averageBitrate = bitrateEstimate == NO_ESTIMATE ? Double.NaN : bitrateEstimate;
+    latencyEstimateMs = NO_ESTIMATE;
+    lastStoreTimeMs = clock.elapsedRealtime() - storeIntervalMs;
+  }
+
+  @Override
+  public synchronized long getBitrateEstimate() {
+    return bitrateEstimate;
+  }
+
+  /**
+   * Gets the estimated latency between the start of a transfer and its first bytes arriving.
+   *
+   * @return Estimated latency in milliseconds, or {@link #NO_ESTIMATE} if no estimate is
+   *     available.
+   */
+  public synchronized long getLatencyEstimateMs() {
+    return latencyEstimateMs;
+  }
+
+  /**
+   * Returns a listener for the transfers of a single source. The source's transfers are identified
+   * by the listener, and so its callbacks may be invoked on any thread.
+   *
+   * @return A new listener that reports to this meter.
+   */
+  public TransferListener newTransferListener() {
+    return new Transfer();
+  }
+
+  @Override
+  public synchronized void onTransferStart() {
+    Transfer transfer = threadTransfers.get();
+    if (!transfer.open) {
+      openThreadTransfers.add(transfer);
+    }
+    transfer.onTransferStart();
+  }
+
+  @Override
+  public synchronized void onBytesTransferred(int bytes) {
+    getThreadTransfer().onBytesTransferred(bytes);
+  }
+
+  @Override
+  public synchronized void onTransferEnd() {
+    Transfer transfer = getThreadTransfer();
+    openThreadTransfers.remove(transfer);
+    transfer.onTransferEnd();
+  }
+
+  private Transfer getThreadTransfer() {
+    Transfer transfer = threadTransfers.get();
+    if (!transfer.open && openThreadTransfers.size() == 1) {
+      // The transfer was started on another thread.
+      transfer = openThreadTransfers.get(0);
+    }
+    return transfer;
+  }
+
+  private void onTransferStart(Transfer transfer) {
+    transfer.open = true;
+    transfer.receiving = false;
+    transfer.startTimeMs = clock.elapsedRealtime();
+  }
+
+  private void onBytesTransferred(Transfer transfer, int bytes) {
+    if (!transfer.open) {
+      return;
+    }
+    if (transfer.receiving) {
+      bytesAccumulator += bytes;
+      return;
+    }
+    // These are the first bytes of the transfer. Everything up to this point is latency, and the
+    // bytes themselves arrived during the latency period, so they're not counted toward throughput.
+    long nowMs = clock.elapsedRealtime();
+    transfer.receiving = true;
+    onLatencySample(nowMs - transfer.startTimeMs);
+    if (receivingCount == 0) {
+      receivingStartTimeMs = nowMs;
+      bytesAccumulator = 0;
+    }
+    receivingCount++;
+  }
+
+  private void onTransferEnd(Transfer transfer) {
+    if (!transfer.open) {
+      return;
+    }
+    transfer.open = false;
+    if (!transfer.receiving) {
+      return;
+    }
+    long nowMs = clock.elapsedRealtime();
+    int elapsedMs = (int) (nowMs - receivingStartTimeMs);
+    if (elapsedMs > 0 && bytesAccumulator > 0) {
+      onThroughputSample(nowMs, elapsedMs, bytesAccumulator);
+    }
+    receivingCount--;
+    if (receivingCount > 0) {
+      receivingStartTimeMs = nowMs;
+    }
+    bytesAccumulator = 0;
+  }
+
+  private void onLatencySample(long latencyMs) {
+    latencyEstimateMs = latencyEstimateMs == NO_ESTIMATE ? latencyMs
+        : (long) (LATENCY_SMOOTHING_FACTOR * latencyMs
+            + (1 - LATENCY_SMOOTHING_FACTOR) * latencyEstimateMs);
+  }
+
+  private void onThroughputSample(long nowMs, int elapsedMs, long bytes) {
+    float bitsPerSecond = (bytes * 8000) / elapsedMs;
+    slidingPercentile.addSample((int) Math.sqrt(bytes), bitsPerSecond);
+    float median = slidingPercentile.getPercentile(0.5f);
+    if (Double.isNaN(averageBitrate)) {
+      averageBitrate = bitsPerSecond;
+    } else {
+      double sampleWeight = 1 - Math.pow(0.5, (double) elapsedMs / halfLifeMs);
+      averageBitrate += sampleWeight * (bitsPerSecond - averageBitrate);
+    }
+    bitrateEstimate = (long) (averageWeight * averageBitrate + (1 - averageWeight) * median);
+    if (estimateStore != null && nowMs - lastStoreTimeMs >= storeIntervalMs) {
+      lastStoreTimeMs = nowMs;
+      estimateStore.setBitrateEstimate(bitrateEstimate);
+    }
+    notifyBandwidthSample(elapsedMs, bytes, bitrateEstimate);
+  }
+
+  private void notifyBandwidthSample(final int elapsedMs, final long bytes, final long bitrate) {
+    if (eventHandler != null && eventListener != null) {
+      eventHandler.post(new Runnable()  {
+        @Override
+        public void run() {
+          eventListener.onBandwidthSample(elapsedMs, bytes, bitrate);
+        }
+      });
+    }
+  }
+
+  private final class Transfer implements TransferListener {
+
+    public boolean open;
+    public boolean receiving;
+    public long startTimeMs;
+
+    @Override
+    public void onTransferStart() {
+      synchronized (LatencyAwareBandwidthMeter.this) {
+        LatencyAwareBandwidthMeter.this.onTransferStart(this);
+      }
+    }
+
+    @Override
+    public void onBytesTransferred(int bytes) {
+      synchronized (LatencyAwareBandwidthMeter.this) {
+        LatencyAwareBandwidthMeter.this.onBytesTransferred(this, bytes);
+      }
+    }
+
+    @Override
+    public void onTransferEnd() {
+      synchronized (LatencyAwareBandwidthMeter.this) {
+        LatencyAwareBandwidthMeter.this.onTransferEnd(this);
+      }
+    }
+
+  }
+
+}
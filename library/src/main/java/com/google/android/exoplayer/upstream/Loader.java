@@ -17,7 +17,6 @@ package com.google.android.exoplayer.upstream;
 
 import com.google.android.exoplayer.util.Assertions;
 import com.google.android.exoplayer.util.TraceUtil;
-import com.google.android.exoplayer.util.Util;
 
 import android.annotation.SuppressLint;
 import android.os.Handler;
@@ -26,10 +25,11 @@ import android.os.Message;
 import android.util.Log;
 
 import java.io.IOException;
-import java.util.concurrent.ExecutorService;
 
 /**
  * Manages the background loading of {@link Loadable}s.
+ * <p>
+ * Loads are run on a {@link LoaderThreadPool}, which is shared with other loaders.
  */
 public final class Loader {
 
@@ -103,16 +103,55 @@ public final class Loader {
   private static final int MSG_IO_EXCEPTION = 1;
   private static final int MSG_FATAL_ERROR = 2;
 
-  private final ExecutorService downloadExecutorService;
+  private static final ThreadLocal<Loadable> currentLoadable = new ThreadLocal<>();
+
+  private final LoaderThreadPool threadPool;
+  private final int priority;
+  private final String threadName;
 
   private LoadTask currentTask;
   private boolean loading;
 
   /**
-   * @param threadName A name for the loader's thread.
+   * Creates a loader that loads media on the default {@link LoaderThreadPool}.
+   *
+   * @param threadName A name for the thread whilst it runs the loader's loads.
    */
   public Loader(String threadName) {
-    this.downloadExecutorService = Util.newSingleThreadExecutor(threadName);
+    this(threadName, LoaderThreadPool.PRIORITY_MEDIA);
+  }
+
+  /**
+   * Creates a loader that uses the default {@link LoaderThreadPool}.
+   *
+   * @param threadName A name for the thread whilst it runs the loader's loads.
+   * @param priority The priority of the loader's loads. One of
+   *     {@link LoaderThreadPool#PRIORITY_MEDIA}, {@link LoaderThreadPool#PRIORITY_MANIFEST},
+   *     {@link LoaderThreadPool#PRIORITY_TEXT} and {@link LoaderThreadPool#PRIORITY_PREFETCH}.
+   */
+  public Loader(String threadName, int priority) {
+    this(threadName, priority, LoaderThreadPool.getDefault());
+  }
+
+  /**
+   * @param threadName A name for the thread whilst it runs the loader's loads.
+   * @param priority The priority of the loader's loads. One of
+   *     {@link LoaderThreadPool#PRIORITY_MEDIA}, {@link LoaderThreadPool#PRIORITY_MANIFEST},
+   *     {@link LoaderThreadPool#PRIORITY_TEXT} and {@link LoaderThreadPool#PRIORITY_PREFETCH}.
+   * @param threadPool The pool on which loads should be run.
+   */
+  public Loader(String threadName, int priority, LoaderThreadPool threadPool) {
+    this.threadName = threadName;
+    this.priority = priority;
+    this.threadPool = threadPool;
+  }
+
+  /**
+   * Returns the {@link Loadable} that is being loaded on the calling thread, or null if the calling
+   * thread is not running a load. Allows the requests made by a load to be attributed to it.
+   */
+  public static Loadable getCurrentLoadable() {
+    return currentLoadable.get();
   }
 
   /**
@@ -143,7 +182,7 @@ public final class Loader {
     Assertions.checkState(!loading);
     loading = true;
     currentTask = new LoadTask(looper, loadable, callback);
-    downloadExecutorService.submit(currentTask);
+    threadPool.execute(currentTask, priority, threadName);
   }
 
   /**
@@ -162,7 +201,13 @@ public final class Loader {
    */
   public void cancelLoading() {
     Assertions.checkState(loading);
-    currentTask.quit();
+    if (threadPool.remove(currentTask)) {
+      // The load had not started. Report the cancelation as though it had.
+      currentTask.loadable.cancelLoad();
+      currentTask.sendEmptyMessage(MSG_END_OF_SOURCE);
+    } else {
+      currentTask.quit();
+    }
   }
 
   /**
@@ -174,7 +219,6 @@ public final class Loader {
     if (loading) {
       cancelLoading();
     }
-    downloadExecutorService.shutdown();
   }
 
   @SuppressLint("HandlerLeak")
@@ -185,7 +229,7 @@ public final class Loader {
     private final Loadable loadable;
     private final Loader.Callback callback;
 
-    private volatile Thread executorThread;
+    private Thread executorThread;
 
     public LoadTask(Looper looper, Loadable loadable, Loader.Callback callback) {
       super(looper);
@@ -195,15 +239,22 @@ public final class Loader {
 
     public void quit() {
       loadable.cancelLoad();
-      if (executorThread != null) {
-        executorThread.interrupt();
+      synchronized (this) {
+        // The thread is shared with other loaders, so it must only be interrupted whilst it is
+        // running this task.
+        if (executorThread != null) {
+          executorThread.interrupt();
+        }
       }
     }
 
     @Override
     public void run() {
-      try {
+      synchronized (this) {
         executorThread = Thread.currentThread();
+      }
+      currentLoadable.set(loadable);
+      try {
         if (!loadable.isLoadCanceled()) {
           TraceUtil.beginSection(loadable.getClass().getSimpleName() + ".load()");
           loadable.load();
@@ -227,6 +278,11 @@ public final class Loader {
         Log.e(TAG, "Unexpected error loading stream", e);
         obtainMessage(MSG_FATAL_ERROR, e).sendToTarget();
         throw e;
+      } finally {
+        currentLoadable.set(null);
+        synchronized (this) {
+          executorThread = null;
+        }
       }
     }
 
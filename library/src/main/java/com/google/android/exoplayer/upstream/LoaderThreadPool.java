@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.util.SlidingPercentile;
+
+import android.os.SystemClock;
+
+import java.util.PriorityQueue;
+
+/**
+ * A pool of threads on which {@link Loader}s run their loads.
+ * <p>
+ * Threads are created when a load is started and no thread is idle, up to an optional maximum
+ * number, and exit once they have been idle for a while. Loads that are started when the maximum
+ * number of threads are busy wait in a queue, and are run in order of decreasing priority.
+ * <p>
+ * A load may occupy its thread indefinitely, for example whilst waiting for buffer space when
+ * playback is paused. A bounded pool shared by several players could therefore be filled by such
+ * loads, leaving others queued until playback resumes. For this reason the default pool is
+ * unbounded, and a bounded pool should only be shared by loads that are known to complete.
+ */
+public final class LoaderThreadPool {
+
+  /**
+   * Priority of loads of media that is being played.
+   */
+  public static final int PRIORITY_MEDIA = 3;
+  /**
+   * Priority of loads of manifests, and of other data needed to locate media.
+   */
+  public static final int PRIORITY_MANIFEST = 2;
+  /**
+   * Priority of loads of text tracks.
+   */
+  public static final int PRIORITY_TEXT = 1;
+  /**
+   * Priority of loads of data that is not yet needed.
+   */
+  public static final int PRIORITY_PREFETCH = 0;
+
+  /**
+   * A maximum number of threads that places no limit on the size of the pool.
+   */
+  public static final int UNBOUNDED_THREAD_COUNT = Integer.MAX_VALUE;
+
+  private static final int KEEP_ALIVE_TIME_MS = 10000;
+  private static final int MAX_WAIT_TIME_SAMPLES = 100;
+
+  private static LoaderThreadPool defaultInstance;
+
+  private final int maxThreadCount;
+  private final PriorityQueue<Task> queue;
+  private final SlidingPercentile waitTimesMs;
+
+  private int threadCount;
+  private int idleThreadCount;
+  private int maxQueuedTaskCount;
+  private long nextSequenceNumber;
+
+  /**
+   * Returns an unbounded pool, which is shared by all {@link Loader}s that are not given a pool
+   * explicitly.
+   */
+  public static synchronized LoaderThreadPool getDefault() {
+    if (defaultInstance == null) {
+      defaultInstance = new LoaderThreadPool(UNBOUNDED_THREAD_COUNT);
+    }
+    return defaultInstance;
+  }
+
+  /**
+   * @param maxThreadCount The maximum number of loads that can run at once, or
+   *     {@link #UNBOUNDED_THREAD_COUNT} if there is no limit.
+   */
+  public LoaderThreadPool(int maxThreadCount) {
+    this.maxThreadCount = maxThreadCount;
+    queue = new PriorityQueue<>();
+    waitTimesMs = new SlidingPercentile(MAX_WAIT_TIME_SAMPLES);
+  }
+
+  /**
+   * Returns the number of threads in the pool.
+   */
+  public synchronized int getThreadCount() {
+    return threadCount;
+  }
+
+  /**
+   * Returns the number of loads waiting for a thread.
+   */
+  public synchronized int getQueuedTaskCount() {
+    return queue.size();
+  }
+
+  /**
+   * Returns the maximum number of loads that have been waiting for a thread to become available
+   * at one time, because the maximum number of threads were busy.
+   */
+  public synchronized int getMaxQueuedTaskCount() {
+    return maxQueuedTaskCount;
+  }
+
+  /**
+   * Returns a percentile of the time that recently started loads waited for a thread.
+   *
+   * @param percentile The desired percentile, expressed as a fraction in the range (0,1].
+   * @return The percentile in milliseconds, or {@link Float#NaN} if no loads have started.
+   */
+  public synchronized float getWaitTimePercentileMs(float percentile) {
+    return waitTimesMs.getPercentile(percentile);
+  }
+
+  /**
+   * Queues a task to be run on a thread in the pool.
+   *
+   * @param runnable The task.
+   * @param priority The priority of the task. One of {@link #PRIORITY_MEDIA},
+   *     {@link #PRIORITY_MANIFEST}, {@link #PRIORITY_TEXT} and {@link #PRIORITY_PREFETCH}.
+   * @param threadName A name for the thread whilst it runs the task.
+   */
+  /* package */ synchronized void execute(Runnable runnable, int priority, String threadName) {
+    queue.add(new Task(runnable, priority, threadName, nextSequenceNumber++,
+        SystemClock.elapsedRealtime()));
+    if (idleThreadCount > 0) {
+      notify();
+    }
+    // Idle threads that have been notified still count as idle until they take a task, so this is
+    // the number of tasks that no thread is going to take.
+    int unclaimedTaskCount = queue.size() - idleThreadCount;
+    if (unclaimedTaskCount > 0) {
+      if (threadCount < maxThreadCount) {
+        threadCount++;
+        new Thread(new Worker(), "LoaderThreadPool").start();
+      } else {
+        maxQueuedTaskCount = Math.max(maxQueuedTaskCount, unclaimedTaskCount);
+      }
+    }
+  }
+
+  /**
+   * Removes a task from the queue if it has not started running.
+   *
+   * @param runnable The task.
+   * @return True if the task was removed. False if it has started running.
+   */
+  /* package */ synchronized boolean remove(Runnable runnable) {
+    for (Task task : queue) {
+      if (task.runnable == runnable) {
+        queue.remove(task);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private synchronized Task takeTask() {
+    long deadlineMs = SystemClock.elapsedRealtime() + KEEP_ALIVE_TIME_MS;
+    while (queue.isEmpty()) {
+      long remainingMs = deadlineMs - SystemClock.elapsedRealtime();
+      if (remainingMs <= 0) {
+        threadCount--;
+        return null;
+      }
+      idleThreadCount++;
+      try {
+        wait(remainingMs);
+      } catch (InterruptedException e) {
+        // Interrupts are only used to cancel loads, and no load is running. Ignore it.
+      } finally {
+        idleThreadCount--;
+      }
+    }
+    Task task = queue.poll();
+    waitTimesMs.addSample(1, SystemClock.elapsedRealtime() - task.queueTimeMs);
+    return task;
+  }
+
+  private synchronized void onThreadExited() {
+    threadCount--;
+  }
+
+  private final class Worker implements Runnable {
+
+    @Override
+    public void run() {
+      Thread thread = Thread.currentThread();
+      Task task = null;
+      try {
+        while ((task = takeTask()) != null) {
+          thread.setName(task.threadName);
+          task.runnable.run();
+          // Don't carry a cancelation interrupt over to the next task.
+          Thread.interrupted();
+          thread.setName("LoaderThreadPool");
+        }
+      } finally {
+        if (task != null) {
+          // The task threw, and so this thread is exiting.
+          onThreadExited();
+        }
+      }
+    }
+
+  }
+
+  private static final class Task implements Comparable<Task> {
+
+    public final Runnable runnable;
+    public final int priority;
+    public final String threadName;
+    public final long sequenceNumber;
+    public final long queueTimeMs;
+
+    public Task(Runnable runnable, int priority, String threadName, long sequenceNumber,
+        long queueTimeMs) {
+      this.runnable = runnable;
+      this.priority = priority;
+      this.threadName = threadName;
+      this.sequenceNumber = sequenceNumber;
+      this.queueTimeMs = queueTimeMs;
+    }
+
+    @Override
+    public int compareTo(Task other) {
+      if (priority != other.priority) {
+        return priority > other.priority ? -1 : 1;
+      }
+      return sequenceNumber < other.sequenceNumber ? -1 : 1;
+    }
+
+  }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import java.util.ArrayDeque;
+
+/**
+ * Restores the order of RTP packets using their sequence numbers.
+ * <p>
+ * Packets that arrive ahead of a missing packet are held in a window of fixed size. Held packets
+ * are released once the missing packet arrives, once the window is needed for later packets, or
+ * when {@link #skipMissingPackets()} is called. Packets that arrive after a later packet has been
+ * released are discarded as late or duplicate packets. A large jump in sequence number in either
+ * direction is treated as a restart of the sequence.
+ *
+ * @param <T> The type of the packets.
+ */
+/* package */ final class RtpReorderBuffer<T> {
+
+  private static final int SEQUENCE_NUMBER_MASK = 0xFFFF;
+  /**
+   * The largest forward jump in sequence number that is treated as packet loss rather than as a
+   * restart of the sequence, as suggested by RFC 3550.
+   */
+  private static final int MAX_DROPOUT = 3000;
+
+  private final Object[] heldPackets;
+  private final int mask;
+  private final ArrayDeque<T> releasedPackets;
+
+  private boolean started;
+  private int nextSequenceNumber;
+  private int highestSequenceNumber;
+  private int heldPacketCount;
+
+  private long lostPacketCount;
+  private long discardedPacketCount;
+  private long reorderedPacketCount;
+
+  /**
+   * @param windowSize The maximum number of packets to hold whilst waiting for a missing packet.
+   *     Must be a power of two no greater than 2^15.
+   */
+  public RtpReorderBuffer(int windowSize) {
+    heldPackets = new Object[windowSize];
+    mask = windowSize - 1;
+    releasedPackets = new ArrayDeque<>(windowSize);
+  }
+
+  /**
+   * Adds a packet.
+   *
+   * @param packet The packet.
+   * @param sequenceNumber The RTP sequence number of the packet.
+   * @return True if the packet was added. False if it arrived too late or is a duplicate, in
+   *     which case the caller retains ownership of it.
+   */
+  public boolean add(T packet, int sequenceNumber) {
+    if (!started) {
+      started = true;
+      nextSequenceNumber = sequenceNumber;
+      highestSequenceNumber = sequenceNumber;
+    }
+    // Sequence numbers wrap around, so they are compared using the signed 16-bit difference.
+    int distance = (short) (sequenceNumber - nextSequenceNumber);
+    if (distance < -heldPackets.length || distance > MAX_DROPOUT) {
+      // The sender has restarted the sequence. Release the held packets and start again.
+      skipMissingPackets();
+      nextSequenceNumber = sequenceNumber;
+      highestSequenceNumber = sequenceNumber;
+      distance = 0;
+    } else if (distance < 0) {
+      discardedPacketCount++;
+      return false;
+    }
+    if (distance > heldPackets.length - 1) {
+      // The packet is too far ahead to hold. Give up waiting for earlier missing packets.
+      skip(distance - heldPackets.length + 1);
+    }
+    int index = sequenceNumber & mask;
+    if (heldPackets[index] != null) {
+      discardedPacketCount++;
+      return false;
+    }
+    if ((short) (sequenceNumber - highestSequenceNumber) < 0) {
+      reorderedPacketCount++;
+    } else {
+      highestSequenceNumber = sequenceNumber;
+    }
+    heldPackets[index] = packet;
+    heldPacketCount++;
+    releaseConsecutivePackets();
+    return true;
+  }
+
+  /**
+   * Stops waiting for missing packets, releasing all held packets in order.
+   */
+  public void skipMissingPackets() {
+    while (heldPacketCount > 0) {
+      skip(1);
+      releaseConsecutivePackets();
+    }
+  }
+
+  /**
+   * Returns the next released packet, or null if no packets have been released.
+   */
+  public T poll() {
+    return releasedPackets.poll();
+  }
+
+  /**
+   * Discards all held and released packets, and forgets the expected sequence number. The
+   * packet counts are not reset.
+   */
+  public void reset() {
+    for (int i = 0; i < heldPackets.length; i++) {
+      heldPackets[i] = null;
+    }
+    heldPacketCount = 0;
+    releasedPackets.clear();
+    started = false;
+  }
+
+  /**
+   * Returns the number of packets that never arrived, or that arrived too late to be released.
+   */
+  public long getLostPacketCount() {
+    return lostPacketCount;
+  }
+
+  /**
+   * Returns the number of packets that were discarded because they were duplicates or arrived too
+   * late.
+   */
+  public long getDiscardedPacketCount() {
+    return discardedPacketCount;
+  }
+
+  /**
+   * Returns the number of packets that arrived after a packet with a later sequence number, and
+   * that were put back in order.
+   */
+  public long getReorderedPacketCount() {
+    return reorderedPacketCount;
+  }
+
+  /**
+   * Advances the expected sequence number past {@code count} packets, releasing any that are
+   * held and counting the others as lost.
+   */
+  @SuppressWarnings("unchecked")
+  private void skip(int count) {
+    for (int i = 0; i < count; i++) {
+      int index = nextSequenceNumber & mask;
+      T packet = (T) heldPackets[index];
+      if (packet != null) {
+        heldPackets[index] = null;
+        heldPacketCount--;
+        releasedPackets.add(packet);
+      } else {
+        lostPacketCount++;
+      }
+      nextSequenceNumber = (nextSequenceNumber + 1) & SEQUENCE_NUMBER_MASK;
+      if (heldPacketCount == 0) {
+        // No packets remain in the window, so the rest of the skipped packets are all missing.
+        lostPacketCount += count - i - 1;
+        nextSequenceNumber = (nextSequenceNumber + count - i - 1) & SEQUENCE_NUMBER_MASK;
+        return;
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void releaseConsecutivePackets() {
+    int index = nextSequenceNumber & mask;
+    while (heldPackets[index] != null) {
+      releasedPackets.add((T) heldPackets[index]);
+      heldPackets[index] = null;
+      heldPacketCount--;
+      nextSequenceNumber = (nextSequenceNumber + 1) & SEQUENCE_NUMBER_MASK;
+      index = nextSequenceNumber & mask;
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+/**
+ * A {@link LatencyAwareBandwidthMeter.EstimateStore} that persists estimates in
+ * {@link SharedPreferences}, keyed by the type and subtype of the active network.
+ * <p>
+ * The network type is read from {@link ConnectivityManager}, which requires the
+ * {@code android.permission.ACCESS_NETWORK_STATE} permission. If the application does not hold the
+ * permission then a single estimate is stored for all networks.
+ */
+public final class SharedPreferencesEstimateStore
+    implements LatencyAwareBandwidthMeter.EstimateStore {
+
+  private static final String PREFERENCES_NAME = "exoplayer_bandwidth_estimates";
+  private static final String KEY_PREFIX = "bitrate_";
+  private static final String UNKNOWN_NETWORK = "unknown";
+
+  private final SharedPreferences preferences;
+  private final ConnectivityManager connectivityManager;
+
+  /**
+   * @param context A context.
+   */
+  public SharedPreferencesEstimateStore(Context context) {
+    preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    connectivityManager =
+        (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+  }
+
+  @Override
+  public long getBitrateEstimate() {
+    return preferences.getLong(getKey(), BandwidthMeter.NO_ESTIMATE);
+  }
+
+  @Override
+  public void setBitrateEstimate(long bitrateEstimate) {
+    preferences.edit().putLong(getKey(), bitrateEstimate).apply();
+  }
+
+  private String getKey() {
+    NetworkInfo networkInfo;
+    try {
+      networkInfo = connectivityManager == null ? null : connectivityManager.getActiveNetworkInfo();
+    } catch (SecurityException e) {
+      // The application doesn't hold the ACCESS_NETWORK_STATE permission.
+      networkInfo = null;
+    }
+    if (networkInfo == null) {
+      return KEY_PREFIX + UNKNOWN_NETWORK;
+    }
+    return KEY_PREFIX + networkInfo.getType() + "_" + networkInfo.getSubtype();
+  }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.C;
+
+import java.io.IOException;
+
+/**
+ * A {@link DataSource} that may be able to skip data without reading it.
+ */
+public interface SkippableDataSource extends DataSource {
+
+  /**
+   * Skips up to {@code length} bytes of data.
+   * <p>
+   * This method blocks until at least one byte of data has been skipped, the end of the opened
+   * range is detected, or an exception is thrown.
+   *
+   * @param length The maximum number of bytes to skip.
+   * @return The number of bytes skipped, or {@link C#RESULT_END_OF_INPUT} if the end of the opened
+   *     range is reached.
+   * @throws IOException If an error occurs skipping the data.
+   */
+  long skip(long length) throws IOException;
+
+}
@@ -16,6 +16,7 @@
 package com.google.android.exoplayer.upstream;
 
 import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.util.Assertions;
 
 import java.io.IOException;
 import java.net.DatagramPacket;
@@ -27,6 +28,13 @@ import java.net.SocketException;
 
 /**
  * A UDP {@link DataSource}.
+ * <p>
+ * By default datagrams are received on the thread that reads from the source. If the reading
+ * thread stalls for long enough then the socket's receive buffer overflows and datagrams are lost.
+ * To avoid this, a source can instead be created that receives datagrams on a dedicated thread
+ * into a queue of preallocated packets. Such a source can also parse datagrams as RTP packets, in
+ * which case RTP headers are removed, packets are put back into sequence number order, and
+ * duplicate packets are dropped.
  */
 public final class UdpDataSource implements UriDataSource {
 
@@ -55,9 +63,16 @@ public final class UdpDataSource implements UriDataSource {
    */
   public static final int DEAFULT_SOCKET_TIMEOUT_MILLIS = 8 * 1000;
 
+  /**
+   * A suggested number of datagrams that can be queued when receiving on a dedicated thread.
+   */
+  public static final int DEFAULT_PACKET_QUEUE_SIZE = 1024;
+
   private final TransferListener listener;
   private final DatagramPacket packet;
   private final int socketTimeoutMillis;
+  private final int socketReceiveBufferSize;
+  private final UdpPacketReceiver receiver;
 
   private DataSpec dataSpec;
   private DatagramSocket socket;
@@ -67,7 +82,9 @@ public final class UdpDataSource implements UriDataSource {
   private boolean opened;
 
   private byte[] packetBuffer;
+  private int packetOffset;
   private int packetRemaining;
+  private UdpPacketReceiver.Packet receivedPacket;
 
   /**
    * @param listener An optional listener.
@@ -93,10 +110,35 @@ public final class UdpDataSource implements UriDataSource {
   public UdpDataSource(TransferListener listener, int maxPacketSize, int socketTimeoutMillis) {
     this.listener = listener;
     this.socketTimeoutMillis = socketTimeoutMillis;
+    socketReceiveBufferSize = 0;
+    receiver = null;
     packetBuffer = new byte[maxPacketSize];
     packet = new DatagramPacket(packetBuffer, 0, maxPacketSize);
   }
 
+  /**
+   * Creates a source that receives datagrams on a dedicated thread.
+   *
+   * @param listener An optional listener.
+   * @param maxPacketSize The maximum datagram packet size, in bytes.
+   * @param socketTimeoutMillis The maximum time to wait for a datagram in milliseconds. A timeout
+   *     of zero is interpreted as an infinite timeout.
+   * @param packetQueueSize The number of datagrams that can be waiting to be read. Further
+   *     datagrams are dropped, and counted by {@link #getOverrunPacketCount()}.
+   * @param socketReceiveBufferSize The size of the socket's receive buffer in bytes, or zero to
+   *     use the platform default.
+   * @param parseRtp Whether datagrams should be parsed as RTP packets.
+   */
+  public UdpDataSource(TransferListener listener, int maxPacketSize, int socketTimeoutMillis,
+      int packetQueueSize, int socketReceiveBufferSize, boolean parseRtp) {
+    Assertions.checkArgument(packetQueueSize > 0);
+    this.listener = listener;
+    this.socketTimeoutMillis = socketTimeoutMillis;
+    this.socketReceiveBufferSize = socketReceiveBufferSize;
+    receiver = new UdpPacketReceiver(maxPacketSize, packetQueueSize, parseRtp);
+    packet = null;
+  }
+
   @Override
   public long open(DataSpec dataSpec) throws UdpDataSourceException {
     this.dataSpec = dataSpec;
@@ -118,7 +160,14 @@ public final class UdpDataSource implements UriDataSource {
     }
 
     try {
-      socket.setSoTimeout(socketTimeoutMillis);
+      if (socketReceiveBufferSize != 0) {
+        socket.setReceiveBufferSize(socketReceiveBufferSize);
+      }
+      if (receiver != null) {
+        receiver.start(socket);
+      } else {
+        socket.setSoTimeout(socketTimeoutMillis);
+      }
     } catch (SocketException e) {
       throw new UdpDataSourceException(e);
     }
@@ -135,20 +184,32 @@ public final class UdpDataSource implements UriDataSource {
     if (packetRemaining == 0) {
       // We've read all of the data from the current packet. Get another.
       try {
-        socket.receive(packet);
+        if (receiver != null) {
+          if (receivedPacket != null) {
+            receiver.recycle(receivedPacket);
+            receivedPacket = null;
+          }
+          receivedPacket = receiver.take(socketTimeoutMillis);
+          packetBuffer = receivedPacket.data;
+          packetOffset = receivedPacket.offset;
+          packetRemaining = receivedPacket.length;
+        } else {
+          socket.receive(packet);
+          packetOffset = 0;
+          packetRemaining = packet.getLength();
+        }
       } catch (IOException e) {
         throw new UdpDataSourceException(e);
       }
 
-      packetRemaining = packet.getLength();
       if (listener != null) {
         listener.onBytesTransferred(packetRemaining);
       }
     }
 
-    int packetOffset = packet.getLength() - packetRemaining;
     int bytesToRead = Math.min(packetRemaining, readLength);
     System.arraycopy(packetBuffer, packetOffset, buffer, offset, bytesToRead);
+    packetOffset += bytesToRead;
     packetRemaining -= bytesToRead;
     return bytesToRead;
   }
@@ -166,9 +227,13 @@ public final class UdpDataSource implements UriDataSource {
     if (socket != null) {
       socket.close();
       socket = null;
+      if (receiver != null) {
+        receiver.stop();
+      }
     }
     address = null;
     socketAddress = null;
+    receivedPacket = null;
     packetRemaining = 0;
     if (opened) {
       opened = false;
@@ -183,4 +248,44 @@ public final class UdpDataSource implements UriDataSource {
     return dataSpec == null ? null : dataSpec.uri.toString();
   }
 
+  /**
+   * Returns the number of datagrams that were dropped because the packet queue was full. Always
+   * zero for a source that does not receive on a dedicated thread.
+   */
+  public long getOverrunPacketCount() {
+    return receiver == null ? 0 : receiver.getOverrunPacketCount();
+  }
+
+  /**
+   * Returns the number of datagrams that were dropped because they were not valid RTP packets.
+   * Always zero for a source that does not parse RTP.
+   */
+  public long getInvalidPacketCount() {
+    return receiver == null ? 0 : receiver.getInvalidPacketCount();
+  }
+
+  /**
+   * Returns the number of RTP packets that were lost, as determined from their sequence numbers.
+   * Always zero for a source that does not parse RTP.
+   */
+  public long getLostPacketCount() {
+    return receiver == null ? 0 : receiver.getLostPacketCount();
+  }
+
+  /**
+   * Returns the number of RTP packets that were dropped because they were duplicates or arrived
+   * too late to be put back in order. Always zero for a source that does not parse RTP.
+   */
+  public long getDiscardedPacketCount() {
+    return receiver == null ? 0 : receiver.getDiscardedPacketCount();
+  }
+
+  /**
+   * Returns the number of RTP packets that arrived out of order and were put back in order. Always
+   * zero for a source that does not parse RTP.
+   */
+  public long getReorderedPacketCount() {
+    return receiver == null ? 0 : receiver.getReorderedPacketCount();
+  }
+
 }
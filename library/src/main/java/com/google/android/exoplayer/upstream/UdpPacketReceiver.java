@@ -0,0 +1,352 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+
+/**
+ * Receives datagrams from a socket on a dedicated thread, so that the socket is drained even when
+ * the thread reading the data stalls.
+ * <p>
+ * Datagrams are received into a fixed number of preallocated packets. If all of the packets are
+ * waiting to be read then further datagrams are received into a scratch packet and dropped, and
+ * counted as overruns. Optionally, datagrams are parsed as RTP packets, in which case their
+ * headers are removed and they are put back into sequence number order.
+ */
+/* package */ final class UdpPacketReceiver implements Runnable {
+
+  /**
+   * A received datagram.
+   */
+  public static final class Packet {
+
+    /**
+     * The data of the datagram.
+     */
+    public final byte[] data;
+    /**
+     * The offset of the payload in {@link #data}.
+     */
+    public int offset;
+    /**
+     * The length of the payload.
+     */
+    public int length;
+
+    private final DatagramPacket datagramPacket;
+
+    private Packet(int maxPacketSize) {
+      data = new byte[maxPacketSize];
+      datagramPacket = new DatagramPacket(data, maxPacketSize);
+    }
+
+  }
+
+  private static final int RTP_HEADER_LENGTH = 12;
+  private static final int RTP_VERSION = 2;
+  private static final int MAX_RTP_REORDER_WINDOW_SIZE = 64;
+
+  /**
+   * How long to wait for a missing RTP packet when no further packets arrive.
+   */
+  private static final int RTP_GAP_TIMEOUT_MS = 100;
+
+  private final Packet[] packets;
+  private final Packet scratchPacket;
+  private final ArrayDeque<Packet> freePackets;
+  private final ArrayDeque<Packet> receivedPackets;
+  private final RtpReorderBuffer<Packet> rtpReorderBuffer;
+
+  private DatagramSocket socket;
+  private Thread thread;
+  private volatile boolean stopped;
+  private IOException error;
+
+  private long overrunPacketCount;
+  private long invalidPacketCount;
+
+  /**
+   * @param maxPacketSize The maximum datagram size, in bytes.
+   * @param packetCount The number of datagrams that can be waiting to be read.
+   * @param parseRtp Whether datagrams should be parsed as RTP packets.
+   */
+  public UdpPacketReceiver(int maxPacketSize, int packetCount, boolean parseRtp) {
+    packets = new Packet[packetCount];
+    for (int i = 0; i < packetCount; i++) {
+      packets[i] = new Packet(maxPacketSize);
+    }
+    scratchPacket = new Packet(maxPacketSize);
+    freePackets = new ArrayDeque<>(packetCount);
+    receivedPackets = new ArrayDeque<>(packetCount);
+    // Packets held for reordering cannot be read, so hold at most a quarter of them.
+    rtpReorderBuffer = parseRtp ? new RtpReorderBuffer<Packet>(Math.min(
+        MAX_RTP_REORDER_WINDOW_SIZE, Integer.highestOneBit(Math.max(1, packetCount / 4)))) : null;
+  }
+
+  /**
+   * Starts receiving from a socket.
+   *
+   * @param socket The socket. The receiver modifies the socket's timeout.
+   * @throws SocketException If the socket's timeout could not be set.
+   */
+  public void start(DatagramSocket socket) throws SocketException {
+    socket.setSoTimeout(rtpReorderBuffer != null ? RTP_GAP_TIMEOUT_MS : 0);
+    synchronized (this) {
+      this.socket = socket;
+      freePackets.clear();
+      receivedPackets.clear();
+      for (Packet packet : packets) {
+        freePackets.add(packet);
+      }
+      if (rtpReorderBuffer != null) {
+        rtpReorderBuffer.reset();
+      }
+      error = null;
+    }
+    stopped = false;
+    thread = new Thread(this, "UdpPacketReceiver");
+    thread.setPriority(Thread.MAX_PRIORITY);
+    thread.start();
+  }
+
+  /**
+   * Stops receiving, if started. The socket must be closed before this method is called, so that
+   * the receive thread is not blocked.
+   */
+  public void stop() {
+    if (thread == null) {
+      return;
+    }
+    stopped = true;
+    boolean interrupted = false;
+    while (thread.isAlive()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    thread = null;
+    socket = null;
+  }
+
+  /**
+   * Waits for the next packet to be received.
+   *
+   * @param timeoutMs The maximum time to wait in milliseconds, or zero to wait indefinitely.
+   * @return The packet, which must be passed to {@link #recycle(Packet)} once it has been read.
+   * @throws IOException If the timeout elapsed, or if an error occurred receiving from the socket.
+   */
+  public synchronized Packet take(int timeoutMs) throws IOException {
+    long deadlineMs = timeoutMs == 0 ? Long.MAX_VALUE : SystemClock.elapsedRealtime() + timeoutMs;
+    while (receivedPackets.isEmpty()) {
+      if (error != null) {
+        throw error;
+      }
+      long remainingMs = deadlineMs - SystemClock.elapsedRealtime();
+      if (remainingMs <= 0) {
+        throw new SocketTimeoutException();
+      }
+      try {
+        wait(deadlineMs == Long.MAX_VALUE ? 0 : remainingMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+    }
+    return receivedPackets.poll();
+  }
+
+  /**
+   * Returns a packet that has been read, so that it can be used to receive another datagram.
+   *
+   * @param packet The packet.
+   */
+  public synchronized void recycle(Packet packet) {
+    freePackets.add(packet);
+  }
+
+  /**
+   * Returns the number of datagrams that were dropped because too many packets were waiting to be
+   * read.
+   */
+  public synchronized long getOverrunPacketCount() {
+    return overrunPacketCount;
+  }
+
+  /**
+   * Returns the number of datagrams that were dropped because they were not valid RTP packets.
+   */
+  public synchronized long getInvalidPacketCount() {
+    return invalidPacketCount;
+  }
+
+  /**
+   * Returns the number of RTP packets that were lost, as determined from their sequence numbers.
+   */
+  public synchronized long getLostPacketCount() {
+    return rtpReorderBuffer == null ? 0 : rtpReorderBuffer.getLostPacketCount();
+  }
+
+  /**
+   * Returns the number of RTP packets that were dropped because they were duplicates or arrived
+   * too late to be put back in order.
+   */
+  public synchronized long getDiscardedPacketCount() {
+    return rtpReorderBuffer == null ? 0 : rtpReorderBuffer.getDiscardedPacketCount();
+  }
+
+  /**
+   * Returns the number of RTP packets that arrived out of order and were put back in order.
+   */
+  public synchronized long getReorderedPacketCount() {
+    return rtpReorderBuffer == null ? 0 : rtpReorderBuffer.getReorderedPacketCount();
+  }
+
+  @Override
+  public void run() {
+    DatagramSocket socket;
+    synchronized (this) {
+      socket = this.socket;
+    }
+    while (!stopped) {
+      Packet packet;
+      synchronized (this) {
+        packet = freePackets.poll();
+      }
+      boolean overrun = packet == null;
+      if (overrun) {
+        // Keep draining the socket, so that the datagrams that are dropped are the newest ones.
+        packet = scratchPacket;
+      }
+      try {
+        packet.datagramPacket.setLength(packet.data.length);
+        socket.receive(packet.datagramPacket);
+      } catch (SocketTimeoutException e) {
+        synchronized (this) {
+          if (!overrun) {
+            freePackets.add(packet);
+          }
+          if (rtpReorderBuffer != null) {
+            // Stop waiting for missing packets, so that the packets behind them can be read.
+            rtpReorderBuffer.skipMissingPackets();
+            moveReleasedRtpPackets();
+          }
+        }
+        continue;
+      } catch (IOException e) {
+        if (!stopped) {
+          synchronized (this) {
+            error = e;
+            notifyAll();
+          }
+        }
+        return;
+      }
+      int length = packet.datagramPacket.getLength();
+      synchronized (this) {
+        if (overrun) {
+          // A packet may have been read whilst waiting for the datagram.
+          Packet freePacket = freePackets.poll();
+          if (freePacket == null) {
+            overrunPacketCount++;
+          } else {
+            System.arraycopy(packet.data, 0, freePacket.data, 0, length);
+            onPacketReceived(freePacket, length);
+          }
+        } else {
+          onPacketReceived(packet, length);
+        }
+      }
+    }
+  }
+
+  private void onPacketReceived(Packet packet, int length) {
+    if (rtpReorderBuffer == null) {
+      packet.offset = 0;
+      packet.length = length;
+      receivedPackets.add(packet);
+      notifyAll();
+      return;
+    }
+    int sequenceNumber = parseRtpHeader(packet, length);
+    if (sequenceNumber == -1) {
+      invalidPacketCount++;
+      freePackets.add(packet);
+    } else if (!rtpReorderBuffer.add(packet, sequenceNumber)) {
+      freePackets.add(packet);
+    } else {
+      moveReleasedRtpPackets();
+    }
+  }
+
+  private void moveReleasedRtpPackets() {
+    Packet packet = rtpReorderBuffer.poll();
+    if (packet == null) {
+      return;
+    }
+    while (packet != null) {
+      receivedPackets.add(packet);
+      packet = rtpReorderBuffer.poll();
+    }
+    notifyAll();
+  }
+
+  /**
+   * Sets the offset and length of a packet's payload from its RTP header.
+   *
+   * @param packet The packet.
+   * @param length The length of the datagram.
+   * @return The sequence number of the packet, or -1 if it is not a valid RTP packet.
+   */
+  private static int parseRtpHeader(Packet packet, int length) {
+    byte[] data = packet.data;
+    if (length < RTP_HEADER_LENGTH || ((data[0] & 0xFF) >> 6) != RTP_VERSION) {
+      return -1;
+    }
+    boolean hasPadding = (data[0] & 0x20) != 0;
+    boolean hasExtension = (data[0] & 0x10) != 0;
+    int csrcCount = data[0] & 0x0F;
+    int headerLength = RTP_HEADER_LENGTH + 4 * csrcCount;
+    if (hasExtension) {
+      if (headerLength + 4 > length) {
+        return -1;
+      }
+      int extensionWordCount = ((data[headerLength + 2] & 0xFF) << 8)
+          | (data[headerLength + 3] & 0xFF);
+      headerLength += 4 + 4 * extensionWordCount;
+    }
+    int payloadEnd = hasPadding ? length - (data[length - 1] & 0xFF) : length;
+    if (headerLength > payloadEnd) {
+      return -1;
+    }
+    packet.offset = headerLength;
+    packet.length = payloadEnd - headerLength;
+    return ((data[2] & 0xFF) << 8) | (data[3] & 0xFF);
+  }
+
+}
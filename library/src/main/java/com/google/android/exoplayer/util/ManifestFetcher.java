@@ -17,6 +17,7 @@ package com.google.android.exoplayer.util;
 
 import com.google.android.exoplayer.upstream.Loader;
 import com.google.android.exoplayer.upstream.Loader.Loadable;
+import com.google.android.exoplayer.upstream.LoaderThreadPool;
 import com.google.android.exoplayer.upstream.UriDataSource;
 import com.google.android.exoplayer.upstream.UriLoadable;
 
@@ -146,7 +147,24 @@ public class ManifestFetcher<T> implements Loader.Callback {
    */
   public ManifestFetcher(String manifestUri, UriDataSource uriDataSource,
       UriLoadable.Parser<T> parser, Handler eventHandler, EventListener eventListener) {
-    this.parser = parser;
+    this(manifestUri, uriDataSource, parser, null, eventHandler, eventListener);
+  }
+
+  /**
+   * @param manifestUri The manifest location.
+   * @param uriDataSource The {@link UriDataSource} to use when loading the manifest.
+   * @param parser A parser to parse the loaded manifest data.
+   * @param parseCache A cache through which loaded manifest data is parsed, so that data identical
+   *     to that of an earlier load is not parsed again. May be null if caching is not required.
+   *     See {@link ManifestParseCache} for the requirements that this places on {@code parser}.
+   * @param eventHandler A handler to use when delivering events to {@code eventListener}. May be
+   *     null if delivery of events is not required.
+   * @param eventListener A listener of events. May be null if delivery of events is not required.
+   */
+  public ManifestFetcher(String manifestUri, UriDataSource uriDataSource,
+      UriLoadable.Parser<T> parser, ManifestParseCache parseCache, Handler eventHandler,
+      EventListener eventListener) {
+    this.parser = parseCache == null ? parser : parseCache.wrap(parser);
     this.manifestUri = manifestUri;
     this.uriDataSource = uriDataSource;
     this.eventHandler = eventHandler;
@@ -252,7 +270,7 @@ public class ManifestFetcher<T> implements Loader.Callback {
       return;
     }
     if (loader == null) {
-      loader = new Loader("manifestLoader");
+      loader = new Loader("manifestLoader", LoaderThreadPool.PRIORITY_MANIFEST);
     }
     if (!loader.isLoading()) {
       currentLoadable = new UriLoadable<>(manifestUri, uriDataSource, parser);
@@ -362,7 +380,7 @@ public class ManifestFetcher<T> implements Loader.Callback {
       this.singleUseLoadable = singleUseLoadable;
       this.callbackLooper = callbackLooper;
       this.wrappedCallback = wrappedCallback;
-      singleUseLoader = new Loader("manifestLoader:single");
+      singleUseLoader = new Loader("manifestLoader:single", LoaderThreadPool.PRIORITY_MANIFEST);
     }
 
     public void startLoading() {
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.util;
+
+import com.google.android.exoplayer.ParserException;
+import com.google.android.exoplayer.upstream.UriLoadable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in-memory cache of parsed manifests, keyed by a digest of the data from which they were
+ * parsed.
+ * <p>
+ * The digest is computed as the data is read, and also covers the URL from which the data was
+ * loaded and the class of the parser. If the digest matches that of an earlier load then the
+ * manifest parsed by the earlier load is returned, and the data is not parsed again. Hence the
+ * cache should only be used with parsers that produce immutable manifests, and parsers of the
+ * same class that share a cache must be configured identically. The least recently used manifest
+ * is evicted when the cache is full.
+ * <p>
+ * A cache may be shared between any number of {@link ManifestFetcher} instances, on any thread.
+ */
+public final class ManifestParseCache {
+
+  /**
+   * The default maximum number of manifests held by the cache.
+   */
+  public static final int DEFAULT_MAX_ENTRIES = 16;
+
+  private static final String DIGEST_ALGORITHM = "SHA-1";
+  private static final int BUFFER_SIZE = 4096;
+
+  private static ManifestParseCache instance;
+
+  private final LinkedHashMap<Key, Object> entries;
+
+  private int hitCount;
+  private int missCount;
+
+  /**
+   * Returns a process-wide cache that holds up to {@link #DEFAULT_MAX_ENTRIES} manifests.
+   */
+  public static synchronized ManifestParseCache getInstance() {
+    if (instance == null) {
+      instance = new ManifestParseCache(DEFAULT_MAX_ENTRIES);
+    }
+    return instance;
+  }
+
+  /**
+   * @param maxEntries The maximum number of manifests held by the cache.
+   */
+  public ManifestParseCache(final int maxEntries) {
+    Assertions.checkArgument(maxEntries > 0);
+    entries = new LinkedHashMap<Key, Object>(maxEntries + 1, 1, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Returns a parser that parses through this cache.
+   *
+   * @param parser The parser used when the cache does not contain a matching manifest.
+   * @return A parser that parses through this cache.
+   */
+  public <T> UriLoadable.Parser<T> wrap(UriLoadable.Parser<T> parser) {
+    return new CachingParser<>(parser);
+  }
+
+  /**
+   * Returns the number of parses that were satisfied by the cache.
+   */
+  public synchronized int getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of parses that were not satisfied by the cache.
+   */
+  public synchronized int getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Removes all manifests from the cache.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  private synchronized Object get(Key key) {
+    Object manifest = entries.get(key);
+    if (manifest != null) {
+      hitCount++;
+    } else {
+      missCount++;
+    }
+    return manifest;
+  }
+
+  private synchronized void put(Key key, Object manifest) {
+    entries.put(key, manifest);
+  }
+
+  private final class CachingParser<T> implements UriLoadable.Parser<T> {
+
+    private final UriLoadable.Parser<T> parser;
+
+    public CachingParser(UriLoadable.Parser<T> parser) {
+      this.parser = parser;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T parse(String connectionUrl, InputStream inputStream)
+        throws ParserException, IOException {
+      MessageDigest digest;
+      try {
+        digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+      } catch (NoSuchAlgorithmException e) {
+        // Every platform is required to support SHA-1, so this should never happen.
+        return parser.parse(connectionUrl, inputStream);
+      }
+      digest.update(parser.getClass().getName().getBytes("UTF-8"));
+      digest.update((byte) 0);
+      digest.update(connectionUrl.getBytes("UTF-8"));
+      digest.update((byte) 0);
+      // Read and digest the data, retaining it in case it needs to be parsed.
+      ByteArrayOutputStream data = new ByteArrayOutputStream();
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int bytesRead;
+      while ((bytesRead = inputStream.read(buffer)) != -1) {
+        digest.update(buffer, 0, bytesRead);
+        data.write(buffer, 0, bytesRead);
+      }
+      Key key = new Key(digest.digest());
+      T manifest = (T) get(key);
+      if (manifest == null) {
+        manifest = parser.parse(connectionUrl, new ByteArrayInputStream(data.toByteArray()));
+        if (manifest != null) {
+          put(key, manifest);
+        }
+      }
+      return manifest;
+    }
+
+  }
+
+  private static final class Key {
+
+    private final byte[] digest;
+    private final int hashCode;
+
+    public Key(byte[] digest) {
+      this.digest = digest;
+      hashCode = Arrays.hashCode(digest);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Key && Arrays.equals(digest, ((Key) obj).digest);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+  }
+
+}
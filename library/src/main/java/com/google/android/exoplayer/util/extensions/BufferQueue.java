@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.util.extensions;
+
+import com.google.android.exoplayer.util.Assertions;
+
+/**
+ * A fixed capacity first-in first-out queue of buffers, backed by a ring buffer. Each buffer is
+ * queued together with an integer tag.
+ * <p>
+ * The queue is safe for use by one producer thread and one consumer thread without additional
+ * synchronization. Queueing and dequeueing a buffer do not allocate.
+ */
+/* package */ final class BufferQueue<T> {
+
+  private final Object[] buffers;
+  private final int[] tags;
+  private final int mask;
+
+  // The head is only written by the consumer, and the tail only by the producer. Both increase
+  // monotonically, so the number of queued buffers is tail - head even after they overflow.
+  private volatile int head;
+  private volatile int tail;
+
+  /**
+   * @param capacity The maximum number of buffers that the queue can hold.
+   */
+  public BufferQueue(int capacity) {
+    int size = Integer.highestOneBit(Math.max(1, capacity));
+    if (size < capacity) {
+      size <<= 1;
+    }
+    buffers = new Object[size];
+    tags = new int[size];
+    mask = size - 1;
+  }
+
+  /**
+   * Returns whether the queue is empty.
+   */
+  public boolean isEmpty() {
+    return head == tail;
+  }
+
+  /**
+   * Adds a buffer to the tail of the queue. Must only be called from the producer thread.
+   *
+   * @param buffer The buffer to add.
+   * @param tag The tag of the buffer.
+   * @throws IllegalStateException If the queue is full.
+   */
+  public void add(T buffer, int tag) {
+    int currentTail = tail;
+    Assertions.checkState(currentTail - head < buffers.length);
+    int index = currentTail & mask;
+    buffers[index] = buffer;
+    tags[index] = tag;
+    // Publish the buffer to the consumer.
+    tail = currentTail + 1;
+  }
+
+  /**
+   * Returns the tag of the buffer at the head of the queue. Must only be called from the consumer
+   * thread, and only if the queue is not empty.
+   */
+  public int peekTag() {
+    return tags[head & mask];
+  }
+
+  /**
+   * Removes and returns the buffer at the head of the queue. Must only be called from the consumer
+   * thread.
+   *
+   * @return The buffer, or null if the queue is empty.
+   */
+  @SuppressWarnings("unchecked")
+  public T poll() {
+    int currentHead = head;
+    if (currentHead == tail) {
+      return null;
+    }
+    int index = currentHead & mask;
+    T buffer = (T) buffers[index];
+    buffers[index] = null;
+    // Hand the slot back to the producer.
+    head = currentHead + 1;
+    return buffer;
+  }
+
+}
@@ -17,10 +17,26 @@ package com.google.android.exoplayer.util.extensions;
 
 import com.google.android.exoplayer.util.Assertions;
 
-import java.util.LinkedList;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Base class for {@link Decoder}s that use their own decode thread.
+ * <p>
+ * The {@link Decoder} methods must be called from a single thread, referred to below as the
+ * playback thread. Output buffers may be released from any thread.
+ * <p>
+ * Buffers are handed between the playback thread and the decode thread through
+ * {@link BufferQueue}s, each with a single producer and a single consumer, so the decode loop does
+ * not allocate and neither thread acquires a monitor to pass a buffer to the other. The decode
+ * thread parks when it has nothing to do, and is unparked only if it is parked. Queued buffers are
+ * tagged with the number of flushes that preceded them, which allows a flush to invalidate buffers
+ * held by the decode thread without waiting for it.
+ * <p>
+ * On a device with a single processor, unparking the decode thread usually switches to it
+ * immediately, so waking it for each buffer would cost a context switch per buffer. On such
+ * devices the decode thread is instead unparked by the playback thread when it next polls for an
+ * output buffer, or runs out of input buffers, so that it can decode several buffers each time it
+ * runs.
  */
 public abstract class SimpleDecoder<I extends InputBuffer, O extends OutputBuffer,
     E extends Exception> extends Thread implements Decoder<I, O, E> {
@@ -39,28 +55,48 @@ public abstract class SimpleDecoder<I extends InputBuffer, O extends OutputBuffe
 
   }
 
-  private final Object lock;
-  private final LinkedList<I> queuedInputBuffers;
-  private final LinkedList<O> queuedOutputBuffers;
-  private final I[] availableInputBuffers;
-  private final O[] availableOutputBuffers;
+  // Input buffers queued by the playback thread, to be decoded by the decode thread.
+  private final BufferQueue<I> queuedInputBuffers;
+  // Input buffers returned by the decode thread, to be made available to the playback thread.
+  private final BufferQueue<I> returnedInputBuffers;
+  // Output buffers queued by the decode thread, to be dequeued by the playback thread.
+  private final BufferQueue<O> queuedOutputBuffers;
+  // Output buffers released by their owners, to be made available to the decode thread. Releasing
+  // threads synchronize on releaseLock, so that only one of them produces at a time.
+  private final BufferQueue<O> releasedOutputBuffers;
+  private final Object releaseLock;
+  // Whether to defer unparking the decode thread until the playback thread polls.
+  private final boolean deferUnparking;
 
+  // Accessed only by the playback thread.
+  private final I[] availableInputBuffers;
   private int availableInputBufferCount;
-  private int availableOutputBufferCount;
   private I dequeuedInputBuffer;
 
-  private E exception;
-  private boolean flushed;
-  private boolean released;
+  // Accessed only by the decode thread.
+  private final O[] availableOutputBuffers;
+  private int availableOutputBufferCount;
+  private int decoderFlushCount;
+
+  // Written only by the playback thread.
+  private volatile int flushCount;
+  private volatile boolean released;
+
+  // Written only by the decode thread, except that decoderWaiting is cleared when unparking it.
+  private volatile boolean decoderWaiting;
+  private volatile E exception;
 
   /**
    * @param inputBuffers An array of nulls that will be used to store references to input buffers.
    * @param outputBuffers An array of nulls that will be used to store references to output buffers.
    */
   protected SimpleDecoder(I[] inputBuffers, O[] outputBuffers) {
-    lock = new Object();
-    queuedInputBuffers = new LinkedList<>();
-    queuedOutputBuffers = new LinkedList<>();
+    queuedInputBuffers = new BufferQueue<>(inputBuffers.length);
+    returnedInputBuffers = new BufferQueue<>(inputBuffers.length);
+    queuedOutputBuffers = new BufferQueue<>(outputBuffers.length);
+    releasedOutputBuffers = new BufferQueue<>(outputBuffers.length);
+    releaseLock = new Object();
+    deferUnparking = Runtime.getRuntime().availableProcessors() == 1;
     availableInputBuffers = inputBuffers;
     availableInputBufferCount = inputBuffers.length;
     for (int i = 0; i < availableInputBufferCount; i++) {
@@ -90,39 +126,53 @@ public abstract class SimpleDecoder<I extends InputBuffer, O extends OutputBuffe
 
   @Override
   public final I dequeueInputBuffer() throws E {
-    synchronized (lock) {
-      maybeThrowException();
-      Assertions.checkState(dequeuedInputBuffer == null);
+    maybeThrowException();
+    Assertions.checkState(dequeuedInputBuffer == null);
+    if (availableInputBufferCount == 0) {
+      I inputBuffer;
+      while ((inputBuffer = returnedInputBuffers.poll()) != null) {
+        availableInputBuffers[availableInputBufferCount++] = inputBuffer;
+      }
       if (availableInputBufferCount == 0) {
+        // Every input buffer is queued, so the decode thread needs to run.
+        maybeUnparkForQueuedInput();
         return null;
       }
-      I inputBuffer = availableInputBuffers[--availableInputBufferCount];
-      inputBuffer.reset();
-      dequeuedInputBuffer = inputBuffer;
-      return inputBuffer;
     }
+    I inputBuffer = availableInputBuffers[--availableInputBufferCount];
+    inputBuffer.reset();
+    dequeuedInputBuffer = inputBuffer;
+    return inputBuffer;
   }
 
   @Override
   public final void queueInputBuffer(I inputBuffer) throws E {
-    synchronized (lock) {
-      maybeThrowException();
-      Assertions.checkArgument(inputBuffer == dequeuedInputBuffer);
-      queuedInputBuffers.addLast(inputBuffer);
-      maybeNotifyDecodeLoop();
-      dequeuedInputBuffer = null;
+    maybeThrowException();
+    Assertions.checkArgument(inputBuffer == dequeuedInputBuffer);
+    queuedInputBuffers.add(inputBuffer, flushCount);
+    dequeuedInputBuffer = null;
+    if (!deferUnparking) {
+      maybeUnparkDecodeThread();
     }
   }
 
   @Override
   public final O dequeueOutputBuffer() throws E {
-    synchronized (lock) {
-      maybeThrowException();
-      if (queuedOutputBuffers.isEmpty()) {
-        return null;
+    maybeThrowException();
+    if (deferUnparking) {
+      maybeUnparkForQueuedInput();
+    }
+    O outputBuffer;
+    while (!queuedOutputBuffers.isEmpty()) {
+      boolean flushedWhileQueued = queuedOutputBuffers.peekTag() != flushCount;
+      outputBuffer = queuedOutputBuffers.poll();
+      if (!flushedWhileQueued) {
+        return outputBuffer;
       }
-      return queuedOutputBuffers.removeFirst();
+      // The buffer was decoded from input queued before a flush, so discard it.
+      returnOutputBuffer(outputBuffer);
     }
+    return null;
   }
 
   /**
@@ -131,35 +181,29 @@ public abstract class SimpleDecoder<I extends InputBuffer, O extends OutputBuffe
    * @param outputBuffer The output buffer being released.
    */
   protected void releaseOutputBuffer(O outputBuffer) {
-    synchronized (lock) {
-      availableOutputBuffers[availableOutputBufferCount++] = outputBuffer;
-      maybeNotifyDecodeLoop();
-    }
+    returnOutputBuffer(outputBuffer);
   }
 
   @Override
   public final void flush() {
-    synchronized (lock) {
-      flushed = true;
-      if (dequeuedInputBuffer != null) {
-        availableInputBuffers[availableInputBufferCount++] = dequeuedInputBuffer;
-        dequeuedInputBuffer = null;
-      }
-      while (!queuedInputBuffers.isEmpty()) {
-        availableInputBuffers[availableInputBufferCount++] = queuedInputBuffers.removeFirst();
-      }
-      while (!queuedOutputBuffers.isEmpty()) {
-        availableOutputBuffers[availableOutputBufferCount++] = queuedOutputBuffers.removeFirst();
-      }
+    // Input buffers that are still queued, or being decoded, are now tagged with a stale flush
+    // count. The decode thread returns them without queueing any output.
+    flushCount++;
+    if (dequeuedInputBuffer != null) {
+      availableInputBuffers[availableInputBufferCount++] = dequeuedInputBuffer;
+      dequeuedInputBuffer = null;
     }
+    O outputBuffer;
+    while ((outputBuffer = queuedOutputBuffers.poll()) != null) {
+      returnOutputBuffer(outputBuffer);
+    }
+    maybeUnparkDecodeThread();
   }
 
   @Override
   public void release() {
-    synchronized (lock) {
-      released = true;
-      lock.notify();
-    }
+    released = true;
+    LockSupport.unpark(this);
     try {
       join();
     } catch (InterruptedException e) {
@@ -173,54 +217,94 @@ public abstract class SimpleDecoder<I extends InputBuffer, O extends OutputBuffe
    * @throws E The decode exception.
    */
   private void maybeThrowException() throws E {
+    E exception = this.exception;
     if (exception != null) {
       throw exception;
     }
   }
 
+  private void returnOutputBuffer(O outputBuffer) {
+    synchronized (releaseLock) {
+      releasedOutputBuffers.add(outputBuffer, 0);
+    }
+    // An output buffer is only needed if there's input to decode into it.
+    if (!deferUnparking) {
+      maybeUnparkForQueuedInput();
+    }
+  }
+
   /**
-   * Notifies the decode loop if there exists a queued input buffer and an available output buffer
-   * to decode into.
+   * Unparks the decode thread if it is parked, or about to park, and there is queued input.
    * <p>
-   * Should only be called whilst synchronized on the lock object.
+   * Producers of output buffers check for queued input after adding their buffer, and the decode
+   * thread only parks with queued input after checking for released output buffers, so this does
+   * not miss a wake-up.
    */
-  private void maybeNotifyDecodeLoop() {
-    if (canDecodeBuffer()) {
-      lock.notify();
+  private void maybeUnparkForQueuedInput() {
+    if (!queuedInputBuffers.isEmpty()) {
+      maybeUnparkDecodeThread();
+    }
+  }
+
+  /**
+   * Unparks the decode thread if it is parked, or about to park.
+   * <p>
+   * Should be called after handing a buffer to the decode thread. The decode thread sets
+   * {@link #decoderWaiting} before checking for work, and the caller reads it after adding work,
+   * so at least one of them sees the other's write. The flag is cleared here so that further work
+   * added before the decode thread runs does not unpark it again.
+   */
+  private void maybeUnparkDecodeThread() {
+    if (decoderWaiting) {
+      decoderWaiting = false;
+      LockSupport.unpark(this);
     }
   }
 
   @Override
   public final void run() {
-    try {
-      while (decode()) {
-        // Do nothing.
+    while (!released && exception == null) {
+      if (!decode()) {
+        decoderWaiting = true;
+        if (!released && !hasWork()) {
+          // May return spuriously, in which case the loop checks for work again.
+          LockSupport.park(this);
+        }
+        decoderWaiting = false;
       }
-    } catch (InterruptedException e) {
-      // Not expected.
-      throw new IllegalStateException(e);
     }
   }
 
-  private boolean decode() throws InterruptedException {
-    I inputBuffer;
-    O outputBuffer;
-    boolean resetDecoder;
-
-    // Wait until we have an input buffer to decode, and an output buffer to decode into.
-    synchronized (lock) {
-      while (!released && !canDecodeBuffer()) {
-        lock.wait();
+  /**
+   * Decodes the next queued input buffer, or returns it if it was queued before a flush.
+   *
+   * @return Whether any input buffer was processed.
+   */
+  private boolean decode() {
+    if (queuedInputBuffers.isEmpty()) {
+      return false;
+    }
+    int inputFlushCount = queuedInputBuffers.peekTag();
+    if (inputFlushCount != flushCount) {
+      // The input buffer was queued before a flush, so make it available again without decoding.
+      returnedInputBuffers.add(queuedInputBuffers.poll(), 0);
+      return true;
+    }
+    if (availableOutputBufferCount == 0) {
+      O releasedOutputBuffer;
+      while ((releasedOutputBuffer = releasedOutputBuffers.poll()) != null) {
+        availableOutputBuffers[availableOutputBufferCount++] = releasedOutputBuffer;
       }
-      if (released) {
+      if (availableOutputBufferCount == 0) {
         return false;
       }
-      inputBuffer = queuedInputBuffers.removeFirst();
-      outputBuffer = availableOutputBuffers[--availableOutputBufferCount];
-      resetDecoder = flushed;
-      flushed = false;
     }
 
+    I inputBuffer = queuedInputBuffers.poll();
+    O outputBuffer = availableOutputBuffers[--availableOutputBufferCount];
+    boolean resetDecoder = inputFlushCount != decoderFlushCount;
+    decoderFlushCount = inputFlushCount;
+
     outputBuffer.reset();
     if (inputBuffer.getFlag(Buffer.FLAG_END_OF_STREAM)) {
       outputBuffer.setFlag(Buffer.FLAG_END_OF_STREAM);
@@ -228,32 +312,37 @@ public abstract class SimpleDecoder<I extends InputBuffer, O extends OutputBuffe
       if (inputBuffer.getFlag(Buffer.FLAG_DECODE_ONLY)) {
         outputBuffer.setFlag(Buffer.FLAG_DECODE_ONLY);
       }
-      exception = decode(inputBuffer, outputBuffer, resetDecoder);
+      E exception = decode(inputBuffer, outputBuffer, resetDecoder);
       if (exception != null) {
-        // Memory barrier to ensure that the decoder exception is visible from the playback thread.
-        synchronized (lock) {}
-        return false;
-      }
-    }
-
-    synchronized (lock) {
-      if (flushed || outputBuffer.getFlag(Buffer.FLAG_DECODE_ONLY)) {
-        // If a flush occurred while decoding or the buffer was only for decoding (not presentation)
-        // then make the output buffer available again rather than queueing it to be consumed.
+        // Make the buffers available again, so that none are lost.
         availableOutputBuffers[availableOutputBufferCount++] = outputBuffer;
-      } else {
-        // Queue the decoded output buffer to be consumed.
-        queuedOutputBuffers.addLast(outputBuffer);
+        returnedInputBuffers.add(inputBuffer, 0);
+        // The volatile write makes the exception visible from the playback thread.
+        this.exception = exception;
+        return true;
       }
-      // Make the input buffer available again.
-      availableInputBuffers[availableInputBufferCount++] = inputBuffer;
     }
 
+    if (inputFlushCount != flushCount || outputBuffer.getFlag(Buffer.FLAG_DECODE_ONLY)) {
+      // If a flush occurred while decoding or the buffer was only for decoding (not presentation)
+      // then make the output buffer available again rather than queueing it to be consumed.
+      availableOutputBuffers[availableOutputBufferCount++] = outputBuffer;
+    } else {
+      // Queue the decoded output buffer to be consumed. If a flush occurs before it is dequeued,
+      // its tag will be stale and the playback thread will discard it.
+      queuedOutputBuffers.add(outputBuffer, inputFlushCount);
+    }
+    // Make the input buffer available again.
+    returnedInputBuffers.add(inputBuffer, 0);
     return true;
   }
 
-  private boolean canDecodeBuffer() {
-    return !queuedInputBuffers.isEmpty() && availableOutputBufferCount > 0;
+  /**
+   * Returns whether the decode thread can process a queued input buffer.
+   */
+  private boolean hasWork() {
+    return !queuedInputBuffers.isEmpty() && (queuedInputBuffers.peekTag() != flushCount
+        || availableOutputBufferCount > 0 || !releasedOutputBuffers.isEmpty());
   }
 
   /**